@@ -23,6 +23,43 @@ const axiosInstance = axios.create({
   timeout: 30000, // 30 seconds timeout
 });
 
+// crypto.randomUUID is only available in secure contexts (https or localhost)
+const newIdempotencyKey = (): string => {
+  if (typeof crypto !== 'undefined' && typeof crypto.randomUUID === 'function') {
+    return crypto.randomUUID();
+  }
+  return `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}-${Math.random().toString(36).slice(2)}`;
+};
+
+/**
+ * Idempotency keys for user actions such as "submit payment". Repeating an action after an error
+ * resends its key, so an earlier attempt that did reach the server gets its response replayed instead
+ * of running again. Changing the action's input starts a new key, as that is a different request.
+ * Call done() once the action has succeeded.
+ */
+export const createActionKeys = () => {
+  const keys = new Map<string, { key: string; input: string }>();
+  return {
+    keyFor: (action: string, input?: unknown): string => {
+      const fingerprint = JSON.stringify(input ?? null);
+      const current = keys.get(action);
+      if (current && current.input === fingerprint) {
+        return current.key;
+      }
+      const key = newIdempotencyKey();
+      keys.set(action, { key, input: fingerprint });
+      return key;
+    },
+    done: (action: string): void => {
+      keys.delete(action);
+    },
+  };
+};
+
+// Request config carrying an Idempotency-Key header, if there is a key
+export const withIdempotencyKey = (idempotencyKey?: string): AxiosRequestConfig | undefined =>
+  idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined;
+
 // Request interceptor for adding auth token
 axiosInstance.interceptors.request.use(
   (config) => {
@@ -1,5 +1,15 @@
 import apiClient from './apiClient';
 import { WorkAssignment } from '../types';
+import { CursorPage } from './paymentApi';
+
+export interface AssignmentFilter {
+  employeeId?: string;
+  workActivityId?: string;
+  assignmentStatus?: WorkAssignment['assignmentStatus'];
+  paymentStatus?: WorkAssignment['paymentStatus'];
+  startDate?: string;
+  endDate?: string;
+}
 
 export interface AssignmentHistory {
   assignmentId: string;
@@ -34,8 +44,19 @@ export interface AuditLogEntry {
 }
 
 export const assignmentApi = {
-  getAllAssignments: async (): Promise<WorkAssignment[]> => {
-    return apiClient.get<WorkAssignment[]>('/work-assignments');
+  getAssignmentsPage: async (
+    filter: AssignmentFilter = {},
+    cursor?: string,
+    size: number = 100,
+    includeTotal: boolean = false
+  ): Promise<CursorPage<WorkAssignment>> => {
+    const params = new URLSearchParams({ size: size.toString() });
+    Object.entries(filter).forEach(([key, value]) => {
+      if (value) params.append(key, value);
+    });
+    if (cursor) params.append('cursor', cursor);
+    if (includeTotal) params.append('includeTotal', 'true');
+    return apiClient.get<CursorPage<WorkAssignment>>(`/work-assignments?${params.toString()}`);
   },
   
   getAssignmentById: async (id: string): Promise<WorkAssignment> => {
@@ -1,4 +1,4 @@
-import apiClient from './apiClient';
+import apiClient, { withIdempotencyKey } from './apiClient';
 
 // ==================== Types ====================
 
@@ -28,6 +28,16 @@ export interface Payment {
   lineItems?: PaymentLineItem[];
   documents?: PaymentDocument[];
   history?: PaymentHistory[];
+  lineItemCount?: number;
+  documentCount?: number;
+}
+
+export interface PaginatedPayments {
+  content: Payment[];
+  totalElements: number;
+  totalPages: number;
+  currentPage: number;
+  pageSize: number;
 }
 
 export enum PaymentStatus {
@@ -38,6 +48,26 @@ export enum PaymentStatus {
   CANCELLED = 'CANCELLED'
 }
 
+export interface CursorPage<T> {
+  content: T[];
+  nextCursor?: string;
+  hasMore: boolean;
+  totalCount?: number;
+}
+
+export interface PaymentEmployeeSubtotal {
+  employeeId: string;
+  employeeName: string;
+  lineItemCount: number;
+  amount: number;
+  employeePf: number;
+  voluntaryPf: number;
+  employerPf: number;
+  pfAmount: number;
+  otherDeductions: number;
+  netAmount: number;
+}
+
 export interface PaymentLineItem {
   id: string;
   assignmentId: string;
@@ -105,10 +135,34 @@ export interface PaymentHistory {
   remarks?: string;
 }
 
+export type PaymentJobType = 'ADD_LINE_ITEMS' | 'SUBMIT' | 'CANCEL';
+export type PaymentJobStatus = 'QUEUED' | 'RUNNING' | 'COMPLETED' | 'FAILED' | 'CANCELLED';
+
+export interface PaymentJob {
+  id: string;
+  paymentId: string;
+  jobType: PaymentJobType;
+  status: PaymentJobStatus;
+  totalItems: number;
+  processedItems: number;
+  progressPercentage: number;
+  chunkSize?: number;
+  cancelRequested: boolean;
+  remarks?: string;
+  errorMessage?: string;
+  requestedBy?: string;
+  createdAt: string;
+  startedAt?: string;
+  completedAt?: string;
+  updatedAt?: string;
+}
+
 export interface CreatePaymentDraftRequest {
   paymentMonth: number;
   paymentYear: number;
   assignmentIds?: string[];
+  periodStartDate?: string; // Build-from-period mode (YYYY-MM-DD)
+  periodEndDate?: string;
 }
 
 export interface SubmitPaymentRequest {
@@ -147,47 +201,108 @@ export const paymentApi = {
     return apiClient.get<Payment[]>(`/payments?status=${status}`);
   },
 
+  getPaymentsPaginated: async (page: number, size: number, status?: PaymentStatus): Promise<PaginatedPayments> => {
+    const statusParam = status ? `&status=${status}` : '';
+    return apiClient.get<PaginatedPayments>(`/payments/paginated?page=${page}&size=${size}${statusParam}`);
+  },
+
   getPaymentById: async (id: string): Promise<Payment> => {
     return apiClient.get<Payment>(`/payments/${id}`);
   },
 
+  getPaymentHeader: async (id: string): Promise<Payment> => {
+    return apiClient.get<Payment>(`/payments/${id}/header`);
+  },
+
+  getLineItemsPage: async (
+    paymentId: string,
+    cursor?: string,
+    size: number = 100,
+    employeeId?: string
+  ): Promise<CursorPage<PaymentLineItem>> => {
+    const params = new URLSearchParams({ size: size.toString() });
+    if (cursor) params.append('cursor', cursor);
+    if (employeeId) params.append('employeeId', employeeId);
+    return apiClient.get<CursorPage<PaymentLineItem>>(`/payments/${paymentId}/line-items?${params.toString()}`);
+  },
+
+  getEmployeeSubtotalsPage: async (
+    paymentId: string,
+    cursor?: string,
+    size: number = 50
+  ): Promise<CursorPage<PaymentEmployeeSubtotal>> => {
+    const params = new URLSearchParams({ size: size.toString() });
+    if (cursor) params.append('cursor', cursor);
+    return apiClient.get<CursorPage<PaymentEmployeeSubtotal>>(`/payments/${paymentId}/line-items/by-employee?${params.toString()}`);
+  },
+
   // Create and manage drafts
-  createDraft: async (request: CreatePaymentDraftRequest): Promise<Payment> => {
-    return apiClient.post<Payment>('/payments/draft', request);
+  createDraft: async (request: CreatePaymentDraftRequest, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>('/payments/draft', request, withIdempotencyKey(idempotencyKey));
   },
 
-  updateDraft: async (id: string, updates: Partial<Payment>): Promise<Payment> => {
-    return apiClient.put<Payment>(`/payments/${id}`, updates);
+  createDraftFromPeriod: async (request: CreatePaymentDraftRequest, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>('/payments/draft/from-period', request, withIdempotencyKey(idempotencyKey));
+  },
+
+  updateDraft: async (id: string, updates: Partial<Payment>, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.put<Payment>(`/payments/${id}`, updates, withIdempotencyKey(idempotencyKey));
   },
 
   // Line item management
-  addLineItem: async (paymentId: string, assignmentId: string): Promise<Payment> => {
-    return apiClient.post<Payment>(`/payments/${paymentId}/line-items`, { assignmentId });
+  addLineItem: async (paymentId: string, assignmentId: string, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>(`/payments/${paymentId}/line-items`, { assignmentId }, withIdempotencyKey(idempotencyKey));
   },
 
-  addLineItemsBatch: async (paymentId: string, assignmentIds: string[]): Promise<Payment> => {
-    return apiClient.post<Payment>(`/payments/${paymentId}/line-items/batch`, { assignmentIds });
+  addLineItemsBatch: async (paymentId: string, assignmentIds: string[], idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>(`/payments/${paymentId}/line-items/batch`, { assignmentIds }, withIdempotencyKey(idempotencyKey));
   },
 
-  removeLineItem: async (paymentId: string, lineItemId: string): Promise<Payment> => {
-    return apiClient.delete<Payment>(`/payments/${paymentId}/line-items/${lineItemId}`);
+  removeLineItem: async (paymentId: string, lineItemId: string, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.delete<Payment>(`/payments/${paymentId}/line-items/${lineItemId}`, withIdempotencyKey(idempotencyKey));
   },
 
   // Workflow actions
-  submitForApproval: async (id: string, request: SubmitPaymentRequest): Promise<Payment> => {
-    return apiClient.post<Payment>(`/payments/${id}/submit`, request);
+  submitForApproval: async (id: string, request: SubmitPaymentRequest, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>(`/payments/${id}/submit`, request, withIdempotencyKey(idempotencyKey));
+  },
+
+  approvePayment: async (id: string, request: ApprovePaymentRequest, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>(`/payments/${id}/approve`, request, withIdempotencyKey(idempotencyKey));
+  },
+
+  recordPayment: async (id: string, request: RecordPaymentRequest, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>(`/payments/${id}/record-payment`, request, withIdempotencyKey(idempotencyKey));
+  },
+
+  cancelPayment: async (id: string, request: CancelPaymentRequest, idempotencyKey?: string): Promise<Payment> => {
+    return apiClient.post<Payment>(`/payments/${id}/cancel`, request, withIdempotencyKey(idempotencyKey));
   },
 
-  approvePayment: async (id: string, request: ApprovePaymentRequest): Promise<Payment> => {
-    return apiClient.post<Payment>(`/payments/${id}/approve`, request);
+  // Background jobs for large payments: start, then poll getJob until the status is final
+  addLineItemsBatchAsync: async (paymentId: string, assignmentIds: string[], chunkSize?: number): Promise<PaymentJob> => {
+    const query = chunkSize ? `?chunkSize=${chunkSize}` : '';
+    return apiClient.post<PaymentJob>(`/payments/${paymentId}/line-items/batch/async${query}`, { assignmentIds });
   },
 
-  recordPayment: async (id: string, request: RecordPaymentRequest): Promise<Payment> => {
-    return apiClient.post<Payment>(`/payments/${id}/record-payment`, request);
+  submitForApprovalAsync: async (id: string, request: SubmitPaymentRequest): Promise<PaymentJob> => {
+    return apiClient.post<PaymentJob>(`/payments/${id}/submit/async`, request);
   },
 
-  cancelPayment: async (id: string, request: CancelPaymentRequest): Promise<Payment> => {
-    return apiClient.post<Payment>(`/payments/${id}/cancel`, request);
+  cancelPaymentAsync: async (id: string, request: CancelPaymentRequest): Promise<PaymentJob> => {
+    return apiClient.post<PaymentJob>(`/payments/${id}/cancel/async`, request);
+  },
+
+  getPaymentJobs: async (paymentId: string): Promise<PaymentJob[]> => {
+    return apiClient.get<PaymentJob[]>(`/payments/${paymentId}/jobs`);
+  },
+
+  getJob: async (jobId: string): Promise<PaymentJob> => {
+    return apiClient.get<PaymentJob>(`/payment-jobs/${jobId}`);
+  },
+
+  cancelJob: async (jobId: string): Promise<PaymentJob> => {
+    return apiClient.post<PaymentJob>(`/payment-jobs/${jobId}/cancel`, {});
   },
 
   deletePayment: async (id: string): Promise<void> => {
@@ -215,6 +330,13 @@ export const paymentApi = {
     return apiClient.delete<Payment>(`/payments/${paymentId}/documents/${documentId}`);
   },
 
+  // Bank transfer / payroll export (APPROVED or PAID payments)
+  exportPayment: async (paymentId: string, format: 'csv' | 'bank' = 'csv'): Promise<Blob> => {
+    return apiClient.get(`/payments/${paymentId}/export?format=${format}`, {
+      responseType: 'blob',
+    } as any);
+  },
+
   // History
   getPaymentHistory: async (paymentId: string): Promise<PaymentHistory[]> => {
     return apiClient.get<PaymentHistory[]>(`/payments/${paymentId}/history`);
@@ -3,6 +3,7 @@ import apiClient from './apiClient';
 export interface PfReportRequest {
   month: number; // 1-12
   year: number;
+  includePaymentDetails?: boolean; // true to fill in employees[].payments; defaults to totals only
 }
 
 export interface PaymentDetail {
@@ -28,6 +28,7 @@ import {
   Save as SaveIcon,
 } from '@mui/icons-material';
 import { paymentApi, Payment } from '../../api/paymentApi';
+import { createActionKeys } from '../../api/apiClient';
 import { assignmentApi } from '../../api/assignmentApi';
 import { useError } from '../../contexts/ErrorContext';
 
@@ -71,6 +72,8 @@ const PaymentAddAssignmentsPage: React.FC = () => {
   const { paymentId } = useParams<{ paymentId: string }>();
   const navigate = useNavigate();
   const { showError } = useError();
+  // Submitting again after an error resends the key, so the assignments are added at most once
+  const [actionKeys] = useState(createActionKeys);
 
   const [activeStep, setActiveStep] = useState(0);
   const [payment, setPayment] = useState<Payment | null>(null);
@@ -341,7 +344,8 @@ const PaymentAddAssignmentsPage: React.FC = () => {
     try {
       // Add all assignments in a single batch API call
       const assignmentIdsArray = Array.from(selectedAssignmentIds);
-      await paymentApi.addLineItemsBatch(payment.id, assignmentIdsArray);
+      await paymentApi.addLineItemsBatch(payment.id, assignmentIdsArray, actionKeys.keyFor('add-line-items', assignmentIdsArray));
+      actionKeys.done('add-line-items');
 
       // No success message needed - redirect to payment detail page to see results
       navigate(`/payments/${payment.id}`);
@@ -48,6 +48,7 @@ import {
   Edit as EditIcon,
 } from '@mui/icons-material';
 import { paymentApi, Payment, PaymentStatus, PaymentLineItem, PaymentHistory } from '../../api/paymentApi';
+import { createActionKeys } from '../../api/apiClient';
 import { useError } from '../../contexts/ErrorContext';
 
 interface TabPanelProps {
@@ -70,6 +71,8 @@ const PaymentDetailPage: React.FC = () => {
   const navigate = useNavigate();
   const { showError, showSuccess } = useError();
   const referenceNumberInputRef = useRef<HTMLInputElement>(null);
+  // Repeating an action after an error resends its key, so the server runs it at most once
+  const [actionKeys] = useState(createActionKeys);
 
   const [payment, setPayment] = useState<Payment | null>(null);
   const [paymentHistory, setPaymentHistory] = useState<PaymentHistory[]>([]);
@@ -142,7 +145,8 @@ const PaymentDetailPage: React.FC = () => {
     if (!payment) return;
     setActionLoading(true);
     try {
-      const updatedPayment = await paymentApi.submitForApproval(payment.id, { remarks });
+      const updatedPayment = await paymentApi.submitForApproval(payment.id, { remarks }, actionKeys.keyFor('submit', remarks));
+      actionKeys.done('submit');
       setPayment(updatedPayment);
       setSubmitDialogOpen(false);
       setRemarks('');
@@ -162,7 +166,8 @@ const PaymentDetailPage: React.FC = () => {
     if (!payment) return;
     setActionLoading(true);
     try {
-      const updatedPayment = await paymentApi.approvePayment(payment.id, { remarks });
+      const updatedPayment = await paymentApi.approvePayment(payment.id, { remarks }, actionKeys.keyFor('approve', remarks));
+      actionKeys.done('approve');
       setPayment(updatedPayment);
       setApproveDialogOpen(false);
       setRemarks('');
@@ -187,7 +192,8 @@ const PaymentDetailPage: React.FC = () => {
         paymentDate,
         referenceNumber,
         remarks,
-      });
+      }, actionKeys.keyFor('record-payment', [paymentDate, referenceNumber, remarks]));
+      actionKeys.done('record-payment');
       setPayment(updatedPayment);
       
       // Then upload documents if any
@@ -284,7 +290,8 @@ const PaymentDetailPage: React.FC = () => {
     if (!payment || !cancellationReason) return;
     setActionLoading(true);
     try {
-      const updatedPayment = await paymentApi.cancelPayment(payment.id, { cancellationReason });
+      const updatedPayment = await paymentApi.cancelPayment(payment.id, { cancellationReason }, actionKeys.keyFor('cancel', cancellationReason));
+      actionKeys.done('cancel');
       setPayment(updatedPayment);
       setCancelDialogOpen(false);
       setCancellationReason('');
@@ -319,7 +326,8 @@ const PaymentDetailPage: React.FC = () => {
     if (!payment || !paymentTitle.trim()) return;
     setActionLoading(true);
     try {
-      const updatedPayment = await paymentApi.updateDraft(payment.id, { paymentTitle: paymentTitle.trim() });
+      const updatedPayment = await paymentApi.updateDraft(payment.id, { paymentTitle: paymentTitle.trim() }, actionKeys.keyFor('update-title', paymentTitle.trim()));
+      actionKeys.done('update-title');
       setPayment(updatedPayment);
       setEditTitleDialogOpen(false);
       setPaymentTitle('');
@@ -344,7 +352,9 @@ const PaymentDetailPage: React.FC = () => {
     if (!payment || !lineItemToDelete) return;
 
     try {
-      const updatedPayment = await paymentApi.removeLineItem(payment.id, lineItemToDelete);
+      const action = `remove-line-item:${lineItemToDelete}`;
+      const updatedPayment = await paymentApi.removeLineItem(payment.id, lineItemToDelete, actionKeys.keyFor(action));
+      actionKeys.done(action);
       setPayment(updatedPayment);
       // No success message needed - user already confirmed in dialog
       setDeleteLineItemDialogOpen(false);
@@ -33,11 +33,14 @@ import {
   Cancel as CancelIcon,
 } from '@mui/icons-material';
 import { paymentApi, Payment, PaymentStatus } from '../../api/paymentApi';
+import { createActionKeys } from '../../api/apiClient';
 import { useError } from '../../contexts/ErrorContext';
 
 const PaymentListPage: React.FC = () => {
   const navigate = useNavigate();
   const { showError, showSuccess } = useError();
+  // Repeating an action after an error resends its key, so the server runs it at most once
+  const [actionKeys] = useState(createActionKeys);
   const hasLoadedRef = useRef(false);
   
   const [payments, setPayments] = useState<Payment[]>([]);
@@ -110,7 +113,8 @@ const PaymentListPage: React.FC = () => {
         paymentMonth: currentMonth,
         paymentYear: currentYear,
         assignmentIds: [], // Start with empty, user will add assignments later
-      });
+      }, actionKeys.keyFor('create-draft', [currentMonth, currentYear]));
+      actionKeys.done('create-draft');
       // Navigate directly to the detail page - user can see the created draft there
       navigate(`/payments/${newPayment.id}`);
     } catch (error: any) {
@@ -179,9 +183,11 @@ const PaymentListPage: React.FC = () => {
     }
 
     try {
+      const action = `cancel:${selectedPayment.id}`;
       await paymentApi.cancelPayment(selectedPayment.id, {
         cancellationReason: cancellationReason,
-      });
+      }, actionKeys.keyFor(action, cancellationReason));
+      actionKeys.done(action);
       showSuccess('Payment cancelled successfully. Assignments are now unlocked.');
       setCancelDialogOpen(false);
       setCancellationReason('');
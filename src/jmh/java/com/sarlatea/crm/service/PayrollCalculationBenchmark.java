@@ -0,0 +1,95 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.SalaryConfiguration;
+import com.sarlatea.crm.model.EmployeeSalary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payroll arithmetic for a period: the BigDecimal code the engine replaced vs PayrollCalculationService.
+ * Run with: mvn -Pbenchmark test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayrollCalculationBenchmark {
+
+    @Param({"30", "3000"})
+    private int assignments;
+
+    private PayrollCalculationService payrollCalculationService;
+    private EmployeeSalary salary;
+    private int[] completionPercentages;
+
+    @Setup
+    public void setUp() {
+        payrollCalculationService = new PayrollCalculationService(new SalaryConfiguration());
+        salary = new EmployeeSalary();
+        salary.setAmount(new BigDecimal("12345.67"));
+        salary.setSalaryType(EmployeeSalary.SalaryType.MONTHLY);
+        salary.setVoluntaryPfPercentage(new BigDecimal("3.33"));
+
+        Random random = new Random(42);
+        completionPercentages = new int[assignments];
+        for (int i = 0; i < assignments; i++) {
+            completionPercentages[i] = random.nextInt(101);
+        }
+    }
+
+    @Benchmark
+    public void legacyBigDecimalLines(Blackhole blackhole) {
+        BigDecimal dailyRate = salary.calculateDailyRate();
+        BigDecimal hundred = new BigDecimal("100");
+        BigDecimal pfPercentage = new BigDecimal("12.00");
+        for (int completionPercentage : completionPercentages) {
+            BigDecimal completionRate = BigDecimal.valueOf(completionPercentage).divide(hundred, 4, RoundingMode.HALF_UP);
+            BigDecimal amount = dailyRate.multiply(completionRate).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal employeePf = amount.multiply(pfPercentage).divide(hundred, 2, RoundingMode.HALF_UP);
+            BigDecimal voluntaryPf = amount.multiply(salary.getVoluntaryPfPercentage()).divide(hundred, 2, RoundingMode.HALF_UP);
+            BigDecimal employerPf = amount.multiply(pfPercentage).divide(hundred, 2, RoundingMode.HALF_UP);
+            blackhole.consume(amount.subtract(employeePf.add(voluntaryPf)));
+            blackhole.consume(employerPf);
+        }
+    }
+
+    @Benchmark
+    public void fixedPointLines(Blackhole blackhole) {
+        PayrollCalculationService.PayrollRates rates = payrollCalculationService.ratesFor(salary);
+        for (int completionPercentage : completionPercentages) {
+            PayrollCalculationService.PayAmounts line = payrollCalculationService.calculateLine(rates, completionPercentage);
+            blackhole.consume(line.getNetAmountPaise());
+            blackhole.consume(line.getEmployerPfPaise());
+        }
+    }
+
+    @Benchmark
+    public void fixedPointBatch(Blackhole blackhole) {
+        PayrollCalculationService.PayrollRates rates = payrollCalculationService.ratesFor(salary);
+        PayrollCalculationService.PayrollBatch batch = payrollCalculationService.calculateBatch(rates, completionPercentages);
+        blackhole.consume(batch);
+        blackhole.consume(payrollCalculationService.applyPf(rates, batch.getGrossPaise()));
+    }
+
+    @Benchmark
+    public BigDecimal legacyReportGross() {
+        BigDecimal dailyRate = salary.calculateDailyRate();
+        BigDecimal totalPayment = BigDecimal.ZERO;
+        for (int completionPercentage : completionPercentages) {
+            double completionRate = completionPercentage / 100.0;
+            totalPayment = totalPayment.add(dailyRate.multiply(BigDecimal.valueOf(completionRate)));
+        }
+        return totalPayment.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,63 @@
+package com.sarlatea.crm.aspect;
+
+import com.sarlatea.crm.exception.ConcurrencyConflictException;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded retry for methods annotated with @RetryOnConflict.
+ *
+ * Ordered just ahead of the transaction advisor (LOWEST_PRECEDENCE) so every attempt gets its own transaction.
+ * When called inside an existing transaction the method is not retried here: that transaction
+ * is already marked rollback-only, so the conflict is left to the outermost caller.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@Slf4j
+public class ConflictRetryAspect {
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        int maxAttempts = Math.max(1, retryOnConflict.maxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | ConcurrencyConflictException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("{} still conflicting after {} attempts: {}",
+                            joinPoint.getSignature().toShortString(), attempt, e.getMessage());
+                    if (e instanceof ConcurrencyConflictException) {
+                        throw e;
+                    }
+                    throw new ConcurrencyConflictException(
+                            "The record was modified by another user at the same time. Please reload and retry.", e);
+                }
+                log.debug("{} conflicted on attempt {}/{}, retrying: {}",
+                        joinPoint.getSignature().toShortString(), attempt, maxAttempts, e.getMessage());
+                backoff(retryOnConflict.backoffMillis(), attempt);
+            }
+        }
+    }
+
+    private static void backoff(long baseMillis, int attempt) throws InterruptedException {
+        if (baseMillis <= 0) {
+            return;
+        }
+        long delay = baseMillis << (attempt - 1);
+        Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+    }
+}
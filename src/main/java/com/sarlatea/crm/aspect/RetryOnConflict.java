@@ -0,0 +1,25 @@
+package com.sarlatea.crm.aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Retry a transactional service method that failed on an optimistic lock or a lost conditional claim.
+ * Each attempt runs in a fresh transaction (see ConflictRetryAspect), so the method re-reads current state.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    /**
+     * Total attempts including the first one
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * Base backoff between attempts in milliseconds; doubled per attempt with random jitter
+     */
+    long backoffMillis() default 25;
+}
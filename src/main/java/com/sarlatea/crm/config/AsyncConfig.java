@@ -27,5 +27,34 @@ public class AsyncConfig {
         // Wrap with DelegatingSecurityContextAsyncTaskExecutor to propagate SecurityContext
         return new DelegatingSecurityContextAsyncTaskExecutor(executor);
     }
-}
 
+    /**
+     * Dedicated pool for long-running payment jobs, so a large batch cannot starve audit logging
+     */
+    @Bean(name = "paymentJobExecutor")
+    public TaskExecutor paymentJobExecutor(PaymentJobConfiguration paymentJobConfiguration) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(paymentJobConfiguration.getPoolSize());
+        executor.setMaxPoolSize(paymentJobConfiguration.getPoolSize());
+        executor.setQueueCapacity(paymentJobConfiguration.getQueueCapacity());
+        executor.setThreadNamePrefix("payment-job-");
+        executor.initialize();
+
+        // Jobs run audit logging and history under the requesting user
+        return new DelegatingSecurityContextAsyncTaskExecutor(executor);
+    }
+
+    /**
+     * Single worker that regenerates precomputed report windows, one at a time, off the request path
+     */
+    @Bean(name = "reportRefreshExecutor")
+    public TaskExecutor reportRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("report-refresh-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,25 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the audit log
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "audit-log")
+@Data
+public class AuditLogConfiguration {
+
+    /**
+     * Record the field changes and description of entries written before they were captured
+     */
+    private boolean backfillOnStartup = true;
+
+    /**
+     * Entries backfilled per transaction
+     */
+    private int backfillBatchSize = 500;
+}
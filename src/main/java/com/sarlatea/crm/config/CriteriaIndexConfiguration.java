@@ -0,0 +1,25 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the in-memory completion criteria index
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "criteria-index")
+@Data
+public class CriteriaIndexConfiguration {
+
+    /**
+     * Resolve completion criteria from memory; when off they are queried from the database
+     */
+    private boolean enabled = true;
+
+    /**
+     * How often the whole index is reloaded, in milliseconds, to pick up criteria changed by other instances
+     */
+    private long reloadIntervalMs = 300000;
+}
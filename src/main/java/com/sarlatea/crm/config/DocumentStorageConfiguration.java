@@ -0,0 +1,37 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for payment document storage
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "document-storage")
+@Data
+public class DocumentStorageConfiguration {
+
+    /**
+     * Root directory of the content-addressed document store
+     */
+    private String rootPath = "./data/payment-documents";
+
+    /**
+     * Whether rootPath survives restarts and redeploys (e.g. a mounted volume). Legacy blobs are only
+     * moved out of the database when it does, since the migration clears them once stored
+     */
+    private boolean persistent = false;
+
+    /**
+     * Move document blobs still stored in the payment_documents table into the store on startup;
+     * requires persistent
+     */
+    private boolean migrateOnStartup = false;
+
+    /**
+     * Number of legacy blobs moved per migration batch
+     */
+    private int migrationBatchSize = 20;
+}
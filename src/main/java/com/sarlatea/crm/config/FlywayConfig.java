@@ -0,0 +1,32 @@
+package com.sarlatea.crm.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+/**
+ * Runs the Flyway migrations in db/migration once ddl-auto has created the tables.
+ * Spring Boot migrates before the EntityManagerFactory starts, but tables still come from ddl-auto and
+ * the scripts index them. Migrating is still part of context startup, so the application only serves
+ * requests once every script has applied, and a failing script stops it from starting.
+ */
+@Configuration
+public class FlywayConfig {
+
+    /**
+     * Keeps Spring Boot's initializer from migrating before the tables exist
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy() {
+        return flyway -> { };
+    }
+
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public InitializingBean flywayMigration(Flyway flyway) {
+        return flyway::migrate;
+    }
+}
@@ -0,0 +1,32 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for Idempotency-Key handling on payment endpoints
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "idempotency")
+@Data
+public class IdempotencyConfiguration {
+
+    /**
+     * How long a completed response is replayed for a repeated key
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * Responses kept in memory; least recently used entries fall back to the database table
+     */
+    private int maxEntries = 10000;
+
+    /**
+     * After this long a request still marked in progress is treated as abandoned and may be re-run
+     */
+    private Duration inProgressTimeout = Duration.ofMinutes(5);
+}
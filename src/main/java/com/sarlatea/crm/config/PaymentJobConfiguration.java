@@ -0,0 +1,48 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for background payment jobs
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "payment-jobs")
+@Data
+public class PaymentJobConfiguration {
+
+    /**
+     * Assignments added per transaction when a batch add runs as a job (can be overridden per request)
+     */
+    private int chunkSize = 200;
+
+    /**
+     * Upper bound for a per-request chunk size
+     */
+    private int maxChunkSize = 1000;
+
+    /**
+     * Worker threads of the payment job executor (kept apart from the audit executor)
+     */
+    private int poolSize = 2;
+
+    /**
+     * Jobs that may wait for a free worker before new jobs are rejected
+     */
+    private int queueCapacity = 50;
+
+    /**
+     * How often, in milliseconds, an instance refreshes the heartbeat of the jobs it holds and looks for abandoned jobs
+     */
+    private long heartbeatIntervalMs = 30000;
+
+    /**
+     * A queued or running job whose heartbeat is older than this is failed; well above the heartbeat interval
+     * so a busy instance is never mistaken for a stopped one
+     */
+    private Duration staleAfter = Duration.ofMinutes(5);
+}
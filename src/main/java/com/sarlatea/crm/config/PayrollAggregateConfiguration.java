@@ -0,0 +1,20 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the employee-month payroll aggregate
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "payroll-aggregate")
+@Data
+public class PayrollAggregateConfiguration {
+
+    /**
+     * Build the aggregate from existing paid payments on startup when it is empty (first deployment)
+     */
+    private boolean backfillOnStartup = true;
+}
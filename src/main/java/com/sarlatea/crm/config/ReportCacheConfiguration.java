@@ -0,0 +1,32 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the report result cache
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "report-cache")
+@Data
+public class ReportCacheConfiguration {
+
+    /**
+     * Serve repeated report requests from memory
+     */
+    private boolean enabled = true;
+
+    /**
+     * Upper bound on cached report rows (assignments) across all entries; least recently used reports go first
+     */
+    private long maxWeight = 200000;
+
+    /**
+     * Safety net for changes that do not publish events (salaries, employee details)
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+}
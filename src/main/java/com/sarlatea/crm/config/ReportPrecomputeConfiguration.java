@@ -0,0 +1,44 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the precomputed rolling report windows
+ * (next week, next month, current month, last month, last week)
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "report-precompute")
+@Data
+public class ReportPrecomputeConfiguration {
+
+    /**
+     * Serve the rolling windows from precomputed snapshots; when off they are generated per request
+     */
+    private boolean enabled = true;
+
+    /**
+     * When every window is recomputed; just after midnight, when the windows roll over
+     */
+    private String cron = "0 5 0 * * *";
+
+    /**
+     * A window changed by writes is recomputed once no further writes have touched it for this long
+     */
+    private Duration quietPeriod = Duration.ofMinutes(2);
+
+    /**
+     * A snapshot older than this is served as stale and regenerated in the background; bounds how long
+     * salary, PF rate and employee edits (which publish no change events) take to show up
+     */
+    private Duration maxAge = Duration.ofMinutes(10);
+
+    /**
+     * How often windows waiting for their quiet period are checked, in milliseconds
+     */
+    private long checkIntervalMs = 30000;
+}
@@ -0,0 +1,25 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the in-memory salary timeline index
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "salary-index")
+@Data
+public class SalaryIndexConfiguration {
+
+    /**
+     * Serve salary lookups of the payment and report paths from memory; when off they query the database
+     */
+    private boolean enabled = true;
+
+    /**
+     * How often the whole index is reloaded, in milliseconds, to pick up salaries changed by other instances
+     */
+    private long reloadIntervalMs = 300000;
+}
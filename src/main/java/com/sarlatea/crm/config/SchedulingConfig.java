@@ -0,0 +1,12 @@
+package com.sarlatea.crm.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background tasks (report precomputation)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
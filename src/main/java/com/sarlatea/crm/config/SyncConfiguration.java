@@ -0,0 +1,42 @@
+package com.sarlatea.crm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the delta sync API used by the field tablet app
+ * Values are loaded from application.properties
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sync")
+@Data
+public class SyncConfiguration {
+
+    /**
+     * The returned watermark lags the read by this much, so rows written by transactions that were
+     * still open during the read (or stamped by an instance with a slightly slower clock) are sent
+     * again next time instead of being missed; clients apply rows idempotently.
+     * Must be longer than maxWriteTransaction plus the clock skew between instances
+     */
+    private Duration watermarkOverlap = Duration.ofSeconds(30);
+
+    /**
+     * Longest a transaction may stay open after stamping updatedAt on a synced row; rows are stamped
+     * at flush rather than at commit, so a longer transaction is rolled back instead of committing
+     * rows older than the watermark
+     */
+    private Duration maxWriteTransaction = Duration.ofSeconds(20);
+
+    /**
+     * How long tombstones of hard-deleted rows are kept; clients whose watermark is older get a full resync
+     */
+    private Duration tombstoneRetention = Duration.ofDays(90);
+
+    /**
+     * Assignments dated this many days before today and later are synced when the client names no start date
+     */
+    private int defaultWindowDays = 31;
+}
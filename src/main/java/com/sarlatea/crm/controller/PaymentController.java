@@ -2,21 +2,37 @@ package com.sarlatea.crm.controller;
 
 import com.sarlatea.crm.dto.*;
 import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.service.IdempotencyService;
+import com.sarlatea.crm.service.PaymentExportService;
+import com.sarlatea.crm.service.PaymentJobService;
 import com.sarlatea.crm.service.PaymentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -28,22 +44,49 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentExportService paymentExportService;
+    private final PaymentJobService paymentJobService;
+    private final IdempotencyService idempotencyService;
+
+    // Mutating endpoints accept an optional Idempotency-Key header: a retry with the same key
+    // gets the original response back instead of running the operation again
 
     // ==================== Query Endpoints ====================
 
     @GetMapping
     @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
-    public ResponseEntity<List<PaymentDTO>> getAllPayments(
+    public ResponseEntity<List<PaymentSummaryDTO>> getAllPayments(
             @RequestParam(required = false) Payment.PaymentStatus status) {
         log.info("GET request to fetch all payments" + (status != null ? " with status: " + status : ""));
 
-        List<PaymentDTO> payments = status != null ?
+        List<PaymentSummaryDTO> payments = status != null ?
                 paymentService.getPaymentsByStatus(status) :
                 paymentService.getAllPayments();
 
         return ResponseEntity.ok(payments);
     }
 
+    @GetMapping("/paginated")
+    @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
+    public ResponseEntity<Map<String, Object>> getPaymentsPaginated(
+            @RequestParam(required = false) Payment.PaymentStatus status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        log.info("GET request to fetch paginated payments - page: {}, size: {}, status: {}", page, size, status);
+
+        Pageable pageable = PageRequest.of(page, size);
+        Page<PaymentSummaryDTO> paymentPage = paymentService.getPaymentsPaginated(status, pageable);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", paymentPage.getContent());
+        response.put("totalElements", paymentPage.getTotalElements());
+        response.put("totalPages", paymentPage.getTotalPages());
+        response.put("currentPage", paymentPage.getNumber());
+        response.put("pageSize", paymentPage.getSize());
+
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
     public ResponseEntity<PaymentDTO> getPaymentById(@PathVariable String id) {
@@ -52,6 +95,37 @@ public class PaymentController {
         return ResponseEntity.ok(payment);
     }
 
+    @GetMapping("/{id}/header")
+    @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
+    public ResponseEntity<PaymentSummaryDTO> getPaymentHeader(@PathVariable String id) {
+        log.info("GET request to fetch payment header with id: {}", id);
+        PaymentSummaryDTO payment = paymentService.getPaymentHeader(id);
+        return ResponseEntity.ok(payment);
+    }
+
+    @GetMapping("/{id}/line-items")
+    @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
+    public ResponseEntity<CursorPageDTO<PaymentLineItemDTO>> getLineItems(
+            @PathVariable String id,
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        log.info("GET request to fetch line items for payment: {} (employee: {}, size: {})", id, employeeId, size);
+        CursorPageDTO<PaymentLineItemDTO> lineItems = paymentService.getLineItemsPage(id, employeeId, cursor, size);
+        return ResponseEntity.ok(lineItems);
+    }
+
+    @GetMapping("/{id}/line-items/by-employee")
+    @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
+    public ResponseEntity<CursorPageDTO<PaymentEmployeeSubtotalDTO>> getLineItemsByEmployee(
+            @PathVariable String id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        log.info("GET request to fetch employee subtotals for payment: {} (size: {})", id, size);
+        CursorPageDTO<PaymentEmployeeSubtotalDTO> subtotals = paymentService.getEmployeeSubtotalsPage(id, cursor, size);
+        return ResponseEntity.ok(subtotals);
+    }
+
     @GetMapping("/{id}/history")
     @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
     public ResponseEntity<List<PaymentHistoryDTO>> getPaymentHistory(@PathVariable String id) {
@@ -64,26 +138,43 @@ public class PaymentController {
 
     @PostMapping("/draft")
     @PreAuthorize("hasPermission('PAYMENT', 'CREATE')")
-    public ResponseEntity<PaymentDTO> createDraft(@RequestBody CreatePaymentDraftRequest request) {
+    public ResponseEntity<PaymentDTO> createDraft(
+            @RequestBody CreatePaymentDraftRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to create payment draft by: {}", username);
 
-        PaymentDTO payment = paymentService.createDraft(request, username);
-        return ResponseEntity.status(HttpStatus.CREATED).body(payment);
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(paymentService.createDraft(request, username)));
+    }
+
+    @PostMapping("/draft/from-period")
+    @PreAuthorize("hasPermission('PAYMENT', 'CREATE')")
+    public ResponseEntity<PaymentDTO> createDraftFromPeriod(
+            @RequestBody CreatePaymentDraftRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        log.info("POST request to build payment draft from period {} to {} by: {}",
+                request.getPeriodStartDate(), request.getPeriodEndDate(), username);
+
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(paymentService.createDraftFromPeriod(request, username)));
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasPermission('PAYMENT', 'EDIT')")
     public ResponseEntity<PaymentDTO> updateDraft(
             @PathVariable String id,
-            @RequestBody PaymentDTO updates) {
+            @RequestBody PaymentDTO updates,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("PUT request to update payment {} by: {}", id, username);
 
-        PaymentDTO payment = paymentService.updatePayment(id, updates, username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, updates, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.updatePayment(id, updates, username)));
     }
 
     // ==================== Line Item Management ====================
@@ -92,40 +183,43 @@ public class PaymentController {
     @PreAuthorize("hasPermission('PAYMENT', 'EDIT')")
     public ResponseEntity<PaymentDTO> addLineItem(
             @PathVariable String id,
-            @RequestBody AddLineItemRequest request) {
+            @RequestBody AddLineItemRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to add line item to payment {} by: {}", id, username);
 
-        PaymentDTO payment = paymentService.addLineItem(id, request.getAssignmentId(), username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.addLineItem(id, request.getAssignmentId(), username)));
     }
 
     @PostMapping("/{id}/line-items/batch")
     @PreAuthorize("hasPermission('PAYMENT', 'EDIT')")
     public ResponseEntity<PaymentDTO> addLineItemsBatch(
             @PathVariable String id,
-            @RequestBody AddLineItemsBatchRequest request) {
+            @RequestBody AddLineItemsBatchRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to add {} line items to payment {} by: {}", 
                 request.getAssignmentIds().size(), id, username);
 
-        PaymentDTO payment = paymentService.addLineItemsBatch(id, request.getAssignmentIds(), username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.addLineItemsBatch(id, request.getAssignmentIds(), username)));
     }
 
     @DeleteMapping("/{id}/line-items/{lineItemId}")
     @PreAuthorize("hasPermission('PAYMENT', 'EDIT')")
     public ResponseEntity<PaymentDTO> removeLineItem(
             @PathVariable String id,
-            @PathVariable String lineItemId) {
+            @PathVariable String lineItemId,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("DELETE request to remove line item {} from payment {} by: {}", lineItemId, id, username);
 
-        PaymentDTO payment = paymentService.removeLineItem(id, lineItemId, username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, null, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.removeLineItem(id, lineItemId, username)));
     }
 
     // ==================== Workflow Endpoints ====================
@@ -134,63 +228,71 @@ public class PaymentController {
     @PreAuthorize("hasPermission('PAYMENT', 'SUBMIT')")
     public ResponseEntity<PaymentDTO> submitForApproval(
             @PathVariable String id,
-            @RequestBody SubmitPaymentRequest request) {
+            @RequestBody SubmitPaymentRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to submit payment {} for approval by: {}", id, username);
 
-        PaymentDTO payment = paymentService.submitForApproval(id, request, username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.submitForApproval(id, request, username)));
     }
 
     @PostMapping("/{id}/approve")
     @PreAuthorize("hasPermission('PAYMENT', 'APPROVE')")
     public ResponseEntity<PaymentDTO> approvePayment(
             @PathVariable String id,
-            @RequestBody ApprovePaymentRequest request) {
+            @RequestBody ApprovePaymentRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to approve payment {} by: {}", id, username);
 
-        PaymentDTO payment = paymentService.approvePayment(id, request, username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.approvePayment(id, request, username)));
     }
 
     @PostMapping("/{id}/record-payment")
     @PreAuthorize("hasPermission('PAYMENT', 'MARK_PAID')")
     public ResponseEntity<PaymentDTO> recordPayment(
             @PathVariable String id,
-            @RequestBody RecordPaymentRequest request) {
+            @RequestBody RecordPaymentRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to record payment {} by: {}", id, username);
 
-        PaymentDTO payment = paymentService.recordPayment(id, request, username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.recordPayment(id, request, username)));
     }
 
     @PostMapping("/{id}/cancel")
     @PreAuthorize("hasPermission('PAYMENT', 'CANCEL')")
     public ResponseEntity<PaymentDTO> cancelPayment(
             @PathVariable String id,
-            @RequestBody CancelPaymentRequest request) {
+            @RequestBody CancelPaymentRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to cancel payment {} by: {}", id, username);
 
-        PaymentDTO payment = paymentService.cancelPayment(id, request, username);
-        return ResponseEntity.ok(payment);
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentDTO.class,
+                () -> ResponseEntity.ok(paymentService.cancelPayment(id, request, username)));
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasPermission('PAYMENT', 'DELETE')")
-    public ResponseEntity<Void> deletePayment(@PathVariable String id) {
+    public ResponseEntity<Void> deletePayment(
+            @PathVariable String id,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("DELETE request for payment {} by: {}", id, username);
 
-        paymentService.deletePayment(id, username);
-        return ResponseEntity.noContent().build();
+        return idempotencyService.execute(idempotencyKey, username, null, Void.class, () -> {
+            paymentService.deletePayment(id, username);
+            return ResponseEntity.noContent().<Void>build();
+        });
     }
 
     // ==================== Document Management ====================
@@ -201,31 +303,154 @@ public class PaymentController {
             @PathVariable String id,
             @RequestParam("file") MultipartFile file,
             @RequestParam("documentType") String documentType,
-            @RequestParam(value = "description", required = false) String description) throws IOException {
+            @RequestParam(value = "description", required = false) String description,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         log.info("POST request to upload document to payment {} by: {}", id, username);
 
-        PaymentDTO payment = paymentService.uploadDocument(id, file, documentType, description, username);
-        return ResponseEntity.ok(payment);
+        // The file itself is not hashed; its name, size and metadata identify a retried upload
+        Map<String, Object> upload = new LinkedHashMap<>();
+        upload.put("fileName", file.getOriginalFilename());
+        upload.put("size", file.getSize());
+        upload.put("documentType", documentType);
+        upload.put("description", description);
+        return idempotencyService.execute(idempotencyKey, username, upload, PaymentDTO.class, () -> {
+            try {
+                return ResponseEntity.ok(paymentService.uploadDocument(id, file, documentType, description, username));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
+    /**
+     * Stream a document from the document store.
+     * The content hash is a strong ETag (If-None-Match returns 304) and Range requests are
+     * answered with 206 partial content by Spring's resource region support.
+     */
     @GetMapping("/{id}/documents/{documentId}")
     @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
-    public ResponseEntity<byte[]> downloadDocument(
+    public ResponseEntity<Resource> downloadDocument(
             @PathVariable String id,
-            @PathVariable String documentId) {
+            @PathVariable String documentId,
+            WebRequest webRequest) {
         log.info("GET request to download document {} from payment {}", documentId, id);
 
-        byte[] documentData = paymentService.downloadDocument(id, documentId);
+        PaymentDocumentContent document = paymentService.downloadDocument(id, documentId);
+
+        String eTag = "\"" + document.getContentHash() + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        MediaType contentType = MediaType.APPLICATION_OCTET_STREAM;
+        if (document.getFileType() != null) {
+            try {
+                contentType = MediaType.parseMediaType(document.getFileType());
+            } catch (InvalidMediaTypeException e) {
+                log.debug("Unrecognised content type {} for document {}", document.getFileType(), documentId);
+            }
+        }
 
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", "document");
+        headers.setContentType(contentType);
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(document.getFileName() != null ? document.getFileName() : "document", StandardCharsets.UTF_8)
+                .build());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setETag(eTag);
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(documentData);
+                .body(document.getContent());
+    }
+
+    // ==================== Background Job Endpoints ====================
+    // Large operations run as background jobs: these return 202 with the job, which is then
+    // polled (and can be cancelled) through /api/payment-jobs/{jobId}
+
+    @PostMapping("/{id}/line-items/batch/async")
+    @PreAuthorize("hasPermission('PAYMENT', 'EDIT')")
+    public ResponseEntity<PaymentJobDTO> addLineItemsBatchAsync(
+            @PathVariable String id,
+            @RequestBody AddLineItemsBatchRequest request,
+            @RequestParam(required = false) Integer chunkSize,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        log.info("POST request to add {} line items to payment {} in background by: {}",
+                request.getAssignmentIds() != null ? request.getAssignmentIds().size() : 0, id, username);
+
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentJobDTO.class,
+                () -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(paymentJobService.startAddLineItems(id, request.getAssignmentIds(), chunkSize, username)));
+    }
+
+    @PostMapping("/{id}/submit/async")
+    @PreAuthorize("hasPermission('PAYMENT', 'SUBMIT')")
+    public ResponseEntity<PaymentJobDTO> submitForApprovalAsync(
+            @PathVariable String id,
+            @RequestBody SubmitPaymentRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        log.info("POST request to submit payment {} for approval in background by: {}", id, username);
+
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentJobDTO.class,
+                () -> ResponseEntity.status(HttpStatus.ACCEPTED).body(paymentJobService.startSubmit(id, request, username)));
+    }
+
+    @PostMapping("/{id}/cancel/async")
+    @PreAuthorize("hasPermission('PAYMENT', 'CANCEL')")
+    public ResponseEntity<PaymentJobDTO> cancelPaymentAsync(
+            @PathVariable String id,
+            @RequestBody CancelPaymentRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        log.info("POST request to cancel payment {} in background by: {}", id, username);
+
+        return idempotencyService.execute(idempotencyKey, username, request, PaymentJobDTO.class,
+                () -> ResponseEntity.status(HttpStatus.ACCEPTED).body(paymentJobService.startCancel(id, request, username)));
+    }
+
+    @GetMapping("/{id}/jobs")
+    @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
+    public ResponseEntity<List<PaymentJobDTO>> getPaymentJobs(@PathVariable String id) {
+        log.info("GET request to fetch jobs of payment {}", id);
+        return ResponseEntity.ok(paymentJobService.getJobsForPayment(id));
+    }
+
+    // ==================== Export Endpoints ====================
+
+    /**
+     * Stream an APPROVED or PAID payment aggregated per employee, either as CSV (format=csv)
+     * or as a fixed-width bulk transfer file for the bank portal (format=bank).
+     * The payment is validated up front; rows are written from a database cursor as they are read.
+     */
+    @GetMapping("/{id}/export")
+    @PreAuthorize("hasPermission('PAYMENT', 'MARK_PAID')")
+    public ResponseEntity<StreamingResponseBody> exportPayment(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "csv") String format) {
+        log.info("GET request to export payment {} as {}", id, format);
+
+        PaymentExportService.ExportFormat exportFormat = PaymentExportService.ExportFormat.fromParameter(format);
+        PaymentSummaryDTO payment = paymentExportService.getExportablePayment(id);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType(MediaType.parseMediaType(exportFormat.getContentType()),
+                exportFormat == PaymentExportService.ExportFormat.CSV ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(paymentExportService.getExportFileName(payment, exportFormat))
+                .build());
+        headers.setCacheControl("no-store");
+
+        StreamingResponseBody body = outputStream -> paymentExportService.writeExport(payment, exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
 
     // ==================== Helper DTOs ====================
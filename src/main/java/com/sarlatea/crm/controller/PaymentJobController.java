@@ -0,0 +1,44 @@
+package com.sarlatea.crm.controller;
+
+import com.sarlatea.crm.dto.PaymentJobDTO;
+import com.sarlatea.crm.service.PaymentJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Progress polling and cancellation of background payment jobs
+ * (started through the /async payment endpoints)
+ */
+@RestController
+@RequestMapping("/api/payment-jobs")
+@CrossOrigin(origins = { "http://localhost:3000", "http://localhost:3001" }, allowedHeaders = "*", methods = {
+        RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS },
+        allowCredentials = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentJobController {
+
+    private final PaymentJobService paymentJobService;
+
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasPermission('PAYMENT', 'VIEW')")
+    public ResponseEntity<PaymentJobDTO> getJob(@PathVariable String jobId) {
+        log.debug("GET request to fetch payment job {}", jobId);
+        return ResponseEntity.ok(paymentJobService.getJob(jobId));
+    }
+
+    @PostMapping("/{jobId}/cancel")
+    @PreAuthorize("hasPermission('PAYMENT', 'EDIT')")
+    public ResponseEntity<PaymentJobDTO> cancelJob(@PathVariable String jobId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        log.info("POST request to cancel payment job {} by: {}", jobId, username);
+
+        return ResponseEntity.ok(paymentJobService.cancelJob(jobId, username));
+    }
+}
@@ -4,16 +4,28 @@ import com.sarlatea.crm.dto.AssignmentAuditReportDTO;
 import com.sarlatea.crm.dto.PaymentReportDTO;
 import com.sarlatea.crm.dto.PfReportDTO;
 import com.sarlatea.crm.dto.PfReportRequestDTO;
+import com.sarlatea.crm.dto.ReportCacheStatsDTO;
 import com.sarlatea.crm.dto.UpcomingAssignmentsReportDTO;
+import com.sarlatea.crm.service.EmployeeMonthPayrollService;
+import com.sarlatea.crm.service.ReportCacheService;
+import com.sarlatea.crm.service.ReportExportService;
 import com.sarlatea.crm.service.ReportService;
+import com.sarlatea.crm.service.ReportSnapshotService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * REST controller for Reports
@@ -24,7 +36,13 @@ import java.time.LocalDate;
 @Slf4j
 public class ReportController {
 
+    private static final String REPORT_GENERATED_AT_HEADER = "Report-Generated-At";
+
     private final ReportService reportService;
+    private final EmployeeMonthPayrollService employeeMonthPayrollService;
+    private final ReportCacheService reportCacheService;
+    private final ReportSnapshotService reportSnapshotService;
+    private final ReportExportService reportExportService;
 
     @GetMapping("/upcoming-assignments")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_ASSIGNMENT')")
@@ -33,30 +51,22 @@ public class ReportController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         
         log.info("GET request for upcoming assignments report from {} to {}", startDate, endDate);
-        UpcomingAssignmentsReportDTO report = reportService.generateUpcomingAssignmentsReport(startDate, endDate);
+        UpcomingAssignmentsReportDTO report = upcomingAssignmentsReport(startDate, endDate);
         return ResponseEntity.ok(report);
     }
 
     @GetMapping("/upcoming-assignments/next-week")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_ASSIGNMENT')")
     public ResponseEntity<UpcomingAssignmentsReportDTO> getNextWeekAssignments() {
-        LocalDate today = LocalDate.now();
-        LocalDate nextWeek = today.plusWeeks(1);
-        
         log.info("GET request for next week assignments report");
-        UpcomingAssignmentsReportDTO report = reportService.generateUpcomingAssignmentsReport(today, nextWeek);
-        return ResponseEntity.ok(report);
+        return windowReport(ReportSnapshotService.ReportWindow.NEXT_WEEK, UpcomingAssignmentsReportDTO.class);
     }
 
     @GetMapping("/upcoming-assignments/next-month")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_ASSIGNMENT')")
     public ResponseEntity<UpcomingAssignmentsReportDTO> getNextMonthAssignments() {
-        LocalDate today = LocalDate.now();
-        LocalDate nextMonth = today.plusMonths(1);
-        
         log.info("GET request for next month assignments report");
-        UpcomingAssignmentsReportDTO report = reportService.generateUpcomingAssignmentsReport(today, nextMonth);
-        return ResponseEntity.ok(report);
+        return windowReport(ReportSnapshotService.ReportWindow.NEXT_MONTH, UpcomingAssignmentsReportDTO.class);
     }
 
     @GetMapping("/payments")
@@ -66,44 +76,29 @@ public class ReportController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         
         log.info("GET request for payment report from {} to {}", startDate, endDate);
-        PaymentReportDTO report = reportService.generatePaymentReport(startDate, endDate);
+        PaymentReportDTO report = paymentReport(startDate, endDate);
         return ResponseEntity.ok(report);
     }
 
     @GetMapping("/payments/current-month")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_PAYMENT')")
     public ResponseEntity<PaymentReportDTO> getCurrentMonthPaymentReport() {
-        LocalDate today = LocalDate.now();
-        LocalDate startOfMonth = today.withDayOfMonth(1);
-        LocalDate endOfMonth = today.withDayOfMonth(today.lengthOfMonth());
-        
         log.info("GET request for current month payment report");
-        PaymentReportDTO report = reportService.generatePaymentReport(startOfMonth, endOfMonth);
-        return ResponseEntity.ok(report);
+        return windowReport(ReportSnapshotService.ReportWindow.CURRENT_MONTH, PaymentReportDTO.class);
     }
 
     @GetMapping("/payments/last-month")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_PAYMENT')")
     public ResponseEntity<PaymentReportDTO> getLastMonthPaymentReport() {
-        LocalDate today = LocalDate.now();
-        LocalDate startOfLastMonth = today.minusMonths(1).withDayOfMonth(1);
-        LocalDate endOfLastMonth = today.minusMonths(1).withDayOfMonth(
-                today.minusMonths(1).lengthOfMonth());
-        
         log.info("GET request for last month payment report");
-        PaymentReportDTO report = reportService.generatePaymentReport(startOfLastMonth, endOfLastMonth);
-        return ResponseEntity.ok(report);
+        return windowReport(ReportSnapshotService.ReportWindow.LAST_MONTH, PaymentReportDTO.class);
     }
 
     @GetMapping("/payments/last-week")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_PAYMENT')")
     public ResponseEntity<PaymentReportDTO> getLastWeekPaymentReport() {
-        LocalDate today = LocalDate.now();
-        LocalDate lastWeekStart = today.minusWeeks(1);
-        
         log.info("GET request for last week payment report");
-        PaymentReportDTO report = reportService.generatePaymentReport(lastWeekStart, today);
-        return ResponseEntity.ok(report);
+        return windowReport(ReportSnapshotService.ReportWindow.LAST_WEEK, PaymentReportDTO.class);
     }
 
     @GetMapping("/assignment-audit")
@@ -117,6 +112,53 @@ public class ReportController {
         return ResponseEntity.ok(report);
     }
 
+    // ==================== Export Endpoints ====================
+
+    /**
+     * Stream the upcoming assignments report as CSV (format=csv) or NDJSON (format=ndjson)
+     */
+    @GetMapping("/upcoming-assignments/export")
+    @PreAuthorize("hasPermission('REPORT', 'GENERATE_ASSIGNMENT')")
+    public ResponseEntity<StreamingResponseBody> exportUpcomingAssignmentsReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "csv") String format) {
+        log.info("GET request to export upcoming assignments report from {} to {} as {}", startDate, endDate, format);
+        ReportExportService.ExportFormat exportFormat = ReportExportService.ExportFormat.fromParameter(format);
+        return exportResponse("upcoming-assignments", startDate, endDate, exportFormat, outputStream ->
+                reportExportService.writeUpcomingAssignments(startDate, endDate, exportFormat, outputStream));
+    }
+
+    /**
+     * Stream the payment report, one row per employee, as CSV or NDJSON
+     */
+    @GetMapping("/payments/export")
+    @PreAuthorize("hasPermission('REPORT', 'GENERATE_PAYMENT')")
+    public ResponseEntity<StreamingResponseBody> exportPaymentReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "csv") String format) {
+        log.info("GET request to export payment report from {} to {} as {}", startDate, endDate, format);
+        ReportExportService.ExportFormat exportFormat = ReportExportService.ExportFormat.fromParameter(format);
+        return exportResponse("payment-report", startDate, endDate, exportFormat, outputStream ->
+                reportExportService.writePaymentReport(startDate, endDate, exportFormat, outputStream));
+    }
+
+    /**
+     * Stream the assignment evaluation report as CSV or NDJSON
+     */
+    @GetMapping("/assignment-audit/export")
+    @PreAuthorize("hasPermission('REPORT', 'GENERATE_ASSIGNMENT')")
+    public ResponseEntity<StreamingResponseBody> exportAssignmentAuditReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "csv") String format) {
+        log.info("GET request to export assignment audit report from {} to {} as {}", startDate, endDate, format);
+        ReportExportService.ExportFormat exportFormat = ReportExportService.ExportFormat.fromParameter(format);
+        return exportResponse("assignment-audit", startDate, endDate, exportFormat, outputStream ->
+                reportExportService.writeAssignmentAudit(startDate, endDate, exportFormat, outputStream));
+    }
+
     @PostMapping("/pf-report")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_PAYMENT')")
     public ResponseEntity<PfReportDTO> getPfReport(@RequestBody PfReportRequestDTO request) {
@@ -125,6 +167,27 @@ public class ReportController {
         return ResponseEntity.ok(report);
     }
     
+    /**
+     * Rebuild the employee-month payroll aggregate behind the PF report from all PAID payments.
+     * Rewrites every row, so it is an administration task rather than a report permission
+     */
+    @PostMapping("/payroll-aggregate/rebuild")
+    @PreAuthorize("hasAuthority('SYSTEM_ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildPayrollAggregate() {
+        log.info("POST request to rebuild the employee month payroll aggregate");
+        int rows = employeeMonthPayrollService.rebuild();
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+    
+    /**
+     * Hit/miss metrics of the report cache
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasPermission('REPORT', 'GENERATE_PAYMENT')")
+    public ResponseEntity<ReportCacheStatsDTO> getReportCacheStats() {
+        return ResponseEntity.ok(reportCacheService.getStats());
+    }
+    
     @GetMapping("/debug/payments")
     @PreAuthorize("hasPermission('REPORT', 'GENERATE_PAYMENT')")
     public ResponseEntity<String> debugPayments() {
@@ -144,5 +207,55 @@ public class ReportController {
         
         return ResponseEntity.ok(debug.toString());
     }
-}
 
+    private UpcomingAssignmentsReportDTO upcomingAssignmentsReport(LocalDate startDate, LocalDate endDate) {
+        return reportCacheService.get(ReportCacheService.ReportType.UPCOMING_ASSIGNMENTS, startDate, endDate,
+                () -> reportService.generateUpcomingAssignmentsReport(startDate, endDate),
+                report -> report.getAssignments().size());
+    }
+
+    /**
+     * A rolling window served from its precomputed snapshot, with the time it was generated;
+     * computed (and cached) on request when precomputation is turned off
+     */
+    private <T> ResponseEntity<T> windowReport(ReportSnapshotService.ReportWindow window, Class<T> reportType) {
+        Optional<ReportSnapshotService.SnapshotReport<T>> snapshot = reportSnapshotService.get(window, reportType);
+        if (snapshot.isPresent()) {
+            return ResponseEntity.ok()
+                    .header(REPORT_GENERATED_AT_HEADER, snapshot.get().getGeneratedAt().toString())
+                    .body(snapshot.get().getReport());
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate startDate = window.getStartDate(today);
+        LocalDate endDate = window.getEndDate(today);
+        Object report = reportType == UpcomingAssignmentsReportDTO.class
+                ? upcomingAssignmentsReport(startDate, endDate)
+                : paymentReport(startDate, endDate);
+        return ResponseEntity.ok(reportType.cast(report));
+    }
+
+    private PaymentReportDTO paymentReport(LocalDate startDate, LocalDate endDate) {
+        return reportCacheService.get(ReportCacheService.ReportType.PAYMENTS, startDate, endDate,
+                () -> reportService.generatePaymentReport(startDate, endDate),
+                report -> report.getEmployeePayments().stream()
+                        .mapToInt(summary -> 1 + (summary.getAssignments() != null ? summary.getAssignments().size() : 0))
+                        .sum());
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(String report, LocalDate startDate, LocalDate endDate,
+                                                                 ReportExportService.ExportFormat format,
+                                                                 StreamingResponseBody body) {
+        reportExportService.validateRange(startDate, endDate);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType(MediaType.parseMediaType(format.getContentType()), StandardCharsets.UTF_8));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(reportExportService.getExportFileName(report, startDate, endDate, format))
+                .build());
+        headers.setCacheControl("no-store");
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+}
@@ -0,0 +1,41 @@
+package com.sarlatea.crm.controller;
+
+import com.sarlatea.crm.dto.SyncDeltaDTO;
+import com.sarlatea.crm.service.SyncService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * REST controller for delta sync of the field tablet app
+ */
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@Slf4j
+public class SyncController {
+
+    private final SyncService syncService;
+
+    /**
+     * Assignments, employees and work activities changed since the watermark of the previous sync.
+     * Without since (first sync) everything in scope is returned with fullResync set.
+     */
+    @GetMapping
+    @PreAuthorize("hasPermission('ASSIGNMENT', 'VIEW')")
+    public ResponseEntity<SyncDeltaDTO> getChanges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate assignmentsFrom) {
+        log.info("GET request to sync changes since {} (assignments from {})", since, assignmentsFrom);
+        return ResponseEntity.ok(syncService.getChangesSince(since, assignmentsFrom));
+    }
+}
@@ -1,7 +1,14 @@
 package com.sarlatea.crm.controller;
 
 import com.sarlatea.crm.dto.AssignmentHistoryDTO;
+import com.sarlatea.crm.dto.BulkAssignmentRequest;
+import com.sarlatea.crm.dto.BulkAssignmentResultDTO;
+import com.sarlatea.crm.dto.BulkEvaluationRequest;
+import com.sarlatea.crm.dto.BulkEvaluationResultDTO;
+import com.sarlatea.crm.dto.CursorPageDTO;
 import com.sarlatea.crm.dto.WorkAssignmentDTO;
+import com.sarlatea.crm.dto.WorkAssignmentFilter;
+import com.sarlatea.crm.model.WorkAssignment;
 import com.sarlatea.crm.service.WorkAssignmentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,9 +35,21 @@ public class WorkAssignmentController {
 
     @GetMapping
     @PreAuthorize("hasPermission('ASSIGNMENT', 'VIEW')")
-    public ResponseEntity<List<WorkAssignmentDTO>> getAllAssignments() {
-        log.info("GET request to fetch all work assignments");
-        List<WorkAssignmentDTO> assignments = workAssignmentService.getAllAssignments();
+    public ResponseEntity<CursorPageDTO<WorkAssignmentDTO>> getAssignments(
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) String workActivityId,
+            @RequestParam(required = false) WorkAssignment.AssignmentStatus assignmentStatus,
+            @RequestParam(required = false) WorkAssignment.PaymentStatus paymentStatus,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        WorkAssignmentFilter filter = new WorkAssignmentFilter(
+                employeeId, workActivityId, assignmentStatus, paymentStatus, startDate, endDate);
+        log.info("GET request to fetch work assignments matching {} (size: {})", filter, size);
+        CursorPageDTO<WorkAssignmentDTO> assignments =
+                workAssignmentService.getAssignmentsPage(filter, cursor, size, includeTotal);
         return ResponseEntity.ok(assignments);
     }
 
@@ -71,6 +90,14 @@ public class WorkAssignmentController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdAssignment);
     }
 
+    @PostMapping("/bulk")
+    @PreAuthorize("hasPermission('ASSIGNMENT', 'CREATE')")
+    public ResponseEntity<BulkAssignmentResultDTO> createAssignments(@RequestBody BulkAssignmentRequest request) {
+        log.info("POST request to create roster for activity: {}", request.getWorkActivityId());
+        BulkAssignmentResultDTO result = workAssignmentService.createAssignments(request);
+        return ResponseEntity.status(result.getCreatedCount() > 0 ? HttpStatus.CREATED : HttpStatus.OK).body(result);
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasPermission('ASSIGNMENT', 'EDIT')")
     public ResponseEntity<WorkAssignmentDTO> updateAssignment(
@@ -108,6 +135,15 @@ public class WorkAssignmentController {
         return ResponseEntity.ok(assignment);
     }
 
+    @PostMapping("/bulk-evaluate")
+    @PreAuthorize("hasPermission('ASSIGNMENT', 'EVALUATE')")
+    public ResponseEntity<BulkEvaluationResultDTO> updateCompletionPercentages(@RequestBody BulkEvaluationRequest request) {
+        log.info("POST request to bulk evaluate {} assignments",
+                request.getEvaluations() != null ? request.getEvaluations().size() : 0);
+        BulkEvaluationResultDTO result = workAssignmentService.updateCompletionPercentages(request);
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping("/{id}/update-completion")
     @PreAuthorize("hasPermission('ASSIGNMENT', 'EVALUATE')")
     public ResponseEntity<WorkAssignmentDTO> updateCompletionPercentage(
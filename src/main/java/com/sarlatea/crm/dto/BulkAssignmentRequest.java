@@ -0,0 +1,20 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Roster request: one assignment of the work activity per employee per date
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAssignmentRequest {
+    private String workActivityId;
+    private List<String> employeeIds;
+    private List<LocalDate> assignmentDates;
+}
@@ -0,0 +1,33 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a roster request, with one result per employee and date
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAssignmentResultDTO {
+    private String workActivityId;
+    private Integer requestedCount;
+    private Integer createdCount;
+    private Integer failedCount;
+    private List<RowResult> results = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        private String employeeId;
+        private LocalDate assignmentDate;
+        private String assignmentId; // Set when created
+        private String error;        // Set when skipped
+    }
+}
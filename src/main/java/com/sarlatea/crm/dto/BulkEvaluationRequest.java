@@ -0,0 +1,26 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Field evaluations submitted together, e.g. a supervisor's weighing sheet
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEvaluationRequest {
+    private List<Evaluation> evaluations = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Evaluation {
+        private String assignmentId;
+        private Double actualValue;
+    }
+}
@@ -0,0 +1,32 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk evaluation, with one result per submitted evaluation in request order
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEvaluationResultDTO {
+    private Integer requestedCount;
+    private Integer evaluatedCount;
+    private Integer failedCount;
+    private List<RowResult> results = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        private String assignmentId;
+        private Double actualValue;
+        private Integer completionPercentage; // Set when evaluated
+        private Integer evaluationCount;      // Set when evaluated
+        private String error;                 // Set when skipped
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Data
@@ -14,5 +15,7 @@ public class CreatePaymentDraftRequest {
     private Integer paymentYear;
     private List<String> assignmentIds; // Optional: specific assignments to include
     private String remarks;
+    private LocalDate periodStartDate; // Build-from-period mode: first assignment date to include
+    private LocalDate periodEndDate;   // Build-from-period mode: last assignment date to include
 }
 
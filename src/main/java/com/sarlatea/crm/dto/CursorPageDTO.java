@@ -0,0 +1,50 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * DTO for one page of a keyset (cursor) paginated listing
+ * Pass nextCursor back as the cursor parameter to fetch the following page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private static final String CURSOR_SEPARATOR = "\u001F";
+
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasMore;
+    private Long totalCount; // Only set when the caller asks for it (costs a COUNT query)
+
+    public CursorPageDTO(List<T> content, String nextCursor, boolean hasMore) {
+        this(content, nextCursor, hasMore, null);
+    }
+
+    /**
+     * Cursors are the sort key of the last row of a page, joined and Base64 (URL-safe) encoded
+     */
+    public static String encodeCursor(String... keyParts) {
+        String joined = String.join(CURSOR_SEPARATOR, keyParts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decodeCursor(String cursor, int expectedParts) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] keyParts = joined.split(CURSOR_SEPARATOR, -1);
+            if (keyParts.length != expectedParts) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return keyParts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Line item sums of one employee within one payment
+ * Field order must match the constructor expression in PaymentLineItemRepository
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeePayrollTotalsDTO {
+    private String employeeId;
+    private Long lineItemCount;
+    private BigDecimal grossAmount;
+    private BigDecimal employeePf;
+    private BigDecimal voluntaryPf;
+    private BigDecimal employerPf;
+    private BigDecimal netAmount;
+}
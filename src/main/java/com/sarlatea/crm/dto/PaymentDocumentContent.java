@@ -0,0 +1,20 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.core.io.Resource;
+
+/**
+ * Document metadata together with a streamable handle on its content, for downloads
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentDocumentContent {
+    private String fileName;
+    private String fileType;
+    private Long fileSize;
+    private String contentHash;
+    private Resource content;
+}
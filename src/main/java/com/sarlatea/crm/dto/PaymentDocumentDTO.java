@@ -19,6 +19,6 @@ public class PaymentDocumentDTO {
     private String description;
     private String uploadedBy;
     private LocalDateTime uploadedAt;
-    // Note: fileData (byte[]) is NOT included in DTO for list views
+    private String contentHash;
 }
 
@@ -0,0 +1,27 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for the line items of one employee within a payment, aggregated by the database
+ * Field order must match the constructor expression in PaymentLineItemRepository
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEmployeeSubtotalDTO {
+    private String employeeId;
+    private String employeeName;
+    private Long lineItemCount;
+    private BigDecimal amount;
+    private BigDecimal employeePf;
+    private BigDecimal voluntaryPf;
+    private BigDecimal employerPf;
+    private BigDecimal pfAmount;
+    private BigDecimal otherDeductions;
+    private BigDecimal netAmount;
+}
@@ -0,0 +1,27 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One payment line item reduced to the columns needed by bank/payroll exports
+ * Field order must match the constructor expression in PaymentLineItemRepository
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentExportLineDTO {
+    private String employeeId;
+    private String employeeName;
+    private String employeePhone;
+    private String pfAccountId;
+    private BigDecimal amount;
+    private BigDecimal employeePf;
+    private BigDecimal voluntaryPf;
+    private BigDecimal employerPf;
+    private BigDecimal otherDeductions;
+    private BigDecimal netAmount;
+}
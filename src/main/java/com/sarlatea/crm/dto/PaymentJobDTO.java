@@ -0,0 +1,33 @@
+package com.sarlatea.crm.dto;
+
+import com.sarlatea.crm.model.PaymentJob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for polling the status and progress of a background payment job
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentJobDTO {
+    private String id;
+    private String paymentId;
+    private PaymentJob.JobType jobType;
+    private PaymentJob.JobStatus status;
+    private Integer totalItems;
+    private Integer processedItems;
+    private Integer progressPercentage;
+    private Integer chunkSize;
+    private Boolean cancelRequested;
+    private String remarks;
+    private String errorMessage;
+    private String requestedBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime updatedAt;
+}
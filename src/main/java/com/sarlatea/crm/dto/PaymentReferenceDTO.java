@@ -0,0 +1,16 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A payment's id and reference number, for labelling rows that point at a payment
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentReferenceDTO {
+    private String id;
+    private String referenceNumber;
+}
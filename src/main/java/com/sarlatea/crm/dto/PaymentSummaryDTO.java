@@ -0,0 +1,52 @@
+package com.sarlatea.crm.dto;
+
+import com.sarlatea.crm.model.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Payment-level fields only, built directly by a JPQL constructor expression.
+ * Line item and document counts come from COUNT subqueries, so listing payments never
+ * initializes the line item or document collections (and never touches document file data).
+ * Field order must match the constructor expressions in PaymentRepository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSummaryDTO {
+    private String id;
+    private LocalDate paymentDate;
+    private String paymentTitle;
+    private Payment.PaymentStatus status;
+    private BigDecimal totalAmount;
+    private Integer paymentMonth;
+    private Integer paymentYear;
+    private String referenceNumber;
+    private String remarks;
+
+    // Workflow tracking
+    private String approvedBy;
+    private LocalDateTime approvedAt;
+    private String paidBy;
+    private LocalDateTime paidAt;
+    private String submittedBy;
+    private LocalDateTime submittedAt;
+    private String cancelledBy;
+    private LocalDateTime cancelledAt;
+    private String cancellationReason;
+
+    // Audit fields
+    private String createdBy;
+    private LocalDateTime createdAt;
+    private String updatedBy;
+    private LocalDateTime updatedAt;
+
+    // Aggregates
+    private Long lineItemCount;
+    private Long documentCount;
+}
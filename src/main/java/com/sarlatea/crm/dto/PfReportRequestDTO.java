@@ -10,5 +10,6 @@ import lombok.NoArgsConstructor;
 public class PfReportRequestDTO {
     private Integer month; // 1-12
     private Integer year;  // e.g., 2025
+    private Boolean includePaymentDetails; // true to add the per-payment breakdown to each employee; defaults to employee totals only
 }
 
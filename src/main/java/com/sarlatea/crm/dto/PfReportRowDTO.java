@@ -0,0 +1,31 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * PF sums of one employee within one paid payment, aggregated in the database
+ * Field order must match the constructor expression in PaymentLineItemRepository
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PfReportRowDTO {
+    private String employeeId;
+    private String employeeName;
+    private String employeePhone;
+    private String pfAccountId;
+    private String paymentId;
+    private LocalDateTime paidAt;
+    private String referenceNumber;
+    private Long lineItemCount;
+    private BigDecimal grossAmount;
+    private BigDecimal employeePf;
+    private BigDecimal voluntaryPf;
+    private BigDecimal employerPf;
+    private BigDecimal netAmount;
+}
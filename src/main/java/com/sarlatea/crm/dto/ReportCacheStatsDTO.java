@@ -0,0 +1,24 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for report cache hit/miss metrics
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportCacheStatsDTO {
+    private boolean enabled;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+    private long invalidations;
+    private long discardedLoads;
+    private int entries;
+    private long weight;
+    private long maxWeight;
+}
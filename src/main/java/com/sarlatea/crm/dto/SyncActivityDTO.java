@@ -0,0 +1,23 @@
+package com.sarlatea.crm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact work activity row for delta sync.
+ * Built directly by the JPQL constructor expression in WorkActivityRepository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncActivityDTO {
+    private String id;
+    private String name;
+    private String description;
+    private LocalDateTime updatedAt;
+}
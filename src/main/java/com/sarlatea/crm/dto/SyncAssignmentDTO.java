@@ -0,0 +1,33 @@
+package com.sarlatea.crm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sarlatea.crm.model.WorkAssignment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Compact assignment row for delta sync. Employee and activity are sent by id only;
+ * the client joins them against its synced employee and activity lists.
+ * Built directly by the JPQL constructor expressions in WorkAssignmentRepository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncAssignmentDTO {
+    private String id;
+    private String workActivityId;
+    private String assignedEmployeeId;
+    private LocalDate assignmentDate;
+    private WorkAssignment.AssignmentStatus assignmentStatus;
+    private Integer completionPercentage;
+    private Double actualValue;
+    private LocalDate completedDate;
+    private Integer evaluationCount;
+    private WorkAssignment.PaymentStatus paymentStatus;
+    private LocalDateTime updatedAt;
+}
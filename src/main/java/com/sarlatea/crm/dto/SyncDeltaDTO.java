@@ -0,0 +1,38 @@
+package com.sarlatea.crm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows changed since the client's watermark, plus the ids of rows deleted since then.
+ * The client upserts the rows, removes the deleted ids and sends the new watermark on its next sync.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncDeltaDTO {
+
+    // Pass as since on the next sync
+    private LocalDateTime watermark;
+
+    // True when the client must drop its local copy first: it sent no watermark,
+    // or one older than the tombstone retention
+    private Boolean fullResync;
+
+    // Assignments dated before this are not synced
+    private LocalDate assignmentsFrom;
+
+    private List<SyncAssignmentDTO> assignments = new ArrayList<>();
+    private List<SyncEmployeeDTO> employees = new ArrayList<>();
+    private List<SyncActivityDTO> activities = new ArrayList<>();
+
+    private List<String> deletedAssignmentIds = new ArrayList<>();
+    private List<String> deletedEmployeeIds = new ArrayList<>();
+    private List<String> deletedActivityIds = new ArrayList<>();
+}
@@ -0,0 +1,25 @@
+package com.sarlatea.crm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact employee row for delta sync (no id card details or photo).
+ * Built directly by the JPQL constructor expression in EmployeeRepository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncEmployeeDTO {
+    private String id;
+    private String name;
+    private String phone;
+    private String employeeTypeId;
+    private String employeeStatusId;
+    private LocalDateTime updatedAt;
+}
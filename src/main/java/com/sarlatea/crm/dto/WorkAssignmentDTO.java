@@ -49,5 +49,27 @@ public class WorkAssignmentDTO {
     private LocalDateTime paymentLockedAt;
     private Boolean isEditable; // Computed field - can edit activity or delete
     private Boolean isReEvaluatable; // Computed field - can update completion percentage
+
+    /**
+     * Built directly by the JPQL constructor expressions in WorkAssignmentRepository;
+     * argument order must match WorkAssignmentRepository.DTO_COLUMNS
+     */
+    public WorkAssignmentDTO(String id, String workActivityId, String assignedEmployeeId, String assignedEmployeeName,
+                             LocalDate assignmentDate, String activityName, String activityDescription,
+                             WorkAssignment.AssignmentStatus assignmentStatus, Double actualDurationHours,
+                             Integer completionPercentage, Double actualValue, String completionNotes,
+                             LocalDate completedDate, LocalDateTime assignedAt, LocalDateTime firstEvaluatedAt,
+                             LocalDateTime lastEvaluatedAt, Integer evaluationCount,
+                             WorkAssignment.PaymentStatus paymentStatus, String includedInPaymentId,
+                             String includedInPaymentReferenceNumber, String paidInPaymentId,
+                             String paidInPaymentReferenceNumber, LocalDateTime paymentLockedAt) {
+        this(id, workActivityId, assignedEmployeeId, assignedEmployeeName, assignmentDate, activityName,
+                activityDescription, assignmentStatus, actualDurationHours, completionPercentage, actualValue,
+                completionNotes, completedDate, assignedAt, firstEvaluatedAt, lastEvaluatedAt, evaluationCount,
+                paymentStatus, includedInPaymentId, includedInPaymentReferenceNumber, paidInPaymentId,
+                paidInPaymentReferenceNumber, paymentLockedAt,
+                WorkAssignment.isEditable(evaluationCount, paymentStatus),
+                WorkAssignment.isReEvaluatable(paymentStatus));
+    }
 }
 
@@ -0,0 +1,23 @@
+package com.sarlatea.crm.dto;
+
+import com.sarlatea.crm.model.WorkAssignment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Server-side filters for the assignment listing; null fields do not filter
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkAssignmentFilter {
+    private String employeeId;
+    private String workActivityId;
+    private WorkAssignment.AssignmentStatus assignmentStatus;
+    private WorkAssignment.PaymentStatus paymentStatus;
+    private LocalDate startDate;
+    private LocalDate endDate;
+}
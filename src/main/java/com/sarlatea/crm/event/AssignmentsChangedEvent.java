@@ -0,0 +1,34 @@
+package com.sarlatea.crm.event;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Published when work assignments change in a way that can affect reports
+ * (created, edited, evaluated, deleted, or moved through a payment).
+ * Carries the assignment dates involved so listeners can act on just those days.
+ */
+@Getter
+public class AssignmentsChangedEvent {
+
+    private final String source;
+    private final Set<LocalDate> assignmentDates;
+
+    public AssignmentsChangedEvent(String source, Collection<LocalDate> assignmentDates) {
+        this.source = source;
+        this.assignmentDates = new TreeSet<>();
+        for (LocalDate date : assignmentDates) {
+            if (date != null) {
+                this.assignmentDates.add(date);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return assignmentDates.isEmpty();
+    }
+}
@@ -0,0 +1,19 @@
+package com.sarlatea.crm.exception;
+
+/**
+ * Exception thrown when an operation lost a race with a concurrent change and may succeed if retried.
+ * Operations annotated with @RetryOnConflict are retried automatically; once retries are exhausted
+ * it is reported like any other data integrity conflict (409).
+ */
+public class ConcurrencyConflictException extends DataIntegrityException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConcurrencyConflictException(String message) {
+        super(message);
+    }
+
+    public ConcurrencyConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
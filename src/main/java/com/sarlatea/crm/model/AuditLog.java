@@ -68,6 +68,10 @@ public class AuditLog {
     @Column(name = "new_value", columnDefinition = "TEXT")
     private String newValue;
 
+    // Human-readable summary, rendered from the field changes when the entry is written
+    @Column(name = "description", length = 1000)
+    private String description;
+
     @Column(name = "status", length = 20)
     @Enumerated(EnumType.STRING)
     private OperationStatus status;
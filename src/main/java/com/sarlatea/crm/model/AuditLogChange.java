@@ -0,0 +1,37 @@
+package com.sarlatea.crm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One field that differs between the old and new value of an audit entry, captured when the
+ * entry is written. Nested fields are named by path, e.g. employeeType.name; values are the
+ * JSON scalar as text (arrays as JSON), null when absent.
+ */
+@Entity
+@Table(name = "audit_log_changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "audit_log_id", nullable = false, length = 36)
+    private String auditLogId;
+
+    @Column(name = "field_name", nullable = false, length = 200)
+    private String fieldName;
+
+    @Lob
+    @Column(name = "old_value", columnDefinition = "TEXT")
+    private String oldValue;
+
+    @Lob
+    @Column(name = "new_value", columnDefinition = "TEXT")
+    private String newValue;
+}
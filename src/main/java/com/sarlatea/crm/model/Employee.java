@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
  */
 @Entity
 @Table(name = "employees")
+@EntityListeners(SyncStampListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,79 @@
+package com.sarlatea.crm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * What an employee was paid in a payment month, summed over the line items of PAID payments.
+ * Maintained incrementally when a payment is recorded as paid (or reversed), so monthly and
+ * year-to-date reports read one row per employee and month instead of every line item.
+ */
+@Entity
+@Table(name = "employee_month_payroll", indexes = {
+        @Index(name = "idx_employee_month_payroll_period", columnList = "payment_year, payment_month")
+})
+@IdClass(EmployeeMonthPayroll.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeMonthPayroll {
+
+    @Id
+    @Column(name = "employee_id", length = 36)
+    private String employeeId;
+
+    @Id
+    @Column(name = "payment_year")
+    private Integer paymentYear;
+
+    @Id
+    @Column(name = "payment_month")
+    private Integer paymentMonth; // 1-12
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "employee_id", insertable = false, updatable = false)
+    private Employee employee;
+
+    // Paid payments the employee appears in
+    @Column(name = "payment_count", nullable = false)
+    private Integer paymentCount = 0;
+
+    // Paid line items, i.e. assignments
+    @Column(name = "assignment_count", nullable = false)
+    private Integer assignmentCount = 0;
+
+    @Column(name = "gross_amount", precision = 12, scale = 2, nullable = false)
+    private BigDecimal grossAmount = BigDecimal.ZERO;
+
+    @Column(name = "employee_pf", precision = 12, scale = 2, nullable = false)
+    private BigDecimal employeePf = BigDecimal.ZERO;
+
+    @Column(name = "voluntary_pf", precision = 12, scale = 2, nullable = false)
+    private BigDecimal voluntaryPf = BigDecimal.ZERO;
+
+    @Column(name = "employer_pf", precision = 12, scale = 2, nullable = false)
+    private BigDecimal employerPf = BigDecimal.ZERO;
+
+    @Column(name = "net_amount", precision = 12, scale = 2, nullable = false)
+    private BigDecimal netAmount = BigDecimal.ZERO;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String employeeId;
+        private Integer paymentYear;
+        private Integer paymentMonth;
+    }
+}
@@ -23,6 +23,7 @@ import java.time.LocalDate;
  */
 @Entity
 @Table(name = "employee_salaries")
+@EntityListeners(EmployeeSalaryListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,31 @@
+package com.sarlatea.crm.model;
+
+import com.sarlatea.crm.service.SalaryTimelineIndex;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Tells the salary timeline index which employees' salaries a transaction wrote.
+ * Created by Hibernate through the Spring bean container; the index is looked up lazily
+ * because it depends on the entity manager factory that creates this listener.
+ */
+public class EmployeeSalaryListener {
+
+    private final ObjectProvider<SalaryTimelineIndex> salaryTimelineIndex;
+
+    public EmployeeSalaryListener(ObjectProvider<SalaryTimelineIndex> salaryTimelineIndex) {
+        this.salaryTimelineIndex = salaryTimelineIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onSalaryChanged(EmployeeSalary salary) {
+        SalaryTimelineIndex index = salaryTimelineIndex.getIfAvailable();
+        if (index != null && salary.getEmployee() != null) {
+            index.employeeChanged(salary.getEmployee().getId());
+        }
+    }
+}
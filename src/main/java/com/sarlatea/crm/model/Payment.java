@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// Indexes are created by the versioned migrations in db/migration
 @Table(name = "payments")
 @Data
 @NoArgsConstructor
@@ -90,6 +91,11 @@ public class Payment {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Optimistic locking: concurrent edits of the same payment fail instead of overwriting each other
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @OneToMany(mappedBy = "payment", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PaymentLineItem> lineItems = new ArrayList<>();
 
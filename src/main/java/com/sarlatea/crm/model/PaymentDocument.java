@@ -32,9 +32,9 @@ public class PaymentDocument {
     @Column(name = "file_size")
     private Long fileSize;
 
-    @Lob
-    @Column(name = "file_data", columnDefinition = "LONGBLOB")
-    private byte[] fileData;
+    // SHA-256 of the content; the bytes live in the DocumentStore, not in this table
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
 
     @Column(name = "document_type")
     private String documentType; // e.g., "CHALLAN", "RECEIPT", "BANK_STATEMENT", "OTHER"
@@ -0,0 +1,103 @@
+package com.sarlatea.crm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A payment operation (batch add, submit, cancel) running in the background.
+ * Progress is written after every committed chunk, so the row is the source of truth
+ * for polling clients and survives restarts. The instance holding a queued or running job
+ * refreshes its heartbeat; a job whose heartbeat goes stale was lost with its instance.
+ */
+@Entity
+@Table(name = "payment_jobs", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payment_jobs_active_payment", columnNames = "active_payment_id")
+}, indexes = {
+        @Index(name = "idx_payment_jobs_payment_status", columnList = "payment_id, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class PaymentJob extends BaseEntity {
+
+    @Column(name = "payment_id", nullable = false, length = 36)
+    private String paymentId;
+
+    // The payment id while the job is queued or running, null once it finishes; the unique
+    // constraint is what allows only one active job per payment
+    @Column(name = "active_payment_id", length = 36)
+    private String activePaymentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false)
+    private JobType jobType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Column(name = "total_items", nullable = false)
+    private Integer totalItems = 0;
+
+    @Column(name = "processed_items", nullable = false)
+    private Integer processedItems = 0;
+
+    @Column(name = "chunk_size")
+    private Integer chunkSize;
+
+    // Only set on running ADD_LINE_ITEMS jobs, which check it between chunks
+    @Column(name = "cancel_requested", nullable = false)
+    private Boolean cancelRequested = false;
+
+    // Comma-separated assignment ids for ADD_LINE_ITEMS jobs
+    @Column(name = "assignment_ids", columnDefinition = "LONGTEXT")
+    private String assignmentIds;
+
+    // Submission remarks or cancellation reason
+    @Column(columnDefinition = "TEXT")
+    private String remarks;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "requested_by")
+    private String requestedBy;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    public enum JobType {
+        ADD_LINE_ITEMS,     // Add assignments to a draft, one transaction per chunk
+        SUBMIT,             // Submit for approval (single transaction)
+        CANCEL;             // Cancel the payment (single transaction)
+
+        // Whether a running job can be stopped part way; single-transaction jobs can only be cancelled while queued
+        public boolean isStoppable() {
+            return this == ADD_LINE_ITEMS;
+        }
+    }
+
+    public enum JobStatus {
+        QUEUED,             // Waiting for a worker
+        RUNNING,            // Being processed
+        COMPLETED,          // All items processed
+        FAILED,             // Stopped by an error; chunks committed before the error are kept
+        CANCELLED           // Stopped on request; chunks committed before the request are kept
+    }
+
+    public boolean isFinished() {
+        return status == JobStatus.COMPLETED || status == JobStatus.FAILED || status == JobStatus.CANCELLED;
+    }
+}
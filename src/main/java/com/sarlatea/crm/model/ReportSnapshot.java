@@ -0,0 +1,38 @@
+package com.sarlatea.crm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Last precomputed result of a rolling report window, serialized as JSON.
+ * Kept so a restarted instance can serve the dashboard straight away while it recomputes.
+ */
+@Entity
+@Table(name = "report_snapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportSnapshot {
+
+    @Id
+    @Column(name = "report_window", length = 32)
+    private String reportWindow;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    // Report as JSON
+    @Column(name = "payload", nullable = false, columnDefinition = "LONGTEXT")
+    private String payload;
+
+    @Column(name = "generated_at", nullable = false)
+    private LocalDateTime generatedAt;
+}
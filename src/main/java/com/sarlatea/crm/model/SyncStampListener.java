@@ -0,0 +1,28 @@
+package com.sarlatea.crm.model;
+
+import com.sarlatea.crm.service.SyncService;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Tells the sync service that a transaction stamped updatedAt on a row the tablet app syncs.
+ * Created by Hibernate through the Spring bean container, like EmployeeSalaryListener.
+ */
+public class SyncStampListener {
+
+    private final ObjectProvider<SyncService> syncService;
+
+    public SyncStampListener(ObjectProvider<SyncService> syncService) {
+        this.syncService = syncService;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void onStamped(BaseEntity entity) {
+        SyncService service = syncService.getIfAvailable();
+        if (service != null) {
+            service.rowsStamped();
+        }
+    }
+}
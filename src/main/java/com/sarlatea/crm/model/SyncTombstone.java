@@ -0,0 +1,39 @@
+package com.sarlatea.crm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record of a hard-deleted row, so delta sync clients can drop their copy.
+ * Soft-deleted entities (assignments, activities) need no tombstone: their deleted flag and
+ * updated_at already show up in the delta. Rows older than sync.tombstone-retention are purged.
+ */
+@Entity
+@Table(name = "sync_tombstones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 50)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false, length = 36)
+    private String entityId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public enum EntityType {
+        EMPLOYEE
+    }
+}
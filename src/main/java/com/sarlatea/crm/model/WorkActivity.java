@@ -15,6 +15,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "work_activities")
+@EntityListeners(SyncStampListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,6 +16,7 @@ import java.time.LocalDate;
  */
 @Entity
 @Table(name = "work_activity_completion_criteria")
+@EntityListeners(WorkActivityCompletionCriteriaListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
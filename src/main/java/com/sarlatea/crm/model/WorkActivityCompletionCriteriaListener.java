@@ -0,0 +1,30 @@
+package com.sarlatea.crm.model;
+
+import com.sarlatea.crm.service.CompletionCriteriaIndex;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Tells the completion criteria index which work activities' criteria a transaction wrote.
+ * Created by Hibernate through the Spring bean container, like EmployeeSalaryListener.
+ */
+public class WorkActivityCompletionCriteriaListener {
+
+    private final ObjectProvider<CompletionCriteriaIndex> completionCriteriaIndex;
+
+    public WorkActivityCompletionCriteriaListener(ObjectProvider<CompletionCriteriaIndex> completionCriteriaIndex) {
+        this.completionCriteriaIndex = completionCriteriaIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCriteriaChanged(WorkActivityCompletionCriteria criteria) {
+        CompletionCriteriaIndex index = completionCriteriaIndex.getIfAvailable();
+        if (index != null && criteria.getWorkActivity() != null) {
+            index.workActivityChanged(criteria.getWorkActivity().getId());
+        }
+    }
+}
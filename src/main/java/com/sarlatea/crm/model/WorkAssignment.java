@@ -14,7 +14,9 @@ import java.time.LocalDateTime;
  * Generated from WorkActivity and can be assigned to employees
  */
 @Entity
+// Indexes are created by the versioned migrations in db/migration
 @Table(name = "work_assignments")
+@EntityListeners(SyncStampListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -58,6 +60,12 @@ public class WorkAssignment extends BaseEntity {
     
     @Column(name = "payment_locked_at")
     private LocalDateTime paymentLockedAt; // When payment was finalized (locks editing)
+
+    // Optimistic locking; the bulk payment workflow UPDATEs in WorkAssignmentRepository bump it too.
+    // The column default lets ddl-auto add it to existing rows.
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
     
     // Soft delete flag - assignments are never hard deleted for audit purposes
     @Column(name = "deleted")
@@ -114,6 +122,13 @@ public class WorkAssignment extends BaseEntity {
      * to maintain data integrity and audit trail.
      */
     public boolean isEditable() {
+        return isEditable(evaluationCount, paymentStatus);
+    }
+
+    /**
+     * isEditable() for an assignment known only by its columns (e.g. a query projection)
+     */
+    public static boolean isEditable(Integer evaluationCount, PaymentStatus paymentStatus) {
         // Rule 1: Cannot edit if already evaluated (evaluation count > 0)
         if (evaluationCount != null && evaluationCount > 0) {
             return false;
@@ -124,10 +139,7 @@ public class WorkAssignment extends BaseEntity {
         // - In a draft payment (DRAFT) - allows re-evaluation before submission
         // - In a cancelled payment (CANCELLED)
         // Assignments become locked when payment is submitted (PENDING_PAYMENT, APPROVED, PAID)
-        return paymentStatus == PaymentStatus.UNPAID 
-            || paymentStatus == PaymentStatus.DRAFT
-            || paymentStatus == PaymentStatus.CANCELLED
-            || paymentStatus == null; // Default state
+        return isReEvaluatable(paymentStatus);
     }
 
     /**
@@ -137,6 +149,13 @@ public class WorkAssignment extends BaseEntity {
      * - Assignment is UNPAID, DRAFT, or CANCELLED
      */
     public boolean isReEvaluatable() {
+        return isReEvaluatable(paymentStatus);
+    }
+
+    /**
+     * isReEvaluatable() for an assignment known only by its payment status
+     */
+    public static boolean isReEvaluatable(PaymentStatus paymentStatus) {
         // Can re-evaluate as long as payment status allows it
         // Unlike isEditable(), evaluation count doesn't matter
         return paymentStatus == PaymentStatus.UNPAID 
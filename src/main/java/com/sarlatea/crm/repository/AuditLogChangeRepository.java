@@ -0,0 +1,20 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.model.AuditLogChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for AuditLogChange entity
+ */
+@Repository
+public interface AuditLogChangeRepository extends JpaRepository<AuditLogChange, String> {
+
+    /**
+     * Field changes of several audit entries in one query
+     */
+    List<AuditLogChange> findByAuditLogIdIn(Collection<String> auditLogIds);
+}
@@ -89,5 +89,10 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, String> {
      * Find failed operations
      */
     Page<AuditLog> findByStatus(AuditLog.OperationStatus status, Pageable pageable);
+
+    /**
+     * Entries written before descriptions were stored, in id order after a keyset
+     */
+    List<AuditLog> findByDescriptionIsNullAndIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
 }
 
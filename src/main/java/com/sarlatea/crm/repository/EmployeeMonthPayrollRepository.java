@@ -0,0 +1,75 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.model.EmployeeMonthPayroll;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmployeeMonthPayrollRepository extends JpaRepository<EmployeeMonthPayroll, EmployeeMonthPayroll.Key> {
+
+    // Employees of a month with paid amounts, ordered by employee name (id for namesakes)
+    @Query("SELECT m FROM EmployeeMonthPayroll m JOIN FETCH m.employee e " +
+           "WHERE m.paymentYear = :year AND m.paymentMonth = :month AND m.paymentCount > 0 " +
+           "ORDER BY e.name, e.id")
+    List<EmployeeMonthPayroll> findMonthWithEmployees(@Param("year") int year, @Param("month") int month);
+
+    @Query("SELECT m.employeeId FROM EmployeeMonthPayroll m " +
+           "WHERE m.paymentYear = :year AND m.paymentMonth = :month AND m.employeeId IN :employeeIds")
+    List<String> findExistingEmployeeIds(@Param("year") int year,
+                                         @Param("month") int month,
+                                         @Param("employeeIds") Collection<String> employeeIds);
+
+    // Plain INSERT (never a merge), so a row created concurrently is reported as a constraint violation, not overwritten
+    @Modifying
+    @Query("INSERT INTO EmployeeMonthPayroll (employeeId, paymentYear, paymentMonth, paymentCount, assignmentCount, " +
+           "grossAmount, employeePf, voluntaryPf, employerPf, netAmount, updatedAt) " +
+           "VALUES (:employeeId, :year, :month, 0, 0, 0, 0, 0, 0, 0, :now)")
+    int insertEmptyRow(@Param("employeeId") String employeeId,
+                       @Param("year") int year,
+                       @Param("month") int month,
+                       @Param("now") LocalDateTime now);
+
+    // Add one payment's sums in place, so concurrent payments never lose updates
+    @Modifying
+    @Query("UPDATE EmployeeMonthPayroll m SET m.paymentCount = m.paymentCount + :payments, " +
+           "m.assignmentCount = m.assignmentCount + :assignments, " +
+           "m.grossAmount = m.grossAmount + :grossAmount, m.employeePf = m.employeePf + :employeePf, " +
+           "m.voluntaryPf = m.voluntaryPf + :voluntaryPf, m.employerPf = m.employerPf + :employerPf, " +
+           "m.netAmount = m.netAmount + :netAmount, m.updatedAt = :now " +
+           "WHERE m.employeeId = :employeeId AND m.paymentYear = :year AND m.paymentMonth = :month")
+    int addToMonth(@Param("employeeId") String employeeId,
+                   @Param("year") int year,
+                   @Param("month") int month,
+                   @Param("payments") int payments,
+                   @Param("assignments") int assignments,
+                   @Param("grossAmount") BigDecimal grossAmount,
+                   @Param("employeePf") BigDecimal employeePf,
+                   @Param("voluntaryPf") BigDecimal voluntaryPf,
+                   @Param("employerPf") BigDecimal employerPf,
+                   @Param("netAmount") BigDecimal netAmount,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM EmployeeMonthPayroll m")
+    int deleteAllRows();
+
+    // Recompute every row from the line items of PAID payments
+    @Modifying
+    @Query("INSERT INTO EmployeeMonthPayroll (employeeId, paymentYear, paymentMonth, paymentCount, assignmentCount, " +
+           "grossAmount, employeePf, voluntaryPf, employerPf, netAmount, updatedAt) " +
+           "SELECT pli.employee.id, p.paymentYear, p.paymentMonth, COUNT(DISTINCT p.id), COUNT(pli), " +
+           "COALESCE(SUM(pli.amount), 0), COALESCE(SUM(pli.employeePf), 0), COALESCE(SUM(pli.voluntaryPf), 0), " +
+           "COALESCE(SUM(pli.employerPf), 0), COALESCE(SUM(pli.netAmount), 0), :now " +
+           "FROM PaymentLineItem pli JOIN pli.payment p " +
+           "WHERE p.status = PAID AND p.paymentYear IS NOT NULL AND p.paymentMonth IS NOT NULL " +
+           "GROUP BY pli.employee.id, p.paymentYear, p.paymentMonth")
+    int insertFromPaidLineItems(@Param("now") LocalDateTime now);
+}
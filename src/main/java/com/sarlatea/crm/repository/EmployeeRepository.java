@@ -1,5 +1,6 @@
 package com.sarlatea.crm.repository;
 
+import com.sarlatea.crm.dto.SyncEmployeeDTO;
 import com.sarlatea.crm.model.Employee;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -66,5 +68,19 @@ public interface EmployeeRepository extends JpaRepository<Employee, String> {
     Page<Employee> searchEmployeesPaginated(@Param("searchTerm") String searchTerm, Pageable pageable);
 
     List<Employee> findByIdCardType(Employee.IdCardType idCardType);
+
+    /**
+     * Delta sync: every employee, for a client without a watermark
+     */
+    @Query("SELECT new com.sarlatea.crm.dto.SyncEmployeeDTO(e.id, e.name, e.phone, e.employeeType.id, " +
+           "e.employeeStatus.id, e.updatedAt) FROM Employee e")
+    List<SyncEmployeeDTO> findSyncRows();
+
+    /**
+     * Delta sync: employees updated after the watermark
+     */
+    @Query("SELECT new com.sarlatea.crm.dto.SyncEmployeeDTO(e.id, e.name, e.phone, e.employeeType.id, " +
+           "e.employeeStatus.id, e.updatedAt) FROM Employee e WHERE e.updatedAt > :since")
+    List<SyncEmployeeDTO> findSyncRowsChangedSince(@Param("since") LocalDateTime since);
 }
 
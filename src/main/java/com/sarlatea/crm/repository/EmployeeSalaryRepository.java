@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,13 @@ public interface EmployeeSalaryRepository extends JpaRepository<EmployeeSalary,
            "AND es.endDate IS NULL AND es.isActive = true")
     Optional<EmployeeSalary> findCurrentSalaryByEmployeeId(@Param("employeeId") String employeeId);
 
+    /**
+     * Find current active salaries for a set of employees in one query (no end date)
+     */
+    @Query("SELECT es FROM EmployeeSalary es WHERE es.employee.id IN :employeeIds " +
+           "AND es.endDate IS NULL AND es.isActive = true")
+    List<EmployeeSalary> findCurrentSalariesByEmployeeIds(@Param("employeeIds") Collection<String> employeeIds);
+
     /**
      * Find complete salary history for an employee, ordered by start date descending
      */
@@ -39,6 +47,27 @@ public interface EmployeeSalaryRepository extends JpaRepository<EmployeeSalary,
     Optional<EmployeeSalary> findSalaryForEmployeeOnDate(@Param("employeeId") String employeeId, 
                                                           @Param("date") LocalDate date);
 
+    /**
+     * Find the salary records active on a date for a set of employees in one query.
+     * Newest start date first, so overlapping records resolve the same way for every employee.
+     */
+    @Query("SELECT es FROM EmployeeSalary es WHERE es.employee.id IN :employeeIds " +
+           "AND es.startDate <= :date " +
+           "AND (es.endDate IS NULL OR es.endDate >= :date) " +
+           "ORDER BY es.startDate DESC")
+    List<EmployeeSalary> findSalariesForEmployeesOnDate(@Param("employeeIds") Collection<String> employeeIds,
+                                                        @Param("date") LocalDate date);
+
+    /**
+     * Find the salary records active on a date for all employees (one row per employee in practice),
+     * ordered like findSalariesForEmployeesOnDate
+     */
+    @Query("SELECT es FROM EmployeeSalary es " +
+           "WHERE es.startDate <= :date " +
+           "AND (es.endDate IS NULL OR es.endDate >= :date) " +
+           "ORDER BY es.startDate DESC")
+    List<EmployeeSalary> findSalariesOnDate(@Param("date") LocalDate date);
+
     /**
      * Find all active salaries (for all employees)
      */
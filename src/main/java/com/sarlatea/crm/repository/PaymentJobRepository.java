@@ -0,0 +1,80 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.model.PaymentJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentJobRepository extends JpaRepository<PaymentJob, String> {
+
+    // Job bookkeeping updates are transactional on their own: the worker calls them between
+    // chunk transactions, so progress is visible to pollers as soon as each chunk commits
+
+    // Jobs of a payment, newest first
+    List<PaymentJob> findByPaymentIdOrderByCreatedAtDesc(String paymentId);
+
+    // Move a queued job to RUNNING; returns 0 if it was cancelled (or claimed) in the meantime
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentJob j SET j.status = RUNNING, j.startedAt = :now, j.heartbeatAt = :now, j.updatedAt = :now " +
+           "WHERE j.id = :jobId AND j.status = QUEUED")
+    int claimQueuedJob(@Param("jobId") String jobId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentJob j SET j.processedItems = :processedItems, j.updatedAt = :now WHERE j.id = :jobId")
+    int updateProgress(@Param("jobId") String jobId,
+                       @Param("processedItems") int processedItems,
+                       @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentJob j SET j.status = :status, j.errorMessage = :errorMessage, j.activePaymentId = NULL, " +
+           "j.completedAt = :now, j.updatedAt = :now WHERE j.id = :jobId")
+    int finish(@Param("jobId") String jobId,
+               @Param("status") PaymentJob.JobStatus status,
+               @Param("errorMessage") String errorMessage,
+               @Param("now") LocalDateTime now);
+
+    // Flag a running batch add for cancellation; the worker stops after its current chunk
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentJob j SET j.cancelRequested = true, j.updatedAt = :now " +
+           "WHERE j.id = :jobId AND j.status = RUNNING AND j.jobType = ADD_LINE_ITEMS")
+    int requestCancellation(@Param("jobId") String jobId, @Param("now") LocalDateTime now);
+
+    // Cancel a job that has not started yet
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentJob j SET j.status = CANCELLED, j.cancelRequested = true, j.activePaymentId = NULL, " +
+           "j.completedAt = :now, j.updatedAt = :now WHERE j.id = :jobId AND j.status = QUEUED")
+    int cancelQueuedJob(@Param("jobId") String jobId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT j.cancelRequested FROM PaymentJob j WHERE j.id = :jobId")
+    boolean isCancelRequested(@Param("jobId") String jobId);
+
+    // Refresh the heartbeat of the jobs an instance is holding
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentJob j SET j.heartbeatAt = :now WHERE j.id IN :jobIds AND j.status IN (QUEUED, RUNNING)")
+    int touchHeartbeats(@Param("jobIds") Collection<String> jobIds, @Param("now") LocalDateTime now);
+
+    // Jobs left queued or running by an instance that stopped refreshing them; rows from before
+    // heartbeats were kept fall back to their last update
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentJob j SET j.status = FAILED, j.errorMessage = :errorMessage, j.activePaymentId = NULL, " +
+           "j.completedAt = :now, j.updatedAt = :now " +
+           "WHERE j.status IN (QUEUED, RUNNING) AND COALESCE(j.heartbeatAt, j.updatedAt) < :staleBefore")
+    int failAbandonedJobs(@Param("errorMessage") String errorMessage,
+                          @Param("staleBefore") LocalDateTime staleBefore,
+                          @Param("now") LocalDateTime now);
+}
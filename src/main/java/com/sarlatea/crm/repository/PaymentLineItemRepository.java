@@ -1,12 +1,22 @@
 package com.sarlatea.crm.repository;
 
+import com.sarlatea.crm.dto.EmployeePayrollTotalsDTO;
+import com.sarlatea.crm.dto.PaymentEmployeeSubtotalDTO;
+import com.sarlatea.crm.dto.PaymentExportLineDTO;
+import com.sarlatea.crm.dto.PfReportRowDTO;
 import com.sarlatea.crm.model.PaymentLineItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentLineItemRepository extends JpaRepository<PaymentLineItem, String> {
@@ -30,5 +40,112 @@ public interface PaymentLineItemRepository extends JpaRepository<PaymentLineItem
     // Get all line items for assignments in a specific payment
     @Query("SELECT pli FROM PaymentLineItem pli WHERE pli.payment.id = :paymentId ORDER BY pli.employee.name, pli.workActivity.name")
     List<PaymentLineItem> findByPaymentIdOrderedByEmployeeAndActivity(@Param("paymentId") String paymentId);
-}
 
+    // Keyset pagination over a payment's line items ordered by employee name, assignment date and id
+    // Callers pass PageRequest.of(0, size) to limit the rows; an optional employeeId narrows to one employee
+    // assignmentDate is nullable: undated items sort first within an employee, and a null afterDate resumes among them
+    @Query("SELECT pli FROM PaymentLineItem pli " +
+           "JOIN FETCH pli.employee e " +
+           "JOIN FETCH pli.workActivity " +
+           "JOIN FETCH pli.assignment " +
+           "WHERE pli.payment.id = :paymentId " +
+           "AND (:employeeId IS NULL OR e.id = :employeeId) " +
+           "ORDER BY e.name, pli.assignmentDate NULLS FIRST, pli.id")
+    List<PaymentLineItem> findFirstLineItemPage(@Param("paymentId") String paymentId,
+                                                @Param("employeeId") String employeeId,
+                                                Pageable pageable);
+
+    @Query("SELECT pli FROM PaymentLineItem pli " +
+           "JOIN FETCH pli.employee e " +
+           "JOIN FETCH pli.workActivity " +
+           "JOIN FETCH pli.assignment " +
+           "WHERE pli.payment.id = :paymentId " +
+           "AND (:employeeId IS NULL OR e.id = :employeeId) " +
+           "AND (e.name > :afterName " +
+           "  OR (e.name = :afterName AND :afterDate IS NULL AND (pli.assignmentDate IS NOT NULL OR pli.id > :afterId)) " +
+           "  OR (e.name = :afterName AND pli.assignmentDate > :afterDate) " +
+           "  OR (e.name = :afterName AND pli.assignmentDate = :afterDate AND pli.id > :afterId)) " +
+           "ORDER BY e.name, pli.assignmentDate NULLS FIRST, pli.id")
+    List<PaymentLineItem> findLineItemPageAfter(@Param("paymentId") String paymentId,
+                                                @Param("employeeId") String employeeId,
+                                                @Param("afterName") String afterName,
+                                                @Param("afterDate") LocalDate afterDate,
+                                                @Param("afterId") String afterId,
+                                                Pageable pageable);
+
+    // Per-employee subtotals of a payment, keyset paginated by employee name and id
+    @Query("SELECT new com.sarlatea.crm.dto.PaymentEmployeeSubtotalDTO(" + SUBTOTAL_COLUMNS + ") " +
+           "FROM PaymentLineItem pli JOIN pli.employee e " +
+           "WHERE pli.payment.id = :paymentId " +
+           "GROUP BY e.id, e.name " +
+           "ORDER BY e.name, e.id")
+    List<PaymentEmployeeSubtotalDTO> findFirstEmployeeSubtotalPage(@Param("paymentId") String paymentId,
+                                                                   Pageable pageable);
+
+    @Query("SELECT new com.sarlatea.crm.dto.PaymentEmployeeSubtotalDTO(" + SUBTOTAL_COLUMNS + ") " +
+           "FROM PaymentLineItem pli JOIN pli.employee e " +
+           "WHERE pli.payment.id = :paymentId " +
+           "AND (e.name > :afterName OR (e.name = :afterName AND e.id > :afterId)) " +
+           "GROUP BY e.id, e.name " +
+           "ORDER BY e.name, e.id")
+    List<PaymentEmployeeSubtotalDTO> findEmployeeSubtotalPageAfter(@Param("paymentId") String paymentId,
+                                                                   @Param("afterName") String afterName,
+                                                                   @Param("afterId") String afterId,
+                                                                   Pageable pageable);
+
+    // Constructor arguments for PaymentEmployeeSubtotalDTO
+    String SUBTOTAL_COLUMNS =
+            "e.id, e.name, COUNT(pli), SUM(pli.amount), SUM(pli.employeePf), SUM(pli.voluntaryPf), " +
+            "SUM(pli.employerPf), SUM(pli.pfAmount), SUM(pli.otherDeductions), SUM(pli.netAmount)";
+
+    // Scroll a payment's line items for export, grouped together per employee (ordered by employee name and id).
+    // Rows are DTOs, so nothing enters the persistence context; the stream must be consumed and closed
+    // inside a transaction. The PF account is the one snapshotted at submission, falling back to the employee's.
+    @Query("SELECT new com.sarlatea.crm.dto.PaymentExportLineDTO(" +
+           "e.id, e.name, e.phone, COALESCE(pli.snapshotPfAccountId, e.pfAccountId), " +
+           "pli.amount, pli.employeePf, pli.voluntaryPf, pli.employerPf, pli.otherDeductions, pli.netAmount) " +
+           "FROM PaymentLineItem pli JOIN pli.employee e " +
+           "WHERE pli.payment.id = :paymentId " +
+           "ORDER BY e.name, e.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<PaymentExportLineDTO> streamExportLinesByPaymentId(@Param("paymentId") String paymentId);
+
+    // Per-employee, per-payment PF sums of the PAID payments of a month, for the PF report.
+    // Filtered through the (status, payment_year, payment_month) index on payments; rows come
+    // back grouped per employee (ordered by employee name and id), then by payment date.
+    @Query("SELECT new com.sarlatea.crm.dto.PfReportRowDTO(" +
+           "e.id, e.name, e.phone, e.pfAccountId, p.id, p.paidAt, p.referenceNumber, COUNT(pli), " +
+           "SUM(pli.amount), SUM(pli.employeePf), SUM(pli.voluntaryPf), SUM(pli.employerPf), SUM(pli.netAmount)) " +
+           "FROM PaymentLineItem pli JOIN pli.payment p JOIN pli.employee e " +
+           "WHERE p.status = PAID AND p.paymentYear = :year AND p.paymentMonth = :month " +
+           "GROUP BY e.id, e.name, e.phone, e.pfAccountId, p.id, p.paidAt, p.referenceNumber " +
+           "ORDER BY e.name, e.id, p.paidAt, p.id")
+    List<PfReportRowDTO> findPfReportRows(@Param("year") int year, @Param("month") int month);
+
+    // Per-employee sums of one payment, applied to the employee-month payroll aggregate
+    @Query("SELECT new com.sarlatea.crm.dto.EmployeePayrollTotalsDTO(" +
+           "pli.employee.id, COUNT(pli), SUM(pli.amount), SUM(pli.employeePf), SUM(pli.voluntaryPf), " +
+           "SUM(pli.employerPf), SUM(pli.netAmount)) " +
+           "FROM PaymentLineItem pli WHERE pli.payment.id = :paymentId " +
+           "GROUP BY pli.employee.id")
+    List<EmployeePayrollTotalsDTO> sumByEmployeeForPayment(@Param("paymentId") String paymentId);
+
+    // Get all line items for a payment with assignment, employee and activity fetched in one statement
+    @Query("SELECT pli FROM PaymentLineItem pli " +
+           "JOIN FETCH pli.assignment " +
+           "JOIN FETCH pli.employee " +
+           "JOIN FETCH pli.workActivity " +
+           "WHERE pli.payment.id = :paymentId")
+    List<PaymentLineItem> findByPaymentIdWithAssignment(@Param("paymentId") String paymentId);
+
+    // Get the assignment ids covered by a payment without loading the line items
+    @Query("SELECT pli.assignment.id FROM PaymentLineItem pli WHERE pli.payment.id = :paymentId")
+    List<String> findAssignmentIdsByPaymentId(@Param("paymentId") String paymentId);
+
+    // Distinct assignment dates covered by a payment
+    @Query("SELECT DISTINCT pli.assignmentDate FROM PaymentLineItem pli WHERE pli.payment.id = :paymentId")
+    List<LocalDate> findAssignmentDatesByPaymentId(@Param("paymentId") String paymentId);
+}
@@ -1,12 +1,17 @@
 package com.sarlatea.crm.repository;
 
+import com.sarlatea.crm.dto.PaymentReferenceDTO;
+import com.sarlatea.crm.dto.PaymentSummaryDTO;
 import com.sarlatea.crm.model.Payment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,6 +59,46 @@ public interface PaymentRepository extends JpaRepository<Payment, String> {
            "p.createdAt DESC")
     List<Payment> findAllOrderedByStatusPriority();
 
+    // Payment summaries (payment-level fields plus line item/document counts) in the same status priority order
+    @Query(value = "SELECT new com.sarlatea.crm.dto.PaymentSummaryDTO(" + SUMMARY_COLUMNS + ") FROM Payment p ORDER BY " +
+           "CASE p.status " +
+           "  WHEN 'DRAFT' THEN 1 " +
+           "  WHEN 'PENDING_APPROVAL' THEN 2 " +
+           "  WHEN 'APPROVED' THEN 3 " +
+           "  WHEN 'PAID' THEN 4 " +
+           "  WHEN 'CANCELLED' THEN 5 " +
+           "  ELSE 6 " +
+           "END, " +
+           "p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM Payment p")
+    Page<PaymentSummaryDTO> findSummariesOrderedByStatusPriority(Pageable pageable);
+
+    // Payment summaries with a given status ordered by created date desc
+    @Query(value = "SELECT new com.sarlatea.crm.dto.PaymentSummaryDTO(" + SUMMARY_COLUMNS + ") FROM Payment p " +
+           "WHERE p.status = :status ORDER BY p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM Payment p WHERE p.status = :status")
+    Page<PaymentSummaryDTO> findSummariesByStatus(@Param("status") Payment.PaymentStatus status, Pageable pageable);
+
+    // Payment-level fields of a single payment without its line items or documents
+    @Query("SELECT new com.sarlatea.crm.dto.PaymentSummaryDTO(" + SUMMARY_COLUMNS + ") FROM Payment p WHERE p.id = :id")
+    Optional<PaymentSummaryDTO> findSummaryById(@Param("id") String id);
+
+    // Reference numbers of a set of payments, without loading the payments
+    @Query("SELECT new com.sarlatea.crm.dto.PaymentReferenceDTO(p.id, p.referenceNumber) FROM Payment p WHERE p.id IN :ids")
+    List<PaymentReferenceDTO> findReferencesByIds(@Param("ids") Collection<String> ids);
+
+    // Constructor arguments for PaymentSummaryDTO; counts are subqueries so the collections are never loaded
+    String SUMMARY_COLUMNS =
+            "p.id, p.paymentDate, p.paymentTitle, p.status, p.totalAmount, p.paymentMonth, p.paymentYear, " +
+            "p.referenceNumber, p.remarks, p.approvedBy, p.approvedAt, p.paidBy, p.paidAt, " +
+            "p.submittedBy, p.submittedAt, p.cancelledBy, p.cancelledAt, p.cancellationReason, " +
+            "p.createdBy, p.createdAt, p.updatedBy, p.updatedAt, " +
+            "(SELECT COUNT(li) FROM PaymentLineItem li WHERE li.payment = p), " +
+            "(SELECT COUNT(d) FROM PaymentDocument d WHERE d.payment = p)";
+
+    // Count payments of a payment month in a status (served by idx_payments_status_year_month)
+    long countByStatusAndPaymentYearAndPaymentMonth(Payment.PaymentStatus status, Integer paymentYear, Integer paymentMonth);
+
     // Find payments by reference number
     Optional<Payment> findByReferenceNumber(String referenceNumber);
 }
@@ -0,0 +1,9 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.model.ReportSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReportSnapshotRepository extends JpaRepository<ReportSnapshot, String> {
+}
@@ -0,0 +1,25 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.model.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, String> {
+
+    @Query("SELECT t.entityId FROM SyncTombstone t WHERE t.entityType = :entityType AND t.deletedAt > :since")
+    List<String> findEntityIdsDeletedSince(@Param("entityType") SyncTombstone.EntityType entityType,
+                                           @Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SyncTombstone t WHERE t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,11 @@ public interface WorkActivityCompletionCriteriaRepository extends JpaRepository<
      * Find all completion criteria for a specific work activity (non-deleted only)
      */
     List<WorkActivityCompletionCriteria> findByWorkActivityIdAndDeletedFalse(String workActivityId);
+
+    /**
+     * Find all non-deleted completion criteria of all work activities
+     */
+    List<WorkActivityCompletionCriteria> findByDeletedFalse();
     
     /**
      * Find active completion criterion for a specific work activity (non-deleted only)
@@ -28,6 +34,16 @@ public interface WorkActivityCompletionCriteriaRepository extends JpaRepository<
            "AND c.startDate <= CURRENT_DATE " +
            "AND (c.endDate IS NULL OR c.endDate >= CURRENT_DATE)")
     Optional<WorkActivityCompletionCriteria> findActiveByWorkActivityId(@Param("workActivityId") String workActivityId);
+
+    /**
+     * Find active completion criteria for a set of work activities in one query (non-deleted only)
+     */
+    @Query("SELECT c FROM WorkActivityCompletionCriteria c " +
+           "WHERE c.workActivity.id IN :workActivityIds " +
+           "AND c.deleted = false " +
+           "AND c.startDate <= CURRENT_DATE " +
+           "AND (c.endDate IS NULL OR c.endDate >= CURRENT_DATE)")
+    List<WorkActivityCompletionCriteria> findActiveByWorkActivityIds(@Param("workActivityIds") Collection<String> workActivityIds);
     
     /**
      * Find all active completion criteria (non-deleted only)
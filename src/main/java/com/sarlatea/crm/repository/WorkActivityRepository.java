@@ -1,11 +1,13 @@
 package com.sarlatea.crm.repository;
 
+import com.sarlatea.crm.dto.SyncActivityDTO;
 import com.sarlatea.crm.model.WorkActivity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,5 +29,23 @@ public interface WorkActivityRepository extends JpaRepository<WorkActivity, Stri
 
     @Query("SELECT w FROM WorkActivity w LEFT JOIN FETCH w.completionCriteria WHERE w.id = :id AND w.deleted = false")
     Optional<WorkActivity> findByIdAndDeletedFalse(@Param("id") String id);
+
+    /**
+     * Delta sync: every non-deleted activity, for a client without a watermark
+     */
+    @Query("SELECT new com.sarlatea.crm.dto.SyncActivityDTO(w.id, w.name, w.description, w.updatedAt) " +
+           "FROM WorkActivity w WHERE w.deleted = false")
+    List<SyncActivityDTO> findSyncRows();
+
+    /**
+     * Delta sync: non-deleted activities updated after the watermark
+     */
+    @Query("SELECT new com.sarlatea.crm.dto.SyncActivityDTO(w.id, w.name, w.description, w.updatedAt) " +
+           "FROM WorkActivity w WHERE w.deleted = false AND w.updatedAt > :since")
+    List<SyncActivityDTO> findSyncRowsChangedSince(@Param("since") LocalDateTime since);
+
+    // Delta sync tombstones: soft deletes bump updated_at like any other update
+    @Query("SELECT w.id FROM WorkActivity w WHERE w.deleted = true AND w.updatedAt > :since")
+    List<String> findIdsDeletedSince(@Param("since") LocalDateTime since);
 }
 
@@ -1,20 +1,29 @@
 package com.sarlatea.crm.repository;
 
+import com.sarlatea.crm.dto.SyncAssignmentDTO;
+import com.sarlatea.crm.dto.WorkAssignmentDTO;
 import com.sarlatea.crm.model.WorkActivity;
 import com.sarlatea.crm.model.WorkAssignment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for WorkAssignment entity
  */
 @Repository
-public interface WorkAssignmentRepository extends JpaRepository<WorkAssignment, String> {
+public interface WorkAssignmentRepository extends JpaRepository<WorkAssignment, String>, WorkAssignmentRepositoryCustom {
 
     // Find only non-deleted assignments
     List<WorkAssignment> findByDeletedFalse();
@@ -25,14 +34,28 @@ public interface WorkAssignmentRepository extends JpaRepository<WorkAssignment,
 
     List<WorkAssignment> findByAssignmentDateAndDeletedFalse(LocalDate date);
 
+    // Employee is fetched with the assignments: callers read its name for every row
     @Query("SELECT wa FROM WorkAssignment wa " +
-           "LEFT JOIN wa.assignedEmployee e " +
+           "LEFT JOIN FETCH wa.assignedEmployee e " +
            "WHERE wa.assignmentDate BETWEEN :startDate AND :endDate " +
            "AND wa.deleted = false " +
            "ORDER BY e.name ASC")
     List<WorkAssignment> findByAssignmentDateBetweenAndDeletedFalse(@Param("startDate") LocalDate startDate, 
                                                                       @Param("endDate") LocalDate endDate);
 
+    /**
+     * Completed assignments of a period with their employees, for the payment report.
+     * Ordered so that each employee's assignments are consecutive (by name, then id for namesakes).
+     */
+    @Query("SELECT wa FROM WorkAssignment wa " +
+           "JOIN FETCH wa.assignedEmployee e " +
+           "WHERE wa.assignmentDate BETWEEN :startDate AND :endDate " +
+           "AND wa.deleted = false " +
+           "AND wa.assignmentStatus = COMPLETED " +
+           "ORDER BY e.name ASC, e.id ASC, wa.assignmentDate ASC")
+    List<WorkAssignment> findCompletedWithEmployeeByDateRange(@Param("startDate") LocalDate startDate,
+                                                              @Param("endDate") LocalDate endDate);
+
     @Query("SELECT wa FROM WorkAssignment wa WHERE wa.assignedEmployee.id = :employeeId " +
            "AND wa.assignmentDate BETWEEN :startDate AND :endDate " +
            "AND wa.deleted = false")
@@ -59,6 +82,51 @@ public interface WorkAssignmentRepository extends JpaRepository<WorkAssignment,
                                                          @Param("startDate") LocalDate startDate,
                                                          @Param("endDate") LocalDate endDate);
     
+    /**
+     * Non-deleted assignments as DTOs. Each query below is a single statement: the employee and the
+     * draft/paid payments (for their reference numbers) are joined in rather than loaded per row.
+     */
+    @Query("SELECT new com.sarlatea.crm.dto.WorkAssignmentDTO(" + DTO_COLUMNS + ") " + DTO_FROM +
+           "WHERE e.id = :employeeId AND wa.deleted = false")
+    List<WorkAssignmentDTO> findDtosByEmployeeId(@Param("employeeId") String employeeId);
+
+    @Query("SELECT new com.sarlatea.crm.dto.WorkAssignmentDTO(" + DTO_COLUMNS + ") " + DTO_FROM +
+           "WHERE wa.assignmentDate BETWEEN :startDate AND :endDate " +
+           "AND wa.deleted = false " +
+           "ORDER BY e.name ASC")
+    List<WorkAssignmentDTO> findDtosByDateRange(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.sarlatea.crm.dto.WorkAssignmentDTO(" + DTO_COLUMNS + ") " + DTO_FROM +
+           "WHERE e.id IN :employeeIds " +
+           "AND wa.assignmentDate BETWEEN :startDate AND :endDate " +
+           "AND wa.deleted = false " +
+           "ORDER BY e.name ASC, wa.assignmentDate ASC")
+    List<WorkAssignmentDTO> findDtosByEmployeeIdsAndDateRange(@Param("employeeIds") List<String> employeeIds,
+                                                              @Param("startDate") LocalDate startDate,
+                                                              @Param("endDate") LocalDate endDate);
+
+    /**
+     * Delta sync: non-deleted assignments dated from a day on, for a client without a watermark
+     */
+    @Query("SELECT new com.sarlatea.crm.dto.SyncAssignmentDTO(" + SYNC_COLUMNS + ") FROM WorkAssignment wa " +
+           "WHERE wa.assignmentDate >= :fromDate AND wa.deleted = false")
+    List<SyncAssignmentDTO> findSyncRowsFrom(@Param("fromDate") LocalDate fromDate);
+
+    /**
+     * Delta sync: non-deleted assignments dated from a day on and updated after the watermark
+     */
+    @Query("SELECT new com.sarlatea.crm.dto.SyncAssignmentDTO(" + SYNC_COLUMNS + ") FROM WorkAssignment wa " +
+           "WHERE wa.updatedAt > :since AND wa.assignmentDate >= :fromDate AND wa.deleted = false")
+    List<SyncAssignmentDTO> findSyncRowsChangedSince(@Param("since") LocalDateTime since,
+                                                     @Param("fromDate") LocalDate fromDate);
+
+    // Delta sync tombstones: soft deletes bump updated_at like any other update
+    @Query("SELECT wa.id FROM WorkAssignment wa " +
+           "WHERE wa.updatedAt > :since AND wa.assignmentDate >= :fromDate AND wa.deleted = true")
+    List<String> findIdsDeletedSince(@Param("since") LocalDateTime since,
+                                     @Param("fromDate") LocalDate fromDate);
+
     // Count non-deleted assignments for a specific work activity
     long countByWorkActivityAndDeletedFalse(WorkActivity workActivity);
     
@@ -84,5 +152,144 @@ public interface WorkAssignmentRepository extends JpaRepository<WorkAssignment,
            "ORDER BY wa.firstEvaluatedAt DESC, e.name ASC")
     List<WorkAssignment> findEvaluatedAssignmentsByDateRange(@Param("startDate") LocalDate startDate, 
                                                               @Param("endDate") LocalDate endDate);
-}
 
+    // Streaming variants of the report queries above, for exports: rows are scrolled read-only
+    // instead of materialized, so the caller must consume and close the stream inside a transaction
+    // and detach each assignment once it has been written.
+
+    @Query("SELECT wa FROM WorkAssignment wa " +
+           "LEFT JOIN FETCH wa.assignedEmployee e " +
+           "WHERE wa.assignmentDate BETWEEN :startDate AND :endDate " +
+           "AND wa.deleted = false " +
+           "ORDER BY e.name ASC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<WorkAssignment> streamByAssignmentDateRange(@Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT wa FROM WorkAssignment wa " +
+           "JOIN FETCH wa.assignedEmployee e " +
+           "WHERE wa.assignmentDate BETWEEN :startDate AND :endDate " +
+           "AND wa.deleted = false " +
+           "AND wa.assignmentStatus = COMPLETED " +
+           "ORDER BY e.name ASC, e.id ASC, wa.assignmentDate ASC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<WorkAssignment> streamCompletedWithEmployeeByDateRange(@Param("startDate") LocalDate startDate,
+                                                                  @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT wa FROM WorkAssignment wa " +
+           "LEFT JOIN FETCH wa.assignedEmployee e " +
+           "WHERE wa.assignmentDate BETWEEN :startDate AND :endDate " +
+           "AND wa.firstEvaluatedAt IS NOT NULL " +
+           "ORDER BY wa.firstEvaluatedAt DESC, e.name ASC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<WorkAssignment> streamEvaluatedAssignmentsByDateRange(@Param("startDate") LocalDate startDate,
+                                                                 @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Load assignments for a bulk evaluation, which writes its changes with its own batched UPDATEs
+     */
+    @Query("SELECT wa FROM WorkAssignment wa WHERE wa.id IN :ids")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<WorkAssignment> findReadOnlyByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Find all payable assignments in a pay period with employee and activity fetched in the same statement
+     * Payable means COMPLETED, not deleted, and not claimed by an active payment (UNPAID or CANCELLED)
+     */
+    @Query("SELECT wa FROM WorkAssignment wa " +
+           "JOIN FETCH wa.assignedEmployee e " +
+           "JOIN FETCH wa.workActivity a " +
+           "WHERE wa.assignmentDate BETWEEN :startDate AND :endDate " +
+           "AND wa.deleted = false " +
+           "AND wa.assignmentStatus = COMPLETED " +
+           "AND (wa.paymentStatus IS NULL " +
+           "  OR wa.paymentStatus IN (UNPAID, CANCELLED)) " +
+           "ORDER BY e.name ASC, wa.assignmentDate ASC")
+    List<WorkAssignment> findPayableAssignmentsInPeriod(@Param("startDate") LocalDate startDate,
+                                                        @Param("endDate") LocalDate endDate);
+
+    /**
+     * Bulk-include assignments in a payment draft with a single UPDATE statement
+     * Only rows that are still payable are claimed; the returned count lets callers detect concurrent claims.
+     * This and the workflow UPDATEs below bump the version, so a stale entity copy of a claimed row
+     * can no longer be saved over the claim.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE WorkAssignment wa SET wa.paymentStatus = DRAFT, " +
+           "wa.includedInPaymentId = :paymentId, wa.updatedAt = :now, wa.version = wa.version + 1 " +
+           "WHERE wa.id IN :assignmentIds " +
+           "AND (wa.paymentStatus IS NULL " +
+           "  OR wa.paymentStatus IN (UNPAID, CANCELLED))")
+    int includeInPaymentDraft(@Param("assignmentIds") Collection<String> assignmentIds,
+                              @Param("paymentId") String paymentId,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Lock every assignment of a payment for a pending payment request with a single UPDATE statement
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE WorkAssignment wa SET wa.paymentStatus = PENDING_PAYMENT, " +
+           "wa.includedInPaymentId = :paymentId, wa.paymentLockedAt = :now, wa.updatedAt = :now, wa.version = wa.version + 1 " +
+           "WHERE wa.id IN (SELECT li.assignment.id FROM PaymentLineItem li WHERE li.payment.id = :paymentId)")
+    int lockForPaymentRequestByPaymentId(@Param("paymentId") String paymentId,
+                                         @Param("now") LocalDateTime now);
+
+    /**
+     * Mark every assignment of a payment as approved with a single UPDATE statement
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE WorkAssignment wa SET wa.paymentStatus = APPROVED, wa.updatedAt = :now, wa.version = wa.version + 1 " +
+           "WHERE wa.id IN (SELECT li.assignment.id FROM PaymentLineItem li WHERE li.payment.id = :paymentId)")
+    int approveByPaymentId(@Param("paymentId") String paymentId,
+                           @Param("now") LocalDateTime now);
+
+    /**
+     * Lock every assignment of a payment as paid with a single UPDATE statement
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE WorkAssignment wa SET wa.paymentStatus = PAID, " +
+           "wa.paidInPaymentId = :paymentId, wa.paymentLockedAt = :now, wa.updatedAt = :now, wa.version = wa.version + 1 " +
+           "WHERE wa.id IN (SELECT li.assignment.id FROM PaymentLineItem li WHERE li.payment.id = :paymentId)")
+    int lockForPaymentByPaymentId(@Param("paymentId") String paymentId,
+                                  @Param("now") LocalDateTime now);
+
+    /**
+     * Unlock every assignment of a cancelled or deleted payment with a single UPDATE statement
+     * includedInPaymentId and paidInPaymentId are kept for the audit trail
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE WorkAssignment wa SET wa.paymentStatus = CANCELLED, " +
+           "wa.paymentLockedAt = NULL, wa.updatedAt = :now, wa.version = wa.version + 1 " +
+           "WHERE wa.id IN (SELECT li.assignment.id FROM PaymentLineItem li WHERE li.payment.id = :paymentId)")
+    int unlockFromCancelledPaymentByPaymentId(@Param("paymentId") String paymentId,
+                                              @Param("now") LocalDateTime now);
+
+    // Constructor arguments for WorkAssignmentDTO; the activity id is read from the foreign key column
+    String DTO_COLUMNS =
+            "wa.id, wa.workActivity.id, e.id, e.name, wa.assignmentDate, wa.activityName, wa.activityDescription, " +
+            "wa.assignmentStatus, wa.actualDurationHours, wa.completionPercentage, wa.actualValue, " +
+            "wa.completionNotes, wa.completedDate, wa.assignedAt, wa.firstEvaluatedAt, wa.lastEvaluatedAt, " +
+            "wa.evaluationCount, wa.paymentStatus, wa.includedInPaymentId, ip.referenceNumber, " +
+            "wa.paidInPaymentId, pp.referenceNumber, wa.paymentLockedAt";
+
+    // Constructor arguments for SyncAssignmentDTO; employee and activity ids come from the foreign key columns
+    String SYNC_COLUMNS =
+            "wa.id, wa.workActivity.id, wa.assignedEmployee.id, wa.assignmentDate, wa.assignmentStatus, " +
+            "wa.completionPercentage, wa.actualValue, wa.completedDate, wa.evaluationCount, wa.paymentStatus, " +
+            "wa.updatedAt";
+
+    String DTO_FROM =
+            "FROM WorkAssignment wa " +
+            "LEFT JOIN wa.assignedEmployee e " +
+            "LEFT JOIN Payment ip ON ip.id = wa.includedInPaymentId " +
+            "LEFT JOIN Payment pp ON pp.id = wa.paidInPaymentId ";
+}
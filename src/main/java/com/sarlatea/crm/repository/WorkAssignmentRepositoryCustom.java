@@ -0,0 +1,25 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.dto.WorkAssignmentDTO;
+import com.sarlatea.crm.dto.WorkAssignmentFilter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Assignment listing queries built from the filters that are actually set, so each filter
+ * combination is planned against its own index instead of one catch-all statement
+ */
+public interface WorkAssignmentRepositoryCustom {
+
+    /**
+     * Keyset pagination over non-deleted assignments, newest first by assignment date then id
+     *
+     * @param afterDate assignment date of the last row of the previous page, or null for the first page
+     * @param afterId id of the last row of the previous page
+     * @param limit maximum number of rows returned
+     */
+    List<WorkAssignmentDTO> findDtoPage(WorkAssignmentFilter filter, LocalDate afterDate, String afterId, int limit);
+
+    long countForPage(WorkAssignmentFilter filter);
+}
@@ -0,0 +1,70 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.dto.WorkAssignmentDTO;
+import com.sarlatea.crm.dto.WorkAssignmentFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link WorkAssignmentRepositoryCustom}, picked up by Spring Data for WorkAssignmentRepository
+ */
+public class WorkAssignmentRepositoryCustomImpl implements WorkAssignmentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<WorkAssignmentDTO> findDtoPage(WorkAssignmentFilter filter, LocalDate afterDate, String afterId, int limit) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT new com.sarlatea.crm.dto.WorkAssignmentDTO(")
+                .append(WorkAssignmentRepository.DTO_COLUMNS).append(") ")
+                .append(WorkAssignmentRepository.DTO_FROM)
+                .append(where(filter, parameters));
+        if (afterDate != null) {
+            // The plain range bounds the index scan; the OR only breaks ties within the last date
+            jpql.append("AND wa.assignmentDate <= :afterDate AND (wa.assignmentDate < :afterDate OR wa.id < :afterId) ");
+            parameters.put("afterDate", afterDate);
+            parameters.put("afterId", afterId);
+        }
+        jpql.append("ORDER BY wa.assignmentDate DESC, wa.id DESC");
+
+        TypedQuery<WorkAssignmentDTO> query = entityManager.createQuery(jpql.toString(), WorkAssignmentDTO.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countForPage(WorkAssignmentFilter filter) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        TypedQuery<Long> query = entityManager.createQuery(
+                "SELECT COUNT(wa) FROM WorkAssignment wa " + where(filter, parameters), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    // Filters use the FK columns so no join is needed to apply them; unset filters add no predicate
+    private static String where(WorkAssignmentFilter filter, Map<String, Object> parameters) {
+        StringBuilder where = new StringBuilder("WHERE wa.deleted = false ");
+        addFilter(where, parameters, "wa.assignedEmployee.id = :employeeId", "employeeId", filter.getEmployeeId());
+        addFilter(where, parameters, "wa.workActivity.id = :workActivityId", "workActivityId", filter.getWorkActivityId());
+        addFilter(where, parameters, "wa.assignmentStatus = :assignmentStatus", "assignmentStatus", filter.getAssignmentStatus());
+        addFilter(where, parameters, "wa.paymentStatus = :paymentStatus", "paymentStatus", filter.getPaymentStatus());
+        addFilter(where, parameters, "wa.assignmentDate >= :startDate", "startDate", filter.getStartDate());
+        addFilter(where, parameters, "wa.assignmentDate <= :endDate", "endDate", filter.getEndDate());
+        return where.toString();
+    }
+
+    private static void addFilter(StringBuilder where, Map<String, Object> parameters,
+                                  String predicate, String name, Object value) {
+        if (value != null) {
+            where.append("AND ").append(predicate).append(' ');
+            parameters.put(name, value);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.sarlatea.crm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sarlatea.crm.config.AuditLogConfiguration;
+import com.sarlatea.crm.model.AuditLog;
+import com.sarlatea.crm.model.AuditLogChange;
+import com.sarlatea.crm.repository.AuditLogChangeRepository;
+import com.sarlatea.crm.repository.AuditLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the field changes and description of audit entries written before they were captured
+ * at write time, parsing their stored old and new values once. Runs in the background on startup;
+ * until an entry is reached, listings show a generic description for it.
+ */
+@Service
+@Slf4j
+public class AuditLogBackfillService {
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditLogChangeRepository auditLogChangeRepository;
+    private final AuditLogService auditLogService;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditLogConfiguration auditLogConfiguration;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuditLogBackfillService(AuditLogRepository auditLogRepository,
+                                   AuditLogChangeRepository auditLogChangeRepository,
+                                   AuditLogService auditLogService,
+                                   ObjectMapper objectMapper,
+                                   JdbcTemplate jdbcTemplate,
+                                   AuditLogConfiguration auditLogConfiguration,
+                                   PlatformTransactionManager transactionManager) {
+        this.auditLogRepository = auditLogRepository;
+        this.auditLogChangeRepository = auditLogChangeRepository;
+        this.auditLogService = auditLogService;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditLogConfiguration = auditLogConfiguration;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!auditLogConfiguration.isBackfillOnStartup()) {
+            return;
+        }
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.error("Audit log change backfill failed", e);
+        }
+    }
+
+    /**
+     * Backfill all entries without a description, one batch per transaction
+     *
+     * @return the number of entries backfilled
+     */
+    public int backfill() {
+        int backfilled = 0;
+        String lastId = "";
+        while (true) {
+            List<AuditLog> batch = auditLogRepository.findByDescriptionIsNullAndIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, auditLogConfiguration.getBackfillBatchSize()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> backfillBatch(batch));
+            backfilled += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        if (backfilled > 0) {
+            log.info("Backfilled field changes of {} audit log entries", backfilled);
+        }
+        return backfilled;
+    }
+
+    private void backfillBatch(List<AuditLog> batch) {
+        List<AuditLogChange> changes = new ArrayList<>();
+        List<Object[]> descriptions = new ArrayList<>(batch.size());
+        for (AuditLog auditLog : batch) {
+            for (AuditLogChange change : auditLogService.describe(
+                    auditLog, readTree(auditLog.getOldValue()), readTree(auditLog.getNewValue()))) {
+                change.setAuditLogId(auditLog.getId());
+                changes.add(change);
+            }
+            descriptions.add(new Object[] {auditLog.getDescription(), auditLog.getId()});
+        }
+        auditLogChangeRepository.saveAll(changes);
+        // The description doubles as the backfilled marker, so it is written last
+        jdbcTemplate.batchUpdate("UPDATE audit_logs SET description = ? WHERE id = ?", descriptions);
+    }
+
+    // Values that are not JSON (stored via toString) have no fields to compare
+    private JsonNode readTree(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
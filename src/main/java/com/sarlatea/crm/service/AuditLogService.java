@@ -1,12 +1,17 @@
 package com.sarlatea.crm.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sarlatea.crm.dto.AuditLogDTO;
 import com.sarlatea.crm.dto.IPGeolocationDTO;
 import com.sarlatea.crm.model.AuditLog;
+import com.sarlatea.crm.model.AuditLogChange;
+import com.sarlatea.crm.repository.AuditLogChangeRepository;
 import com.sarlatea.crm.repository.AuditLogRepository;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -21,7 +26,15 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -33,9 +46,22 @@ import java.util.stream.Collectors;
 public class AuditLogService {
 
     private final AuditLogRepository auditLogRepository;
+    private final AuditLogChangeRepository auditLogChangeRepository;
     private final ObjectMapper objectMapper;
     private final IPGeolocationService ipGeolocationService;
 
+    /**
+     * One entity's change in a bulk audit
+     */
+    @Data
+    @AllArgsConstructor
+    public static class AuditChange {
+        private String entityId;
+        private String entityName;
+        private Object oldValue;
+        private Object newValue;
+    }
+
     /**
      * Log an audit entry asynchronously
      * Uses separate transaction to ensure audit log is saved even if main transaction fails
@@ -54,37 +80,7 @@ public class AuditLogService {
     ) {
         try {
             AuditLog auditLog = new AuditLog();
-            
-            // Get user info from SecurityContext
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && !"anonymousUser".equals(authentication.getPrincipal())) {
-                auditLog.setUsername(authentication.getName());
-                // Try to get full name if available
-                if (authentication.getDetails() instanceof String) {
-                    auditLog.setUserFullName((String) authentication.getDetails());
-                }
-            } else {
-                auditLog.setUsername("anonymous");
-            }
-
-            // Get request info
-            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            if (attributes != null) {
-                HttpServletRequest request = attributes.getRequest();
-                String ipAddress = getClientIpAddress(request);
-                auditLog.setIpAddress(ipAddress);
-                auditLog.setRequestMethod(request.getMethod());
-                auditLog.setRequestUrl(request.getRequestURI());
-                auditLog.setUserAgent(request.getHeader("User-Agent"));
-                
-                // Get IP geolocation information
-                enrichWithGeolocation(auditLog, ipAddress);
-            } else {
-                // No request context (e.g., background tasks, startup)
-                auditLog.setIpAddress("SYSTEM");
-                auditLog.setRequestMethod("INTERNAL");
-                auditLog.setRequestUrl("N/A");
-            }
+            applyUserAndRequest(auditLog);
 
             auditLog.setOperation(operation);
             auditLog.setEntityType(entityType);
@@ -94,15 +90,9 @@ public class AuditLogService {
             auditLog.setErrorMessage(errorMessage);
             auditLog.setTimestamp(LocalDateTime.now());
 
-            // Convert old and new values to JSON
-            if (oldValue != null) {
-                auditLog.setOldValue(convertToJson(oldValue));
-            }
-            if (newValue != null) {
-                auditLog.setNewValue(convertToJson(newValue));
-            }
-
+            List<AuditLogChange> changes = applyValues(auditLog, oldValue, newValue);
             auditLogRepository.save(auditLog);
+            saveChanges(auditLog, changes);
             log.debug("Audit log created: {} {} by {}", operation, entityType, auditLog.getUsername());
             
         } catch (Exception e) {
@@ -141,6 +131,50 @@ public class AuditLogService {
         logAudit(operation, entityType, entityId, entityName, oldValue, newValue, AuditLog.OperationStatus.SUCCESS, null);
     }
 
+    /**
+     * Log one successful entry per changed entity, saved together in a single transaction
+     * (bulk operations, where an async task per entity would flood the audit executor)
+     */
+    @Async
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void logAuditsWithChanges(
+            AuditLog.OperationType operation,
+            String entityType,
+            List<AuditChange> changes
+    ) {
+        try {
+            LocalDateTime timestamp = LocalDateTime.now();
+            List<AuditLog> auditLogs = new ArrayList<>(changes.size());
+            List<List<AuditLogChange>> fieldChanges = new ArrayList<>(changes.size());
+            for (AuditChange change : changes) {
+                AuditLog auditLog = new AuditLog();
+                applyUserAndRequest(auditLog);
+                auditLog.setOperation(operation);
+                auditLog.setEntityType(entityType);
+                auditLog.setEntityId(change.getEntityId());
+                auditLog.setEntityName(change.getEntityName());
+                auditLog.setStatus(AuditLog.OperationStatus.SUCCESS);
+                auditLog.setTimestamp(timestamp);
+                fieldChanges.add(applyValues(auditLog, change.getOldValue(), change.getNewValue()));
+                auditLogs.add(auditLog);
+            }
+            auditLogRepository.saveAll(auditLogs);
+            List<AuditLogChange> allChanges = new ArrayList<>();
+            for (int i = 0; i < auditLogs.size(); i++) {
+                for (AuditLogChange fieldChange : fieldChanges.get(i)) {
+                    fieldChange.setAuditLogId(auditLogs.get(i).getId());
+                    allChanges.add(fieldChange);
+                }
+            }
+            auditLogChangeRepository.saveAll(allChanges);
+            log.debug("Audit logs created: {} {} x{}", operation, entityType, auditLogs.size());
+
+        } catch (Exception e) {
+            // Log error but don't throw exception - we don't want audit logging to break application flow
+            log.error("Failed to create audit logs: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * Log failed operation
      */
@@ -203,15 +237,9 @@ public class AuditLogService {
             auditLog.setErrorMessage(errorMessage);
             auditLog.setTimestamp(LocalDateTime.now());
 
-            // Convert old and new values to JSON
-            if (oldValue != null) {
-                auditLog.setOldValue(convertToJson(oldValue));
-            }
-            if (newValue != null) {
-                auditLog.setNewValue(convertToJson(newValue));
-            }
-
+            List<AuditLogChange> changes = applyValues(auditLog, oldValue, newValue);
             auditLogRepository.save(auditLog);
+            saveChanges(auditLog, changes);
             log.debug("Audit log created: {} {} by {}", operation, entityType, auditLog.getUsername());
             
         } catch (Exception e) {
@@ -300,6 +328,42 @@ public class AuditLogService {
         return auditLogRepository.countByUsernameAndTimestampAfter(username, startDate);
     }
 
+    /**
+     * Set the user from the SecurityContext and the client details from the current request
+     */
+    private void applyUserAndRequest(AuditLog auditLog) {
+        // Get user info from SecurityContext
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && !"anonymousUser".equals(authentication.getPrincipal())) {
+            auditLog.setUsername(authentication.getName());
+            // Try to get full name if available
+            if (authentication.getDetails() instanceof String) {
+                auditLog.setUserFullName((String) authentication.getDetails());
+            }
+        } else {
+            auditLog.setUsername("anonymous");
+        }
+
+        // Get request info
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            HttpServletRequest request = attributes.getRequest();
+            String ipAddress = getClientIpAddress(request);
+            auditLog.setIpAddress(ipAddress);
+            auditLog.setRequestMethod(request.getMethod());
+            auditLog.setRequestUrl(request.getRequestURI());
+            auditLog.setUserAgent(request.getHeader("User-Agent"));
+            
+            // Get IP geolocation information
+            enrichWithGeolocation(auditLog, ipAddress);
+        } else {
+            // No request context (e.g., background tasks, startup)
+            auditLog.setIpAddress("SYSTEM");
+            auditLog.setRequestMethod("INTERNAL");
+            auditLog.setRequestUrl("N/A");
+        }
+    }
+
     /**
      * Extract client IP address from request, handling proxies
      * Normalizes IPv6 localhost to IPv4 format
@@ -352,6 +416,103 @@ public class AuditLogService {
         return ip;
     }
 
+    /**
+     * Field changes between the old and new value of an entry, and its description (set on the entry).
+     * The changes are returned unsaved, without the id of the entry.
+     */
+    public List<AuditLogChange> describe(AuditLog auditLog, JsonNode oldTree, JsonNode newTree) {
+        List<AuditLogChange> changes = oldTree != null && newTree != null ? diff(oldTree, newTree) : List.of();
+        Map<String, AuditLogChange> changesByField = changes.stream()
+                .collect(Collectors.toMap(AuditLogChange::getFieldName, Function.identity()));
+        auditLog.setDescription(truncate(generateMeaningfulDescription(auditLog, changesByField, newTree), 1000));
+        return changes;
+    }
+
+    /**
+     * Description of an entry as rendered when it was written or backfilled; entries not yet
+     * backfilled get a generic one
+     */
+    public String descriptionOf(AuditLog auditLog) {
+        return auditLog.getDescription() != null
+                ? auditLog.getDescription()
+                : generateMeaningfulDescription(auditLog, Map.of(), null);
+    }
+
+    /**
+     * Store the old and new values as JSON and describe the entry; returns its field changes
+     */
+    private List<AuditLogChange> applyValues(AuditLog auditLog, Object oldValue, Object newValue) {
+        JsonNode oldTree = toTree(oldValue);
+        JsonNode newTree = toTree(newValue);
+        if (oldValue != null) {
+            auditLog.setOldValue(oldTree != null ? convertToJson(oldTree) : convertToJson(oldValue));
+        }
+        if (newValue != null) {
+            auditLog.setNewValue(newTree != null ? convertToJson(newTree) : convertToJson(newValue));
+        }
+        return describe(auditLog, oldTree, newTree);
+    }
+
+    private void saveChanges(AuditLog auditLog, List<AuditLogChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        changes.forEach(change -> change.setAuditLogId(auditLog.getId()));
+        auditLogChangeRepository.saveAll(changes);
+    }
+
+    /**
+     * The fields whose values differ, in the order they appear in the old then the new value
+     */
+    private static List<AuditLogChange> diff(JsonNode oldTree, JsonNode newTree) {
+        Map<String, String> oldFields = new LinkedHashMap<>();
+        Map<String, String> newFields = new LinkedHashMap<>();
+        flatten("", oldTree, oldFields);
+        flatten("", newTree, newFields);
+
+        Set<String> fieldNames = new LinkedHashSet<>(oldFields.keySet());
+        fieldNames.addAll(newFields.keySet());
+        List<AuditLogChange> changes = new ArrayList<>();
+        for (String fieldName : fieldNames) {
+            String oldValue = oldFields.get(fieldName);
+            String newValue = newFields.get(fieldName);
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.add(new AuditLogChange(null, null, fieldName, oldValue, newValue));
+            }
+        }
+        return changes;
+    }
+
+    // Objects are flattened into dotted paths; arrays are kept whole as JSON
+    private static void flatten(String path, JsonNode node, Map<String, String> fields) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> entry = entries.next();
+                flatten(path.isEmpty() ? entry.getKey() : path + "." + entry.getKey(), entry.getValue(), fields);
+            }
+        } else {
+            String fieldName = path.isEmpty() ? "value" : path;
+            fields.put(fieldName, node.isNull() ? null : node.isValueNode() ? node.asText() : node.toString());
+        }
+    }
+
+    private JsonNode toTree(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.valueToTree(value);
+        } catch (IllegalArgumentException e) {
+            log.warn("Failed to convert object to JSON: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
     /**
      * Convert object to JSON string
      */
@@ -403,9 +564,7 @@ public class AuditLogService {
         dto.setEntityType(auditLog.getEntityType());
         dto.setEntityId(auditLog.getEntityId());
         
-        // Generate meaningful entity name/description
-        String entityName = generateMeaningfulDescription(auditLog);
-        dto.setEntityName(entityName);
+        dto.setEntityName(descriptionOf(auditLog));
         
         dto.setRequestMethod(auditLog.getRequestMethod());
         dto.setRequestUrl(auditLog.getRequestUrl());
@@ -434,7 +593,7 @@ public class AuditLogService {
     /**
      * Generate meaningful description from audit log based on entity type and changes
      */
-    private String generateMeaningfulDescription(AuditLog log) {
+    private String generateMeaningfulDescription(AuditLog log, Map<String, AuditLogChange> changes, JsonNode newTree) {
         String operation = log.getOperation() != null ? log.getOperation().toString() : "UNKNOWN";
         String entityType = log.getEntityType() != null ? log.getEntityType() : "";
         String entityName = log.getEntityName() != null ? log.getEntityName() : "";
@@ -453,9 +612,9 @@ public class AuditLogService {
         
         // For EDIT operations, try to extract meaningful changes
         if ("EDIT".equals(operation)) {
-            String changes = extractChanges(log, entityType, entityName);
-            if (changes != null && !changes.isEmpty()) {
-                return userName + " " + changes;
+            String description = describeChanges(log, entityType, entityName, changes, newTree);
+            if (description != null && !description.isEmpty()) {
+                return userName + " " + description;
             }
             
             // Fallback to generic message with entity name
@@ -468,43 +627,36 @@ public class AuditLogService {
     }
     
     /**
-     * Extract specific changes from old and new values
+     * Describe the specific changes of an edit
      */
-    private String extractChanges(AuditLog auditLog, String entityType, String entityName) {
-        try {
-            String oldValue = auditLog.getOldValue();
-            String newValue = auditLog.getNewValue();
-            
-            if (oldValue == null || newValue == null) {
-                return null;
-            }
-            
-            // For WorkAssignment, check for specific changes
-            if ("WorkAssignment".equals(entityType)) {
-                return extractWorkAssignmentChanges(auditLog, entityName, oldValue, newValue);
-            }
-            
-            // For Employee, check for specific changes
-            if ("Employee".equals(entityType)) {
-                return extractEmployeeChanges(auditLog, entityName, oldValue, newValue);
-            }
-            
-            // For WorkActivity, check for specific changes
-            if ("WorkActivity".equals(entityType)) {
-                return extractWorkActivityChanges(auditLog, entityName, oldValue, newValue);
-            }
-            
-            return null;
-        } catch (Exception e) {
-            log.warn("Error extracting changes: {}", e.getMessage());
+    private String describeChanges(AuditLog auditLog, String entityType, String entityName,
+                                   Map<String, AuditLogChange> changes, JsonNode newTree) {
+        if (auditLog.getOldValue() == null || auditLog.getNewValue() == null) {
             return null;
         }
+        
+        // For WorkAssignment, check for specific changes
+        if ("WorkAssignment".equals(entityType)) {
+            return describeWorkAssignmentChanges(entityName, changes, newTree);
+        }
+        
+        // For Employee, check for specific changes
+        if ("Employee".equals(entityType)) {
+            return describeEmployeeChanges(entityName, changes);
+        }
+        
+        // For WorkActivity, check for specific changes
+        if ("WorkActivity".equals(entityType)) {
+            return describeWorkActivityChanges(entityName, changes);
+        }
+        
+        return null;
     }
     
     /**
-     * Extract meaningful changes for WorkAssignment
+     * Describe meaningful changes for WorkAssignment
      */
-    private String extractWorkAssignmentChanges(AuditLog log, String entityName, String oldValue, String newValue) {
+    private String describeWorkAssignmentChanges(String entityName, Map<String, AuditLogChange> changes, JsonNode newTree) {
         // Check if this is an evaluation
         if (entityName.contains("% complete") || entityName.contains("Evaluation #")) {
             String[] parts = entityName.split(" - ");
@@ -512,13 +664,11 @@ public class AuditLogService {
                 String details = parts[1];
                 String percentage = details.contains("%") ? details.substring(0, details.indexOf("%") + 1) : "";
                 
-                // Try to extract actual value (KGs)
+                // Actual value (KGs) of the evaluated state, whether or not it changed
                 String actualValueInfo = "";
-                if (newValue.contains("\"actualValue\"")) {
-                    String value = extractJsonValue(newValue, "actualValue");
-                    if (value != null && !value.equals("null")) {
-                        actualValueInfo = " with " + value + " KGs";
-                    }
+                JsonNode actualValue = newTree != null ? newTree.get("actualValue") : null;
+                if (actualValue != null && !actualValue.isNull()) {
+                    actualValueInfo = " with " + actualValue.asText() + " KGs";
                 }
                 
                 return "evaluated the assignment: " + percentage + " complete" + actualValueInfo;
@@ -526,66 +676,58 @@ public class AuditLogService {
         }
         
         // Check for activity change
-        String oldActivity = extractJsonValue(oldValue, "activityName");
-        String newActivity = extractJsonValue(newValue, "activityName");
-        if (oldActivity != null && newActivity != null && !oldActivity.equals(newActivity)) {
-            return "changed activity from " + oldActivity + " to " + newActivity;
+        AuditLogChange activity = changed(changes, "activityName");
+        if (activity != null) {
+            return "changed activity from " + activity.getOldValue() + " to " + activity.getNewValue();
         }
         
         // Check for employee reassignment
-        String oldEmployee = extractJsonNestedValue(oldValue, "assignedEmployee", "name");
-        String newEmployee = extractJsonNestedValue(newValue, "assignedEmployee", "name");
-        if (oldEmployee != null && newEmployee != null && !oldEmployee.equals(newEmployee)) {
-            return "reassigned from " + oldEmployee + " to " + newEmployee;
+        AuditLogChange employee = changed(changes, "assignedEmployeeName", "assignedEmployee.name");
+        if (employee != null) {
+            return "reassigned from " + employee.getOldValue() + " to " + employee.getNewValue();
         }
         
         // Check for payment status change
-        String oldPaymentStatus = extractJsonValue(oldValue, "paymentStatus");
-        String newPaymentStatus = extractJsonValue(newValue, "paymentStatus");
-        if ((oldPaymentStatus == null || "null".equals(oldPaymentStatus) || "UNPAID".equals(oldPaymentStatus)) && 
-            newPaymentStatus != null && !"null".equals(newPaymentStatus) && !"UNPAID".equals(newPaymentStatus)) {
-            return "updated payment status to " + newPaymentStatus;
+        AuditLogChange paymentStatus = changes.get("paymentStatus");
+        if (paymentStatus != null
+                && (paymentStatus.getOldValue() == null || "UNPAID".equals(paymentStatus.getOldValue()))
+                && paymentStatus.getNewValue() != null && !"UNPAID".equals(paymentStatus.getNewValue())) {
+            return "updated payment status to " + paymentStatus.getNewValue();
         }
         
         return null;
     }
     
     /**
-     * Extract meaningful changes for Employee
+     * Describe meaningful changes for Employee
      */
-    private String extractEmployeeChanges(AuditLog log, String entityName, String oldValue, String newValue) {
+    private String describeEmployeeChanges(String entityName, Map<String, AuditLogChange> changes) {
         // Check for name change
-        String oldName = extractJsonValue(oldValue, "name");
-        String newName = extractJsonValue(newValue, "name");
-        if (oldName != null && newName != null && !oldName.equals(newName)) {
-            return "changed employee name from " + oldName + " to " + newName;
+        AuditLogChange name = changed(changes, "name");
+        if (name != null) {
+            return "changed employee name from " + name.getOldValue() + " to " + name.getNewValue();
         }
         
         // Check for phone change
-        String oldPhone = extractJsonValue(oldValue, "phone");
-        String newPhone = extractJsonValue(newValue, "phone");
-        if (oldPhone != null && newPhone != null && !oldPhone.equals(newPhone)) {
-            return "updated phone number for " + entityName + " (from " + oldPhone + " to " + newPhone + ")";
+        AuditLogChange phone = changed(changes, "phone");
+        if (phone != null) {
+            return "updated phone number for " + entityName + " (from " + phone.getOldValue() + " to " + phone.getNewValue() + ")";
         }
         
         // Check for employee type change
-        String oldType = extractJsonNestedValue(oldValue, "employeeType", "name");
-        String newType = extractJsonNestedValue(newValue, "employeeType", "name");
-        if (oldType != null && newType != null && !oldType.equals(newType)) {
-            return "changed employee type from " + oldType + " to " + newType + " for " + entityName;
+        AuditLogChange type = changed(changes, "employeeTypeName", "employeeType.name");
+        if (type != null) {
+            return "changed employee type from " + type.getOldValue() + " to " + type.getNewValue() + " for " + entityName;
         }
         
         // Check for employee status change
-        String oldStatus = extractJsonNestedValue(oldValue, "employeeStatus", "name");
-        String newStatus = extractJsonNestedValue(newValue, "employeeStatus", "name");
-        if (oldStatus != null && newStatus != null && !oldStatus.equals(newStatus)) {
-            return "changed employee status from " + oldStatus + " to " + newStatus + " for " + entityName;
+        AuditLogChange status = changed(changes, "employeeStatusName", "employeeStatus.name");
+        if (status != null) {
+            return "changed employee status from " + status.getOldValue() + " to " + status.getNewValue() + " for " + entityName;
         }
         
         // Check for PF account change
-        String oldPf = extractJsonValue(oldValue, "pfAccountId");
-        String newPf = extractJsonValue(newValue, "pfAccountId");
-        if (oldPf != null && newPf != null && !oldPf.equals(newPf)) {
+        if (changed(changes, "pfAccountId") != null) {
             return "updated PF Account ID for " + entityName;
         }
         
@@ -593,20 +735,17 @@ public class AuditLogService {
     }
     
     /**
-     * Extract meaningful changes for WorkActivity
+     * Describe meaningful changes for WorkActivity
      */
-    private String extractWorkActivityChanges(AuditLog log, String entityName, String oldValue, String newValue) {
+    private String describeWorkActivityChanges(String entityName, Map<String, AuditLogChange> changes) {
         // Check for name change
-        String oldName = extractJsonValue(oldValue, "name");
-        String newName = extractJsonValue(newValue, "name");
-        if (oldName != null && newName != null && !oldName.equals(newName)) {
-            return "changed activity name from " + oldName + " to " + newName;
+        AuditLogChange name = changed(changes, "name");
+        if (name != null) {
+            return "changed activity name from " + name.getOldValue() + " to " + name.getNewValue();
         }
         
         // Check for description change
-        String oldDesc = extractJsonValue(oldValue, "description");
-        String newDesc = extractJsonValue(newValue, "description");
-        if (oldDesc != null && newDesc != null && !oldDesc.equals(newDesc)) {
+        if (changed(changes, "description") != null) {
             return "updated description for " + entityName;
         }
         
@@ -614,77 +753,16 @@ public class AuditLogService {
     }
     
     /**
-     * Extract a JSON value from a JSON string
-     */
-    private String extractJsonValue(String json, String key) {
-        try {
-            if (json == null || json.isEmpty()) return null;
-            
-            String keyPattern = "\"" + key + "\":";
-            int keyIndex = json.indexOf(keyPattern);
-            if (keyIndex == -1) return null;
-            
-            int valueStart = keyIndex + keyPattern.length();
-            char firstChar = json.charAt(valueStart);
-            
-            // Skip whitespace
-            while (Character.isWhitespace(firstChar) && valueStart < json.length() - 1) {
-                valueStart++;
-                firstChar = json.charAt(valueStart);
-            }
-            
-            // Handle string values
-            if (firstChar == '"') {
-                valueStart++; // Skip opening quote
-                int valueEnd = json.indexOf("\"", valueStart);
-                if (valueEnd == -1) return null;
-                return json.substring(valueStart, valueEnd);
-            }
-            
-            // Handle other values (numbers, booleans, null)
-            int valueEnd = valueStart;
-            while (valueEnd < json.length()) {
-                char c = json.charAt(valueEnd);
-                if (c == ',' || c == '}' || c == ']') break;
-                valueEnd++;
-            }
-            return json.substring(valueStart, valueEnd).trim();
-            
-        } catch (Exception e) {
-            return null;
-        }
-    }
-    
-    /**
-     * Extract a nested JSON value (e.g., employee.name)
+     * The change of the first of the fields that went from one value to another (not from or to null)
      */
-    private String extractJsonNestedValue(String json, String parentKey, String key) {
-        try {
-            if (json == null || json.isEmpty()) return null;
-            
-            // Find the parent object
-            String parentKeyPattern = "\"" + parentKey + "\":";
-            int parentStart = json.indexOf(parentKeyPattern);
-            if (parentStart == -1) return null;
-            
-            int braceStart = json.indexOf("{", parentStart);
-            if (braceStart == -1) return null;
-            
-            int braceCount = 1;
-            int braceEnd = braceStart + 1;
-            while (braceCount > 0 && braceEnd < json.length()) {
-                char c = json.charAt(braceEnd);
-                if (c == '{') braceCount++;
-                else if (c == '}') braceCount--;
-                braceEnd++;
+    private static AuditLogChange changed(Map<String, AuditLogChange> changes, String... fieldNames) {
+        for (String fieldName : fieldNames) {
+            AuditLogChange change = changes.get(fieldName);
+            if (change != null && change.getOldValue() != null && change.getNewValue() != null) {
+                return change;
             }
-            
-            String parentSection = json.substring(braceStart, braceEnd);
-            return extractJsonValue(parentSection, key);
-            
-        } catch (Exception e) {
-            return null;
         }
+        return null;
     }
     
     /**
@@ -694,8 +772,8 @@ public class AuditLogService {
         if (entityType == null || entityType.isEmpty()) {
             return "entity";
         }
-        // Convert WORK_ASSIGNMENT to "work assignment"
-        return entityType.replace("_", " ").toLowerCase();
+        // Convert WorkAssignment or WORK_ASSIGNMENT to "work assignment"
+        return entityType.replaceAll("([a-z])([A-Z])", "$1 $2").replace("_", " ").toLowerCase();
     }
 }
 
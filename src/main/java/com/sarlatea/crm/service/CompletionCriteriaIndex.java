@@ -0,0 +1,262 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.CriteriaIndexConfiguration;
+import com.sarlatea.crm.model.WorkActivityCompletionCriteria;
+import com.sarlatea.crm.repository.WorkActivityCompletionCriteriaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of the non-deleted completion criteria of every work activity, by effective date.
+ *
+ * Each activity's criteria are kept sorted by start date; WorkActivityCompletionCriteriaService
+ * rejects overlapping ranges, so a binary search finds the criteria valid on any date, past or
+ * present. The index is loaded on startup, and an activity's criteria are reloaded once a
+ * transaction that wrote one of them commits (see WorkActivityCompletionCriteriaListener).
+ * Until the index is loaded, or when it is disabled, lookups go to the database.
+ *
+ * The criteria handed out are detached copies without the work activity association; treat them as read-only.
+ */
+@Service
+@Slf4j
+public class CompletionCriteriaIndex {
+
+    private final WorkActivityCompletionCriteriaRepository criteriaRepository;
+    private final CriteriaIndexConfiguration criteriaIndexConfiguration;
+    private final TransactionTemplate newTransaction;
+    private final Map<String, Intervals> intervals = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public CompletionCriteriaIndex(WorkActivityCompletionCriteriaRepository criteriaRepository,
+                                   CriteriaIndexConfiguration criteriaIndexConfiguration,
+                                   PlatformTransactionManager transactionManager) {
+        this.criteriaRepository = criteriaRepository;
+        this.criteriaIndexConfiguration = criteriaIndexConfiguration;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.newTransaction.setReadOnly(true);
+    }
+
+    /**
+     * The criteria of a work activity valid on a date
+     */
+    public Optional<WorkActivityCompletionCriteria> findCriteriaOnDate(String workActivityId, LocalDate date) {
+        if (!isReady()) {
+            return criteriaRepository.findByWorkActivityIdAndDeletedFalse(workActivityId).stream()
+                    .filter(criteria -> covers(criteria, date))
+                    .max(Comparator.comparing(WorkActivityCompletionCriteria::getStartDate));
+        }
+        Intervals activityIntervals = intervals.get(workActivityId);
+        return activityIntervals != null ? Optional.ofNullable(activityIntervals.criteriaOn(date)) : Optional.empty();
+    }
+
+    /**
+     * The criteria valid on a date for a set of work activities, by work activity id.
+     * Activities without criteria on that date are left out.
+     */
+    public Map<String, WorkActivityCompletionCriteria> findCriteriaOnDate(Collection<String> workActivityIds, LocalDate date) {
+        Map<String, WorkActivityCompletionCriteria> criteriaByActivity = new HashMap<>();
+        for (String workActivityId : workActivityIds) {
+            findCriteriaOnDate(workActivityId, date).ifPresent(criteria -> criteriaByActivity.put(workActivityId, criteria));
+        }
+        return criteriaByActivity;
+    }
+
+    /**
+     * Whether a work activity has criteria valid today, which makes it ACTIVE
+     */
+    public boolean hasActiveCriteria(String workActivityId) {
+        return findCriteriaOnDate(workActivityId, LocalDate.now()).isPresent();
+    }
+
+    /**
+     * Reload an activity's criteria once the current transaction commits, or right away outside a transaction.
+     * A rolled back transaction leaves the index untouched.
+     */
+    public void workActivityChanged(String workActivityId) {
+        if (!criteriaIndexConfiguration.isEnabled()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadActivities(Set.of(workActivityId));
+            return;
+        }
+
+        // One synchronization per transaction collects every activity it touched
+        @SuppressWarnings("unchecked")
+        Set<String> changed = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<String> workActivityIds = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, workActivityIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CompletionCriteriaIndex.this);
+                    if (status == STATUS_COMMITTED) {
+                        reloadActivities(workActivityIds);
+                    }
+                }
+            });
+            changed = workActivityIds;
+        }
+        changed.add(workActivityId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!criteriaIndexConfiguration.isEnabled()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Completion criteria index could not be loaded; criteria lookups use the database", e);
+        }
+    }
+
+    /**
+     * Reload the whole index; picks up criteria written by other instances and recovers from failed reloads
+     */
+    @Scheduled(initialDelayString = "${criteria-index.reload-interval-ms:300000}",
+               fixedDelayString = "${criteria-index.reload-interval-ms:300000}")
+    public void reloadPeriodically() {
+        if (!criteriaIndexConfiguration.isEnabled()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Completion criteria reload failed", e);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private boolean isReady() {
+        return loaded && criteriaIndexConfiguration.isEnabled();
+    }
+
+    private synchronized void reload() {
+        long start = System.currentTimeMillis();
+        List<WorkActivityCompletionCriteria> criteria = newTransaction.execute(status -> criteriaRepository.findByDeletedFalse());
+        Map<String, List<WorkActivityCompletionCriteria>> criteriaByActivity = criteria.stream()
+                .collect(Collectors.groupingBy(c -> c.getWorkActivity().getId()));
+
+        intervals.keySet().retainAll(criteriaByActivity.keySet());
+        criteriaByActivity.forEach((workActivityId, activityCriteria) ->
+                intervals.put(workActivityId, new Intervals(activityCriteria)));
+        loaded = true;
+        log.info("Loaded completion criteria of {} work activities ({} criteria) in {} ms",
+                criteriaByActivity.size(), criteria.size(), System.currentTimeMillis() - start);
+    }
+
+    // Serialized with reload(), so a full reload can never overwrite newer criteria with older ones
+    private synchronized void reloadActivities(Collection<String> workActivityIds) {
+        if (!loaded) {
+            // The initial load has not run yet and will read these criteria itself
+            return;
+        }
+        try {
+            for (String workActivityId : workActivityIds) {
+                List<WorkActivityCompletionCriteria> criteria = newTransaction.execute(status ->
+                        criteriaRepository.findByWorkActivityIdAndDeletedFalse(workActivityId));
+                if (criteria.isEmpty()) {
+                    intervals.remove(workActivityId);
+                } else {
+                    intervals.put(workActivityId, new Intervals(criteria));
+                }
+            }
+        } catch (RuntimeException e) {
+            // Better to answer from the database than from an index that missed a change
+            log.error("Failed to reload completion criteria of {}; falling back to database lookups until the next full reload",
+                    workActivityIds, e);
+            loaded = false;
+        }
+    }
+
+    private static boolean covers(WorkActivityCompletionCriteria criteria, LocalDate date) {
+        return !criteria.getStartDate().isAfter(date)
+                && (criteria.getEndDate() == null || !criteria.getEndDate().isBefore(date));
+    }
+
+    private static WorkActivityCompletionCriteria copyOf(WorkActivityCompletionCriteria criteria) {
+        WorkActivityCompletionCriteria copy = new WorkActivityCompletionCriteria();
+        copy.setId(criteria.getId());
+        copy.setCreatedAt(criteria.getCreatedAt());
+        copy.setUpdatedAt(criteria.getUpdatedAt());
+        copy.setUnit(criteria.getUnit());
+        copy.setValue(criteria.getValue());
+        copy.setStartDate(criteria.getStartDate());
+        copy.setEndDate(criteria.getEndDate());
+        copy.setIsActive(criteria.getIsActive());
+        copy.setNotes(criteria.getNotes());
+        copy.setDeleted(criteria.getDeleted());
+        return copy;
+    }
+
+    /**
+     * One activity's criteria, immutable once built
+     */
+    private static final class Intervals {
+        private final WorkActivityCompletionCriteria[] criteria;
+        private final LocalDate[] startDates;
+
+        private Intervals(Collection<WorkActivityCompletionCriteria> records) {
+            List<WorkActivityCompletionCriteria> sorted = new ArrayList<>(records.size());
+            for (WorkActivityCompletionCriteria record : records) {
+                sorted.add(copyOf(record));
+            }
+            sorted.sort(Comparator.comparing(WorkActivityCompletionCriteria::getStartDate));
+
+            this.criteria = sorted.toArray(new WorkActivityCompletionCriteria[0]);
+            this.startDates = new LocalDate[criteria.length];
+            for (int i = 0; i < criteria.length; i++) {
+                startDates[i] = criteria[i].getStartDate();
+            }
+        }
+
+        private WorkActivityCompletionCriteria criteriaOn(LocalDate date) {
+            // Last criteria starting on or before the date
+            int low = 0;
+            int high = startDates.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (startDates[mid].isAfter(date)) {
+                    high = mid - 1;
+                } else {
+                    candidate = mid;
+                    low = mid + 1;
+                }
+            }
+            // Normally the candidate itself; earlier criteria only matter if ranges overlap
+            for (int i = candidate; i >= 0; i--) {
+                if (covers(criteria[i], date)) {
+                    return criteria[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.sarlatea.crm.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content-addressed storage for document bytes
+ * Documents are identified by the SHA-256 hash of their content, so identical uploads are stored once.
+ * Only metadata lives in the database (see PaymentDocument.contentHash).
+ */
+public interface DocumentStore {
+
+    /**
+     * Stream content into the store without buffering it in memory
+     *
+     * @return the SHA-256 hash (lowercase hex) and size of the stored content
+     */
+    StoredContent store(InputStream content) throws IOException;
+
+    /**
+     * Open stored content for streaming
+     *
+     * @throws com.sarlatea.crm.exception.ResourceNotFoundException if no content exists for the hash
+     */
+    Resource load(String contentHash);
+
+    boolean exists(String contentHash);
+
+    @Data
+    @AllArgsConstructor
+    class StoredContent {
+        private String contentHash;
+        private long size;
+    }
+}
@@ -0,0 +1,154 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.PayrollAggregateConfiguration;
+import com.sarlatea.crm.dto.EmployeePayrollTotalsDTO;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.repository.EmployeeMonthPayrollRepository;
+import com.sarlatea.crm.repository.PaymentLineItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the employee_month_payroll aggregate.
+ *
+ * A payment recorded as paid adds its per-employee sums to the rows of its payment month
+ * with in-place UPDATEs, inside the payment's own transaction. Paid payments cannot be cancelled,
+ * so nothing is ever subtracted; rebuild() recomputes the rows from scratch.
+ * Rows that do not exist yet are created empty in a separate transaction first, so two payments
+ * of the same month racing to create a row cannot fail each other.
+ */
+@Service
+@Slf4j
+public class EmployeeMonthPayrollService {
+
+    private final EmployeeMonthPayrollRepository employeeMonthPayrollRepository;
+    private final PaymentLineItemRepository paymentLineItemRepository;
+    private final PayrollAggregateConfiguration payrollAggregateConfiguration;
+    // REQUIRES_NEW on purpose. Creating a missing row inside the payment's transaction would hold the
+    // unique key until the payment commits, and a duplicate key from a concurrent payment would mark
+    // the payment's transaction rollback-only. The cost is a second pooled connection, held for a few
+    // inserts and only the first time an employee is paid in a month; a recording thread never holds
+    // more than two, so the pool (10 in prod) only runs dry if every connection is mid-payment.
+    private final TransactionTemplate newTransaction;
+
+    public EmployeeMonthPayrollService(EmployeeMonthPayrollRepository employeeMonthPayrollRepository,
+                                       PaymentLineItemRepository paymentLineItemRepository,
+                                       PayrollAggregateConfiguration payrollAggregateConfiguration,
+                                       PlatformTransactionManager transactionManager) {
+        this.employeeMonthPayrollRepository = employeeMonthPayrollRepository;
+        this.paymentLineItemRepository = paymentLineItemRepository;
+        this.payrollAggregateConfiguration = payrollAggregateConfiguration;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Add a payment that has just been marked PAID to its month
+     */
+    @Transactional
+    public void addPaidPayment(Payment payment) {
+        if (payment.getPaymentYear() == null || payment.getPaymentMonth() == null) {
+            log.warn("Payment {} has no payment month, not counted in the employee month payroll", payment.getId());
+            return;
+        }
+        int year = payment.getPaymentYear();
+        int month = payment.getPaymentMonth();
+
+        List<EmployeePayrollTotalsDTO> totals = paymentLineItemRepository.sumByEmployeeForPayment(payment.getId());
+        if (totals.isEmpty()) {
+            return;
+        }
+        createMissingRows(year, month, totals.stream()
+                .map(EmployeePayrollTotalsDTO::getEmployeeId)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (EmployeePayrollTotalsDTO employeeTotals : totals) {
+            employeeMonthPayrollRepository.addToMonth(employeeTotals.getEmployeeId(), year, month,
+                    1, employeeTotals.getLineItemCount().intValue(),
+                    orZero(employeeTotals.getGrossAmount()),
+                    orZero(employeeTotals.getEmployeePf()),
+                    orZero(employeeTotals.getVoluntaryPf()),
+                    orZero(employeeTotals.getEmployerPf()),
+                    orZero(employeeTotals.getNetAmount()),
+                    now);
+        }
+        log.debug("Added payment {} for {} employees in {}/{}", payment.getId(), totals.size(), month, year);
+    }
+
+    /**
+     * Recompute the whole aggregate from the line items of PAID payments (backfill or repair).
+     * Payments recorded while the rebuild runs may be counted twice or not at all, so run it when
+     * no payments are being recorded.
+     *
+     * @return the number of employee-month rows written
+     */
+    @Transactional
+    public int rebuild() {
+        return rebuildRows();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!payrollAggregateConfiguration.isBackfillOnStartup() || employeeMonthPayrollRepository.count() > 0) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> rebuildRows());
+        } catch (Exception e) {
+            log.error("Employee month payroll backfill failed", e);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private void createMissingRows(int year, int month, Set<String> employeeIds) {
+        Set<String> missing = new LinkedHashSet<>(employeeIds);
+        employeeMonthPayrollRepository.findExistingEmployeeIds(year, month, employeeIds).forEach(missing::remove);
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            newTransaction.executeWithoutResult(status -> missing.forEach(employeeId ->
+                    employeeMonthPayrollRepository.insertEmptyRow(employeeId, year, month, now)));
+        } catch (DataIntegrityViolationException e) {
+            // Another payment of the same month created some of the rows first; create the rest one by one
+            for (String employeeId : missing) {
+                try {
+                    newTransaction.executeWithoutResult(status ->
+                            employeeMonthPayrollRepository.insertEmptyRow(employeeId, year, month, now));
+                } catch (DataIntegrityViolationException alreadyCreated) {
+                    log.debug("Employee month payroll row for {} in {}/{} created concurrently", employeeId, month, year);
+                }
+            }
+        }
+    }
+
+    private int rebuildRows() {
+        long start = System.currentTimeMillis();
+        employeeMonthPayrollRepository.deleteAllRows();
+        int rows = employeeMonthPayrollRepository.insertFromPaidLineItems(LocalDateTime.now());
+        log.info("Rebuilt employee month payroll: {} rows in {} ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -6,6 +6,7 @@ import com.sarlatea.crm.model.AuditLog;
 import com.sarlatea.crm.model.Employee;
 import com.sarlatea.crm.model.EmployeeType;
 import com.sarlatea.crm.model.EmployeeStatus;
+import com.sarlatea.crm.model.SyncTombstone;
 import com.sarlatea.crm.repository.EmployeeRepository;
 import com.sarlatea.crm.repository.EmployeeTypeRepository;
 import com.sarlatea.crm.repository.EmployeeStatusRepository;
@@ -39,6 +40,7 @@ public class EmployeeService {
     private final WorkAssignmentRepository workAssignmentRepository;
     private final PaymentLineItemRepository paymentLineItemRepository;
     private final AuditLogService auditLogService;
+    private final SyncService syncService;
 
     @Transactional(readOnly = true)
     public List<EmployeeDTO> getAllEmployees() {
@@ -149,6 +151,8 @@ public class EmployeeService {
         String employeeName = employee.getName();
         
         employeeRepository.deleteById(id);
+        // Employees are hard-deleted, so sync clients learn about it from a tombstone
+        syncService.recordDeletion(SyncTombstone.EntityType.EMPLOYEE, id);
         log.info("Successfully deleted employee with id: {}", id);
         
         // Audit log for deletion
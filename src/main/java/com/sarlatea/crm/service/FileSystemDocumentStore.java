@@ -0,0 +1,123 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.DocumentStorageConfiguration;
+import com.sarlatea.crm.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Local filesystem document store
+ * Content is written to {root}/ab/cd/abcd... where abcd... is the SHA-256 of the bytes.
+ * Uploads are streamed to a temporary file while hashing and then moved into place,
+ * so a partially written upload is never visible under its hash.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileSystemDocumentStore implements DocumentStore {
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final DocumentStorageConfiguration storageConfiguration;
+
+    @PostConstruct
+    void warnIfNotPersistent() {
+        if (!storageConfiguration.isPersistent()) {
+            log.warn("Document store {} is not marked persistent (document-storage.persistent); " +
+                    "uploaded documents are lost if it does not survive a redeploy", root());
+        }
+    }
+
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        Path tempDir = Files.createDirectories(root().resolve("tmp"));
+        Path tempFile = Files.createTempFile(tempDir, "upload-", ".part");
+        try {
+            MessageDigest digest = newSha256();
+            long size;
+            try (DigestInputStream in = new DigestInputStream(content, digest)) {
+                size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+
+            Path target = pathFor(contentHash);
+            if (Files.exists(target)) {
+                log.debug("Document content {} already stored, skipping write", contentHash);
+            } else {
+                Files.createDirectories(target.getParent());
+                moveIntoPlace(tempFile, target);
+                log.debug("Stored document content {} ({} bytes)", contentHash, size);
+            }
+            return new StoredContent(contentHash, size);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public Resource load(String contentHash) {
+        Path path = pathFor(contentHash);
+        if (!Files.isReadable(path)) {
+            throw new ResourceNotFoundException("Document content not found: " + contentHash);
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public boolean exists(String contentHash) {
+        return Files.exists(pathFor(contentHash));
+    }
+
+    private Path pathFor(String contentHash) {
+        if (contentHash == null || !SHA256_HEX.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Invalid document content hash: " + contentHash);
+        }
+        return root().resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+
+    private Path root() {
+        return Paths.get(storageConfiguration.getRootPath()).toAbsolutePath().normalize();
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(source, target);
+            } catch (FileAlreadyExistsException alreadyStored) {
+                // Same content stored concurrently; identical bytes, nothing to do
+            }
+        } catch (FileAlreadyExistsException alreadyStored) {
+            // Same content stored concurrently; identical bytes, nothing to do
+        }
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
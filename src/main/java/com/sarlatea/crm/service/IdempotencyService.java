@@ -0,0 +1,265 @@
+package com.sarlatea.crm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sarlatea.crm.config.IdempotencyConfiguration;
+import com.sarlatea.crm.exception.DataIntegrityException;
+import com.sarlatea.crm.model.IdempotencyRecord;
+import com.sarlatea.crm.repository.IdempotencyRecordRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Replays the response of a request sent again with the same Idempotency-Key header.
+ *
+ * Completed responses are kept in a bounded, least-recently-used in-memory map, so a client
+ * retrying after a network blip gets its response back without the workflow running again.
+ * Every key is also recorded in the idempotency_keys table: the row is inserted before the
+ * request runs, so a duplicate arriving while the first is still running is rejected, and
+ * responses evicted from memory (or written by another instance) are still replayed.
+ * Keys are scoped to the user and expire after the configured TTL.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int PURGE_EVERY_RESERVATIONS = 500;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final IdempotencyConfiguration idempotencyConfiguration;
+    private final ObjectMapper objectMapper;
+    private final Map<String, StoredResponse> responses;
+    private final AtomicInteger reservationsSincePurge = new AtomicInteger();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              IdempotencyConfiguration idempotencyConfiguration,
+                              ObjectMapper objectMapper) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.idempotencyConfiguration = idempotencyConfiguration;
+        this.objectMapper = objectMapper;
+        // Access-ordered, so the eldest entry is the least recently used one
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > idempotencyConfiguration.getMaxEntries();
+            }
+        };
+    }
+
+    /**
+     * Run the action once per idempotency key. Without a key the action simply runs.
+     * A repeated key returns the stored response (marked with the Idempotent-Replayed header);
+     * a key reused for a different request, or repeated while the first request is still running,
+     * is rejected with a conflict. Failed requests are not stored, so they can be retried.
+     *
+     * @param requestBody what the client sent, used to tell a retry from a different request
+     */
+    public <T> ResponseEntity<T> execute(String idempotencyKey, String username, Object requestBody,
+                                         Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String operation = currentOperation();
+        String requestHash = fingerprint(operation, requestBody);
+        String cacheKey = username + '\n' + idempotencyKey;
+
+        StoredResponse stored = getStoredResponse(cacheKey);
+        if (stored != null) {
+            return replay(stored, requestHash, responseType, idempotencyKey);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByUsernameAndIdempotencyKey(username, idempotencyKey);
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (record.getExpiresAt().isBefore(now)) {
+                idempotencyRecordRepository.deleteIfExpired(record.getId(), now);
+            } else {
+                if (!record.getRequestHash().equals(requestHash)) {
+                    throw keyReused(idempotencyKey);
+                }
+                if (record.getStatus() == IdempotencyRecord.RecordStatus.IN_PROGRESS) {
+                    throw stillInProgress(idempotencyKey);
+                }
+                stored = new StoredResponse(record.getRequestHash(), record.getResponseStatus(),
+                        fromJson(record.getResponseBody(), responseType), record.getExpiresAt());
+                putStoredResponse(cacheKey, stored);
+                return replay(stored, requestHash, responseType, idempotencyKey);
+            }
+        }
+
+        String recordId = reserve(idempotencyKey, username, operation, requestHash, now);
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.releaseInProgress(recordId);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            idempotencyRecordRepository.releaseInProgress(recordId);
+            return response;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(idempotencyConfiguration.getTtl());
+        int status = response.getStatusCode().value();
+        putStoredResponse(cacheKey, new StoredResponse(requestHash, status, response.getBody(), expiresAt));
+        try {
+            idempotencyRecordRepository.complete(recordId, status, toJson(response.getBody()), expiresAt);
+        } catch (RuntimeException e) {
+            // The request itself succeeded; this instance still replays it from memory
+            log.warn("Failed to store response for idempotency key {} of {}: {}", idempotencyKey, username, e.getMessage());
+        }
+        return response;
+    }
+
+    /**
+     * Expired keys are removed on startup and then every few hundred new keys
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeExpiredKeys() {
+        int purged = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private String reserve(String idempotencyKey, String username, String operation, String requestHash, LocalDateTime now) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setIdempotencyKey(idempotencyKey);
+        record.setUsername(username);
+        record.setOperation(operation);
+        record.setRequestHash(requestHash);
+        record.setStatus(IdempotencyRecord.RecordStatus.IN_PROGRESS);
+        record.setCreatedAt(now);
+        // An in-progress row left behind by a crashed instance stops blocking the key after this
+        record.setExpiresAt(now.plus(idempotencyConfiguration.getInProgressTimeout()));
+        try {
+            // Saved outside any transaction so the reservation is visible to concurrent duplicates at once
+            record = idempotencyRecordRepository.saveAndFlush(record);
+        } catch (DataIntegrityViolationException e) {
+            throw stillInProgress(idempotencyKey);
+        }
+
+        if (reservationsSincePurge.incrementAndGet() >= PURGE_EVERY_RESERVATIONS) {
+            reservationsSincePurge.set(0);
+            purgeExpiredKeys();
+        }
+        return record.getId();
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String requestHash, Class<T> responseType, String idempotencyKey) {
+        if (!stored.requestHash.equals(requestHash)) {
+            throw keyReused(idempotencyKey);
+        }
+        log.info("Replaying stored response for idempotency key {}", idempotencyKey);
+        return ResponseEntity.status(stored.status)
+                .header(REPLAYED_HEADER, "true")
+                .body(responseType.cast(stored.body));
+    }
+
+    private StoredResponse getStoredResponse(String cacheKey) {
+        synchronized (responses) {
+            StoredResponse stored = responses.get(cacheKey);
+            if (stored != null && stored.expiresAt.isBefore(LocalDateTime.now())) {
+                responses.remove(cacheKey);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void putStoredResponse(String cacheKey, StoredResponse stored) {
+        synchronized (responses) {
+            responses.put(cacheKey, stored);
+        }
+    }
+
+    private String currentOperation() {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return "INTERNAL";
+        }
+        HttpServletRequest request = attributes.getRequest();
+        return request.getMethod() + " " + request.getRequestURI();
+    }
+
+    private String fingerprint(String operation, Object requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(toJson(requestBody).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return json != null ? objectMapper.readValue(json, type) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read stored response as " + type.getSimpleName(), e);
+        }
+    }
+
+    private static DataIntegrityException keyReused(String idempotencyKey) {
+        return new DataIntegrityException("Idempotency key " + idempotencyKey + " was already used for a different request");
+    }
+
+    private static DataIntegrityException stillInProgress(String idempotencyKey) {
+        return new DataIntegrityException("A request with idempotency key " + idempotencyKey + " is still being processed");
+    }
+
+    private static final class StoredResponse {
+        private final String requestHash;
+        private final int status;
+        private final Object body;
+        private final LocalDateTime expiresAt;
+
+        private StoredResponse(String requestHash, int status, Object body, LocalDateTime expiresAt) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
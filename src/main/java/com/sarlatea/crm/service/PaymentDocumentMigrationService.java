@@ -0,0 +1,217 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.DocumentStorageConfiguration;
+import com.sarlatea.crm.dto.PaymentDocumentContent;
+import com.sarlatea.crm.model.PaymentDocument;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves document bytes still stored in the legacy payment_documents.file_data LONGBLOB column
+ * into the DocumentStore. Each blob is streamed straight from the JDBC result set to disk and the
+ * stored file is read back and hashed; only then does the row get its content_hash and the blob is cleared.
+ * Runs only when the store is marked persistent, since clearing a blob leaves the file as the only copy.
+ * Documents not migrated yet are served from their blob, without migrating them on the read path.
+ * The column itself is left in place (ddl-auto=update never drops columns) and can be dropped
+ * once the migration has run everywhere.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentDocumentMigrationService {
+
+    private static final String TABLE_NAME = "payment_documents";
+    private static final String LEGACY_COLUMN = "file_data";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DocumentStore documentStore;
+    private final DocumentStorageConfiguration storageConfiguration;
+
+    @PostConstruct
+    void checkConfiguration() {
+        if (storageConfiguration.isMigrateOnStartup() && !storageConfiguration.isPersistent()) {
+            throw new IllegalStateException("document-storage.migrate-on-startup requires document-storage.persistent: " +
+                    "migrated blobs are cleared from the database, so " + storageConfiguration.getRootPath() +
+                    " must survive redeploys");
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!storageConfiguration.isMigrateOnStartup()) {
+            return;
+        }
+        try {
+            migrateLegacyBlobs();
+        } catch (Exception e) {
+            log.error("Payment document blob migration failed", e);
+        }
+    }
+
+    /**
+     * Migrate all legacy blobs in batches
+     *
+     * @return the number of documents moved into the store
+     */
+    public int migrateLegacyBlobs() {
+        if (!storageConfiguration.isPersistent()) {
+            throw new IllegalStateException("Refusing to migrate payment document blobs: document-storage.persistent is not set");
+        }
+        if (!hasLegacyBlobColumn()) {
+            log.debug("No legacy {}.{} column found, nothing to migrate", TABLE_NAME, LEGACY_COLUMN);
+            return 0;
+        }
+
+        int migrated = 0;
+        int failed = 0;
+        String lastId = "";
+        while (true) {
+            // Failed rows keep their blob, so page past them using the id as a keyset
+            List<String> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM payment_documents WHERE file_data IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                    String.class, lastId, storageConfiguration.getMigrationBatchSize());
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (String id : ids) {
+                try {
+                    if (migrateBlob(id).isPresent()) {
+                        migrated++;
+                    }
+                } catch (DataAccessException | UncheckedIOException e) {
+                    failed++;
+                    log.warn("Failed to migrate payment document {}: {}", id, e.getMessage());
+                }
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+
+        if (migrated > 0 || failed > 0) {
+            log.info("Payment document blob migration finished: {} migrated, {} failed", migrated, failed);
+        }
+        return migrated;
+    }
+
+    /**
+     * Content of a document whose blob has not been migrated yet, read from the database as it is
+     *
+     * @return the content, or empty if the document has no legacy blob
+     */
+    public Optional<PaymentDocumentContent> readLegacyDocument(PaymentDocument document) {
+        if (!hasLegacyBlobColumn()) {
+            return Optional.empty();
+        }
+        List<byte[]> blobs = jdbcTemplate.query(
+                "SELECT file_data FROM payment_documents WHERE id = ? AND file_data IS NOT NULL",
+                (rs, rowNum) -> rs.getBytes(1),
+                document.getId());
+        if (blobs.isEmpty()) {
+            return Optional.empty();
+        }
+
+        byte[] bytes = blobs.get(0);
+        try {
+            return Optional.of(new PaymentDocumentContent(document.getFileName(), document.getFileType(),
+                    (long) bytes.length, sha256(new ByteArrayInputStream(bytes)).getContentHash(),
+                    new ByteArrayResource(bytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Optional<DocumentStore.StoredContent> migrateBlob(String documentId) {
+        List<DocumentStore.StoredContent> stored = jdbcTemplate.query(
+                "SELECT file_data FROM payment_documents WHERE id = ? AND file_data IS NOT NULL",
+                (rs, rowNum) -> storeBlob(rs),
+                documentId);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+
+        DocumentStore.StoredContent content = stored.get(0);
+        verifyStored(documentId, content);
+        jdbcTemplate.update(
+                "UPDATE payment_documents SET content_hash = ?, file_size = ?, file_data = NULL WHERE id = ? AND file_data IS NOT NULL",
+                content.getContentHash(), content.getSize(), documentId);
+        log.info("Migrated payment document {} to store as {}", documentId, content.getContentHash());
+        return Optional.of(content);
+    }
+
+    private DocumentStore.StoredContent storeBlob(ResultSet rs) throws SQLException {
+        try (InputStream in = rs.getBinaryStream(1)) {
+            return documentStore.store(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Read the stored file back before its blob, the only other copy, is cleared
+    private void verifyStored(String documentId, DocumentStore.StoredContent expected) {
+        DocumentStore.StoredContent readBack;
+        try (InputStream in = documentStore.load(expected.getContentHash()).getInputStream()) {
+            readBack = sha256(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!readBack.equals(expected)) {
+            throw new UncheckedIOException(new IOException("Stored content of payment document " + documentId +
+                    " does not match its blob (" + readBack + " read back, " + expected + " expected)"));
+        }
+    }
+
+    private static DocumentStore.StoredContent sha256(InputStream content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        long size;
+        try (DigestInputStream in = new DigestInputStream(content, digest)) {
+            size = in.transferTo(OutputStream.nullOutputStream());
+        }
+        return new DocumentStore.StoredContent(HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    private boolean hasLegacyBlobColumn() {
+        Boolean present = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : new String[]{TABLE_NAME, TABLE_NAME.toUpperCase()}) {
+                for (String column : new String[]{LEGACY_COLUMN, LEGACY_COLUMN.toUpperCase()}) {
+                    try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+                        if (rs.next()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(present);
+    }
+}
@@ -0,0 +1,326 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.dto.PaymentExportLineDTO;
+import com.sarlatea.crm.dto.PaymentSummaryDTO;
+import com.sarlatea.crm.exception.ResourceNotFoundException;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.repository.PaymentLineItemRepository;
+import com.sarlatea.crm.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Bank-transfer and payroll exports of an approved payment.
+ *
+ * Line items are scrolled from the database ordered by employee and folded into one
+ * record per employee as they arrive, so only the current employee's running totals are
+ * held in memory and output starts before the whole payment has been read.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentExportService {
+
+    private static final int FIXED_WIDTH_RECORD_LENGTH = 120;
+    private static final DateTimeFormatter FIXED_WIDTH_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String CSV_HEADER = "employee_id,employee_name,phone,pf_account_id,line_items," +
+            "gross_amount,employee_pf,voluntary_pf,employer_pf,other_deductions,net_amount";
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentLineItemRepository paymentLineItemRepository;
+
+    public enum ExportFormat {
+        CSV("csv", "text/csv"),
+        BANK_TRANSFER("txt", "text/plain");
+
+        private final String fileExtension;
+        private final String contentType;
+
+        ExportFormat(String fileExtension, String contentType) {
+            this.fileExtension = fileExtension;
+            this.contentType = contentType;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static ExportFormat fromParameter(String format) {
+            if (format == null || format.isBlank() || "csv".equalsIgnoreCase(format)) {
+                return CSV;
+            }
+            if ("bank".equalsIgnoreCase(format) || "bank-transfer".equalsIgnoreCase(format)) {
+                return BANK_TRANSFER;
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + format + " (expected csv or bank)");
+        }
+    }
+
+    /**
+     * Load and validate the payment header before any bytes are written,
+     * so a missing or unapproved payment is still reported with a normal error response
+     */
+    @Transactional(readOnly = true)
+    public PaymentSummaryDTO getExportablePayment(String paymentId) {
+        PaymentSummaryDTO payment = paymentRepository.findSummaryById(paymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + paymentId));
+        if (payment.getStatus() != Payment.PaymentStatus.APPROVED && payment.getStatus() != Payment.PaymentStatus.PAID) {
+            throw new IllegalStateException("Only APPROVED or PAID payments can be exported");
+        }
+        return payment;
+    }
+
+    /**
+     * Write the export to the given stream. Runs in its own read-only transaction because it is
+     * called from the async thread of a streaming response, after the request thread has returned.
+     */
+    @Transactional(readOnly = true)
+    public void writeExport(PaymentSummaryDTO payment, ExportFormat format, OutputStream outputStream) throws IOException {
+        log.info("Exporting payment {} as {}", payment.getId(), format);
+        long start = System.currentTimeMillis();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream,
+                format == ExportFormat.CSV ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII));
+        int records;
+        try (Stream<PaymentExportLineDTO> lines = paymentLineItemRepository.streamExportLinesByPaymentId(payment.getId())) {
+            records = format == ExportFormat.CSV
+                    ? writeCsv(new EmployeeCursor(lines.iterator()), writer)
+                    : writeBankTransfer(payment, new EmployeeCursor(lines.iterator()), writer);
+        }
+        writer.flush();
+
+        log.info("Exported {} employee records for payment {} in {} ms",
+                records, payment.getId(), System.currentTimeMillis() - start);
+    }
+
+    public String getExportFileName(PaymentSummaryDTO payment, ExportFormat format) {
+        String reference = payment.getReferenceNumber() != null && !payment.getReferenceNumber().isBlank()
+                ? payment.getReferenceNumber() : payment.getId();
+        String prefix = format == ExportFormat.CSV ? "payroll-" : "bank-transfer-";
+        return prefix + reference.replaceAll("[^A-Za-z0-9._-]", "_") + "." + format.getFileExtension();
+    }
+
+    // ==================== CSV ====================
+
+    private int writeCsv(EmployeeCursor employees, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        writer.flush();
+
+        int records = 0;
+        EmployeeTotals totals;
+        while ((totals = employees.next()) != null) {
+            writer.write(csvField(totals.employeeId));
+            writer.write(',');
+            writer.write(csvField(totals.employeeName));
+            writer.write(',');
+            writer.write(csvField(totals.employeePhone));
+            writer.write(',');
+            writer.write(csvField(totals.pfAccountId));
+            writer.write(',');
+            writer.write(Integer.toString(totals.lineItems));
+            writer.write(',');
+            writer.write(totals.amount.toPlainString());
+            writer.write(',');
+            writer.write(totals.employeePf.toPlainString());
+            writer.write(',');
+            writer.write(totals.voluntaryPf.toPlainString());
+            writer.write(',');
+            writer.write(totals.employerPf.toPlainString());
+            writer.write(',');
+            writer.write(totals.otherDeductions.toPlainString());
+            writer.write(',');
+            writer.write(totals.netAmount.toPlainString());
+            writer.write("\r\n");
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Quote a value per RFC 4180, and neutralise leading characters that spreadsheets treat as formulas
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value;
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    // ==================== Fixed-width bank transfer ====================
+
+    /**
+     * Fixed-width bulk transfer file, ASCII, 120-character records terminated by CRLF.
+     *
+     * H | payment id (36) | file date yyyyMMdd (8) | payment title (40)
+     * D | sequence (6, zero padded) | PF account (20) | employee name (40) | employee id (36) | net amount in paise (15, zero padded)
+     * T | detail record count (6, zero padded) | total net amount in paise (18, zero padded)
+     *
+     * Employees whose net amount is zero or negative have nothing to transfer and are left out.
+     */
+    private int writeBankTransfer(PaymentSummaryDTO payment, EmployeeCursor employees,
+                                  Writer writer) throws IOException {
+        writeRecord(writer, "H"
+                + alpha(payment.getId(), 36)
+                + LocalDate.now().format(FIXED_WIDTH_DATE)
+                + alpha(payment.getPaymentTitle(), 40));
+        writer.flush();
+
+        int records = 0;
+        long totalNetPaise = 0;
+        EmployeeTotals totals;
+        while ((totals = employees.next()) != null) {
+            long netPaise = toPaise(totals.netAmount);
+            if (netPaise <= 0) {
+                log.debug("Skipping employee {} with net amount {} in bank transfer file",
+                        totals.employeeId, totals.netAmount);
+                continue;
+            }
+            records++;
+            totalNetPaise += netPaise;
+            writeRecord(writer, "D"
+                    + numeric(records, 6)
+                    + alpha(totals.pfAccountId, 20)
+                    + alpha(totals.employeeName, 40)
+                    + alpha(totals.employeeId, 36)
+                    + numeric(netPaise, 15));
+        }
+
+        writeRecord(writer, "T" + numeric(records, 6) + numeric(totalNetPaise, 18));
+        return records;
+    }
+
+    private static void writeRecord(Writer writer, String record) throws IOException {
+        writer.write(record);
+        for (int i = record.length(); i < FIXED_WIDTH_RECORD_LENGTH; i++) {
+            writer.write(' ');
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Left-aligned, space padded, truncated to width; anything outside printable ASCII becomes a space
+     */
+    private static String alpha(String value, int width) {
+        StringBuilder field = new StringBuilder(width);
+        if (value != null) {
+            for (int i = 0; i < value.length() && field.length() < width; i++) {
+                char c = value.charAt(i);
+                field.append(c >= 0x20 && c < 0x7F ? c : ' ');
+            }
+        }
+        while (field.length() < width) {
+            field.append(' ');
+        }
+        return field.toString();
+    }
+
+    private static String numeric(long value, int width) {
+        String digits = Long.toString(value);
+        if (digits.length() > width) {
+            throw new IllegalStateException("Value " + value + " does not fit in a " + width + "-digit export field");
+        }
+        return "0".repeat(width - digits.length()) + digits;
+    }
+
+    private static long toPaise(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    // ==================== Per-employee aggregation ====================
+
+    /**
+     * Folds consecutive lines of the same employee into one record.
+     * Relies on the query ordering all lines of an employee together.
+     */
+    private static final class EmployeeCursor {
+        private final Iterator<PaymentExportLineDTO> lines;
+        private PaymentExportLineDTO pending;
+
+        private EmployeeCursor(Iterator<PaymentExportLineDTO> lines) {
+            this.lines = lines;
+        }
+
+        private EmployeeTotals next() {
+            PaymentExportLineDTO line = pending != null ? pending : (lines.hasNext() ? lines.next() : null);
+            pending = null;
+            if (line == null) {
+                return null;
+            }
+            EmployeeTotals totals = new EmployeeTotals(line);
+            while (lines.hasNext()) {
+                PaymentExportLineDTO next = lines.next();
+                if (!Objects.equals(next.getEmployeeId(), totals.employeeId)) {
+                    pending = next;
+                    break;
+                }
+                totals.add(next);
+            }
+            return totals;
+        }
+    }
+
+    private static final class EmployeeTotals {
+        private final String employeeId;
+        private final String employeeName;
+        private final String employeePhone;
+        private String pfAccountId;
+        private int lineItems;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private BigDecimal employeePf = BigDecimal.ZERO;
+        private BigDecimal voluntaryPf = BigDecimal.ZERO;
+        private BigDecimal employerPf = BigDecimal.ZERO;
+        private BigDecimal otherDeductions = BigDecimal.ZERO;
+        private BigDecimal netAmount = BigDecimal.ZERO;
+
+        private EmployeeTotals(PaymentExportLineDTO first) {
+            this.employeeId = first.getEmployeeId();
+            this.employeeName = first.getEmployeeName();
+            this.employeePhone = first.getEmployeePhone();
+            add(first);
+        }
+
+        private void add(PaymentExportLineDTO line) {
+            if (pfAccountId == null) {
+                pfAccountId = line.getPfAccountId();
+            }
+            lineItems++;
+            amount = amount.add(orZero(line.getAmount()));
+            employeePf = employeePf.add(orZero(line.getEmployeePf()));
+            voluntaryPf = voluntaryPf.add(orZero(line.getVoluntaryPf()));
+            employerPf = employerPf.add(orZero(line.getEmployerPf()));
+            otherDeductions = otherDeductions.add(orZero(line.getOtherDeductions()));
+            netAmount = netAmount.add(orZero(line.getNetAmount()));
+        }
+
+        private static BigDecimal orZero(BigDecimal value) {
+            return value != null ? value : BigDecimal.ZERO;
+        }
+    }
+}
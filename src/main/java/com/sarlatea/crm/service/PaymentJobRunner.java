@@ -0,0 +1,107 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.dto.CancelPaymentRequest;
+import com.sarlatea.crm.dto.SubmitPaymentRequest;
+import com.sarlatea.crm.model.PaymentJob;
+import com.sarlatea.crm.repository.PaymentJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Executes payment jobs on the payment job executor.
+ * Each chunk and each bookkeeping update is its own transaction, so a job never holds
+ * one long transaction and committed progress survives a failure later in the job.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentJobRunner {
+
+    private final PaymentJobRepository paymentJobRepository;
+    private final PaymentService paymentService;
+
+    public void run(String jobId) {
+        if (paymentJobRepository.claimQueuedJob(jobId, LocalDateTime.now()) == 0) {
+            log.info("Payment job {} is no longer queued, skipping", jobId);
+            return;
+        }
+
+        PaymentJob job = paymentJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+
+        log.info("Starting payment job {} ({}) for payment {}", jobId, job.getJobType(), job.getPaymentId());
+        long start = System.currentTimeMillis();
+        try {
+            switch (job.getJobType()) {
+                case ADD_LINE_ITEMS -> runAddLineItems(job);
+                case SUBMIT -> runSubmit(job);
+                case CANCEL -> runCancel(job);
+            }
+        } catch (Exception e) {
+            log.error("Payment job {} failed", jobId, e);
+            paymentJobRepository.finish(jobId, PaymentJob.JobStatus.FAILED, describe(e), LocalDateTime.now());
+        }
+        log.info("Payment job {} finished in {} ms", jobId, System.currentTimeMillis() - start);
+    }
+
+    private void runAddLineItems(PaymentJob job) {
+        List<String> assignmentIds = Arrays.asList(job.getAssignmentIds().split(","));
+        int chunkSize = job.getChunkSize();
+        int processed = 0;
+        PaymentJob.JobStatus outcome = PaymentJob.JobStatus.COMPLETED;
+        String errorMessage = null;
+
+        for (int from = 0; from < assignmentIds.size(); from += chunkSize) {
+            if (paymentJobRepository.isCancelRequested(job.getId())) {
+                outcome = PaymentJob.JobStatus.CANCELLED;
+                break;
+            }
+
+            List<String> chunk = assignmentIds.subList(from, Math.min(from + chunkSize, assignmentIds.size()));
+            try {
+                processed += paymentService.addLineItemsChunk(job.getPaymentId(), chunk, job.getRequestedBy());
+            } catch (RuntimeException e) {
+                log.warn("Payment job {} stopped at chunk starting at item {}: {}", job.getId(), from, e.getMessage());
+                outcome = PaymentJob.JobStatus.FAILED;
+                errorMessage = describe(e);
+                break;
+            }
+            paymentJobRepository.updateProgress(job.getId(), processed, LocalDateTime.now());
+        }
+
+        if (processed > 0) {
+            paymentService.recordLineItemsJobHistory(job.getPaymentId(), processed, assignmentIds.size(),
+                    job.getRequestedBy(), outcome.name().toLowerCase());
+        }
+        paymentJobRepository.finish(job.getId(), outcome, errorMessage, LocalDateTime.now());
+    }
+
+    private void runSubmit(PaymentJob job) {
+        paymentService.submitForApproval(job.getPaymentId(), new SubmitPaymentRequest(job.getRemarks()),
+                job.getRequestedBy());
+        completeSingleStep(job);
+    }
+
+    private void runCancel(PaymentJob job) {
+        paymentService.cancelPayment(job.getPaymentId(), new CancelPaymentRequest(job.getRemarks()),
+                job.getRequestedBy());
+        completeSingleStep(job);
+    }
+
+    private void completeSingleStep(PaymentJob job) {
+        LocalDateTime now = LocalDateTime.now();
+        paymentJobRepository.updateProgress(job.getId(), job.getTotalItems(), now);
+        paymentJobRepository.finish(job.getId(), PaymentJob.JobStatus.COMPLETED, null, now);
+    }
+
+    private static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
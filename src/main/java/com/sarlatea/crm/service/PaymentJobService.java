@@ -0,0 +1,267 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.PaymentJobConfiguration;
+import com.sarlatea.crm.dto.CancelPaymentRequest;
+import com.sarlatea.crm.dto.PaymentJobDTO;
+import com.sarlatea.crm.dto.PaymentSummaryDTO;
+import com.sarlatea.crm.dto.SubmitPaymentRequest;
+import com.sarlatea.crm.exception.ResourceNotFoundException;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.model.PaymentJob;
+import com.sarlatea.crm.repository.PaymentJobRepository;
+import com.sarlatea.crm.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Starts, tracks and cancels background payment jobs.
+ *
+ * The payment is validated up front so obvious errors are still returned synchronously;
+ * the job row is committed before it is handed to the executor, and the worker claims it
+ * with a conditional update so a job cancelled while queued never starts. A unique key on the
+ * job's active payment id keeps a payment to one queued or running job across instances.
+ */
+@Service
+@Slf4j
+public class PaymentJobService {
+
+    private final PaymentJobRepository paymentJobRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentJobRunner paymentJobRunner;
+    private final PaymentJobConfiguration paymentJobConfiguration;
+    private final TaskExecutor paymentJobExecutor;
+    // Jobs dispatched by this instance that are still queued or running; only these get their heartbeat refreshed
+    private final Set<String> heldJobs = ConcurrentHashMap.newKeySet();
+
+    public PaymentJobService(PaymentJobRepository paymentJobRepository,
+                             PaymentRepository paymentRepository,
+                             PaymentJobRunner paymentJobRunner,
+                             PaymentJobConfiguration paymentJobConfiguration,
+                             @Qualifier("paymentJobExecutor") TaskExecutor paymentJobExecutor) {
+        this.paymentJobRepository = paymentJobRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentJobRunner = paymentJobRunner;
+        this.paymentJobConfiguration = paymentJobConfiguration;
+        this.paymentJobExecutor = paymentJobExecutor;
+    }
+
+    // ==================== Starting Jobs ====================
+
+    public PaymentJobDTO startAddLineItems(String paymentId, List<String> assignmentIds, Integer chunkSize, String username) {
+        log.info("Queueing batch add of {} assignments to payment {} by {}",
+                assignmentIds != null ? assignmentIds.size() : 0, paymentId, username);
+
+        PaymentSummaryDTO payment = getPayment(paymentId);
+        if (payment.getStatus() != Payment.PaymentStatus.DRAFT) {
+            throw new IllegalStateException("Can only add line items to draft payments");
+        }
+        if (assignmentIds == null || assignmentIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one assignment is required");
+        }
+
+        Set<String> uniqueIds = new LinkedHashSet<>(assignmentIds);
+        PaymentJob job = newJob(paymentId, PaymentJob.JobType.ADD_LINE_ITEMS, uniqueIds.size(), username);
+        job.setChunkSize(resolveChunkSize(chunkSize));
+        job.setAssignmentIds(String.join(",", uniqueIds));
+        return dispatch(job);
+    }
+
+    public PaymentJobDTO startSubmit(String paymentId, SubmitPaymentRequest request, String username) {
+        log.info("Queueing submission of payment {} by {}", paymentId, username);
+
+        PaymentSummaryDTO payment = getPayment(paymentId);
+        if (payment.getStatus() != Payment.PaymentStatus.DRAFT) {
+            throw new IllegalStateException("Only draft payments can be submitted for approval");
+        }
+        if (payment.getLineItemCount() == null || payment.getLineItemCount() == 0) {
+            throw new IllegalStateException("Cannot submit payment without line items");
+        }
+
+        PaymentJob job = newJob(paymentId, PaymentJob.JobType.SUBMIT, payment.getLineItemCount().intValue(), username);
+        job.setRemarks(request != null ? request.getRemarks() : null);
+        return dispatch(job);
+    }
+
+    public PaymentJobDTO startCancel(String paymentId, CancelPaymentRequest request, String username) {
+        log.info("Queueing cancellation of payment {} by {}", paymentId, username);
+
+        PaymentSummaryDTO payment = getPayment(paymentId);
+        if (payment.getStatus() == Payment.PaymentStatus.PAID) {
+            throw new IllegalStateException("Cannot cancel paid payments");
+        }
+        if (payment.getStatus() == Payment.PaymentStatus.CANCELLED) {
+            throw new IllegalStateException("Payment is already cancelled");
+        }
+        if (request == null || request.getCancellationReason() == null || request.getCancellationReason().trim().isEmpty()) {
+            throw new IllegalArgumentException("Cancellation reason is required");
+        }
+
+        PaymentJob job = newJob(paymentId, PaymentJob.JobType.CANCEL, payment.getLineItemCount().intValue(), username);
+        job.setRemarks(request.getCancellationReason());
+        return dispatch(job);
+    }
+
+    // ==================== Tracking ====================
+
+    @Transactional(readOnly = true)
+    public PaymentJobDTO getJob(String jobId) {
+        return convertToDTO(findJob(jobId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PaymentJobDTO> getJobsForPayment(String paymentId) {
+        return paymentJobRepository.findByPaymentIdOrderByCreatedAtDesc(paymentId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cancel a job. A queued job is cancelled immediately; a running ADD_LINE_ITEMS job stops after
+     * the chunk it is working on (chunks already committed stay in the payment). Running SUBMIT and
+     * CANCEL jobs are a single transaction and cannot be stopped, so cancelling them is rejected.
+     */
+    public PaymentJobDTO cancelJob(String jobId, String username) {
+        log.info("Cancelling payment job {} by {}", jobId, username);
+
+        PaymentJob job = findJob(jobId);
+        if (job.isFinished()) {
+            throw new IllegalStateException("Payment job has already finished with status " + job.getStatus());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentJobRepository.cancelQueuedJob(jobId, now) == 0) {
+            if (!job.getJobType().isStoppable()) {
+                throw new IllegalStateException("A running " + job.getJobType() + " job cannot be cancelled");
+            }
+            if (paymentJobRepository.requestCancellation(jobId, now) == 0) {
+                log.info("Payment job {} finished before it could be cancelled", jobId);
+            }
+        }
+        return convertToDTO(findJob(jobId));
+    }
+
+    /**
+     * Keeps the jobs this instance holds alive and fails those other instances have abandoned
+     */
+    @Scheduled(initialDelayString = "${payment-jobs.heartbeat-interval-ms:30000}",
+               fixedDelayString = "${payment-jobs.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        if (!heldJobs.isEmpty()) {
+            paymentJobRepository.touchHeartbeats(Set.copyOf(heldJobs), LocalDateTime.now());
+        }
+        failAbandonedJobs();
+    }
+
+    /**
+     * Jobs are not resumed across restarts or taken over from other instances: a job left queued or
+     * running by an instance that stopped (its heartbeat is stale) is marked FAILED so it can be
+     * inspected and re-submitted. Jobs of instances that are still running are left alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failAbandonedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int abandoned = paymentJobRepository.failAbandonedJobs("Abandoned by a stopped application instance",
+                now.minus(paymentJobConfiguration.getStaleAfter()), now);
+        if (abandoned > 0) {
+            log.warn("Marked {} abandoned payment jobs as failed", abandoned);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private PaymentSummaryDTO getPayment(String paymentId) {
+        return paymentRepository.findSummaryById(paymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + paymentId));
+    }
+
+    private PaymentJob findJob(String jobId) {
+        return paymentJobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment job not found with id: " + jobId));
+    }
+
+    private PaymentJob newJob(String paymentId, PaymentJob.JobType jobType, int totalItems, String username) {
+        PaymentJob job = new PaymentJob();
+        job.setPaymentId(paymentId);
+        job.setActivePaymentId(paymentId);
+        job.setJobType(jobType);
+        job.setStatus(PaymentJob.JobStatus.QUEUED);
+        job.setTotalItems(totalItems);
+        job.setProcessedItems(0);
+        job.setCancelRequested(false);
+        job.setRequestedBy(username);
+        job.setHeartbeatAt(LocalDateTime.now());
+        return job;
+    }
+
+    private int resolveChunkSize(Integer requested) {
+        if (requested == null || requested < 1) {
+            return paymentJobConfiguration.getChunkSize();
+        }
+        return Math.min(requested, paymentJobConfiguration.getMaxChunkSize());
+    }
+
+    private PaymentJobDTO dispatch(PaymentJob job) {
+        // Saved outside any transaction so the row is committed before a worker can look for it
+        PaymentJob savedJob;
+        try {
+            savedJob = paymentJobRepository.save(job);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("Payment already has a job in progress");
+        }
+        String jobId = savedJob.getId();
+        heldJobs.add(jobId);
+        try {
+            paymentJobExecutor.execute(() -> {
+                try {
+                    paymentJobRunner.run(jobId);
+                } finally {
+                    heldJobs.remove(jobId);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            heldJobs.remove(jobId);
+            paymentJobRepository.finish(jobId, PaymentJob.JobStatus.FAILED, "Payment job queue is full", LocalDateTime.now());
+            throw new IllegalStateException("Too many payment jobs in progress, please retry later");
+        }
+        log.info("Queued payment job {} ({}) for payment {}", jobId, savedJob.getJobType(), savedJob.getPaymentId());
+        return convertToDTO(savedJob);
+    }
+
+    private PaymentJobDTO convertToDTO(PaymentJob job) {
+        PaymentJobDTO dto = new PaymentJobDTO();
+        dto.setId(job.getId());
+        dto.setPaymentId(job.getPaymentId());
+        dto.setJobType(job.getJobType());
+        dto.setStatus(job.getStatus());
+        dto.setTotalItems(job.getTotalItems());
+        dto.setProcessedItems(job.getProcessedItems());
+        dto.setProgressPercentage(job.getTotalItems() != null && job.getTotalItems() > 0
+                ? (int) (100L * job.getProcessedItems() / job.getTotalItems())
+                : (job.getStatus() == PaymentJob.JobStatus.COMPLETED ? 100 : 0));
+        dto.setChunkSize(job.getChunkSize());
+        dto.setCancelRequested(job.getCancelRequested());
+        dto.setRemarks(job.getRemarks());
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setRequestedBy(job.getRequestedBy());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setCompletedAt(job.getCompletedAt());
+        dto.setUpdatedAt(job.getUpdatedAt());
+        return dto;
+    }
+}
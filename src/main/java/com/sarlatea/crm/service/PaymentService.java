@@ -1,22 +1,36 @@
 package com.sarlatea.crm.service;
 
 import com.sarlatea.crm.dto.*;
+import com.sarlatea.crm.aspect.RetryOnConflict;
+import com.sarlatea.crm.event.AssignmentsChangedEvent;
+import com.sarlatea.crm.exception.ConcurrencyConflictException;
 import com.sarlatea.crm.exception.DataIntegrityException;
 import com.sarlatea.crm.exception.ResourceNotFoundException;
 import com.sarlatea.crm.model.*;
 import com.sarlatea.crm.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,31 +38,47 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PaymentService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final PaymentRepository paymentRepository;
     private final PaymentLineItemRepository paymentLineItemRepository;
     private final PaymentDocumentRepository paymentDocumentRepository;
     private final PaymentHistoryRepository paymentHistoryRepository;
     private final WorkAssignmentRepository workAssignmentRepository;
-    private final EmployeeSalaryRepository employeeSalaryRepository;
-    private final WorkActivityCompletionCriteriaRepository completionCriteriaRepository;
+    private final SalaryTimelineIndex salaryTimelineIndex;
+    private final CompletionCriteriaIndex completionCriteriaIndex;
     private final AuditLogService auditLogService;
+    private final PayrollCalculationService payrollCalculationService;
+    private final DocumentStore documentStore;
+    private final PaymentDocumentMigrationService documentMigrationService;
+    private final EmployeeMonthPayrollService employeeMonthPayrollService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SyncService syncService;
 
     // ==================== Query Methods ====================
 
     @Transactional(readOnly = true)
-    public List<PaymentDTO> getAllPayments() {
+    public List<PaymentSummaryDTO> getAllPayments() {
         log.debug("Fetching all payments ordered by status priority");
-        return paymentRepository.findAllOrderedByStatusPriority().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return paymentRepository.findSummariesOrderedByStatusPriority(Pageable.unpaged()).getContent();
     }
 
     @Transactional(readOnly = true)
-    public List<PaymentDTO> getPaymentsByStatus(Payment.PaymentStatus status) {
+    public List<PaymentSummaryDTO> getPaymentsByStatus(Payment.PaymentStatus status) {
         log.debug("Fetching payments with status: {}", status);
-        return paymentRepository.findByStatusOrderByCreatedAtDesc(status).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return paymentRepository.findSummariesByStatus(status, Pageable.unpaged()).getContent();
+    }
+
+    /**
+     * Page through payment summaries without loading line items or documents.
+     * Without a status the existing status-priority ordering is kept.
+     */
+    @Transactional(readOnly = true)
+    public Page<PaymentSummaryDTO> getPaymentsPaginated(Payment.PaymentStatus status, Pageable pageable) {
+        log.debug("Fetching payment page {} (size {}) with status: {}", pageable.getPageNumber(), pageable.getPageSize(), status);
+        return status != null ?
+                paymentRepository.findSummariesByStatus(status, pageable) :
+                paymentRepository.findSummariesOrderedByStatusPriority(pageable);
     }
 
     @Transactional(readOnly = true)
@@ -59,7 +89,83 @@ public class PaymentService {
         return convertToDTOWithDetails(payment);
     }
 
+    /**
+     * Payment-level fields only; line items are fetched separately through getLineItemsPage
+     */
+    @Transactional(readOnly = true)
+    public PaymentSummaryDTO getPaymentHeader(String id) {
+        log.debug("Fetching payment header with id: {}", id);
+        return paymentRepository.findSummaryById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + id));
+    }
+
+    /**
+     * Keyset-paginated line items of a payment ordered by employee name, assignment date and id.
+     * Each page is a single bounded query regardless of how deep the client has scrolled.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<PaymentLineItemDTO> getLineItemsPage(String paymentId, String employeeId,
+                                                              String cursor, int size) {
+        log.debug("Fetching line items of payment {} after cursor {} (size {})", paymentId, cursor, size);
+        assertPaymentExists(paymentId);
+
+        int pageSize = clampPageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<PaymentLineItem> lineItems;
+        if (cursor == null || cursor.isBlank()) {
+            lineItems = paymentLineItemRepository.findFirstLineItemPage(paymentId, employeeId, limit);
+        } else {
+            String[] key = CursorPageDTO.decodeCursor(cursor, 3);
+            lineItems = paymentLineItemRepository.findLineItemPageAfter(
+                    paymentId, employeeId, key[0], key[1].isEmpty() ? null : parseCursorDate(key[1]), key[2], limit);
+        }
+
+        boolean hasMore = lineItems.size() > pageSize;
+        List<PaymentLineItem> page = hasMore ? lineItems.subList(0, pageSize) : lineItems;
+        String nextCursor = null;
+        if (hasMore) {
+            PaymentLineItem last = page.get(page.size() - 1);
+            // An undated line item is encoded with an empty date
+            String lastDate = last.getAssignmentDate() != null ? last.getAssignmentDate().toString() : "";
+            nextCursor = CursorPageDTO.encodeCursor(last.getEmployee().getName(), lastDate, last.getId());
+        }
+
+        List<PaymentLineItemDTO> content = page.stream()
+                .map(this::convertLineItemToDTO)
+                .collect(Collectors.toList());
+        return new CursorPageDTO<>(content, nextCursor, hasMore);
+    }
+
+    /**
+     * Keyset-paginated per-employee subtotals of a payment, aggregated by the database
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<PaymentEmployeeSubtotalDTO> getEmployeeSubtotalsPage(String paymentId, String cursor, int size) {
+        log.debug("Fetching employee subtotals of payment {} after cursor {} (size {})", paymentId, cursor, size);
+        assertPaymentExists(paymentId);
+
+        int pageSize = clampPageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<PaymentEmployeeSubtotalDTO> subtotals;
+        if (cursor == null || cursor.isBlank()) {
+            subtotals = paymentLineItemRepository.findFirstEmployeeSubtotalPage(paymentId, limit);
+        } else {
+            String[] key = CursorPageDTO.decodeCursor(cursor, 2);
+            subtotals = paymentLineItemRepository.findEmployeeSubtotalPageAfter(paymentId, key[0], key[1], limit);
+        }
+
+        boolean hasMore = subtotals.size() > pageSize;
+        List<PaymentEmployeeSubtotalDTO> page = hasMore ? subtotals.subList(0, pageSize) : subtotals;
+        String nextCursor = null;
+        if (hasMore) {
+            PaymentEmployeeSubtotalDTO last = page.get(page.size() - 1);
+            nextCursor = CursorPageDTO.encodeCursor(last.getEmployeeName(), last.getEmployeeId());
+        }
+        return new CursorPageDTO<>(page, nextCursor, hasMore);
+    }
+
     @Transactional
+    @RetryOnConflict
     public PaymentDTO updatePayment(String id, PaymentDTO updates, String username) {
         log.debug("Updating payment {} by {}", id, username);
         
@@ -104,54 +210,143 @@ public class PaymentService {
     public PaymentDTO createDraft(CreatePaymentDraftRequest request, String username) {
         log.info("Creating payment draft for {}/{} by {}", request.getPaymentMonth(), request.getPaymentYear(), username);
 
+        Payment savedPayment = createDraftPayment(request.getPaymentMonth(), request.getPaymentYear(),
+                request.getRemarks(), username);
+
+        // If specific assignments provided, add them
+        if (request.getAssignmentIds() != null && !request.getAssignmentIds().isEmpty()) {
+            List<LocalDate> assignmentDates = new ArrayList<>();
+            for (String assignmentId : request.getAssignmentIds()) {
+                assignmentDates.add(addLineItemToPayment(savedPayment, assignmentId, username).getAssignmentDate());
+            }
+            savedPayment.recalculateTotalAmount();
+            savedPayment = paymentRepository.save(savedPayment);
+            publishAssignmentsChanged(assignmentDates);
+        }
+
+        log.info("Payment draft created successfully: {}", savedPayment.getId());
+        return convertToDTOWithDetails(savedPayment);
+    }
+
+    /**
+     * Build a payment draft from every payable assignment in a date range.
+     * Assignments (with employee and activity) and the current salaries of all involved employees
+     * are each loaded with a single query, line items are computed in memory and inserted in JDBC
+     * batches, and the assignments are claimed with one bulk UPDATE instead of a save per row.
+     */
+    @Transactional
+    @RetryOnConflict
+    public PaymentDTO createDraftFromPeriod(CreatePaymentDraftRequest request, String username) {
+        LocalDate periodStart = request.getPeriodStartDate();
+        LocalDate periodEnd = request.getPeriodEndDate();
+        if (periodStart == null || periodEnd == null) {
+            throw new IllegalArgumentException("Period start date and end date are required");
+        }
+        if (periodStart.isAfter(periodEnd)) {
+            throw new IllegalArgumentException("Period start date must not be after end date");
+        }
+
+        // Default the payment period to the month the pay period ends in
+        Integer month = request.getPaymentMonth() != null ? request.getPaymentMonth() : periodEnd.getMonthValue();
+        Integer year = request.getPaymentYear() != null ? request.getPaymentYear() : periodEnd.getYear();
+        log.info("Building payment draft for {}/{} from assignments {} to {} by {}",
+                month, year, periodStart, periodEnd, username);
+
+        List<WorkAssignment> assignments = workAssignmentRepository.findPayableAssignmentsInPeriod(periodStart, periodEnd);
+
+        // Resolve salaries for all involved employees from the salary timeline index
+        Set<String> employeeIds = assignments.stream()
+                .map(a -> a.getAssignedEmployee().getId())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, EmployeeSalary> salariesByEmployee = salaryTimelineIndex.findCurrentSalaries(employeeIds);
+
+        List<String> employeesWithoutSalary = assignments.stream()
+                .map(WorkAssignment::getAssignedEmployee)
+                .filter(e -> !salariesByEmployee.containsKey(e.getId()))
+                .map(Employee::getName)
+                .distinct()
+                .collect(Collectors.toList());
+        if (!employeesWithoutSalary.isEmpty()) {
+            throw new IllegalStateException("No active salary found for employees: " + String.join(", ", employeesWithoutSalary));
+        }
+
+        Payment payment = createDraftPayment(month, year, request.getRemarks(), username);
+
+        if (assignments.isEmpty()) {
+            log.info("No payable assignments found between {} and {}; created empty draft {}", periodStart, periodEnd, payment.getId());
+            return convertToDTOWithDetails(payment);
+        }
+
+        // Claim all assignments with a single conditional UPDATE; a short count means another draft got there first
+        List<String> assignmentIds = assignments.stream().map(WorkAssignment::getId).collect(Collectors.toList());
+        int claimed = workAssignmentRepository.includeInPaymentDraft(assignmentIds, payment.getId(), assignmentStamp());
+        if (claimed != assignmentIds.size()) {
+            // Rolls back the whole draft; @RetryOnConflict rebuilds it from the assignments that are still payable
+            throw new ConcurrencyConflictException(String.format(
+                    "%d of %d assignments were included in another payment while this draft was being built. Please retry.",
+                    assignmentIds.size() - claimed, assignmentIds.size()));
+        }
+
+        // Compute every line item in memory; inserts are flushed in JDBC batches (hibernate.jdbc.batch_size)
+        Map<String, PayrollCalculationService.PayrollRates> ratesByEmployee = salariesByEmployee.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> payrollCalculationService.ratesFor(e.getValue())));
+        for (WorkAssignment assignment : assignments) {
+            PayrollCalculationService.PayrollRates rates = ratesByEmployee.get(assignment.getAssignedEmployee().getId());
+            payment.addLineItem(buildLineItem(assignment, rates));
+        }
+        payment.recalculateTotalAmount();
+        Payment savedPayment = paymentRepository.save(payment);
+        publishAssignmentsChanged(assignments.stream().map(WorkAssignment::getAssignmentDate).collect(Collectors.toSet()));
+
+        createHistoryEntry(savedPayment, PaymentHistory.ChangeType.LINE_ITEM_ADDED, null, null, username,
+                String.format("Added %d assignments for %d employees from period %s to %s",
+                        assignments.size(), employeeIds.size(), periodStart, periodEnd));
+
+        // One aggregated audit entry instead of one per assignment
+        logAssignmentsAudit(savedPayment, assignmentIds, "Included in payment draft");
+
+        log.info("Payment draft {} built with {} line items for {} employees",
+                savedPayment.getId(), assignments.size(), employeeIds.size());
+        return convertToDTOWithDetails(savedPayment);
+    }
+
+    private Payment createDraftPayment(Integer month, Integer year, String remarks, String username) {
         // Validate month/year
-        if (request.getPaymentMonth() == null || request.getPaymentMonth() < 1 || request.getPaymentMonth() > 12) {
+        if (month == null || month < 1 || month > 12) {
             throw new IllegalArgumentException("Invalid payment month. Must be between 1 and 12");
         }
-        if (request.getPaymentYear() == null || request.getPaymentYear() < 2000) {
+        if (year == null || year < 2000) {
             throw new IllegalArgumentException("Invalid payment year");
         }
 
         // Check if draft already exists for this period
-        paymentRepository.findByPaymentMonthAndPaymentYearAndStatus(
-                request.getPaymentMonth(), 
-                request.getPaymentYear(), 
-                Payment.PaymentStatus.DRAFT
-        ).ifPresent(existing -> {
-            throw new DataIntegrityException(
-                    "A draft payment already exists for this period. Please edit the existing draft or create payment for a different period.");
-        });
+        paymentRepository.findByPaymentMonthAndPaymentYearAndStatus(month, year, Payment.PaymentStatus.DRAFT)
+                .ifPresent(existing -> {
+                    throw new DataIntegrityException(
+                            "A draft payment already exists for this period. Please edit the existing draft or create payment for a different period.");
+                });
 
         // Create payment
         Payment payment = new Payment();
-        payment.setPaymentMonth(request.getPaymentMonth());
-        payment.setPaymentYear(request.getPaymentYear());
+        payment.setPaymentMonth(month);
+        payment.setPaymentYear(year);
         payment.setStatus(Payment.PaymentStatus.DRAFT);
         payment.setTotalAmount(BigDecimal.ZERO);
-        payment.setRemarks(request.getRemarks());
-        payment.setPaymentTitle(generateDefaultPaymentTitle(request.getPaymentMonth(), request.getPaymentYear()));
+        payment.setRemarks(remarks);
+        payment.setPaymentTitle(generateDefaultPaymentTitle(month, year));
         payment.setCreatedBy(username);
 
         Payment savedPayment = paymentRepository.save(payment);
 
         // Create history entry
-        createHistoryEntry(savedPayment, PaymentHistory.ChangeType.CREATED, null, 
+        createHistoryEntry(savedPayment, PaymentHistory.ChangeType.CREATED, null,
                 Payment.PaymentStatus.DRAFT, username, "Payment draft created");
 
-        // If specific assignments provided, add them
-        if (request.getAssignmentIds() != null && !request.getAssignmentIds().isEmpty()) {
-            for (String assignmentId : request.getAssignmentIds()) {
-                addLineItemToPayment(savedPayment, assignmentId, username);
-            }
-            savedPayment.recalculateTotalAmount();
-            savedPayment = paymentRepository.save(savedPayment);
-        }
-
-        log.info("Payment draft created successfully: {}", savedPayment.getId());
-        return convertToDTOWithDetails(savedPayment);
+        return savedPayment;
     }
 
     @Transactional
+    @RetryOnConflict
     public PaymentDTO addLineItem(String paymentId, String assignmentId, String username) {
         log.debug("Adding line item to payment {}: assignment {}", paymentId, assignmentId);
 
@@ -162,9 +357,10 @@ public class PaymentService {
             throw new IllegalStateException("Can only add line items to draft payments");
         }
 
-        addLineItemToPayment(payment, assignmentId, username);
+        PaymentLineItem lineItem = addLineItemToPayment(payment, assignmentId, username);
         payment.recalculateTotalAmount();
         Payment savedPayment = paymentRepository.save(payment);
+        publishAssignmentsChanged(List.of(lineItem.getAssignmentDate()));
 
         createHistoryEntry(savedPayment, PaymentHistory.ChangeType.LINE_ITEM_ADDED, 
                 null, null, username, "Added assignment " + assignmentId);
@@ -173,9 +369,44 @@ public class PaymentService {
     }
 
     @Transactional
+    @RetryOnConflict
     public PaymentDTO addLineItemsBatch(String paymentId, List<String> assignmentIds, String username) {
         log.debug("Adding {} line items to payment {}", assignmentIds.size(), paymentId);
 
+        // Add all line items in a single transaction
+        Payment savedPayment = addLineItemsToDraft(paymentId, assignmentIds, username);
+
+        createHistoryEntry(savedPayment, PaymentHistory.ChangeType.LINE_ITEM_ADDED, 
+                null, null, username, "Added " + assignmentIds.size() + " assignments in batch");
+
+        log.info("Successfully added {} line items to payment {}", assignmentIds.size(), paymentId);
+        return convertToDTOWithDetails(savedPayment);
+    }
+
+    /**
+     * Add one chunk of a background batch add in its own transaction.
+     * A failing assignment rolls back only this chunk; history is recorded once by the job.
+     */
+    @Transactional
+    @RetryOnConflict
+    public int addLineItemsChunk(String paymentId, List<String> assignmentIds, String username) {
+        log.debug("Adding chunk of {} line items to payment {}", assignmentIds.size(), paymentId);
+        addLineItemsToDraft(paymentId, assignmentIds, username);
+        return assignmentIds.size();
+    }
+
+    /**
+     * Record the outcome of a background batch add in the payment history
+     */
+    @Transactional
+    public void recordLineItemsJobHistory(String paymentId, int added, int requested, String username, String outcome) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + paymentId));
+        createHistoryEntry(payment, PaymentHistory.ChangeType.LINE_ITEM_ADDED, null, null, username,
+                "Added " + added + " of " + requested + " assignments in background job (" + outcome + ")");
+    }
+
+    private Payment addLineItemsToDraft(String paymentId, List<String> assignmentIds, String username) {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + paymentId));
 
@@ -183,22 +414,18 @@ public class PaymentService {
             throw new IllegalStateException("Can only add line items to draft payments");
         }
 
-        // Add all line items in a single transaction
+        Set<LocalDate> assignmentDates = new LinkedHashSet<>();
         for (String assignmentId : assignmentIds) {
-            addLineItemToPayment(payment, assignmentId, username);
+            assignmentDates.add(addLineItemToPayment(payment, assignmentId, username).getAssignmentDate());
         }
-        
+
         payment.recalculateTotalAmount();
         Payment savedPayment = paymentRepository.save(payment);
-
-        createHistoryEntry(savedPayment, PaymentHistory.ChangeType.LINE_ITEM_ADDED, 
-                null, null, username, "Added " + assignmentIds.size() + " assignments in batch");
-
-        log.info("Successfully added {} line items to payment {}", assignmentIds.size(), paymentId);
-        return convertToDTOWithDetails(savedPayment);
+        publishAssignmentsChanged(assignmentDates);
+        return savedPayment;
     }
 
-    private void addLineItemToPayment(Payment payment, String assignmentId, String username) {
+    private PaymentLineItem addLineItemToPayment(Payment payment, String assignmentId, String username) {
         WorkAssignment assignment = workAssignmentRepository.findById(assignmentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Assignment not found with id: " + assignmentId));
 
@@ -220,72 +447,25 @@ public class PaymentService {
 
         // Get employee and activity
         Employee employee = assignment.getAssignedEmployee();
-        WorkActivity activity = assignment.getWorkActivity();
 
-        if (employee == null || activity == null) {
+        if (employee == null || assignment.getWorkActivity() == null) {
             throw new IllegalStateException("Assignment must have employee and activity assigned");
         }
 
         // Get active salary for calculation
-        EmployeeSalary activeSalary = employeeSalaryRepository.findCurrentSalaryByEmployeeId(employee.getId())
+        EmployeeSalary activeSalary = salaryTimelineIndex.findCurrentSalary(employee.getId())
                 .orElseThrow(() -> new IllegalStateException("No active salary found for employee: " + employee.getName()));
 
-        // Calculate payment amounts following the same logic as Payment Report
-        // Formula: Amount = (Daily Rate) × (Completion % / 100)
-        // Daily Rate is calculated based on salary type (DAILY/WEEKLY/MONTHLY)
-        
-        BigDecimal dailyRate = activeSalary.calculateDailyRate(); // Use the new method that handles all salary types
-        Integer completionPercentage = assignment.getCompletionPercentage() != null ? 
-                assignment.getCompletionPercentage() : 0;
-        BigDecimal completionRate = BigDecimal.valueOf(completionPercentage).divide(new BigDecimal("100"), 4, java.math.RoundingMode.HALF_UP);
-        
-        // Quantity = 1 (one day of work)
-        BigDecimal quantity = BigDecimal.ONE;
-        
-        // Rate = Daily Rate (base rate before applying completion percentage)
-        BigDecimal rate = dailyRate;
-        
-        // Amount = Daily Rate × Completion Rate
-        BigDecimal amount = dailyRate.multiply(completionRate).setScale(2, java.math.RoundingMode.HALF_UP);
-        
-        // Calculate PF breakdowns
-        BigDecimal employeePfPercentage = new BigDecimal("12.00"); // Mandatory 12%
-        BigDecimal voluntaryPfPercentage = activeSalary.getVoluntaryPfPercentage() != null ? 
-                activeSalary.getVoluntaryPfPercentage() : BigDecimal.ZERO;
-        BigDecimal employerPfPercentage = new BigDecimal("12.00"); // Employer contribution 12%
-        
-        // Employee PF deduction = Employee PF (12%) + Voluntary PF
-        BigDecimal employeePf = amount.multiply(employeePfPercentage).divide(new BigDecimal("100"), 2, java.math.RoundingMode.HALF_UP);
-        BigDecimal voluntaryPf = amount.multiply(voluntaryPfPercentage).divide(new BigDecimal("100"), 2, java.math.RoundingMode.HALF_UP);
-        BigDecimal pfAmount = employeePf.add(voluntaryPf);
-        
-        BigDecimal otherDeductions = BigDecimal.ZERO;
-        
-        // Net Amount = Amount - Employee PF - Voluntary PF
-        BigDecimal netAmount = amount.subtract(pfAmount).subtract(otherDeductions);
-
-        // Create line item
-        PaymentLineItem lineItem = new PaymentLineItem();
-        lineItem.setPayment(payment);
-        lineItem.setAssignment(assignment);
-        lineItem.setEmployee(employee);
-        lineItem.setWorkActivity(activity);
-        lineItem.setAssignmentDate(assignment.getAssignmentDate());
-        lineItem.setQuantity(quantity);
-        lineItem.setRate(rate);
-        lineItem.setAmount(amount);
-        lineItem.setEmployeePf(employeePf);
-        lineItem.setVoluntaryPf(voluntaryPf);
-        lineItem.setEmployerPf(amount.multiply(employerPfPercentage).divide(new BigDecimal("100"), 2, java.math.RoundingMode.HALF_UP));
-        lineItem.setPfAmount(pfAmount);
-        lineItem.setOtherDeductions(otherDeductions);
-        lineItem.setNetAmount(netAmount);
+        // Claim the assignment with a conditional UPDATE: the checks above read a snapshot, so two drafts
+        // can both pass them, but only one UPDATE can still match a payable row
+        int claimed = workAssignmentRepository.includeInPaymentDraft(
+                List.of(assignment.getId()), payment.getId(), assignmentStamp());
+        if (claimed == 0) {
+            throw new DataIntegrityException("Assignment " + assignmentId + " was included in another payment at the same time");
+        }
 
+        PaymentLineItem lineItem = buildLineItem(assignment, payrollCalculationService.ratesFor(activeSalary));
         payment.addLineItem(lineItem);
-
-        // Update assignment status
-        assignment.includeInPaymentDraft(payment.getId());
-        workAssignmentRepository.save(assignment);
         
         // Audit log for adding to payment
         auditLogService.logAudit(
@@ -294,9 +474,39 @@ public class PaymentService {
             assignment.getId(),
             assignment.getActivityName() + " - Added to payment draft " + payment.getReferenceNumber()
         );
+        return lineItem;
+    }
+
+    /**
+     * Compute a line item for one assignment.
+     * Formula: Amount = (Daily Rate) × (Completion % / 100), following the same logic as the Payment Report.
+     * Daily Rate is calculated based on salary type (DAILY/WEEKLY/MONTHLY).
+     */
+    private PaymentLineItem buildLineItem(WorkAssignment assignment, PayrollCalculationService.PayrollRates rates) {
+        // Quantity = 1 (one day of work) at the daily rate; amount and PF are scaled by the completion percentage
+        PayrollCalculationService.PayAmounts amounts =
+                payrollCalculationService.calculateLine(rates, assignment.getCompletionPercentage());
+
+        // Create line item
+        PaymentLineItem lineItem = new PaymentLineItem();
+        lineItem.setAssignment(assignment);
+        lineItem.setEmployee(assignment.getAssignedEmployee());
+        lineItem.setWorkActivity(assignment.getWorkActivity());
+        lineItem.setAssignmentDate(assignment.getAssignmentDate());
+        lineItem.setQuantity(BigDecimal.ONE);
+        lineItem.setRate(rates.getDailyRate());
+        lineItem.setAmount(amounts.getAmount());
+        lineItem.setEmployeePf(amounts.getEmployeePf());
+        lineItem.setVoluntaryPf(amounts.getVoluntaryPf());
+        lineItem.setEmployerPf(amounts.getEmployerPf());
+        lineItem.setPfAmount(amounts.getPfAmount());
+        lineItem.setOtherDeductions(BigDecimal.ZERO);
+        lineItem.setNetAmount(amounts.getNetAmount());
+        return lineItem;
     }
 
     @Transactional
+    @RetryOnConflict
     public PaymentDTO removeLineItem(String paymentId, String lineItemId, String username) {
         log.debug("Removing line item {} from payment {}", lineItemId, paymentId);
 
@@ -334,6 +544,7 @@ public class PaymentService {
 
         payment.recalculateTotalAmount();
         Payment savedPayment = paymentRepository.save(payment);
+        publishAssignmentsChanged(List.of(assignment.getAssignmentDate()));
 
         createHistoryEntry(savedPayment, PaymentHistory.ChangeType.LINE_ITEM_REMOVED,
                 null, null, username, "Removed line item for assignment " + assignment.getId());
@@ -344,6 +555,7 @@ public class PaymentService {
     // ==================== Workflow Methods ====================
 
     @Transactional
+    @RetryOnConflict
     public PaymentDTO submitForApproval(String paymentId, SubmitPaymentRequest request, String username) {
         log.info("Submitting payment {} for approval by {}", paymentId, username);
 
@@ -358,26 +570,11 @@ public class PaymentService {
             throw new IllegalStateException("Cannot submit payment without line items");
         }
 
-        // CRITICAL: Lock all assignments and capture snapshots
-        for (PaymentLineItem lineItem : payment.getLineItems()) {
-            WorkAssignment assignment = lineItem.getAssignment();
-            
-            // Lock assignment
-            assignment.lockForPaymentRequest(payment.getId());
-            workAssignmentRepository.save(assignment);
-
-            // Capture snapshot
-            captureLineItemSnapshot(lineItem);
-            paymentLineItemRepository.save(lineItem);
-            
-            // Audit log for assignment payment status change
-            auditLogService.logAudit(
-                AuditLog.OperationType.EDIT,
-                "WorkAssignment",
-                assignment.getId(),
-                assignment.getActivityName() + " - Payment submitted for approval (Reference: " + payment.getReferenceNumber() + ")"
-            );
-        }
+        // CRITICAL: Capture snapshots and lock all assignments
+        // Snapshot updates are flushed in JDBC batches and the lock is a single UPDATE, whatever the line count
+        List<String> assignmentIds = captureLineItemSnapshots(payment.getId());
+        int locked = workAssignmentRepository.lockForPaymentRequestByPaymentId(payment.getId(), assignmentStamp());
+        publishPaymentAssignmentsChanged(payment.getId());
 
         // Update payment status
         payment.recalculateTotalAmount();
@@ -394,13 +591,17 @@ public class PaymentService {
         // Create history entry
         createHistoryEntry(savedPayment, PaymentHistory.ChangeType.SUBMITTED,
                 Payment.PaymentStatus.DRAFT, Payment.PaymentStatus.PENDING_APPROVAL,
-                username, "Payment submitted for approval. " + payment.getLineItems().size() + " assignments locked.");
+                username, "Payment submitted for approval. " + locked + " assignments locked.");
+
+        logAssignmentsAudit(savedPayment, assignmentIds,
+                "Payment submitted for approval (Reference: " + savedPayment.getReferenceNumber() + ")");
 
-        log.info("Payment {} submitted successfully. {} assignments locked", paymentId, payment.getLineItems().size());
+        log.info("Payment {} submitted successfully. {} assignments locked", paymentId, locked);
         return convertToDTOWithDetails(savedPayment);
     }
 
     @Transactional
+    @RetryOnConflict
     public PaymentDTO approvePayment(String paymentId, ApprovePaymentRequest request, String username) {
         log.info("Approving payment {} by {}", paymentId, username);
 
@@ -416,32 +617,25 @@ public class PaymentService {
         payment.setApprovedBy(username);
         payment.setApprovedAt(LocalDateTime.now());
 
-        // Update assignment status
-        for (PaymentLineItem lineItem : payment.getLineItems()) {
-            WorkAssignment assignment = lineItem.getAssignment();
-            assignment.setPaymentStatus(WorkAssignment.PaymentStatus.APPROVED);
-            workAssignmentRepository.save(assignment);
-            
-            // Audit log for assignment payment approval
-            auditLogService.logAudit(
-                AuditLog.OperationType.EDIT,
-                "WorkAssignment",
-                assignment.getId(),
-                assignment.getActivityName() + " - Payment approved (Reference: " + payment.getReferenceNumber() + ")"
-            );
-        }
-
         Payment savedPayment = paymentRepository.save(payment);
 
+        // Update assignment status
+        int approved = workAssignmentRepository.approveByPaymentId(paymentId, assignmentStamp());
+        publishPaymentAssignmentsChanged(paymentId);
+
         createHistoryEntry(savedPayment, PaymentHistory.ChangeType.APPROVED,
                 Payment.PaymentStatus.PENDING_APPROVAL, Payment.PaymentStatus.APPROVED,
                 username, request.getRemarks());
 
-        log.info("Payment {} approved successfully", paymentId);
+        logAssignmentsAudit(savedPayment, paymentLineItemRepository.findAssignmentIdsByPaymentId(paymentId),
+                "Payment approved (Reference: " + savedPayment.getReferenceNumber() + ")");
+
+        log.info("Payment {} approved successfully. {} assignments approved", paymentId, approved);
         return convertToDTOWithDetails(savedPayment);
     }
 
     @Transactional
+    @RetryOnConflict
     public PaymentDTO recordPayment(String paymentId, RecordPaymentRequest request, String username) {
         log.info("Recording payment {} by {}", paymentId, username);
 
@@ -463,32 +657,27 @@ public class PaymentService {
         payment.setPaidBy(username);
         payment.setPaidAt(LocalDateTime.now());
 
+        Payment savedPayment = paymentRepository.save(payment);
+
         // Update assignment status to PAID
-        for (PaymentLineItem lineItem : payment.getLineItems()) {
-            WorkAssignment assignment = lineItem.getAssignment();
-            assignment.lockForPayment(payment.getId());
-            workAssignmentRepository.save(assignment);
-            
-            // Audit log for assignment payment completion
-            auditLogService.logAudit(
-                AuditLog.OperationType.EDIT,
-                "WorkAssignment",
-                assignment.getId(),
-                assignment.getActivityName() + " - Payment completed (Reference: " + request.getReferenceNumber() + ")"
-            );
-        }
+        int paid = workAssignmentRepository.lockForPaymentByPaymentId(paymentId, assignmentStamp());
+        publishPaymentAssignmentsChanged(paymentId);
 
-        Payment savedPayment = paymentRepository.save(payment);
+        employeeMonthPayrollService.addPaidPayment(savedPayment);
 
         createHistoryEntry(savedPayment, PaymentHistory.ChangeType.PAID,
                 Payment.PaymentStatus.APPROVED, Payment.PaymentStatus.PAID,
                 username, "Payment recorded. Reference: " + request.getReferenceNumber());
 
-        log.info("Payment {} recorded successfully", paymentId);
+        logAssignmentsAudit(savedPayment, paymentLineItemRepository.findAssignmentIdsByPaymentId(paymentId),
+                "Payment completed (Reference: " + request.getReferenceNumber() + ")");
+
+        log.info("Payment {} recorded successfully. {} assignments paid", paymentId, paid);
         return convertToDTOWithDetails(savedPayment);
     }
 
     @Transactional
+    @RetryOnConflict
     public PaymentDTO cancelPayment(String paymentId, CancelPaymentRequest request, String username) {
         log.info("Cancelling payment {} by {}", paymentId, username);
 
@@ -510,11 +699,8 @@ public class PaymentService {
         Payment.PaymentStatus previousStatus = payment.getStatus();
 
         // CRITICAL: Unlock all assignments
-        for (PaymentLineItem lineItem : payment.getLineItems()) {
-            WorkAssignment assignment = lineItem.getAssignment();
-            assignment.unlockFromCancelledPayment();
-            workAssignmentRepository.save(assignment);
-        }
+        int unlocked = workAssignmentRepository.unlockFromCancelledPaymentByPaymentId(paymentId, assignmentStamp());
+        publishPaymentAssignmentsChanged(paymentId);
 
         // Update payment status
         payment.setStatus(Payment.PaymentStatus.CANCELLED);
@@ -528,11 +714,15 @@ public class PaymentService {
                 previousStatus, Payment.PaymentStatus.CANCELLED,
                 username, "Reason: " + request.getCancellationReason());
 
-        log.info("Payment {} cancelled. {} assignments unlocked", paymentId, payment.getLineItems().size());
+        logAssignmentsAudit(savedPayment, paymentLineItemRepository.findAssignmentIdsByPaymentId(paymentId),
+                "Payment cancelled (Reason: " + request.getCancellationReason() + ")");
+
+        log.info("Payment {} cancelled. {} assignments unlocked", paymentId, unlocked);
         return convertToDTOWithDetails(savedPayment);
     }
 
     @Transactional
+    @RetryOnConflict
     public void deletePayment(String paymentId, String username) {
         log.info("Deleting payment {} by {}", paymentId, username);
 
@@ -544,17 +734,17 @@ public class PaymentService {
             throw new IllegalStateException("Only DRAFT payments can be deleted. Use cancel for other statuses.");
         }
 
-        // Unlock all assignments
-        for (PaymentLineItem lineItem : payment.getLineItems()) {
-            WorkAssignment assignment = lineItem.getAssignment();
-            assignment.unlockFromCancelledPayment();
-            workAssignmentRepository.save(assignment);
-        }
+        // Unlock all assignments (must run before the line items are deleted)
+        List<String> assignmentIds = paymentLineItemRepository.findAssignmentIdsByPaymentId(paymentId);
+        int unlocked = workAssignmentRepository.unlockFromCancelledPaymentByPaymentId(paymentId, assignmentStamp());
+        publishPaymentAssignmentsChanged(paymentId);
+
+        logAssignmentsAudit(payment, assignmentIds, "Payment draft deleted");
 
         // Delete the payment (cascade will handle line items, documents, and history)
         paymentRepository.delete(payment);
 
-        log.info("Payment {} deleted. {} assignments unlocked", paymentId, payment.getLineItems().size());
+        log.info("Payment {} deleted. {} assignments unlocked", paymentId, unlocked);
     }
 
     // ==================== Document Management ====================
@@ -575,12 +765,18 @@ public class PaymentService {
             throw new IllegalArgumentException("File size must not exceed 10MB");
         }
 
+        // Stream the upload into the document store; only metadata is persisted
+        DocumentStore.StoredContent stored;
+        try (InputStream content = file.getInputStream()) {
+            stored = documentStore.store(content);
+        }
+
         PaymentDocument document = new PaymentDocument();
         document.setPayment(payment);
         document.setFileName(file.getOriginalFilename());
         document.setFileType(file.getContentType());
-        document.setFileSize(file.getSize());
-        document.setFileData(file.getBytes());
+        document.setFileSize(stored.getSize());
+        document.setContentHash(stored.getContentHash());
         document.setDocumentType(documentType);
         document.setDescription(description);
         document.setUploadedBy(username);
@@ -597,7 +793,7 @@ public class PaymentService {
     }
 
     @Transactional(readOnly = true)
-    public byte[] downloadDocument(String paymentId, String documentId) {
+    public PaymentDocumentContent downloadDocument(String paymentId, String documentId) {
         log.debug("Downloading document {} from payment {}", documentId, paymentId);
 
         PaymentDocument document = paymentDocumentRepository.findById(documentId)
@@ -607,7 +803,18 @@ public class PaymentService {
             throw new IllegalStateException("Document does not belong to this payment");
         }
 
-        return document.getFileData();
+        // Documents uploaded before the document store existed are served from the database until migrated
+        if (document.getContentHash() == null) {
+            return documentMigrationService.readLegacyDocument(document)
+                    .orElseThrow(() -> new ResourceNotFoundException("Document content not found with id: " + documentId));
+        }
+
+        return new PaymentDocumentContent(
+                document.getFileName(),
+                document.getFileType(),
+                document.getFileSize(),
+                document.getContentHash(),
+                documentStore.load(document.getContentHash()));
     }
 
     // ==================== History ====================
@@ -626,15 +833,40 @@ public class PaymentService {
 
     // ==================== Helper Methods ====================
 
-    private void captureLineItemSnapshot(PaymentLineItem lineItem) {
+    /**
+     * Capture snapshots for every line item of a payment.
+     * Line items are loaded with one query and salaries and criteria come from the in-memory indexes;
+     * the dirty line items are then written by Hibernate in JDBC batches at flush time.
+     * The criteria captured are the ones valid on each assignment's date, which it was evaluated against.
+     *
+     * @return the ids of the assignments covered by the payment
+     */
+    private List<String> captureLineItemSnapshots(String paymentId) {
+        List<PaymentLineItem> lineItems = paymentLineItemRepository.findByPaymentIdWithAssignment(paymentId);
+
+        Set<String> employeeIds = lineItems.stream()
+                .map(li -> li.getEmployee().getId())
+                .collect(Collectors.toSet());
+        Map<String, EmployeeSalary> salariesByEmployee = salaryTimelineIndex.findCurrentSalaries(employeeIds);
+        LocalDate today = LocalDate.now();
+
+        for (PaymentLineItem lineItem : lineItems) {
+            LocalDate assignmentDate = lineItem.getAssignmentDate() != null ? lineItem.getAssignmentDate() : today;
+            captureLineItemSnapshot(lineItem,
+                    salariesByEmployee.get(lineItem.getEmployee().getId()),
+                    completionCriteriaIndex.findCriteriaOnDate(lineItem.getWorkActivity().getId(), assignmentDate).orElse(null));
+        }
+
+        return lineItems.stream()
+                .map(li -> li.getAssignment().getId())
+                .collect(Collectors.toList());
+    }
+
+    private void captureLineItemSnapshot(PaymentLineItem lineItem, EmployeeSalary activeSalary,
+                                         WorkActivityCompletionCriteria criteria) {
         // Capture basic snapshot from assignment/employee/activity
         lineItem.captureSnapshot();
 
-        // Get active salary
-        EmployeeSalary activeSalary = employeeSalaryRepository
-                .findCurrentSalaryByEmployeeId(lineItem.getEmployee().getId())
-                .orElse(null);
-
         if (activeSalary != null) {
             // EmployeeSalary uses 'amount' field and 'voluntaryPfPercentage'
             // Note: For snapshot, we store base amount, no DA field in EmployeeSalary
@@ -647,11 +879,6 @@ public class PaymentService {
             );
         }
 
-        // Get active completion criteria
-        WorkActivityCompletionCriteria criteria = completionCriteriaRepository
-                .findActiveByWorkActivityId(lineItem.getWorkActivity().getId())
-                .orElse(null);
-
         if (criteria != null) {
             // WorkActivityCompletionCriteria uses 'unit' and 'value' fields
             lineItem.captureCriteriaSnapshot(
@@ -663,6 +890,49 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Let cached reports covering these assignment dates go once the transaction commits
+     */
+    private void publishAssignmentsChanged(Collection<LocalDate> assignmentDates) {
+        eventPublisher.publishEvent(new AssignmentsChangedEvent("Payment", assignmentDates));
+    }
+
+    private void publishPaymentAssignmentsChanged(String paymentId) {
+        publishAssignmentsChanged(paymentLineItemRepository.findAssignmentDatesByPaymentId(paymentId));
+    }
+
+    /**
+     * Write one aggregated audit record for a workflow transition that touched every assignment of a payment
+     */
+    private void logAssignmentsAudit(Payment payment, List<String> assignmentIds, String action) {
+        auditLogService.logAuditWithChanges(
+            AuditLog.OperationType.EDIT,
+            "Payment",
+            payment.getId(),
+            payment.getPaymentTitle() + " - " + action + " for " + assignmentIds.size() + " assignments",
+            null,
+            Map.of("assignmentIds", assignmentIds)
+        );
+    }
+
+    private void assertPaymentExists(String paymentId) {
+        if (!paymentRepository.existsById(paymentId)) {
+            throw new ResourceNotFoundException("Payment not found with id: " + paymentId);
+        }
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private LocalDate parseCursorDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor date: " + value);
+        }
+    }
+
     private void createHistoryEntry(Payment payment, PaymentHistory.ChangeType changeType,
                                    Payment.PaymentStatus previousStatus, Payment.PaymentStatus newStatus,
                                    String changedBy, String remarks) {
@@ -792,6 +1062,7 @@ public class PaymentService {
         dto.setDescription(document.getDescription());
         dto.setUploadedBy(document.getUploadedBy());
         dto.setUploadedAt(document.getUploadedAt());
+        dto.setContentHash(document.getContentHash());
         return dto;
     }
 
@@ -811,6 +1082,12 @@ public class PaymentService {
         return dto;
     }
 
+    // updatedAt for the bulk UPDATEs of work_assignments, which bypass SyncStampListener
+    private LocalDateTime assignmentStamp() {
+        syncService.rowsStamped();
+        return LocalDateTime.now();
+    }
+
     /**
      * Generate a default payment title based on month and year
      * Format: "Payments for Week ending DD-DD MMM YYYY"
@@ -0,0 +1,233 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.SalaryConfiguration;
+import com.sarlatea.crm.model.EmployeeSalary;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Single payroll calculation engine used by payments and reports.
+ *
+ * All arithmetic is done on longs in fixed-point units, and every rounding step is HALF_UP:
+ * - money is held in paise (1/100 rupee)
+ * - daily rates are held in 1/10000 rupee, the scale produced by EmployeeSalary.calculateDailyRate()
+ * - percentages are held in 1/100 percent (12.00% = 1200)
+ *
+ * Rounding rules (these reproduce the BigDecimal code they replace exactly):
+ * - line amount = daily rate x completion% / 100, rounded to paise per line
+ * - PF (employee, voluntary, employer) = amount x PF% / 100, rounded to paise
+ * - pf amount = employee PF + voluntary PF; net = amount - pf amount
+ * - a period gross is the exact sum of the unrounded line amounts, rounded to paise once
+ *   (so it can differ by a few paise from the sum of the rounded line amounts)
+ */
+@Service
+@RequiredArgsConstructor
+public class PayrollCalculationService {
+
+    private static final long DAILY_RATE_UNITS_PER_PAISA = 100;
+    private static final long PERCENT_BASIS = 100 * 100; // hundredths of a percent in 100%
+
+    private final SalaryConfiguration salaryConfiguration;
+
+    /**
+     * Resolve the fixed-point rates of a salary once, so they can be applied to any number of assignments
+     */
+    public PayrollRates ratesFor(EmployeeSalary salary) {
+        BigDecimal dailyRate = salary.calculateDailyRate();
+        BigDecimal voluntaryPfPercentage = salary.getVoluntaryPfPercentage() != null ?
+                salary.getVoluntaryPfPercentage() : BigDecimal.ZERO;
+        return new PayrollRates(
+                dailyRate,
+                toFixedPoint(dailyRate, 4),
+                toFixedPoint(salaryConfiguration.getEmployeePfPercentage(), 2),
+                toFixedPoint(voluntaryPfPercentage, 2),
+                toFixedPoint(salaryConfiguration.getEmployerPfPercentage(), 2),
+                voluntaryPfPercentage);
+    }
+
+    /**
+     * Calculate a single assignment line (one day of work at the given completion percentage)
+     */
+    public PayAmounts calculateLine(PayrollRates rates, Integer completionPercentage) {
+        long amount = divideHalfUp(lineAmountMicros(rates, completionPercentage), DAILY_RATE_UNITS_PER_PAISA * 100);
+        return applyPf(rates, amount);
+    }
+
+    /**
+     * Calculate every line of a period for one salary in a single pass.
+     * Results are written to primitive arrays; BigDecimals are only created when a caller reads them.
+     */
+    public PayrollBatch calculateBatch(PayrollRates rates, int[] completionPercentages) {
+        int size = completionPercentages.length;
+        PayrollBatch batch = new PayrollBatch(size);
+        long grossMicros = 0;
+        for (int i = 0; i < size; i++) {
+            long micros = rates.dailyRateUnits * completionPercentages[i];
+            grossMicros += micros;
+            long amount = divideHalfUp(micros, DAILY_RATE_UNITS_PER_PAISA * 100);
+            batch.amount[i] = amount;
+            batch.employeePf[i] = percentOf(amount, rates.employeePfBasisPoints);
+            batch.voluntaryPf[i] = percentOf(amount, rates.voluntaryPfBasisPoints);
+            batch.employerPf[i] = percentOf(amount, rates.employerPfBasisPoints);
+        }
+        batch.grossPaise = divideHalfUp(grossMicros, DAILY_RATE_UNITS_PER_PAISA * 100);
+        return batch;
+    }
+
+    /**
+     * Apply PF to an amount that is already in paise, e.g. a period gross from calculateBatch
+     */
+    public PayAmounts applyPf(PayrollRates rates, long amountPaise) {
+        long employeePf = percentOf(amountPaise, rates.employeePfBasisPoints);
+        long voluntaryPf = percentOf(amountPaise, rates.voluntaryPfBasisPoints);
+        long employerPf = percentOf(amountPaise, rates.employerPfBasisPoints);
+        return new PayAmounts(amountPaise, employeePf, voluntaryPf, employerPf);
+    }
+
+    /**
+     * Convert paise to a rupee amount with scale 2
+     */
+    public static BigDecimal toRupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    private static long lineAmountMicros(PayrollRates rates, Integer completionPercentage) {
+        return rates.dailyRateUnits * (completionPercentage != null ? completionPercentage : 0);
+    }
+
+    private static long percentOf(long amountPaise, long basisPoints) {
+        return divideHalfUp(amountPaise * basisPoints, PERCENT_BASIS);
+    }
+
+    /**
+     * Integer division rounding half away from zero (BigDecimal HALF_UP)
+     */
+    static long divideHalfUp(long numerator, long divisor) {
+        long magnitude = (Math.abs(numerator) + divisor / 2) / divisor;
+        return numerator < 0 ? -magnitude : magnitude;
+    }
+
+    private static long toFixedPoint(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Fixed-point rates of one salary record
+     */
+    @Getter
+    public static final class PayrollRates {
+        private final BigDecimal dailyRate;
+        private final long dailyRateUnits;
+        private final long employeePfBasisPoints;
+        private final long voluntaryPfBasisPoints;
+        private final long employerPfBasisPoints;
+        private final BigDecimal voluntaryPfPercentage;
+
+        PayrollRates(BigDecimal dailyRate, long dailyRateUnits, long employeePfBasisPoints,
+                     long voluntaryPfBasisPoints, long employerPfBasisPoints, BigDecimal voluntaryPfPercentage) {
+            this.dailyRate = dailyRate;
+            this.dailyRateUnits = dailyRateUnits;
+            this.employeePfBasisPoints = employeePfBasisPoints;
+            this.voluntaryPfBasisPoints = voluntaryPfBasisPoints;
+            this.employerPfBasisPoints = employerPfBasisPoints;
+            this.voluntaryPfPercentage = voluntaryPfPercentage;
+        }
+    }
+
+    /**
+     * Amount and PF breakdown in paise
+     */
+    @Getter
+    public static final class PayAmounts {
+        private final long amountPaise;
+        private final long employeePfPaise;
+        private final long voluntaryPfPaise;
+        private final long employerPfPaise;
+
+        PayAmounts(long amountPaise, long employeePfPaise, long voluntaryPfPaise, long employerPfPaise) {
+            this.amountPaise = amountPaise;
+            this.employeePfPaise = employeePfPaise;
+            this.voluntaryPfPaise = voluntaryPfPaise;
+            this.employerPfPaise = employerPfPaise;
+        }
+
+        public long getPfAmountPaise() {
+            return employeePfPaise + voluntaryPfPaise;
+        }
+
+        public long getNetAmountPaise() {
+            return amountPaise - getPfAmountPaise();
+        }
+
+        public BigDecimal getAmount() {
+            return toRupees(amountPaise);
+        }
+
+        public BigDecimal getEmployeePf() {
+            return toRupees(employeePfPaise);
+        }
+
+        public BigDecimal getVoluntaryPf() {
+            return toRupees(voluntaryPfPaise);
+        }
+
+        public BigDecimal getEmployerPf() {
+            return toRupees(employerPfPaise);
+        }
+
+        public BigDecimal getPfAmount() {
+            return toRupees(getPfAmountPaise());
+        }
+
+        public BigDecimal getNetAmount() {
+            return toRupees(getNetAmountPaise());
+        }
+    }
+
+    /**
+     * Line results of a batch as parallel arrays in paise, plus the period gross
+     */
+    public static final class PayrollBatch {
+        private final long[] amount;
+        private final long[] employeePf;
+        private final long[] voluntaryPf;
+        private final long[] employerPf;
+        @Getter
+        private long grossPaise;
+
+        PayrollBatch(int size) {
+            this.amount = new long[size];
+            this.employeePf = new long[size];
+            this.voluntaryPf = new long[size];
+            this.employerPf = new long[size];
+        }
+
+        public int size() {
+            return amount.length;
+        }
+
+        public long amountPaise(int line) {
+            return amount[line];
+        }
+
+        public long employeePfPaise(int line) {
+            return employeePf[line];
+        }
+
+        public long voluntaryPfPaise(int line) {
+            return voluntaryPf[line];
+        }
+
+        public long employerPfPaise(int line) {
+            return employerPf[line];
+        }
+
+        public long netAmountPaise(int line) {
+            return amount[line] - employeePf[line] - voluntaryPf[line];
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.ReportCacheConfiguration;
+import com.sarlatea.crm.dto.ReportCacheStatsDTO;
+import com.sarlatea.crm.event.AssignmentsChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Caches generated reports by report type and date range.
+ *
+ * Entries are weighed by the number of rows they hold and kept in a least-recently-used map
+ * bounded by total weight. When assignments change, only the cached ranges containing one of
+ * the changed assignment dates are dropped, after the change has committed. A report that was
+ * being generated while an overlapping change committed is returned but not cached, since it
+ * may have read the old data.
+ */
+@Service
+@Slf4j
+public class ReportCacheService {
+
+    public enum ReportType {
+        UPCOMING_ASSIGNMENTS,
+        PAYMENTS
+    }
+
+    // Recent invalidations remembered for loads that are still running
+    private static final int INVALIDATION_LOG_SIZE = 256;
+
+    private final ReportCacheConfiguration reportCacheConfiguration;
+    private final Map<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<Invalidation> recentInvalidations = new ArrayDeque<>();
+    private long invalidationSequence;
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong discardedLoads = new AtomicLong();
+
+    public ReportCacheService(ReportCacheConfiguration reportCacheConfiguration) {
+        this.reportCacheConfiguration = reportCacheConfiguration;
+    }
+
+    /**
+     * Return the cached report for the range, or generate and cache it
+     *
+     * @param weigher number of rows in a generated report, used to bound the cache size
+     */
+    public <T> T get(ReportType type, LocalDate startDate, LocalDate endDate,
+                     Supplier<T> loader, ToIntFunction<T> weigher) {
+        if (!reportCacheConfiguration.isEnabled()) {
+            return loader.get();
+        }
+
+        CacheKey key = new CacheKey(type, startDate, endDate);
+        long sequenceAtLoad;
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && entry.expiresAt.isAfter(LocalDateTime.now())) {
+                hits.incrementAndGet();
+                @SuppressWarnings("unchecked")
+                T report = (T) entry.report;
+                return report;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            sequenceAtLoad = invalidationSequence;
+        }
+
+        misses.incrementAndGet();
+        T report = loader.get();
+        long weight = 1L + Math.max(0, weigher.applyAsInt(report));
+
+        synchronized (entries) {
+            if (invalidatedSince(sequenceAtLoad, startDate, endDate)) {
+                discardedLoads.incrementAndGet();
+                log.debug("Not caching {} report {} to {}: assignments in range changed while it was generated",
+                        type, startDate, endDate);
+                return report;
+            }
+            if (weight > reportCacheConfiguration.getMaxWeight()) {
+                return report;
+            }
+            remove(key);
+            entries.put(key, new CacheEntry(report, weight,
+                    LocalDateTime.now().plus(reportCacheConfiguration.getTtl())));
+            totalWeight += weight;
+            evictToMaxWeight();
+        }
+        return report;
+    }
+
+    /**
+     * Drop cached reports whose range contains one of the changed assignment dates.
+     * Runs once the publishing transaction has committed (or immediately outside a transaction).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        if (event.isEmpty()) {
+            return;
+        }
+        int removed = 0;
+        synchronized (entries) {
+            invalidationSequence++;
+            recentInvalidations.addLast(new Invalidation(invalidationSequence, event));
+            if (recentInvalidations.size() > INVALIDATION_LOG_SIZE) {
+                recentInvalidations.removeFirst();
+            }
+
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+                if (entry.getKey().overlaps(event)) {
+                    totalWeight -= entry.getValue().weight;
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            invalidations.addAndGet(removed);
+            log.debug("{} change to {} assignment dates invalidated {} cached reports",
+                    event.getSource(), event.getAssignmentDates().size(), removed);
+        }
+    }
+
+    public ReportCacheStatsDTO getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long requests = hitCount + missCount;
+        synchronized (entries) {
+            return new ReportCacheStatsDTO(
+                    reportCacheConfiguration.isEnabled(),
+                    hitCount,
+                    missCount,
+                    requests > 0 ? (double) hitCount / requests : 0.0,
+                    evictions.get(),
+                    invalidations.get(),
+                    discardedLoads.get(),
+                    entries.size(),
+                    totalWeight,
+                    reportCacheConfiguration.getMaxWeight());
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            totalWeight = 0;
+            // Loads already running must not cache what they read before the clear
+            invalidationSequence++;
+            recentInvalidations.clear();
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private boolean invalidatedSince(long sequence, LocalDate startDate, LocalDate endDate) {
+        if (sequence == invalidationSequence) {
+            return false;
+        }
+        // The log no longer reaches back to when the load started: assume the worst
+        if (recentInvalidations.isEmpty() || recentInvalidations.peekFirst().sequence > sequence + 1) {
+            return true;
+        }
+        for (Invalidation invalidation : recentInvalidations) {
+            if (invalidation.sequence > sequence && containsAny(startDate, endDate, invalidation.event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(CacheKey key) {
+        CacheEntry removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    private void evictToMaxWeight() {
+        Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (totalWeight > reportCacheConfiguration.getMaxWeight() && iterator.hasNext()) {
+            totalWeight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static boolean containsAny(LocalDate startDate, LocalDate endDate, AssignmentsChangedEvent event) {
+        for (LocalDate date : event.getAssignmentDates()) {
+            if (!date.isBefore(startDate) && !date.isAfter(endDate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class CacheKey {
+        private final ReportType type;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+
+        private CacheKey(ReportType type, LocalDate startDate, LocalDate endDate) {
+            this.type = type;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        private boolean overlaps(AssignmentsChangedEvent event) {
+            return containsAny(startDate, endDate, event);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey other)) {
+                return false;
+            }
+            return type == other.type && startDate.equals(other.startDate) && endDate.equals(other.endDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, startDate, endDate);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final Object report;
+        private final long weight;
+        private final LocalDateTime expiresAt;
+
+        private CacheEntry(Object report, long weight, LocalDateTime expiresAt) {
+            this.report = report;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Invalidation {
+        private final long sequence;
+        private final AssignmentsChangedEvent event;
+
+        private Invalidation(long sequence, AssignmentsChangedEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+}
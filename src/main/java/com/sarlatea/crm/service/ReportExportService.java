@@ -0,0 +1,273 @@
+package com.sarlatea.crm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sarlatea.crm.dto.AssignmentAuditReportDTO;
+import com.sarlatea.crm.dto.PaymentReportDTO;
+import com.sarlatea.crm.dto.UpcomingAssignmentsReportDTO;
+import com.sarlatea.crm.model.Employee;
+import com.sarlatea.crm.model.EmployeeSalary;
+import com.sarlatea.crm.model.WorkAssignment;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Streaming CSV / NDJSON exports of the assignment, payment and evaluation reports.
+ *
+ * Assignments are scrolled from the database and written as they arrive; each one is detached
+ * from the persistence context once written, so memory stays flat however long the range is.
+ * The payment export folds consecutive rows of the same employee and holds only that employee's
+ * assignments at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportExportService {
+
+    private static final String UPCOMING_CSV_HEADER =
+            "assignment_id,activity_name,assignment_date,status,employee_id,employee_name";
+    private static final String PAYMENT_CSV_HEADER = "employee_id,employee_name,base_salary,currency," +
+            "total_assignments,completed_assignments,total_actual_hours,average_completion_percentage," +
+            "calculated_payment,employee_pf,voluntary_pf,employer_pf,net_payment,total_cost_to_employer";
+    private static final String AUDIT_CSV_HEADER = "assignment_id,activity_name,employee_name,assignment_date," +
+            "assigned_at,first_evaluated_at,last_evaluated_at,evaluation_count,min_eval_time_minutes," +
+            "max_eval_time_minutes,status,completion_percentage,actual_value,deleted";
+
+    private final WorkAssignmentRepository workAssignmentRepository;
+    private final SalaryTimelineIndex salaryTimelineIndex;
+    private final ReportService reportService;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public enum ExportFormat {
+        CSV("csv", "text/csv"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String fileExtension;
+        private final String contentType;
+
+        ExportFormat(String fileExtension, String contentType) {
+            this.fileExtension = fileExtension;
+            this.contentType = contentType;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static ExportFormat fromParameter(String format) {
+            if (format == null || format.isBlank() || "csv".equalsIgnoreCase(format)) {
+                return CSV;
+            }
+            if ("ndjson".equalsIgnoreCase(format) || "jsonl".equalsIgnoreCase(format)) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + format + " (expected csv or ndjson)");
+        }
+    }
+
+    /**
+     * Checked on the request thread, before any bytes are written, so a bad range gets a normal error response
+     */
+    public void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("Start date and end date are required");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+    }
+
+    public String getExportFileName(String report, LocalDate startDate, LocalDate endDate, ExportFormat format) {
+        return report + "-" + startDate + "-to-" + endDate + "." + format.getFileExtension();
+    }
+
+    // ==================== Exports ====================
+
+    /**
+     * One row per assignment of the range. Like the other exports, runs in its own read-only
+     * transaction because it is called from the async thread of a streaming response.
+     */
+    @Transactional(readOnly = true)
+    public void writeUpcomingAssignments(LocalDate startDate, LocalDate endDate, ExportFormat format,
+                                         OutputStream outputStream) throws IOException {
+        log.info("Exporting upcoming assignments report from {} to {} as {}", startDate, endDate, format);
+        long start = System.currentTimeMillis();
+
+        Writer writer = newWriter(outputStream);
+        writeHeader(writer, format, UPCOMING_CSV_HEADER);
+        int rows = 0;
+        try (Stream<WorkAssignment> assignments = workAssignmentRepository.streamByAssignmentDateRange(startDate, endDate)) {
+            Iterator<WorkAssignment> iterator = assignments.iterator();
+            while (iterator.hasNext()) {
+                WorkAssignment assignment = iterator.next();
+                UpcomingAssignmentsReportDTO.AssignmentSummary summary = reportService.convertToAssignmentSummary(assignment);
+                entityManager.detach(assignment);
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, summary.getAssignmentId(), summary.getActivityName(), summary.getAssignmentDate(),
+                            summary.getStatus(), summary.getAssignedEmployeeId(), summary.getAssignedEmployeeName());
+                } else {
+                    writeJsonRow(writer, summary);
+                }
+                rows++;
+            }
+        }
+        writer.flush();
+
+        log.info("Exported {} assignments from {} to {} in {} ms", rows, startDate, endDate, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * One row per employee with completed assignments in the range, calculated exactly as in the
+     * payment report. NDJSON rows also carry the employee's assignment details.
+     */
+    @Transactional(readOnly = true)
+    public void writePaymentReport(LocalDate startDate, LocalDate endDate, ExportFormat format,
+                                   OutputStream outputStream) throws IOException {
+        log.info("Exporting payment report from {} to {} as {}", startDate, endDate, format);
+        long start = System.currentTimeMillis();
+
+        Writer writer = newWriter(outputStream);
+        writeHeader(writer, format, PAYMENT_CSV_HEADER);
+        int rows = 0;
+        try (Stream<WorkAssignment> assignments = workAssignmentRepository.streamCompletedWithEmployeeByDateRange(startDate, endDate)) {
+            Iterator<WorkAssignment> iterator = assignments.iterator();
+            List<WorkAssignment> employeeAssignments = new ArrayList<>();
+            WorkAssignment pending = iterator.hasNext() ? iterator.next() : null;
+            while (pending != null) {
+                // Rows are ordered by employee, so each employee's assignments arrive together
+                Employee employee = pending.getAssignedEmployee();
+                employeeAssignments.clear();
+                do {
+                    employeeAssignments.add(pending);
+                    pending = iterator.hasNext() ? iterator.next() : null;
+                } while (pending != null && Objects.equals(pending.getAssignedEmployee().getId(), employee.getId()));
+
+                PaymentReportDTO.EmployeePaymentSummary summary = reportService.calculateEmployeePayment(
+                        employee, salaryTimelineIndex.findSalaryOnDate(employee.getId(), endDate).orElse(null),
+                        employeeAssignments, endDate);
+                employeeAssignments.forEach(entityManager::detach);
+                entityManager.detach(employee);
+
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, summary.getEmployeeId(), summary.getEmployeeName(), summary.getBaseSalary(),
+                            summary.getCurrency(), summary.getTotalAssignments(), summary.getCompletedAssignments(),
+                            summary.getTotalActualHours(), summary.getAverageCompletionPercentage(),
+                            summary.getCalculatedPayment(), summary.getEmployeePfContribution(),
+                            summary.getVoluntaryPfContribution(), summary.getEmployerPfContribution(),
+                            summary.getNetPayment(), summary.getTotalCostToEmployer());
+                } else {
+                    writeJsonRow(writer, summary);
+                }
+                rows++;
+            }
+        }
+        writer.flush();
+
+        log.info("Exported payment report for {} employees from {} to {} in {} ms",
+                rows, startDate, endDate, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * One row per evaluated assignment of the range, deleted ones included
+     */
+    @Transactional(readOnly = true)
+    public void writeAssignmentAudit(LocalDate startDate, LocalDate endDate, ExportFormat format,
+                                     OutputStream outputStream) throws IOException {
+        log.info("Exporting assignment evaluation report from {} to {} as {}", startDate, endDate, format);
+        long start = System.currentTimeMillis();
+
+        Writer writer = newWriter(outputStream);
+        writeHeader(writer, format, AUDIT_CSV_HEADER);
+        int rows = 0;
+        try (Stream<WorkAssignment> assignments = workAssignmentRepository.streamEvaluatedAssignmentsByDateRange(startDate, endDate)) {
+            Iterator<WorkAssignment> iterator = assignments.iterator();
+            while (iterator.hasNext()) {
+                WorkAssignment assignment = iterator.next();
+                AssignmentAuditReportDTO.AssignmentAuditDetail detail = reportService.convertToAuditDetail(assignment);
+                entityManager.detach(assignment);
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, detail.getAssignmentId(), detail.getActivityName(), detail.getEmployeeName(),
+                            detail.getAssignmentDate(), detail.getAssignedAt(), detail.getFirstEvaluatedAt(),
+                            detail.getLastEvaluatedAt(), detail.getEvaluationCount(), detail.getMinEvalTimeMinutes(),
+                            detail.getMaxEvalTimeMinutes(), detail.getStatus(), detail.getCompletionPercentage(),
+                            detail.getActualValue(), detail.getDeleted());
+                } else {
+                    writeJsonRow(writer, detail);
+                }
+                rows++;
+            }
+        }
+        writer.flush();
+
+        log.info("Exported {} evaluated assignments from {} to {} in {} ms",
+                rows, startDate, endDate, System.currentTimeMillis() - start);
+    }
+
+    // ==================== Helpers ====================
+
+    private static Writer newWriter(OutputStream outputStream) {
+        return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    private static void writeHeader(Writer writer, ExportFormat format, String csvHeader) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writer.write(csvHeader);
+            writer.write("\r\n");
+        }
+        // Send the first bytes right away so clients see the download start
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value instanceof BigDecimal amount) {
+                writer.write(amount.toPlainString());
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writer.write(value.toString());
+            } else {
+                writer.write(PaymentExportService.csvField(value != null ? value.toString() : null));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeJsonRow(Writer writer, Object row) throws IOException {
+        try {
+            writer.write(objectMapper.writeValueAsString(row));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize export row " + row.getClass().getSimpleName(), e);
+        }
+        writer.write('\n');
+    }
+}
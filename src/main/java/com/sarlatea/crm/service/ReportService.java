@@ -5,14 +5,15 @@ import com.sarlatea.crm.dto.AssignmentAuditReportDTO;
 import com.sarlatea.crm.dto.PaymentReportDTO;
 import com.sarlatea.crm.dto.PfReportDTO;
 import com.sarlatea.crm.dto.PfReportRequestDTO;
+import com.sarlatea.crm.dto.PfReportRowDTO;
 import com.sarlatea.crm.dto.UpcomingAssignmentsReportDTO;
 import com.sarlatea.crm.model.Employee;
+import com.sarlatea.crm.model.EmployeeMonthPayroll;
 import com.sarlatea.crm.model.EmployeeSalary;
 import com.sarlatea.crm.model.Payment;
-import com.sarlatea.crm.model.PaymentLineItem;
 import com.sarlatea.crm.model.WorkAssignment;
-import com.sarlatea.crm.repository.EmployeeRepository;
-import com.sarlatea.crm.repository.EmployeeSalaryRepository;
+import com.sarlatea.crm.repository.EmployeeMonthPayrollRepository;
+import com.sarlatea.crm.repository.PaymentLineItemRepository;
 import com.sarlatea.crm.repository.PaymentRepository;
 import com.sarlatea.crm.repository.WorkAssignmentRepository;
 import lombok.RequiredArgsConstructor;
@@ -21,7 +22,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.format.TextStyle;
 import java.util.ArrayList;
@@ -40,10 +40,12 @@ import java.util.stream.Collectors;
 public class ReportService {
 
     private final WorkAssignmentRepository workAssignmentRepository;
-    private final EmployeeSalaryRepository salaryRepository;
-    private final EmployeeRepository employeeRepository;
+    private final SalaryTimelineIndex salaryTimelineIndex;
+    private final EmployeeMonthPayrollRepository employeeMonthPayrollRepository;
     private final PaymentRepository paymentRepository;
+    private final PaymentLineItemRepository paymentLineItemRepository;
     private final SalaryConfiguration salaryConfiguration;
+    private final PayrollCalculationService payrollCalculationService;
 
     @Transactional(readOnly = true)
     public UpcomingAssignmentsReportDTO generateUpcomingAssignmentsReport(
@@ -88,23 +90,22 @@ public class ReportService {
         
         log.info("Generating payment report from {} to {}", startDate, endDate);
 
-        // Get all non-deleted completed assignments in the period
-        // Only completed (evaluated) assignments are considered for payment
-        // Assignments are already sorted by employee name from the database
+        // Completed (evaluated) assignments of the period with their employees in one query,
+        // already sorted by employee name so grouping preserves alphabetical order
         List<WorkAssignment> assignments = workAssignmentRepository
-                .findByAssignmentDateBetweenAndDeletedFalse(startDate, endDate).stream()
-                .filter(a -> a.getAssignmentStatus() == WorkAssignment.AssignmentStatus.COMPLETED)
-                .collect(Collectors.toList());
+                .findCompletedWithEmployeeByDateRange(startDate, endDate);
 
-        // Group assignments by employee - using LinkedHashMap to preserve alphabetical order from database
         Map<String, List<WorkAssignment>> assignmentsByEmployee = assignments.stream()
-                .filter(a -> a.getAssignedEmployee() != null)
                 .collect(Collectors.groupingBy(
                     a -> a.getAssignedEmployee().getId(),
-                    java.util.LinkedHashMap::new,
+                    LinkedHashMap::new,
                     Collectors.toList()
                 ));
 
+        // Salaries on the period end date for all of these employees, from the salary timeline index
+        Map<String, EmployeeSalary> salariesByEmployee =
+                salaryTimelineIndex.findSalariesOnDate(assignmentsByEmployee.keySet(), endDate);
+
         PaymentReportDTO report = new PaymentReportDTO();
         report.setReportGeneratedDate(LocalDate.now());
         report.setPeriodStartDate(startDate);
@@ -119,11 +120,11 @@ public class ReportService {
         BigDecimal totalEmployerPf = BigDecimal.ZERO;
 
         for (Map.Entry<String, List<WorkAssignment>> entry : assignmentsByEmployee.entrySet()) {
-            String employeeId = entry.getKey();
             List<WorkAssignment> employeeAssignments = entry.getValue();
+            Employee employee = employeeAssignments.get(0).getAssignedEmployee();
 
-            PaymentReportDTO.EmployeePaymentSummary summary = 
-                    calculateEmployeePayment(employeeId, employeeAssignments, startDate, endDate);
+            PaymentReportDTO.EmployeePaymentSummary summary = calculateEmployeePayment(
+                    employee, salariesByEmployee.get(entry.getKey()), employeeAssignments, endDate);
             
             employeePayments.add(summary);
             totalPayment = totalPayment.add(summary.getNetPayment());
@@ -145,26 +146,13 @@ public class ReportService {
         return report;
     }
 
-    private PaymentReportDTO.EmployeePaymentSummary calculateEmployeePayment(
-            String employeeId, List<WorkAssignment> assignments, 
-            LocalDate periodStart, LocalDate periodEnd) {
-
-        if (employeeId == null) {
-            log.warn("Employee ID is null");
-            return createEmptyPaymentSummary("unknown");
-        }
-
-        Employee employee = employeeRepository.findById(employeeId).orElse(null);
-        if (employee == null) {
-            log.warn("Employee not found: {}", employeeId);
-            return createEmptyPaymentSummary(employeeId);
-        }
-
-        // Get employee's salary (use salary on period end date)
-        EmployeeSalary salary = salaryRepository
-                .findSalaryForEmployeeOnDate(employeeId, periodEnd)
-                .orElse(null);
+    /**
+     * Payment summary of one employee for a period; also used row by row by the streaming export
+     */
+    public PaymentReportDTO.EmployeePaymentSummary calculateEmployeePayment(
+            Employee employee, EmployeeSalary salary, List<WorkAssignment> assignments, LocalDate periodEnd) {
 
+        String employeeId = employee.getId();
         if (salary == null) {
             log.warn("No salary found for employee {} on date {}", employeeId, periodEnd);
             return createEmptyPaymentSummary(employeeId, employee.getName());
@@ -197,106 +185,51 @@ public class ReportService {
                 .orElse(0.0);
         summary.setAverageCompletionPercentage(avgCompletion);
 
-        // Calculate payment based on salary type and completion
-        BigDecimal calculatedPayment = calculatePaymentAmount(salary, assignments, periodStart, periodEnd);
-        summary.setCalculatedPayment(calculatedPayment);
-
-        // Calculate PF (Provident Fund) fields proportional to calculated payment
-        BigDecimal employeePfPercentage = salaryConfiguration.getEmployeePfPercentage(); // 12%
-        BigDecimal employerPfPercentage = salaryConfiguration.getEmployerPfPercentage(); // 12%
-        BigDecimal voluntaryPfPercentage = salary.getVoluntaryPfPercentage() != null ? 
-            salary.getVoluntaryPfPercentage() : BigDecimal.ZERO;
-        
-        // Calculate three separate PF contributions based on calculated payment
-        // 1. Employee PF: 12% mandatory (deducted from payment)
-        BigDecimal employeePfContribution = calculatedPayment
-                .multiply(employeePfPercentage)
-                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-        
-        // 2. Voluntary PF: X% additional (also deducted from payment)
-        BigDecimal voluntaryPfContribution = calculatedPayment
-                .multiply(voluntaryPfPercentage)
-                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-        
-        // 3. Employer PF: 12% (paid by employer, NOT deducted from employee payment)
-        BigDecimal employerPfContribution = calculatedPayment
-                .multiply(employerPfPercentage)
-                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-        
-        summary.setVoluntaryPfPercentage(voluntaryPfPercentage);
-        summary.setEmployeePfContribution(employeePfContribution);
-        summary.setVoluntaryPfContribution(voluntaryPfContribution);
-        summary.setEmployerPfContribution(employerPfContribution);
+        // Calculate every assignment line and the period gross in one fixed-point pass
+        PayrollCalculationService.PayrollRates rates = payrollCalculationService.ratesFor(salary);
+        int[] completionPercentages = assignments.stream()
+                .mapToInt(a -> a.getCompletionPercentage() != null ? a.getCompletionPercentage() : 0)
+                .toArray();
+        PayrollCalculationService.PayrollBatch batch = payrollCalculationService.calculateBatch(rates, completionPercentages);
+
+        // PF (Provident Fund) fields are calculated on the period gross:
+        // employee PF (mandatory) and voluntary PF are deducted from the payment,
+        // employer PF is paid by the employer on top of it
+        PayrollCalculationService.PayAmounts totals = payrollCalculationService.applyPf(rates, batch.getGrossPaise());
+        BigDecimal employeePfPercentage = salaryConfiguration.getEmployeePfPercentage();
+        BigDecimal employerPfPercentage = salaryConfiguration.getEmployerPfPercentage();
+
+        summary.setCalculatedPayment(totals.getAmount());
+        summary.setVoluntaryPfPercentage(rates.getVoluntaryPfPercentage());
+        summary.setEmployeePfContribution(totals.getEmployeePf());
+        summary.setVoluntaryPfContribution(totals.getVoluntaryPf());
+        summary.setEmployerPfContribution(totals.getEmployerPf());
         summary.setBaseSalary(salary.getAmount());
-        
-        // Net payment = calculated payment - employee PF (12%) - voluntary PF (X%)
-        BigDecimal netPayment = calculatedPayment
-                .subtract(employeePfContribution)
-                .subtract(voluntaryPfContribution);
-        summary.setNetPayment(netPayment);
-        
+
+        // Net payment = calculated payment - employee PF - voluntary PF
+        summary.setNetPayment(totals.getNetAmount());
+
         // Total cost to employer = calculated payment + employer PF
-        BigDecimal totalCostToEmployer = calculatedPayment.add(employerPfContribution);
-        summary.setTotalCostToEmployer(totalCostToEmployer);
+        summary.setTotalCostToEmployer(PayrollCalculationService.toRupees(
+                totals.getAmountPaise() + totals.getEmployerPfPaise()));
 
         // Add assignment details
-        List<PaymentReportDTO.AssignmentDetail> details = assignments.stream()
-                .map(a -> createAssignmentDetail(a, salary))
-                .collect(Collectors.toList());
+        List<PaymentReportDTO.AssignmentDetail> details = new ArrayList<>(assignments.size());
+        for (int i = 0; i < assignments.size(); i++) {
+            details.add(createAssignmentDetail(assignments.get(i), batch.amountPaise(i)));
+        }
         summary.setAssignments(details);
 
         summary.setPaymentNotes(String.format(
                 "Based on base salary of %s %s. Average completion: %d%%. PF: Employee %.2f%%, Employer %.2f%%",
                 salary.getAmount(), salary.getCurrency(), avgCompletion,
-                employeePfPercentage.add(salary.getVoluntaryPfPercentage()), employerPfPercentage
+                employeePfPercentage.add(rates.getVoluntaryPfPercentage()), employerPfPercentage
         ));
 
         return summary;
     }
 
-    private BigDecimal calculatePaymentAmount(EmployeeSalary salary, List<WorkAssignment> assignments,
-                                               LocalDate periodStart, LocalDate periodEnd) {
-        
-        // Use the salary object's daily rate calculation which handles DAILY/WEEKLY/MONTHLY types
-        BigDecimal dailyRate = salary.calculateDailyRate();
-        
-        // Calculate payment based on actual assignments and their completion percentage
-        BigDecimal totalPayment = BigDecimal.ZERO;
-        
-        for (WorkAssignment assignment : assignments) {
-            double completionRate = (assignment.getCompletionPercentage() != null 
-                    ? assignment.getCompletionPercentage() : 0) / 100.0;
-            
-            // Each assignment = 1 day of work × completion rate
-            BigDecimal assignmentPayment = dailyRate.multiply(BigDecimal.valueOf(completionRate));
-            totalPayment = totalPayment.add(assignmentPayment);
-        }
-
-        return totalPayment.setScale(2, RoundingMode.HALF_UP);
-    }
-
-    private BigDecimal calculateProportionalPayment(BigDecimal baseSalary, List<WorkAssignment> assignments,
-                                                     LocalDate periodStart, LocalDate periodEnd) {
-        // This method will be deprecated - we now get salary object and use calculateDailyRate()
-        // Calculate daily rate (assuming 30 days per month as standard for MONTHLY salary)
-        BigDecimal dailyRate = baseSalary.divide(BigDecimal.valueOf(30), 4, RoundingMode.HALF_UP);
-        
-        // Calculate payment based on actual assignments and their completion percentage
-        BigDecimal totalPayment = BigDecimal.ZERO;
-        
-        for (WorkAssignment assignment : assignments) {
-            double completionRate = (assignment.getCompletionPercentage() != null 
-                    ? assignment.getCompletionPercentage() : 0) / 100.0;
-            
-            // Each assignment = 1 day of work × completion rate
-            BigDecimal assignmentPayment = dailyRate.multiply(BigDecimal.valueOf(completionRate));
-            totalPayment = totalPayment.add(assignmentPayment);
-        }
-
-        return totalPayment.setScale(2, RoundingMode.HALF_UP);
-    }
-
-    private PaymentReportDTO.AssignmentDetail createAssignmentDetail(WorkAssignment assignment, EmployeeSalary salary) {
+    private PaymentReportDTO.AssignmentDetail createAssignmentDetail(WorkAssignment assignment, long contributionPaise) {
         PaymentReportDTO.AssignmentDetail detail = new PaymentReportDTO.AssignmentDetail();
         detail.setAssignmentId(assignment.getId());
         detail.setActivityName(assignment.getActivityName());
@@ -304,18 +237,14 @@ public class ReportService {
         detail.setEstimatedHours(8.0);  // Default to 8 hours per assignment
         detail.setActualHours(assignment.getActualDurationHours());
         detail.setCompletionPercentage(assignment.getCompletionPercentage() != null ? assignment.getCompletionPercentage() : 0);
-        
-        // Calculate contribution using the salary type-aware daily rate
-        double completionRate = (assignment.getCompletionPercentage() != null ? assignment.getCompletionPercentage() : 0) / 100.0;
-        BigDecimal dailyRate = salary.calculateDailyRate(); // Use salary type-aware calculation
-        BigDecimal contribution = dailyRate.multiply(BigDecimal.valueOf(completionRate))
-                .setScale(2, RoundingMode.HALF_UP);
-        detail.setContributionToPayment(contribution);
-        
+        detail.setContributionToPayment(PayrollCalculationService.toRupees(contributionPaise));
         return detail;
     }
 
-    private UpcomingAssignmentsReportDTO.AssignmentSummary convertToAssignmentSummary(WorkAssignment assignment) {
+    /**
+     * Upcoming assignments report row; also used by the streaming export
+     */
+    public UpcomingAssignmentsReportDTO.AssignmentSummary convertToAssignmentSummary(WorkAssignment assignment) {
         UpcomingAssignmentsReportDTO.AssignmentSummary summary = new UpcomingAssignmentsReportDTO.AssignmentSummary();
         summary.setAssignmentId(assignment.getId());
         summary.setActivityName(assignment.getActivityName());
@@ -326,15 +255,16 @@ public class ReportService {
         return summary;
     }
 
-    private PaymentReportDTO.EmployeePaymentSummary createEmptyPaymentSummary(String employeeId) {
-        return createEmptyPaymentSummary(employeeId, "Unknown");
-    }
-
     private PaymentReportDTO.EmployeePaymentSummary createEmptyPaymentSummary(String employeeId, String employeeName) {
         PaymentReportDTO.EmployeePaymentSummary summary = new PaymentReportDTO.EmployeePaymentSummary();
         summary.setEmployeeId(employeeId);
         summary.setEmployeeName(employeeName);
         summary.setCalculatedPayment(BigDecimal.ZERO);
+        // Zero PF and net amounts so the report totals can still be summed
+        summary.setEmployeePfContribution(BigDecimal.ZERO);
+        summary.setVoluntaryPfContribution(BigDecimal.ZERO);
+        summary.setEmployerPfContribution(BigDecimal.ZERO);
+        summary.setNetPayment(BigDecimal.ZERO);
         summary.setTotalAssignments(0);
         summary.setCompletedAssignments(0);
         summary.setAssignments(new ArrayList<>());
@@ -381,7 +311,10 @@ public class ReportService {
         return report;
     }
 
-    private AssignmentAuditReportDTO.AssignmentAuditDetail convertToAuditDetail(WorkAssignment assignment) {
+    /**
+     * Evaluation report row; also used by the streaming export
+     */
+    public AssignmentAuditReportDTO.AssignmentAuditDetail convertToAuditDetail(WorkAssignment assignment) {
         AssignmentAuditReportDTO.AssignmentAuditDetail detail = new AssignmentAuditReportDTO.AssignmentAuditDetail();
         detail.setAssignmentId(assignment.getId());
         detail.setActivityName(assignment.getActivityName());
@@ -432,48 +365,9 @@ public class ReportService {
             throw new IllegalArgumentException("Invalid month. Must be between 1 and 12");
         }
 
-        // Find all PAID payments for the given month/year
-        List<Payment> allPayments = paymentRepository.findAll();
-        log.info("Total payments in database: {}", allPayments.size());
-        
-        List<Payment> paidPayments = allPayments.stream()
-                .filter(p -> {
-                    log.debug("Payment {}: status={}, month={}, year={}", 
-                            p.getId().substring(0, 8), p.getStatus(), p.getPaymentMonth(), p.getPaymentYear());
-                    return p.getStatus() == Payment.PaymentStatus.PAID;
-                })
-                .filter(p -> {
-                    boolean monthMatch = p.getPaymentMonth() != null && p.getPaymentMonth().equals(request.getMonth());
-                    if (!monthMatch) {
-                        log.debug("Payment {} month mismatch: {} != {}", 
-                                p.getId().substring(0, 8), p.getPaymentMonth(), request.getMonth());
-                    }
-                    return monthMatch;
-                })
-                .filter(p -> {
-                    boolean yearMatch = p.getPaymentYear() != null && p.getPaymentYear().equals(request.getYear());
-                    if (!yearMatch) {
-                        log.debug("Payment {} year mismatch: {} != {}", 
-                                p.getId().substring(0, 8), p.getPaymentYear(), request.getYear());
-                    }
-                    return yearMatch;
-                })
-                .collect(Collectors.toList());
-
-        log.info("Found {} paid payments for {}/{}", paidPayments.size(), request.getMonth(), request.getYear());
-
-        // Group payments by employee
-        Map<String, List<Payment>> paymentsByEmployee = new LinkedHashMap<>();
-        
-        for (Payment payment : paidPayments) {
-            for (PaymentLineItem lineItem : payment.getLineItems()) {
-                String employeeId = lineItem.getEmployee().getId();
-                paymentsByEmployee.computeIfAbsent(employeeId, k -> new ArrayList<>());
-                if (!paymentsByEmployee.get(employeeId).contains(payment)) {
-                    paymentsByEmployee.get(employeeId).add(payment);
-                }
-            }
-        }
+        // Employee totals come from the employee-month payroll aggregate: one row per employee
+        List<EmployeeMonthPayroll> employeeMonths = employeeMonthPayrollRepository
+                .findMonthWithEmployees(request.getYear(), request.getMonth());
 
         // Build report
         PfReportDTO report = new PfReportDTO();
@@ -482,12 +376,11 @@ public class ReportService {
         report.setMonthName(java.time.Month.of(request.getMonth())
                 .getDisplayName(TextStyle.FULL, Locale.ENGLISH));
 
-        List<PfReportDTO.EmployeePfSummary> employeeSummaries = new ArrayList<>();
+        Map<String, PfReportDTO.EmployeePfSummary> summariesByEmployee = new LinkedHashMap<>();
 
         // Initialize report totals
         PfReportDTO.PfReportTotals reportTotals = new PfReportDTO.PfReportTotals();
-        reportTotals.setTotalEmployees(paymentsByEmployee.size());
-        reportTotals.setTotalPayments(0); // Will be summed from employee totals
+        reportTotals.setTotalPayments(0); // Distinct payments, counted below
         reportTotals.setTotalGrossAmount(BigDecimal.ZERO);
         reportTotals.setTotalEmployeePf(BigDecimal.ZERO);
         reportTotals.setTotalVoluntaryPf(BigDecimal.ZERO);
@@ -496,94 +389,12 @@ public class ReportService {
         reportTotals.setTotalNetAmount(BigDecimal.ZERO);
         reportTotals.setTotalAssignments(0);
 
-        // Process each employee
-        for (Map.Entry<String, List<Payment>> entry : paymentsByEmployee.entrySet()) {
-            String employeeId = entry.getKey();
-            List<Payment> employeePayments = entry.getValue();
-
-            Employee employee = employeeRepository.findById(employeeId).orElse(null);
-            if (employee == null) continue;
-
-            // Get employee's PF account details (from latest salary record)
-            EmployeeSalary latestSalary = salaryRepository.findCurrentSalaryByEmployeeId(employeeId).orElse(null);
-
-            PfReportDTO.EmployeePfSummary employeeSummary = new PfReportDTO.EmployeePfSummary();
-            employeeSummary.setEmployeeId(employeeId);
-            employeeSummary.setEmployeeName(employee.getName());
-            employeeSummary.setEmployeeCode(employeeId.substring(0, Math.min(8, employeeId.length()))); // Use shortened ID as code
-            employeeSummary.setPhoneNumber(employee.getPhone());
-            employeeSummary.setPfAccountId(employee.getPfAccountId() != null ? employee.getPfAccountId() : "N/A");
-
-            List<PfReportDTO.PaymentDetail> paymentDetails = new ArrayList<>();
-
-            // Initialize employee totals
-            PfReportDTO.EmployeePfTotals employeeTotals = new PfReportDTO.EmployeePfTotals();
-            employeeTotals.setTotalPayments(0);
-            employeeTotals.setTotalAssignments(0);
-            employeeTotals.setTotalGrossAmount(BigDecimal.ZERO);
-            employeeTotals.setTotalEmployeePf(BigDecimal.ZERO);
-            employeeTotals.setTotalVoluntaryPf(BigDecimal.ZERO);
-            employeeTotals.setTotalEmployerPf(BigDecimal.ZERO);
-            employeeTotals.setTotalPfDeduction(BigDecimal.ZERO);
-            employeeTotals.setTotalNetAmount(BigDecimal.ZERO);
-
-            // Process each payment for this employee
-            for (Payment payment : employeePayments) {
-                // Filter line items for this employee only
-                List<PaymentLineItem> employeeLineItems = payment.getLineItems().stream()
-                        .filter(li -> li.getEmployee().getId().equals(employeeId))
-                        .collect(Collectors.toList());
-
-                if (employeeLineItems.isEmpty()) continue;
-
-                // Calculate totals for this payment (for this employee)
-                BigDecimal grossAmount = BigDecimal.ZERO;
-                BigDecimal employeePf = BigDecimal.ZERO;
-                BigDecimal voluntaryPf = BigDecimal.ZERO;
-                BigDecimal employerPf = BigDecimal.ZERO;
-                BigDecimal netAmount = BigDecimal.ZERO;
-
-                for (PaymentLineItem item : employeeLineItems) {
-                    grossAmount = grossAmount.add(item.getAmount() != null ? item.getAmount() : BigDecimal.ZERO);
-                    employeePf = employeePf.add(item.getEmployeePf() != null ? item.getEmployeePf() : BigDecimal.ZERO);
-                    voluntaryPf = voluntaryPf.add(item.getVoluntaryPf() != null ? item.getVoluntaryPf() : BigDecimal.ZERO);
-                    employerPf = employerPf.add(item.getEmployerPf() != null ? item.getEmployerPf() : BigDecimal.ZERO);
-                    netAmount = netAmount.add(item.getNetAmount() != null ? item.getNetAmount() : BigDecimal.ZERO);
-                }
-
-                BigDecimal totalPf = employeePf.add(voluntaryPf);
-
-                PfReportDTO.PaymentDetail detail = new PfReportDTO.PaymentDetail();
-                detail.setPaymentId(payment.getId());
-                detail.setPaymentDate(payment.getPaidAt() != null ? payment.getPaidAt().toString() : "-");
-                detail.setReferenceNumber(payment.getReferenceNumber() != null ? payment.getReferenceNumber() : "-");
-                detail.setGrossAmount(grossAmount);
-                detail.setEmployeePf(employeePf);
-                detail.setVoluntaryPf(voluntaryPf);
-                detail.setEmployerPf(employerPf);
-                detail.setTotalPf(totalPf);
-                detail.setNetAmount(netAmount);
-                detail.setAssignmentCount(employeeLineItems.size());
-
-                paymentDetails.add(detail);
-
-                // Update employee totals
-                employeeTotals.setTotalPayments(employeeTotals.getTotalPayments() + 1);
-                employeeTotals.setTotalAssignments(employeeTotals.getTotalAssignments() + employeeLineItems.size());
-                employeeTotals.setTotalGrossAmount(employeeTotals.getTotalGrossAmount().add(grossAmount));
-                employeeTotals.setTotalEmployeePf(employeeTotals.getTotalEmployeePf().add(employeePf));
-                employeeTotals.setTotalVoluntaryPf(employeeTotals.getTotalVoluntaryPf().add(voluntaryPf));
-                employeeTotals.setTotalEmployerPf(employeeTotals.getTotalEmployerPf().add(employerPf));
-                employeeTotals.setTotalPfDeduction(employeeTotals.getTotalPfDeduction().add(totalPf));
-                employeeTotals.setTotalNetAmount(employeeTotals.getTotalNetAmount().add(netAmount));
-            }
-
-            employeeSummary.setPayments(paymentDetails);
-            employeeSummary.setTotals(employeeTotals);
-            employeeSummaries.add(employeeSummary);
+        for (EmployeeMonthPayroll employeeMonth : employeeMonths) {
+            PfReportDTO.EmployeePfSummary employeeSummary = createPfEmployeeSummary(employeeMonth);
+            summariesByEmployee.put(employeeMonth.getEmployeeId(), employeeSummary);
 
             // Update report totals
-            reportTotals.setTotalPayments(reportTotals.getTotalPayments() + employeeTotals.getTotalPayments());
+            PfReportDTO.EmployeePfTotals employeeTotals = employeeSummary.getTotals();
             reportTotals.setTotalAssignments(reportTotals.getTotalAssignments() + employeeTotals.getTotalAssignments());
             reportTotals.setTotalGrossAmount(reportTotals.getTotalGrossAmount().add(employeeTotals.getTotalGrossAmount()));
             reportTotals.setTotalEmployeePf(reportTotals.getTotalEmployeePf().add(employeeTotals.getTotalEmployeePf()));
@@ -592,15 +403,81 @@ public class ReportService {
             reportTotals.setTotalPfDeduction(reportTotals.getTotalPfDeduction().add(employeeTotals.getTotalPfDeduction()));
             reportTotals.setTotalNetAmount(reportTotals.getTotalNetAmount().add(employeeTotals.getTotalNetAmount()));
         }
+        reportTotals.setTotalEmployees(summariesByEmployee.size());
+        if (!summariesByEmployee.isEmpty()) {
+            // A payment usually covers several employees, so the per-employee counts cannot simply be added up
+            reportTotals.setTotalPayments((int) paymentRepository.countByStatusAndPaymentYearAndPaymentMonth(
+                    Payment.PaymentStatus.PAID, request.getYear(), request.getMonth()));
+        }
+
+        // Per-payment breakdown (summed per employee and payment in the database), only when asked for:
+        // it scans the month's line items, which the totals above no longer need
+        if (Boolean.TRUE.equals(request.getIncludePaymentDetails()) && !summariesByEmployee.isEmpty()) {
+            for (PfReportRowDTO row : paymentLineItemRepository.findPfReportRows(request.getYear(), request.getMonth())) {
+                PfReportDTO.EmployeePfSummary employeeSummary = summariesByEmployee.get(row.getEmployeeId());
+                if (employeeSummary == null) {
+                    log.warn("Employee {} has paid line items in {}/{} but no employee month payroll row; rebuild the aggregate",
+                            row.getEmployeeId(), request.getMonth(), request.getYear());
+                    continue;
+                }
+                employeeSummary.getPayments().add(createPfPaymentDetail(row));
+            }
+        }
 
-        report.setEmployees(employeeSummaries);
+        report.setEmployees(new ArrayList<>(summariesByEmployee.values()));
         report.setTotals(reportTotals);
 
-        log.info("PF report generated for {} employees with {} total payments", 
-                employeeSummaries.size(), reportTotals.getTotalPayments());
+        log.info("PF report generated for {} employees with {} total payments",
+                summariesByEmployee.size(), reportTotals.getTotalPayments());
 
         return report;
     }
+
+    private PfReportDTO.EmployeePfSummary createPfEmployeeSummary(EmployeeMonthPayroll employeeMonth) {
+        Employee employee = employeeMonth.getEmployee();
+        String employeeId = employeeMonth.getEmployeeId();
+        PfReportDTO.EmployeePfSummary employeeSummary = new PfReportDTO.EmployeePfSummary();
+        employeeSummary.setEmployeeId(employeeId);
+        employeeSummary.setEmployeeName(employee.getName());
+        employeeSummary.setEmployeeCode(employeeId.substring(0, Math.min(8, employeeId.length()))); // Use shortened ID as code
+        employeeSummary.setPhoneNumber(employee.getPhone());
+        employeeSummary.setPfAccountId(employee.getPfAccountId() != null ? employee.getPfAccountId() : "N/A");
+        employeeSummary.setPayments(new ArrayList<>());
+
+        PfReportDTO.EmployeePfTotals employeeTotals = new PfReportDTO.EmployeePfTotals();
+        employeeTotals.setTotalPayments(employeeMonth.getPaymentCount());
+        employeeTotals.setTotalAssignments(employeeMonth.getAssignmentCount());
+        employeeTotals.setTotalGrossAmount(employeeMonth.getGrossAmount());
+        employeeTotals.setTotalEmployeePf(employeeMonth.getEmployeePf());
+        employeeTotals.setTotalVoluntaryPf(employeeMonth.getVoluntaryPf());
+        employeeTotals.setTotalEmployerPf(employeeMonth.getEmployerPf());
+        employeeTotals.setTotalPfDeduction(employeeMonth.getEmployeePf().add(employeeMonth.getVoluntaryPf()));
+        employeeTotals.setTotalNetAmount(employeeMonth.getNetAmount());
+        employeeSummary.setTotals(employeeTotals);
+        return employeeSummary;
+    }
+
+    private PfReportDTO.PaymentDetail createPfPaymentDetail(PfReportRowDTO row) {
+        BigDecimal employeePf = orZero(row.getEmployeePf());
+        BigDecimal voluntaryPf = orZero(row.getVoluntaryPf());
+
+        PfReportDTO.PaymentDetail detail = new PfReportDTO.PaymentDetail();
+        detail.setPaymentId(row.getPaymentId());
+        detail.setPaymentDate(row.getPaidAt() != null ? row.getPaidAt().toString() : "-");
+        detail.setReferenceNumber(row.getReferenceNumber() != null ? row.getReferenceNumber() : "-");
+        detail.setGrossAmount(orZero(row.getGrossAmount()));
+        detail.setEmployeePf(employeePf);
+        detail.setVoluntaryPf(voluntaryPf);
+        detail.setEmployerPf(orZero(row.getEmployerPf()));
+        detail.setTotalPf(employeePf.add(voluntaryPf));
+        detail.setNetAmount(orZero(row.getNetAmount()));
+        detail.setAssignmentCount(row.getLineItemCount().intValue());
+        return detail;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
     
     /**
      * Debug method to get all payments for diagnostic purposes
@@ -0,0 +1,341 @@
+package com.sarlatea.crm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sarlatea.crm.config.ReportPrecomputeConfiguration;
+import com.sarlatea.crm.dto.PaymentReportDTO;
+import com.sarlatea.crm.dto.UpcomingAssignmentsReportDTO;
+import com.sarlatea.crm.event.AssignmentsChangedEvent;
+import com.sarlatea.crm.model.ReportSnapshot;
+import com.sarlatea.crm.repository.ReportSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Precomputed snapshots of the rolling report windows behind the dashboard shortcuts.
+ *
+ * Every window is regenerated just after midnight, when the windows roll over, and stored as
+ * JSON so a restarted instance can serve it at once. Requests are always answered from the
+ * snapshot: when assignments inside a window change, the snapshot is marked stale and is still
+ * served while a background worker regenerates it (stale-while-revalidate), either on the next
+ * request or once writes to the window have been quiet for a while. Salary, PF rate and employee
+ * edits publish no events, so a snapshot older than the configured max age is treated as stale too.
+ */
+@Service
+@Slf4j
+public class ReportSnapshotService {
+
+    public enum ReportWindow {
+        NEXT_WEEK(UpcomingAssignmentsReportDTO.class),
+        NEXT_MONTH(UpcomingAssignmentsReportDTO.class),
+        CURRENT_MONTH(PaymentReportDTO.class),
+        LAST_MONTH(PaymentReportDTO.class),
+        LAST_WEEK(PaymentReportDTO.class);
+
+        private final Class<?> reportType;
+
+        ReportWindow(Class<?> reportType) {
+            this.reportType = reportType;
+        }
+
+        public Class<?> getReportType() {
+            return reportType;
+        }
+
+        public LocalDate getStartDate(LocalDate today) {
+            return switch (this) {
+                case NEXT_WEEK, NEXT_MONTH -> today;
+                case CURRENT_MONTH -> today.withDayOfMonth(1);
+                case LAST_MONTH -> today.minusMonths(1).withDayOfMonth(1);
+                case LAST_WEEK -> today.minusWeeks(1);
+            };
+        }
+
+        public LocalDate getEndDate(LocalDate today) {
+            return switch (this) {
+                case NEXT_WEEK -> today.plusWeeks(1);
+                case NEXT_MONTH -> today.plusMonths(1);
+                case CURRENT_MONTH -> today.withDayOfMonth(today.lengthOfMonth());
+                case LAST_MONTH -> today.minusMonths(1).withDayOfMonth(today.minusMonths(1).lengthOfMonth());
+                case LAST_WEEK -> today;
+            };
+        }
+    }
+
+    /**
+     * A report as served, with the time it was generated
+     */
+    public static final class SnapshotReport<T> {
+        private final T report;
+        private final LocalDateTime generatedAt;
+        private final boolean stale;
+
+        private SnapshotReport(T report, LocalDateTime generatedAt, boolean stale) {
+            this.report = report;
+            this.generatedAt = generatedAt;
+            this.stale = stale;
+        }
+
+        public T getReport() {
+            return report;
+        }
+
+        public LocalDateTime getGeneratedAt() {
+            return generatedAt;
+        }
+
+        public boolean isStale() {
+            return stale;
+        }
+    }
+
+    private final ReportService reportService;
+    private final ReportSnapshotRepository reportSnapshotRepository;
+    private final ReportPrecomputeConfiguration reportPrecomputeConfiguration;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor reportRefreshExecutor;
+    private final Map<ReportWindow, WindowState> windows = new EnumMap<>(ReportWindow.class);
+
+    public ReportSnapshotService(ReportService reportService,
+                                 ReportSnapshotRepository reportSnapshotRepository,
+                                 ReportPrecomputeConfiguration reportPrecomputeConfiguration,
+                                 ObjectMapper objectMapper,
+                                 @Qualifier("reportRefreshExecutor") TaskExecutor reportRefreshExecutor) {
+        this.reportService = reportService;
+        this.reportSnapshotRepository = reportSnapshotRepository;
+        this.reportPrecomputeConfiguration = reportPrecomputeConfiguration;
+        this.objectMapper = objectMapper;
+        this.reportRefreshExecutor = reportRefreshExecutor;
+        for (ReportWindow window : ReportWindow.values()) {
+            windows.put(window, new WindowState());
+        }
+    }
+
+    /**
+     * The window's report from its snapshot, or empty when precomputation is disabled.
+     * Only a missing snapshot (or one from before a date rollover the nightly run has not
+     * caught yet) is generated on the calling thread, once per window however many requests
+     * are waiting for it.
+     */
+    public <T> Optional<SnapshotReport<T>> get(ReportWindow window, Class<T> reportType) {
+        if (!reportPrecomputeConfiguration.isEnabled()) {
+            return Optional.empty();
+        }
+
+        WindowState state = windows.get(window);
+        LocalDate today = LocalDate.now();
+        Snapshot snapshot = state.snapshot;
+        if (snapshot == null || !snapshot.covers(window, today)) {
+            synchronized (state.refreshLock) {
+                // Another request or the background worker may have generated it while we waited
+                snapshot = state.snapshot;
+                if (snapshot == null || !snapshot.covers(window, today)) {
+                    snapshot = refresh(window, today);
+                }
+            }
+        } else if (snapshot.stale || snapshot.generatedAt.isBefore(
+                LocalDateTime.now().minus(reportPrecomputeConfiguration.getMaxAge()))) {
+            snapshot.stale = true;
+            scheduleRefresh(window);
+        }
+        return Optional.of(new SnapshotReport<>(reportType.cast(snapshot.report), snapshot.generatedAt, snapshot.stale));
+    }
+
+    /**
+     * Mark the snapshots whose window contains one of the changed dates as stale
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        if (!reportPrecomputeConfiguration.isEnabled() || event.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        windows.forEach((window, state) -> {
+            Snapshot snapshot = state.snapshot;
+            if (snapshot != null && snapshot.containsAny(event)) {
+                state.changeCount.incrementAndGet();
+                state.lastChangeAt = now;
+                snapshot.stale = true;
+            }
+        });
+    }
+
+    /**
+     * Regenerate every window, just after the windows roll over at midnight
+     */
+    @Scheduled(cron = "${report-precompute.cron:0 5 0 * * *}")
+    public void precomputeAll() {
+        if (!reportPrecomputeConfiguration.isEnabled()) {
+            return;
+        }
+        log.info("Precomputing rolling report windows");
+        for (ReportWindow window : ReportWindow.values()) {
+            scheduleRefresh(window);
+        }
+    }
+
+    /**
+     * Regenerate stale windows once writes to them have gone quiet, so the next reader gets fresh data
+     */
+    @Scheduled(fixedDelayString = "${report-precompute.check-interval-ms:30000}")
+    public void refreshQuietWindows() {
+        if (!reportPrecomputeConfiguration.isEnabled()) {
+            return;
+        }
+        LocalDateTime quietSince = LocalDateTime.now().minus(reportPrecomputeConfiguration.getQuietPeriod());
+        windows.forEach((window, state) -> {
+            Snapshot snapshot = state.snapshot;
+            if (snapshot != null && snapshot.stale && state.lastChangeAt != null && state.lastChangeAt.isBefore(quietSince)) {
+                scheduleRefresh(window);
+            }
+        });
+    }
+
+    /**
+     * Serve the snapshots stored by the previous run right away (as stale, since data may have
+     * changed in between) and regenerate every window in the background
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!reportPrecomputeConfiguration.isEnabled()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        for (ReportSnapshot stored : reportSnapshotRepository.findAll()) {
+            ReportWindow window;
+            try {
+                window = ReportWindow.valueOf(stored.getReportWindow());
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            Snapshot snapshot = new Snapshot(fromJson(stored.getPayload(), window.getReportType()),
+                    stored.getStartDate(), stored.getEndDate(), stored.getGeneratedAt(), true);
+            if (snapshot.report != null && snapshot.covers(window, today)) {
+                windows.get(window).snapshot = snapshot;
+            }
+        }
+        precomputeAll();
+    }
+
+    // ==================== Helpers ====================
+
+    private void scheduleRefresh(ReportWindow window) {
+        WindowState state = windows.get(window);
+        if (!state.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reportRefreshExecutor.execute(() -> {
+                try {
+                    synchronized (state.refreshLock) {
+                        refresh(window, LocalDate.now());
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Failed to precompute {} report", window, e);
+                } finally {
+                    state.refreshing.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            state.refreshing.set(false);
+            log.warn("Report refresh queue is full, {} stays stale for now", window);
+        }
+    }
+
+    // Callers hold the window's refresh lock, so a window is never generated twice at once
+    private Snapshot refresh(ReportWindow window, LocalDate today) {
+        WindowState state = windows.get(window);
+        long changesBefore = state.changeCount.get();
+        LocalDate startDate = window.getStartDate(today);
+        LocalDate endDate = window.getEndDate(today);
+
+        long start = System.currentTimeMillis();
+        Object report = window.getReportType() == UpcomingAssignmentsReportDTO.class
+                ? reportService.generateUpcomingAssignmentsReport(startDate, endDate)
+                : reportService.generatePaymentReport(startDate, endDate);
+        LocalDateTime generatedAt = LocalDateTime.now();
+
+        // A change that committed while the report was generated may be missing from it
+        Snapshot snapshot = new Snapshot(report, startDate, endDate, generatedAt, state.changeCount.get() != changesBefore);
+        state.snapshot = snapshot;
+
+        try {
+            reportSnapshotRepository.save(new ReportSnapshot(window.name(), startDate, endDate, toJson(report), generatedAt));
+        } catch (RuntimeException e) {
+            // The in-memory snapshot is still served; only a restart loses it
+            log.warn("Failed to store {} report snapshot: {}", window, e.getMessage());
+        }
+        log.info("Precomputed {} report ({} to {}) in {} ms", window, startDate, endDate, System.currentTimeMillis() - start);
+        return snapshot;
+    }
+
+    private String toJson(Object report) {
+        try {
+            return objectMapper.writeValueAsString(report);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + report.getClass().getSimpleName(), e);
+        }
+    }
+
+    private Object fromJson(String payload, Class<?> reportType) {
+        try {
+            return objectMapper.readValue(payload, reportType);
+        } catch (JsonProcessingException e) {
+            // Written by an older version of the report; the background refresh replaces it
+            log.warn("Ignoring unreadable {} snapshot: {}", reportType.getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class WindowState {
+        private volatile Snapshot snapshot;
+        private volatile LocalDateTime lastChangeAt;
+        private final AtomicLong changeCount = new AtomicLong();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final Object refreshLock = new Object();
+    }
+
+    private static final class Snapshot {
+        private final Object report;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final LocalDateTime generatedAt;
+        private volatile boolean stale;
+
+        private Snapshot(Object report, LocalDate startDate, LocalDate endDate, LocalDateTime generatedAt, boolean stale) {
+            this.report = report;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.generatedAt = generatedAt;
+            this.stale = stale;
+        }
+
+        private boolean covers(ReportWindow window, LocalDate today) {
+            return startDate.equals(window.getStartDate(today)) && endDate.equals(window.getEndDate(today));
+        }
+
+        private boolean containsAny(AssignmentsChangedEvent event) {
+            for (LocalDate date : event.getAssignmentDates()) {
+                if (!date.isBefore(startDate) && !date.isAfter(endDate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.SalaryIndexConfiguration;
+import com.sarlatea.crm.model.EmployeeSalary;
+import com.sarlatea.crm.repository.EmployeeSalaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory salary timeline of every employee, for the salary lookups on the payment and report paths.
+ *
+ * Each employee's salary records are kept sorted by start date. updateSalary closes the previous
+ * record the day before the new one starts, so the intervals do not overlap and a binary search
+ * finds the salary on a date; should records overlap anyway, the newest start date wins, as in
+ * the repository queries. The index is loaded on startup, and an employee's timeline is reloaded
+ * once a transaction that wrote one of their salary records commits (see EmployeeSalaryListener).
+ * Until the index is loaded, or when it is disabled, lookups go to the database.
+ *
+ * The records handed out are detached copies without the employee association; treat them as read-only.
+ */
+@Service
+@Slf4j
+public class SalaryTimelineIndex {
+
+    private final EmployeeSalaryRepository employeeSalaryRepository;
+    private final SalaryIndexConfiguration salaryIndexConfiguration;
+    private final TransactionTemplate newTransaction;
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public SalaryTimelineIndex(EmployeeSalaryRepository employeeSalaryRepository,
+                               SalaryIndexConfiguration salaryIndexConfiguration,
+                               PlatformTransactionManager transactionManager) {
+        this.employeeSalaryRepository = employeeSalaryRepository;
+        this.salaryIndexConfiguration = salaryIndexConfiguration;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.newTransaction.setReadOnly(true);
+    }
+
+    /**
+     * The salary record in effect for an employee on a date
+     */
+    public Optional<EmployeeSalary> findSalaryOnDate(String employeeId, LocalDate date) {
+        if (!isReady()) {
+            return employeeSalaryRepository.findSalaryForEmployeeOnDate(employeeId, date);
+        }
+        Timeline timeline = timelines.get(employeeId);
+        return timeline != null ? Optional.ofNullable(timeline.salaryOn(date)) : Optional.empty();
+    }
+
+    /**
+     * The salary records in effect on a date for a set of employees, by employee id.
+     * Employees without a salary on that date are left out.
+     */
+    public Map<String, EmployeeSalary> findSalariesOnDate(Collection<String> employeeIds, LocalDate date) {
+        Map<String, EmployeeSalary> salaries = new HashMap<>();
+        if (employeeIds.isEmpty()) {
+            return salaries;
+        }
+        if (!isReady()) {
+            for (EmployeeSalary salary : employeeSalaryRepository.findSalariesForEmployeesOnDate(employeeIds, date)) {
+                salaries.putIfAbsent(salary.getEmployee().getId(), salary);
+            }
+            return salaries;
+        }
+        for (String employeeId : employeeIds) {
+            Timeline timeline = timelines.get(employeeId);
+            EmployeeSalary salary = timeline != null ? timeline.salaryOn(date) : null;
+            if (salary != null) {
+                salaries.put(employeeId, salary);
+            }
+        }
+        return salaries;
+    }
+
+    /**
+     * The current (open-ended, active) salary record of an employee
+     */
+    public Optional<EmployeeSalary> findCurrentSalary(String employeeId) {
+        if (!isReady()) {
+            return employeeSalaryRepository.findCurrentSalaryByEmployeeId(employeeId);
+        }
+        Timeline timeline = timelines.get(employeeId);
+        return timeline != null ? Optional.ofNullable(timeline.current) : Optional.empty();
+    }
+
+    /**
+     * The current salary records of a set of employees, by employee id.
+     * Employees without a current salary are left out.
+     */
+    public Map<String, EmployeeSalary> findCurrentSalaries(Collection<String> employeeIds) {
+        Map<String, EmployeeSalary> salaries = new HashMap<>();
+        if (employeeIds.isEmpty()) {
+            return salaries;
+        }
+        if (!isReady()) {
+            for (EmployeeSalary salary : employeeSalaryRepository.findCurrentSalariesByEmployeeIds(employeeIds)) {
+                salaries.putIfAbsent(salary.getEmployee().getId(), salary);
+            }
+            return salaries;
+        }
+        for (String employeeId : employeeIds) {
+            Timeline timeline = timelines.get(employeeId);
+            if (timeline != null && timeline.current != null) {
+                salaries.put(employeeId, timeline.current);
+            }
+        }
+        return salaries;
+    }
+
+    public boolean hasActiveSalary(String employeeId) {
+        if (!isReady()) {
+            return employeeSalaryRepository.hasActiveSalary(employeeId);
+        }
+        Timeline timeline = timelines.get(employeeId);
+        return timeline != null && timeline.current != null;
+    }
+
+    /**
+     * Reload an employee's timeline once the current transaction commits, or right away outside a transaction.
+     * A rolled back transaction leaves the index untouched.
+     */
+    public void employeeChanged(String employeeId) {
+        if (!salaryIndexConfiguration.isEnabled()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadEmployees(Set.of(employeeId));
+            return;
+        }
+
+        // One synchronization per transaction collects every employee it touched
+        @SuppressWarnings("unchecked")
+        Set<String> changed = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<String> employeeIds = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, employeeIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SalaryTimelineIndex.this);
+                    if (status == STATUS_COMMITTED) {
+                        reloadEmployees(employeeIds);
+                    }
+                }
+            });
+            changed = employeeIds;
+        }
+        changed.add(employeeId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!salaryIndexConfiguration.isEnabled()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Salary timeline index could not be loaded; salary lookups use the database", e);
+        }
+    }
+
+    /**
+     * Reload the whole index; picks up salaries written by other instances and recovers from failed reloads
+     */
+    @Scheduled(initialDelayString = "${salary-index.reload-interval-ms:300000}",
+               fixedDelayString = "${salary-index.reload-interval-ms:300000}")
+    public void reloadPeriodically() {
+        if (!salaryIndexConfiguration.isEnabled()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Salary timeline reload failed", e);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private boolean isReady() {
+        return loaded && salaryIndexConfiguration.isEnabled();
+    }
+
+    private synchronized void reload() {
+        long start = System.currentTimeMillis();
+        List<EmployeeSalary> salaries = newTransaction.execute(status -> employeeSalaryRepository.findAll());
+        Map<String, List<EmployeeSalary>> salariesByEmployee = salaries.stream()
+                .collect(Collectors.groupingBy(salary -> salary.getEmployee().getId()));
+
+        timelines.keySet().retainAll(salariesByEmployee.keySet());
+        salariesByEmployee.forEach((employeeId, employeeSalaries) ->
+                timelines.put(employeeId, new Timeline(employeeSalaries)));
+        loaded = true;
+        log.info("Loaded salary timelines of {} employees ({} records) in {} ms",
+                salariesByEmployee.size(), salaries.size(), System.currentTimeMillis() - start);
+    }
+
+    // Serialized with reload(), so a full reload can never overwrite a newer timeline with an older one
+    private synchronized void reloadEmployees(Collection<String> employeeIds) {
+        if (!loaded) {
+            // The initial load has not run yet and will read these records itself
+            return;
+        }
+        try {
+            for (String employeeId : employeeIds) {
+                List<EmployeeSalary> salaries = newTransaction.execute(status ->
+                        employeeSalaryRepository.findSalaryHistoryByEmployeeId(employeeId));
+                if (salaries.isEmpty()) {
+                    timelines.remove(employeeId);
+                } else {
+                    timelines.put(employeeId, new Timeline(salaries));
+                }
+            }
+        } catch (RuntimeException e) {
+            // Better to answer from the database than from a timeline that missed a change
+            log.error("Failed to reload salary timelines of {}; falling back to database lookups until the next full reload",
+                    employeeIds, e);
+            loaded = false;
+        }
+    }
+
+    private static EmployeeSalary copyOf(EmployeeSalary salary) {
+        EmployeeSalary copy = new EmployeeSalary();
+        copy.setId(salary.getId());
+        copy.setCreatedAt(salary.getCreatedAt());
+        copy.setUpdatedAt(salary.getUpdatedAt());
+        copy.setAmount(salary.getAmount());
+        copy.setSalaryType(salary.getSalaryType());
+        copy.setCurrency(salary.getCurrency());
+        copy.setStartDate(salary.getStartDate());
+        copy.setEndDate(salary.getEndDate());
+        copy.setIsActive(salary.getIsActive());
+        copy.setNotes(salary.getNotes());
+        copy.setVoluntaryPfPercentage(salary.getVoluntaryPfPercentage());
+        return copy;
+    }
+
+    /**
+     * One employee's salary records, immutable once built
+     */
+    private static final class Timeline {
+        private final EmployeeSalary[] salaries;
+        private final LocalDate[] startDates;
+        private final EmployeeSalary current;
+
+        private Timeline(Collection<EmployeeSalary> records) {
+            List<EmployeeSalary> sorted = new ArrayList<>(records.size());
+            for (EmployeeSalary record : records) {
+                sorted.add(copyOf(record));
+            }
+            sorted.sort(Comparator.comparing(EmployeeSalary::getStartDate));
+
+            this.salaries = sorted.toArray(new EmployeeSalary[0]);
+            this.startDates = new LocalDate[salaries.length];
+            EmployeeSalary currentSalary = null;
+            for (int i = 0; i < salaries.length; i++) {
+                startDates[i] = salaries[i].getStartDate();
+                if (salaries[i].isCurrentlyActive()) {
+                    currentSalary = salaries[i];
+                }
+            }
+            this.current = currentSalary;
+        }
+
+        private EmployeeSalary salaryOn(LocalDate date) {
+            // Last record starting on or before the date
+            int low = 0;
+            int high = startDates.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (startDates[mid].isAfter(date)) {
+                    high = mid - 1;
+                } else {
+                    candidate = mid;
+                    low = mid + 1;
+                }
+            }
+            // Normally the candidate itself; earlier records only matter if intervals overlap
+            for (int i = candidate; i >= 0; i--) {
+                EmployeeSalary salary = salaries[i];
+                if (salary.getEndDate() == null || !salary.getEndDate().isBefore(date)) {
+                    return salary;
+                }
+            }
+            return null;
+        }
+    }
+}
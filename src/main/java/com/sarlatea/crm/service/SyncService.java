@@ -0,0 +1,153 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.SyncConfiguration;
+import com.sarlatea.crm.dto.SyncDeltaDTO;
+import com.sarlatea.crm.model.SyncTombstone;
+import com.sarlatea.crm.repository.EmployeeRepository;
+import com.sarlatea.crm.repository.SyncTombstoneRepository;
+import com.sarlatea.crm.repository.WorkActivityRepository;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Delta sync for the field tablet app: returns the assignments, employees and work activities
+ * updated after a client watermark (BaseEntity.updatedAt), and the ids of those deleted since then,
+ * so a refresh costs in proportion to what changed rather than to the size of the data set.
+ *
+ * updatedAt is stamped when a row is flushed, not when its transaction commits, so a row can become
+ * visible with a stamp older than a watermark already handed out. The watermark therefore lags by
+ * sync.watermark-overlap, and transactions that stamp synced rows are rolled back if they are still
+ * open sync.max-write-transaction after the first stamp, which must be the shorter of the two.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SyncService {
+
+    private final WorkAssignmentRepository workAssignmentRepository;
+    private final EmployeeRepository employeeRepository;
+    private final WorkActivityRepository workActivityRepository;
+    private final SyncTombstoneRepository syncTombstoneRepository;
+    private final SyncConfiguration syncConfiguration;
+
+    @PostConstruct
+    void checkConfiguration() {
+        if (syncConfiguration.getMaxWriteTransaction().compareTo(syncConfiguration.getWatermarkOverlap()) >= 0) {
+            throw new IllegalStateException("sync.max-write-transaction (" + syncConfiguration.getMaxWriteTransaction() +
+                    ") must be shorter than sync.watermark-overlap (" + syncConfiguration.getWatermarkOverlap() + ")");
+        }
+    }
+
+    /**
+     * Changes since a watermark
+     *
+     * @param since watermark returned by the previous sync, or null for a full sync
+     * @param assignmentsFrom assignments dated before this are left out; defaults to
+     *                        sync.default-window-days before today. Keep it fixed between syncs:
+     *                        rows that only fall inside a widened window are not resent
+     */
+    @Transactional(readOnly = true)
+    public SyncDeltaDTO getChangesSince(LocalDateTime since, LocalDate assignmentsFrom) {
+        // Taken before reading, so anything committed during the read is at or after the watermark
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate fromDate = assignmentsFrom != null
+                ? assignmentsFrom
+                : LocalDate.now().minusDays(syncConfiguration.getDefaultWindowDays());
+
+        if (since != null && since.isAfter(now)) {
+            throw new IllegalArgumentException("Sync watermark is in the future: " + since);
+        }
+        // Tombstones older than the retention are gone, so deletes since then can no longer be reported
+        boolean fullResync = since == null || since.isBefore(now.minus(syncConfiguration.getTombstoneRetention()));
+
+        SyncDeltaDTO delta = new SyncDeltaDTO();
+        delta.setWatermark(now.minus(syncConfiguration.getWatermarkOverlap()));
+        delta.setFullResync(fullResync);
+        delta.setAssignmentsFrom(fromDate);
+
+        if (fullResync) {
+            delta.setAssignments(workAssignmentRepository.findSyncRowsFrom(fromDate));
+            delta.setEmployees(employeeRepository.findSyncRows());
+            delta.setActivities(workActivityRepository.findSyncRows());
+        } else {
+            delta.setAssignments(workAssignmentRepository.findSyncRowsChangedSince(since, fromDate));
+            delta.setEmployees(employeeRepository.findSyncRowsChangedSince(since));
+            delta.setActivities(workActivityRepository.findSyncRowsChangedSince(since));
+            delta.setDeletedAssignmentIds(workAssignmentRepository.findIdsDeletedSince(since, fromDate));
+            delta.setDeletedEmployeeIds(
+                    syncTombstoneRepository.findEntityIdsDeletedSince(SyncTombstone.EntityType.EMPLOYEE, since));
+            delta.setDeletedActivityIds(workActivityRepository.findIdsDeletedSince(since));
+        }
+
+        log.debug("Sync since {}: {} assignments, {} employees, {} activities, {} deletions{}",
+                since, delta.getAssignments().size(), delta.getEmployees().size(), delta.getActivities().size(),
+                delta.getDeletedAssignmentIds().size() + delta.getDeletedEmployeeIds().size()
+                        + delta.getDeletedActivityIds().size(),
+                fullResync ? " (full resync)" : "");
+        return delta;
+    }
+
+    /**
+     * Record a hard delete for sync clients; call in the transaction that deletes the row
+     */
+    public void recordDeletion(SyncTombstone.EntityType entityType, String entityId) {
+        rowsStamped();
+        syncTombstoneRepository.save(new SyncTombstone(null, entityType, entityId, LocalDateTime.now()));
+    }
+
+    /**
+     * Note that the current transaction is stamping synced rows with the current time
+     * Called by SyncStampListener and before bulk UPDATEs that set updatedAt; the transaction fails
+     * to commit if it is still open sync.max-write-transaction after the first call.
+     */
+    public void rowsStamped() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        long firstStamp = System.nanoTime();
+        TransactionSynchronizationManager.bindResource(this, firstStamp);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                long openMillis = (System.nanoTime() - firstStamp) / 1_000_000;
+                if (openMillis > syncConfiguration.getMaxWriteTransaction().toMillis()) {
+                    // Committing now could hide these rows behind a watermark already handed out
+                    throw new IllegalStateException("Transaction stayed open " + openMillis +
+                            " ms after stamping synced rows, longer than sync.max-write-transaction (" +
+                            syncConfiguration.getMaxWriteTransaction() + ")");
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SyncService.this);
+            }
+        });
+    }
+
+    /**
+     * Drop tombstones past the retention, on startup and then daily
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${sync.tombstone-purge-cron:0 30 0 * * *}")
+    public void purgeExpiredTombstones() {
+        int purged = syncTombstoneRepository.deleteOlderThan(
+                LocalDateTime.now().minus(syncConfiguration.getTombstoneRetention()));
+        if (purged > 0) {
+            log.info("Purged {} expired sync tombstones", purged);
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class WorkActivityCompletionCriteriaService {
 
     private final WorkActivityCompletionCriteriaRepository criteriaRepository;
     private final WorkActivityRepository workActivityRepository;
+    private final CompletionCriteriaIndex completionCriteriaIndex;
 
     @Transactional(readOnly = true)
     public List<WorkActivityCompletionCriteriaDTO> getCriteriaByWorkActivityId(String workActivityId) {
@@ -35,8 +36,8 @@ public class WorkActivityCompletionCriteriaService {
     @Transactional(readOnly = true)
     public WorkActivityCompletionCriteriaDTO getActiveCriteriaByWorkActivityId(String workActivityId) {
         log.debug("Fetching active non-deleted completion criteria for work activity: {}", workActivityId);
-        return criteriaRepository.findActiveByWorkActivityId(workActivityId)
-                .map(this::convertToDTO)
+        return completionCriteriaIndex.findCriteriaOnDate(workActivityId, LocalDate.now())
+                .map(criteria -> convertToDTO(criteria, workActivityId))
                 .orElse(null);
     }
 
@@ -113,9 +114,13 @@ public class WorkActivityCompletionCriteriaService {
     }
 
     private WorkActivityCompletionCriteriaDTO convertToDTO(WorkActivityCompletionCriteria criteria) {
+        return convertToDTO(criteria, criteria.getWorkActivity().getId());
+    }
+
+    private WorkActivityCompletionCriteriaDTO convertToDTO(WorkActivityCompletionCriteria criteria, String workActivityId) {
         WorkActivityCompletionCriteriaDTO dto = new WorkActivityCompletionCriteriaDTO();
         dto.setId(criteria.getId());
-        dto.setWorkActivityId(criteria.getWorkActivity().getId());
+        dto.setWorkActivityId(workActivityId);
         dto.setUnit(criteria.getUnit());
         dto.setValue(criteria.getValue());
         dto.setStartDate(criteria.getStartDate());
@@ -16,6 +16,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -32,6 +33,7 @@ public class WorkActivityService {
     private final WorkAssignmentRepository workAssignmentRepository;
     private final WorkActivityCompletionCriteriaRepository completionCriteriaRepository;
     private final AuditLogService auditLogService;
+    private final CompletionCriteriaIndex completionCriteriaIndex;
 
     @Transactional(readOnly = true)
     public List<WorkActivityDTO> getAllWorkActivities() {
@@ -145,7 +147,7 @@ public class WorkActivityService {
         log.debug("Fetching work activities by calculated status: {}", status);
         // Since status is now calculated, filter after fetching
         return workActivityRepository.findAllActive().stream()
-                .filter(wa -> wa.getStatus() == status)
+                .filter(wa -> statusOf(wa) == status)
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
@@ -158,13 +160,12 @@ public class WorkActivityService {
             dto.setName(workActivity.getName());
             dto.setDescription(workActivity.getDescription());
             
-            // Safely get status with fallback
-            try {
-                dto.setStatus(workActivity.getStatus());
-            } catch (Exception e) {
-                log.warn("Error getting status for activity {}: {}", workActivity.getName(), e.getMessage());
-                dto.setStatus(WorkActivity.Status.INACTIVE); // Default to inactive on error
-            }
+            // The criteria valid today (from the criteria index) decide the status
+            WorkActivityCompletionCriteria todaysCriteria = completionCriteriaIndex
+                    .findCriteriaOnDate(workActivity.getId(), LocalDate.now())
+                    .orElse(null);
+            String activeCriteriaId = todaysCriteria != null ? todaysCriteria.getId() : null;
+            dto.setStatus(todaysCriteria != null ? WorkActivity.Status.ACTIVE : WorkActivity.Status.INACTIVE);
             
             dto.setNotes(workActivity.getNotes());
             
@@ -175,10 +176,9 @@ public class WorkActivityService {
             if (workActivity.getCompletionCriteria() != null) {
                 criteriaList = workActivity.getCompletionCriteria().stream()
                         .filter(c -> c != null && !c.getDeleted()) // Also check for null criteria
-                        .map(this::convertCriteriaToDTO)
+                        .map(c -> convertCriteriaToDTO(c, c.getId().equals(activeCriteriaId)))
                         .collect(Collectors.toList());
                 
-                // Find the active criteria (isActive = true)
                 activeCriteria = criteriaList.stream()
                         .filter(c -> Boolean.TRUE.equals(c.getIsActive()))
                         .findFirst()
@@ -212,7 +212,12 @@ public class WorkActivityService {
         workActivity.setNotes(dto.getNotes());
     }
 
-    private WorkActivityCompletionCriteriaDTO convertCriteriaToDTO(WorkActivityCompletionCriteria criteria) {
+    private WorkActivity.Status statusOf(WorkActivity workActivity) {
+        return completionCriteriaIndex.hasActiveCriteria(workActivity.getId())
+                ? WorkActivity.Status.ACTIVE : WorkActivity.Status.INACTIVE;
+    }
+
+    private WorkActivityCompletionCriteriaDTO convertCriteriaToDTO(WorkActivityCompletionCriteria criteria, boolean active) {
         WorkActivityCompletionCriteriaDTO dto = new WorkActivityCompletionCriteriaDTO();
         dto.setId(criteria.getId());
         dto.setWorkActivityId(criteria.getWorkActivity().getId());
@@ -220,7 +225,8 @@ public class WorkActivityService {
         dto.setValue(criteria.getValue());
         dto.setStartDate(criteria.getStartDate());
         dto.setEndDate(criteria.getEndDate());
-        dto.setIsActive(criteria.getIsActive());
+        // The stored is_active flag is only refreshed on writes; whether the range covers today is what counts
+        dto.setIsActive(active);
         dto.setNotes(criteria.getNotes());
         return dto;
     }
@@ -1,28 +1,50 @@
 package com.sarlatea.crm.service;
 
 import com.sarlatea.crm.dto.AssignmentHistoryDTO;
-import com.sarlatea.crm.dto.WorkActivityCompletionCriteriaDTO;
+import com.sarlatea.crm.dto.BulkAssignmentRequest;
+import com.sarlatea.crm.dto.BulkAssignmentResultDTO;
+import com.sarlatea.crm.dto.BulkEvaluationRequest;
+import com.sarlatea.crm.dto.BulkEvaluationResultDTO;
+import com.sarlatea.crm.dto.CursorPageDTO;
+import com.sarlatea.crm.dto.PaymentReferenceDTO;
 import com.sarlatea.crm.dto.WorkAssignmentDTO;
+import com.sarlatea.crm.dto.WorkAssignmentFilter;
+import com.sarlatea.crm.event.AssignmentsChangedEvent;
 import com.sarlatea.crm.exception.DataIntegrityException;
 import com.sarlatea.crm.exception.ResourceNotFoundException;
 import com.sarlatea.crm.model.AuditLog;
 import com.sarlatea.crm.model.Employee;
 import com.sarlatea.crm.model.WorkActivity;
+import com.sarlatea.crm.model.WorkActivityCompletionCriteria;
 import com.sarlatea.crm.model.WorkAssignment;
 import com.sarlatea.crm.repository.AuditLogRepository;
 import com.sarlatea.crm.repository.EmployeeRepository;
-import com.sarlatea.crm.repository.EmployeeSalaryRepository;
 import com.sarlatea.crm.repository.PaymentRepository;
 import com.sarlatea.crm.repository.WorkActivityRepository;
 import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -33,21 +55,70 @@ import java.util.stream.Collectors;
 @Slf4j
 public class WorkAssignmentService {
 
+    // Bulk evaluation writes only the evaluated columns; the version check skips rows changed since they were read
+    private static final String EVALUATION_UPDATE_SQL = "UPDATE work_assignments SET actual_value = ?, " +
+            "completion_percentage = ?, assignment_status = ?, completed_date = ?, evaluation_count = ?, " +
+            "first_evaluated_at = ?, last_evaluated_at = ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND version = ?";
+    private static final int EVALUATION_BATCH_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final WorkAssignmentRepository workAssignmentRepository;
     private final EmployeeRepository employeeRepository;
     private final WorkActivityRepository workActivityRepository;
-    private final EmployeeSalaryRepository employeeSalaryRepository;
+    private final SalaryTimelineIndex salaryTimelineIndex;
     private final PaymentRepository paymentRepository;
     private final AuditLogRepository auditLogRepository;
     private final AuditLogService auditLogService;
-    private final WorkActivityCompletionCriteriaService completionCriteriaService;
+    private final CompletionCriteriaIndex completionCriteriaIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final SyncService syncService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
+    /**
+     * Keyset-paginated, filtered listing of non-deleted assignments, newest assignment date first.
+     * Each page is a single bounded query; the total is only counted when asked for.
+     */
     @Transactional(readOnly = true)
-    public List<WorkAssignmentDTO> getAllAssignments() {
-        log.debug("Fetching all non-deleted work assignments");
-        return workAssignmentRepository.findByDeletedFalse().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<WorkAssignmentDTO> getAssignmentsPage(WorkAssignmentFilter filter, String cursor,
+                                                               int size, boolean includeTotal) {
+        log.debug("Fetching work assignments matching {} after cursor {} (size {})", filter, cursor, size);
+        if (filter.getStartDate() != null && filter.getEndDate() != null
+                && filter.getStartDate().isAfter(filter.getEndDate())) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<WorkAssignmentDTO> assignments;
+        if (cursor == null || cursor.isBlank()) {
+            assignments = workAssignmentRepository.findDtoPage(filter, null, null, pageSize + 1);
+        } else {
+            String[] key = CursorPageDTO.decodeCursor(cursor, 2);
+            LocalDate afterDate;
+            try {
+                afterDate = LocalDate.parse(key[0]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor date: " + key[0]);
+            }
+            assignments = workAssignmentRepository.findDtoPage(filter, afterDate, key[1], pageSize + 1);
+        }
+
+        boolean hasMore = assignments.size() > pageSize;
+        List<WorkAssignmentDTO> page = hasMore ? assignments.subList(0, pageSize) : assignments;
+        String nextCursor = null;
+        if (hasMore) {
+            WorkAssignmentDTO last = page.get(page.size() - 1);
+            nextCursor = CursorPageDTO.encodeCursor(last.getAssignmentDate().toString(), last.getId());
+        }
+
+        Long totalCount = null;
+        if (includeTotal) {
+            totalCount = workAssignmentRepository.countForPage(filter);
+        }
+        return new CursorPageDTO<>(page, nextCursor, hasMore, totalCount);
     }
 
     @Transactional(readOnly = true)
@@ -61,9 +132,7 @@ public class WorkAssignmentService {
     @Transactional(readOnly = true)
     public List<WorkAssignmentDTO> getAssignmentsByEmployee(String employeeId) {
         log.debug("Fetching non-deleted work assignments for employee: {}", employeeId);
-        return workAssignmentRepository.findByAssignedEmployeeIdAndDeletedFalse(employeeId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return workAssignmentRepository.findDtosByEmployeeId(employeeId);
     }
 
     @Transactional(readOnly = true)
@@ -72,18 +141,12 @@ public class WorkAssignmentService {
         log.debug("Fetching assignments from {} to {} for {} employees", 
                 startDate, endDate, employeeIds != null ? employeeIds.size() : "all");
         
-        List<WorkAssignment> assignments;
         if (employeeIds == null || employeeIds.isEmpty()) {
             // Get all assignments in date range using database query
-            assignments = workAssignmentRepository.findByAssignmentDateBetweenAndDeletedFalse(startDate, endDate);
-        } else {
-            // Get assignments for specific employees in date range using database IN clause
-            assignments = workAssignmentRepository.findByEmployeeIdsAndDateRange(employeeIds, startDate, endDate);
+            return workAssignmentRepository.findDtosByDateRange(startDate, endDate);
         }
-        
-        return assignments.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        // Get assignments for specific employees in date range using database IN clause
+        return workAssignmentRepository.findDtosByEmployeeIdsAndDateRange(employeeIds, startDate, endDate);
     }
 
     @Transactional
@@ -101,7 +164,7 @@ public class WorkAssignmentService {
                     .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + dto.getAssignedEmployeeId()));
             
             // Validate that employee has an active salary
-            if (!employeeSalaryRepository.hasActiveSalary(dto.getAssignedEmployeeId())) {
+            if (!salaryTimelineIndex.hasActiveSalary(dto.getAssignedEmployeeId())) {
                 String errorMessage = String.format(
                     "Cannot create assignment: Employee '%s' does not have an active salary record. " +
                     "Please add salary information before creating assignments.",
@@ -132,6 +195,7 @@ public class WorkAssignmentService {
         WorkAssignment savedAssignment = workAssignmentRepository.save(assignment);
         log.info("Created work assignment with id: {} for employee: {}", savedAssignment.getId(), 
                 employee != null ? employee.getName() : "unassigned");
+        publishAssignmentsChanged(savedAssignment.getAssignmentDate());
         
         // Audit log for creation
         auditLogService.logAudit(
@@ -144,6 +208,98 @@ public class WorkAssignmentService {
         return convertToDTO(savedAssignment);
     }
 
+    /**
+     * Create a roster: one assignment of the activity for every employee on every date.
+     * Unknown employees and employees without an active salary are reported per row and skipped;
+     * the rest are inserted in JDBC batches with a single audit entry for the whole roster, kept under the activity.
+     */
+    @Transactional
+    public BulkAssignmentResultDTO createAssignments(BulkAssignmentRequest request) {
+        if (request.getWorkActivityId() == null) {
+            throw new IllegalArgumentException("workActivityId is required");
+        }
+        if (request.getEmployeeIds() == null || request.getEmployeeIds().isEmpty()) {
+            throw new IllegalArgumentException("At least one employee is required");
+        }
+        if (request.getAssignmentDates() == null || request.getAssignmentDates().isEmpty()) {
+            throw new IllegalArgumentException("At least one assignment date is required");
+        }
+        WorkActivity workActivity = workActivityRepository.findById(request.getWorkActivityId())
+                .orElseThrow(() -> new ResourceNotFoundException("WorkActivity not found with id: " + request.getWorkActivityId()));
+
+        // Repeated ids or dates in the request would only create duplicates
+        Set<String> employeeIds = new LinkedHashSet<>(request.getEmployeeIds());
+        TreeSet<LocalDate> assignmentDates = new TreeSet<>();
+        for (LocalDate date : request.getAssignmentDates()) {
+            if (date == null) {
+                throw new IllegalArgumentException("Assignment dates must not be null");
+            }
+            assignmentDates.add(date);
+        }
+        log.debug("Creating roster of {} for {} employees on {} dates",
+                workActivity.getName(), employeeIds.size(), assignmentDates.size());
+
+        // One query each for the employees and their current salaries
+        Map<String, Employee> employees = employeeRepository.findAllById(employeeIds).stream()
+                .collect(Collectors.toMap(Employee::getId, employee -> employee));
+        Set<String> withSalary = salaryTimelineIndex.findCurrentSalaries(employees.keySet()).keySet();
+
+        BulkAssignmentResultDTO result = new BulkAssignmentResultDTO();
+        result.setWorkActivityId(workActivity.getId());
+        LocalDateTime now = LocalDateTime.now();
+        int created = 0;
+        for (String employeeId : employeeIds) {
+            Employee employee = employees.get(employeeId);
+            String error = null;
+            if (employee == null) {
+                error = "Employee not found with id: " + employeeId;
+            } else if (!withSalary.contains(employeeId)) {
+                error = "Employee '" + employee.getName() + "' does not have an active salary record";
+            }
+
+            for (LocalDate date : assignmentDates) {
+                if (error != null) {
+                    result.getResults().add(new BulkAssignmentResultDTO.RowResult(employeeId, date, null, error));
+                    continue;
+                }
+                WorkAssignment assignment = new WorkAssignment();
+                assignment.copyFromWorkActivity(workActivity);
+                assignment.setAssignmentDate(date);
+                assignment.setAssignedEmployee(employee);
+                assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.ASSIGNED);
+                assignment.setAssignedAt(now);
+                assignment.setCompletionPercentage(0);
+                // The id is assigned on persist; the INSERT itself is deferred to the batched flush
+                entityManager.persist(assignment);
+                created++;
+                result.getResults().add(new BulkAssignmentResultDTO.RowResult(employeeId, date, assignment.getId(), null));
+            }
+        }
+        result.setRequestedCount(result.getResults().size());
+        result.setCreatedCount(created);
+        result.setFailedCount(result.getResults().size() - created);
+
+        if (created > 0) {
+            publishAssignmentsChanged(assignmentDates.toArray(new LocalDate[0]));
+            // One summary entry rather than one per assignment: a large roster would write thousands of rows
+            auditLogService.logAudit(
+                AuditLog.OperationType.CREATE,
+                "WorkActivity",
+                workActivity.getId(),
+                String.format("%s - roster of %d assignments (%s to %s)", workActivity.getName(), created,
+                        assignmentDates.first(), assignmentDates.last()),
+                null,
+                Map.of("employeeIds", employeeIds, "assignmentDates", assignmentDates,
+                        "createdCount", created, "failedCount", result.getFailedCount()),
+                AuditLog.OperationStatus.SUCCESS,
+                null
+            );
+        }
+        log.info("Created roster of {}: {} assignments created, {} failed",
+                workActivity.getName(), created, result.getFailedCount());
+        return result;
+    }
+
     @Transactional
     public WorkAssignmentDTO updateAssignment(String id, WorkAssignmentDTO dto) {
         log.debug("Updating work assignment with id: {}", id);
@@ -175,9 +331,11 @@ public class WorkAssignmentService {
         
         // Capture old state for audit
         WorkAssignmentDTO oldState = convertToDTO(assignment);
+        LocalDate previousDate = assignment.getAssignmentDate();
         
         updateAssignmentFields(assignment, dto);
         WorkAssignment updatedAssignment = workAssignmentRepository.save(assignment);
+        publishAssignmentsChanged(previousDate, updatedAssignment.getAssignmentDate());
         log.info("Updated assignment {} - New Activity: {}, WorkActivityId: {}", 
                 id, 
                 updatedAssignment.getActivityName(),
@@ -230,6 +388,7 @@ public class WorkAssignmentService {
         
         WorkAssignment updatedAssignment = workAssignmentRepository.save(assignment);
         log.info("Assignment {} assigned to employee {} at {}", assignmentId, employeeId, assignment.getAssignedAt());
+        publishAssignmentsChanged(updatedAssignment.getAssignmentDate());
         
         // Audit log for reassignment with old and new values
         WorkAssignmentDTO newState = convertToDTO(updatedAssignment);
@@ -277,6 +436,7 @@ public class WorkAssignmentService {
         WorkAssignment updatedAssignment = workAssignmentRepository.save(assignment);
         log.info("Assignment {} marked as completed (Evaluation #{}) at {}", 
                 assignmentId, assignment.getEvaluationCount(), assignment.getLastEvaluatedAt());
+        publishAssignmentsChanged(updatedAssignment.getAssignmentDate());
         
         // Audit log for evaluation
         auditLogService.logAudit(
@@ -299,42 +459,21 @@ public class WorkAssignmentService {
         // Capture old state for audit
         WorkAssignmentDTO oldState = convertToDTO(assignment);
         
-        // Get the active completion criteria for this work activity
+        // Evaluate against the completion criteria that were valid on the assignment date
         String workActivityId = assignment.getWorkActivity().getId();
-        WorkActivityCompletionCriteriaDTO activeCriteria = completionCriteriaService.getActiveCriteriaByWorkActivityId(workActivityId);
+        LocalDate criteriaDate = assignment.getAssignmentDate() != null ? assignment.getAssignmentDate() : LocalDate.now();
+        WorkActivityCompletionCriteria criteria = completionCriteriaIndex.findCriteriaOnDate(workActivityId, criteriaDate)
+                .orElseThrow(() -> new DataIntegrityException(
+                    "Cannot evaluate assignment: No completion criteria valid on " + criteriaDate +
+                    " found for activity " + assignment.getActivityName()
+                ));
         
-        if (activeCriteria == null) {
-            throw new DataIntegrityException(
-                "Cannot evaluate assignment: No active completion criteria found for activity " + assignment.getActivityName()
-            );
-        }
-        
-        // Calculate completion percentage: (actualValue / criteriaValue) * 100
-        double criteriaValue = activeCriteria.getValue().doubleValue();
-        double calculatedPercentage = (actualValue / criteriaValue) * 100.0;
-        int validPercentage = (int) Math.round(Math.min(100, Math.max(0, calculatedPercentage)));
-        
-        assignment.setActualValue(actualValue);
-        assignment.setCompletionPercentage(validPercentage);
-        
-        // Track evaluation time and count for audit
-        LocalDateTime now = LocalDateTime.now();
-        Integer currentCount = assignment.getEvaluationCount();
-        if (currentCount == null || currentCount == 0) {
-            assignment.setFirstEvaluatedAt(now); // Track first evaluation time
-        }
-        assignment.setLastEvaluatedAt(now);
-        assignment.setEvaluationCount(currentCount != null ? currentCount + 1 : 1);
-        
-        // Once an assignment is evaluated, mark it as COMPLETED regardless of percentage
-        assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.COMPLETED);
-        if (assignment.getCompletedDate() == null) {
-            assignment.setCompletedDate(LocalDate.now());
-        }
+        int validPercentage = applyEvaluation(assignment, actualValue, criteria, LocalDateTime.now());
         
         WorkAssignment updatedAssignment = workAssignmentRepository.save(assignment);
         log.info("Assignment {} evaluated: actual value={}, calculated percentage={}% (Evaluation #{}) at {}", 
                 assignmentId, actualValue, validPercentage, assignment.getEvaluationCount(), assignment.getLastEvaluatedAt());
+        publishAssignmentsChanged(updatedAssignment.getAssignmentDate());
         
         // Audit log for evaluation with old and new values
         WorkAssignmentDTO newState = convertToDTO(updatedAssignment);
@@ -350,6 +489,123 @@ public class WorkAssignmentService {
         return newState;
     }
 
+    /**
+     * Evaluate many assignments in one transaction. Each evaluation follows the same rules as
+     * updateCompletionPercentage; the assignments are loaded read-only with one query, criteria are
+     * resolved once per activity and date, the evaluated columns are written in JDBC batches and
+     * the audit entries are saved together. Evaluations that cannot be applied are reported per
+     * row and skipped.
+     */
+    @Transactional
+    public BulkEvaluationResultDTO updateCompletionPercentages(BulkEvaluationRequest request) {
+        List<BulkEvaluationRequest.Evaluation> evaluations = request.getEvaluations();
+        if (evaluations == null || evaluations.isEmpty()) {
+            throw new IllegalArgumentException("At least one evaluation is required");
+        }
+        log.info("Bulk evaluating {} assignments", evaluations.size());
+
+        Set<String> assignmentIds = evaluations.stream()
+                .map(BulkEvaluationRequest.Evaluation::getAssignmentId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Map<String, WorkAssignment> assignments = workAssignmentRepository.findReadOnlyByIdIn(assignmentIds).stream()
+                .collect(Collectors.toMap(WorkAssignment::getId, assignment -> assignment));
+
+        List<BulkEvaluationResultDTO.RowResult> results = new ArrayList<>(evaluations.size());
+        Map<String, Optional<WorkActivityCompletionCriteria>> criteriaByActivityAndDate = new HashMap<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Integer> updatedRows = new ArrayList<>();
+        List<AuditLogService.AuditChange> auditChanges = new ArrayList<>();
+        LocalDateTime now = assignmentStamp();
+        for (BulkEvaluationRequest.Evaluation evaluation : evaluations) {
+            String assignmentId = evaluation.getAssignmentId();
+            Double actualValue = evaluation.getActualValue();
+            WorkAssignment assignment = assignmentId != null ? assignments.get(assignmentId) : null;
+
+            String error = null;
+            WorkActivityCompletionCriteria criteria = null;
+            if (assignmentId == null) {
+                error = "assignmentId is required";
+            } else if (actualValue == null) {
+                error = "actualValue is required";
+            } else if (assignment == null || Boolean.TRUE.equals(assignment.getDeleted())) {
+                error = "WorkAssignment not found with id: " + assignmentId;
+            } else if (!assignment.isReEvaluatable()) {
+                error = "Assignment is locked by payment status " + assignment.getPaymentStatus();
+            } else {
+                LocalDate criteriaDate = assignment.getAssignmentDate() != null ? assignment.getAssignmentDate() : LocalDate.now();
+                String workActivityId = assignment.getWorkActivity().getId();
+                criteria = criteriaByActivityAndDate.computeIfAbsent(workActivityId + "|" + criteriaDate,
+                        key -> completionCriteriaIndex.findCriteriaOnDate(workActivityId, criteriaDate)).orElse(null);
+                if (criteria == null) {
+                    error = "No completion criteria valid on " + criteriaDate + " found for activity " + assignment.getActivityName();
+                }
+            }
+            if (error != null) {
+                results.add(new BulkEvaluationResultDTO.RowResult(assignmentId, actualValue, null, null, error));
+                continue;
+            }
+
+            // The entity is read-only, so these changes are only written by the batch update below
+            Map<String, Object> oldState = evaluationState(assignment);
+            int validPercentage = applyEvaluation(assignment, actualValue, criteria, now);
+            Long version = assignment.getVersion() != null ? assignment.getVersion() : 0L;
+            updates.add(new Object[] {
+                    assignment.getActualValue(), assignment.getCompletionPercentage(),
+                    assignment.getAssignmentStatus().name(), assignment.getCompletedDate(),
+                    assignment.getEvaluationCount(), assignment.getFirstEvaluatedAt(),
+                    assignment.getLastEvaluatedAt(), now, assignment.getId(), version
+            });
+            // A later evaluation of the same assignment in this request applies on top of this one
+            assignment.setVersion(version + 1);
+            updatedRows.add(results.size());
+            auditChanges.add(new AuditLogService.AuditChange(
+                    assignment.getId(),
+                    assignment.getActivityName() + " - " + validPercentage + "% complete (Evaluation #" + assignment.getEvaluationCount() + ")",
+                    oldState,
+                    evaluationState(assignment)));
+            results.add(new BulkEvaluationResultDTO.RowResult(
+                    assignmentId, actualValue, validPercentage, assignment.getEvaluationCount(), null));
+        }
+
+        List<AuditLogService.AuditChange> appliedChanges = new ArrayList<>(auditChanges.size());
+        Set<LocalDate> assignmentDates = new HashSet<>();
+        if (!updates.isEmpty()) {
+            int[][] updateCounts = jdbcTemplate.batchUpdate(EVALUATION_UPDATE_SQL, updates, EVALUATION_BATCH_SIZE,
+                    (statement, row) -> {
+                        for (int i = 0; i < row.length; i++) {
+                            statement.setObject(i + 1, row[i]);
+                        }
+                    });
+            int index = 0;
+            for (int[] batch : updateCounts) {
+                for (int count : batch) {
+                    BulkEvaluationResultDTO.RowResult row = results.get(updatedRows.get(index));
+                    if (count == 0) {
+                        // Changed (e.g. claimed by a payment) since it was read
+                        row.setCompletionPercentage(null);
+                        row.setEvaluationCount(null);
+                        row.setError("Assignment was modified concurrently, please retry");
+                    } else {
+                        AuditLogService.AuditChange change = auditChanges.get(index);
+                        appliedChanges.add(change);
+                        assignmentDates.add(assignments.get(change.getEntityId()).getAssignmentDate());
+                    }
+                    index++;
+                }
+            }
+        }
+
+        BulkEvaluationResultDTO result = new BulkEvaluationResultDTO(
+                evaluations.size(), appliedChanges.size(), evaluations.size() - appliedChanges.size(), results);
+        if (!appliedChanges.isEmpty()) {
+            publishAssignmentsChanged(assignmentDates.toArray(new LocalDate[0]));
+            auditLogService.logAuditsWithChanges(AuditLog.OperationType.EDIT, "WorkAssignment", appliedChanges);
+        }
+        log.info("Bulk evaluation: {} evaluated, {} failed", result.getEvaluatedCount(), result.getFailedCount());
+        return result;
+    }
+
     @Transactional
     public void deleteAssignment(String id) {
         log.info("Soft deleting work assignment with id: {}", id);
@@ -360,6 +616,7 @@ public class WorkAssignmentService {
         assignment.setDeleted(true);
         workAssignmentRepository.save(assignment);
         log.info("Assignment {} marked as deleted for audit purposes", id);
+        publishAssignmentsChanged(assignment.getAssignmentDate());
         
         // Audit log for deletion
         auditLogService.logAudit(
@@ -370,7 +627,77 @@ public class WorkAssignmentService {
         );
     }
 
+    /**
+     * Record an evaluation against the criteria: completion is actualValue / criteria value, capped
+     * to 0-100%, and the assignment counts as COMPLETED once evaluated, whatever the percentage
+     */
+    private int applyEvaluation(WorkAssignment assignment, Double actualValue,
+                                WorkActivityCompletionCriteria criteria, LocalDateTime now) {
+        // Calculate completion percentage: (actualValue / criteriaValue) * 100
+        double criteriaValue = criteria.getValue().doubleValue();
+        double calculatedPercentage = (actualValue / criteriaValue) * 100.0;
+        int validPercentage = (int) Math.round(Math.min(100, Math.max(0, calculatedPercentage)));
+        
+        assignment.setActualValue(actualValue);
+        assignment.setCompletionPercentage(validPercentage);
+        
+        // Track evaluation time and count for audit
+        Integer currentCount = assignment.getEvaluationCount();
+        if (currentCount == null || currentCount == 0) {
+            assignment.setFirstEvaluatedAt(now); // Track first evaluation time
+        }
+        assignment.setLastEvaluatedAt(now);
+        assignment.setEvaluationCount(currentCount != null ? currentCount + 1 : 1);
+        
+        // Once an assignment is evaluated, mark it as COMPLETED regardless of percentage
+        assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.COMPLETED);
+        if (assignment.getCompletedDate() == null) {
+            assignment.setCompletedDate(now.toLocalDate());
+        }
+        return validPercentage;
+    }
+
+    // The fields an evaluation changes, for the bulk audit diff
+    private static Map<String, Object> evaluationState(WorkAssignment assignment) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("actualValue", assignment.getActualValue());
+        state.put("completionPercentage", assignment.getCompletionPercentage());
+        state.put("assignmentStatus", assignment.getAssignmentStatus());
+        state.put("completedDate", assignment.getCompletedDate());
+        state.put("evaluationCount", assignment.getEvaluationCount());
+        state.put("firstEvaluatedAt", assignment.getFirstEvaluatedAt());
+        state.put("lastEvaluatedAt", assignment.getLastEvaluatedAt());
+        return state;
+    }
+
+    private void publishAssignmentsChanged(LocalDate... assignmentDates) {
+        // Cached reports covering these dates are invalidated once the transaction commits
+        eventPublisher.publishEvent(new AssignmentsChangedEvent("WorkAssignment", Arrays.asList(assignmentDates)));
+    }
+
+    // updatedAt for the batch evaluation UPDATE, which bypasses SyncStampListener
+    private LocalDateTime assignmentStamp() {
+        syncService.rowsStamped();
+        return LocalDateTime.now();
+    }
+
+    /**
+     * Convert a loaded assignment; listings are projected by the repository instead. Both payment
+     * reference numbers are resolved with one query.
+     */
     private WorkAssignmentDTO convertToDTO(WorkAssignment assignment) {
+        Set<String> paymentIds = new HashSet<>();
+        if (assignment.getIncludedInPaymentId() != null) {
+            paymentIds.add(assignment.getIncludedInPaymentId());
+        }
+        if (assignment.getPaidInPaymentId() != null) {
+            paymentIds.add(assignment.getPaidInPaymentId());
+        }
+        Map<String, String> referenceNumbers = paymentIds.isEmpty() ? Map.of() :
+                paymentRepository.findReferencesByIds(paymentIds).stream()
+                        .filter(reference -> reference.getReferenceNumber() != null)
+                        .collect(Collectors.toMap(PaymentReferenceDTO::getId, PaymentReferenceDTO::getReferenceNumber));
+
         WorkAssignmentDTO dto = new WorkAssignmentDTO();
         dto.setId(assignment.getId());
         dto.setWorkActivityId(assignment.getWorkActivity() != null ? assignment.getWorkActivity().getId() : null);
@@ -396,14 +723,12 @@ public class WorkAssignmentService {
         dto.setPaidInPaymentId(assignment.getPaidInPaymentId());
         dto.setPaymentLockedAt(assignment.getPaymentLockedAt());
         
-        // Fetch payment reference numbers if payment IDs are present
+        // Payment reference numbers for display
         if (assignment.getIncludedInPaymentId() != null) {
-            paymentRepository.findById(assignment.getIncludedInPaymentId())
-                .ifPresent(payment -> dto.setIncludedInPaymentReferenceNumber(payment.getReferenceNumber()));
+            dto.setIncludedInPaymentReferenceNumber(referenceNumbers.get(assignment.getIncludedInPaymentId()));
         }
         if (assignment.getPaidInPaymentId() != null) {
-            paymentRepository.findById(assignment.getPaidInPaymentId())
-                .ifPresent(payment -> dto.setPaidInPaymentReferenceNumber(payment.getReferenceNumber()));
+            dto.setPaidInPaymentReferenceNumber(referenceNumbers.get(assignment.getPaidInPaymentId()));
         }
         
         dto.setIsEditable(assignment.isEditable());
@@ -511,183 +836,9 @@ public class WorkAssignmentService {
         entry.setOldValue(log.getOldValue());
         entry.setNewValue(log.getNewValue());
         
-        // Create human-readable description based on operation
-        String description = createDescriptionFromLog(log);
-        entry.setDescription(description);
+        // Rendered by the audit log service when the entry was written, as in the audit log listing
+        entry.setDescription(auditLogService.descriptionOf(log));
         
         return entry;
     }
-    
-    private String createDescriptionFromLog(AuditLog log) {
-        String operation = log.getOperation() != null ? log.getOperation().toString() : "UNKNOWN";
-        String entityName = log.getEntityName() != null ? log.getEntityName() : "";
-        String userName = log.getUserFullName() != null ? log.getUserFullName() : log.getUsername();
-        
-        // Use entity name to extract meaningful information
-        switch (operation) {
-            case "CREATE":
-                // entityName format: "Activity Name - Employee Name" or "Activity Name - Unassigned"
-                if (entityName.contains(" - ")) {
-                    String[] parts = entityName.split(" - ", 2);
-                    String activityName = parts[0];
-                    String employeeName = parts[1];
-                    return userName + " created the assignment for " + activityName + 
-                           (!"Unassigned".equals(employeeName) ? " (assigned to " + employeeName + ")" : "");
-                }
-                return userName + " created the assignment";
-                
-            case "EDIT":
-                // Check if this is an evaluation based on entityName containing percentage
-                if (entityName.contains("% complete") || entityName.contains("Evaluation #")) {
-                    // entityName format: "Activity Name - X% complete (Evaluation #N)"
-                    if (entityName.contains("% complete")) {
-                        String[] parts = entityName.split(" - ");
-                        if (parts.length >= 2) {
-                            String details = parts[1]; // "75% complete (Evaluation #2)"
-                            
-                            // Extract percentage
-                            String percentage = details.substring(0, details.indexOf("%") + 1);
-                            
-                            // Check if we have actual value information in oldValue/newValue
-                            String additionalInfo = "";
-                            if (log.getNewValue() != null && log.getNewValue().contains("actualValue")) {
-                                try {
-                                    // Extract actualValue from JSON
-                                    String newValue = log.getNewValue();
-                                    int actualValueIndex = newValue.indexOf("\"actualValue\":");
-                                    if (actualValueIndex != -1) {
-                                        int start = newValue.indexOf(":", actualValueIndex) + 1;
-                                        int end = newValue.indexOf(",", start);
-                                        if (end == -1) end = newValue.indexOf("}", start);
-                                        String value = newValue.substring(start, end).trim();
-                                        additionalInfo = " with " + value + " KGs";
-                                    }
-                                } catch (Exception e) {
-                                    // Ignore parsing errors
-                                }
-                            }
-                            
-                            return userName + " evaluated the assignment: " + percentage + " complete" + additionalInfo;
-                        }
-                    }
-                    return userName + " evaluated the assignment";
-                }
-                
-                // For regular updates, try to detect what changed
-                if (log.getOldValue() != null && log.getNewValue() != null) {
-                    try {
-                        // Check if activity changed
-                        if (log.getOldValue().contains("\"activityName\"") && log.getNewValue().contains("\"activityName\"")) {
-                            String oldActivity = extractJsonValue(log.getOldValue(), "activityName");
-                            String newActivity = extractJsonValue(log.getNewValue(), "activityName");
-                            if (oldActivity != null && newActivity != null && !oldActivity.equals(newActivity)) {
-                                return userName + " changed activity from " + oldActivity + " to " + newActivity;
-                            }
-                        }
-                        
-                        // Check if employee changed
-                        if (log.getOldValue().contains("\"assignedEmployee\"") && log.getNewValue().contains("\"assignedEmployee\"")) {
-                            String oldEmployee = extractJsonValue(log.getOldValue(), "name", "assignedEmployee");
-                            String newEmployee = extractJsonValue(log.getNewValue(), "name", "assignedEmployee");
-                            if (oldEmployee != null && newEmployee != null && !oldEmployee.equals(newEmployee)) {
-                                return userName + " reassigned from " + oldEmployee + " to " + newEmployee;
-                            }
-                        }
-                        
-                        // Check if payment status changed
-                        if (log.getOldValue().contains("\"paymentStatus\"") && log.getNewValue().contains("\"paymentStatus\"")) {
-                            String oldStatus = extractJsonValue(log.getOldValue(), "paymentStatus");
-                            String newStatus = extractJsonValue(log.getNewValue(), "paymentStatus");
-                            if ((oldStatus == null || oldStatus.equals("null")) && newStatus != null && !newStatus.equals("null")) {
-                                return userName + " added assignment to payment";
-                            } else if (oldStatus != null && !oldStatus.equals("null") && (newStatus == null || newStatus.equals("null"))) {
-                                return userName + " removed assignment from payment";
-                            }
-                        }
-                    } catch (Exception e) {
-                        // If parsing fails, fall through to generic message
-                    }
-                }
-                
-                return userName + " updated the assignment";
-                
-            case "DELETE":
-                return userName + " deleted the assignment" + (entityName.isEmpty() ? "" : " (" + entityName + ")");
-                
-            case "EVALUATE":
-                return userName + " evaluated the assignment";
-                
-            default:
-                return userName + " performed " + operation.toLowerCase() + " operation";
-        }
-    }
-    
-    /**
-     * Extract a JSON value from a JSON string
-     */
-    private String extractJsonValue(String json, String key) {
-        return extractJsonValue(json, key, null);
-    }
-    
-    /**
-     * Extract a JSON value from a JSON string, optionally looking within a nested object
-     */
-    private String extractJsonValue(String json, String key, String parentKey) {
-        try {
-            String searchJson = json;
-            
-            // If we have a parent key, first extract that section
-            if (parentKey != null) {
-                int parentStart = json.indexOf("\"" + parentKey + "\":");
-                if (parentStart == -1) return null;
-                
-                int braceStart = json.indexOf("{", parentStart);
-                if (braceStart == -1) return null;
-                
-                int braceCount = 1;
-                int braceEnd = braceStart + 1;
-                while (braceCount > 0 && braceEnd < json.length()) {
-                    char c = json.charAt(braceEnd);
-                    if (c == '{') braceCount++;
-                    else if (c == '}') braceCount--;
-                    braceEnd++;
-                }
-                searchJson = json.substring(braceStart, braceEnd);
-            }
-            
-            // Now search for the key in the relevant section
-            String keyPattern = "\"" + key + "\":";
-            int keyIndex = searchJson.indexOf(keyPattern);
-            if (keyIndex == -1) return null;
-            
-            int valueStart = keyIndex + keyPattern.length();
-            char firstChar = searchJson.charAt(valueStart);
-            
-            // Skip whitespace
-            while (Character.isWhitespace(firstChar)) {
-                valueStart++;
-                firstChar = searchJson.charAt(valueStart);
-            }
-            
-            // Handle string values
-            if (firstChar == '"') {
-                valueStart++; // Skip opening quote
-                int valueEnd = searchJson.indexOf("\"", valueStart);
-                return searchJson.substring(valueStart, valueEnd);
-            }
-            
-            // Handle other values (numbers, booleans, null)
-            int valueEnd = valueStart;
-            while (valueEnd < searchJson.length()) {
-                char c = searchJson.charAt(valueEnd);
-                if (c == ',' || c == '}' || c == ']') break;
-                valueEnd++;
-            }
-            return searchJson.substring(valueStart, valueEnd).trim();
-            
-        } catch (Exception e) {
-            return null;
-        }
-    }
 }
-
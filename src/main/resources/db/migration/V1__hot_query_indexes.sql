@@ -0,0 +1,33 @@
+-- Index set for the hot repository queries. Plain CREATE INDEX so the script runs on MySQL and H2.
+
+-- work_assignments: date-range reports (assignment_date BETWEEN .. AND deleted = false) and the
+-- unfiltered keyset listing (ORDER BY assignment_date DESC, id DESC)
+CREATE INDEX idx_work_assignments_date_deleted ON work_assignments (assignment_date, deleted, id);
+
+-- work_assignments: per-employee lookups and the listing filters, each followed by the listing sort key
+CREATE INDEX idx_work_assignments_employee_date ON work_assignments (assigned_employee_id, deleted, assignment_date, id);
+CREATE INDEX idx_work_assignments_activity_date ON work_assignments (work_activity_id, deleted, assignment_date, id);
+CREATE INDEX idx_work_assignments_status_date ON work_assignments (assignment_status, deleted, assignment_date, id);
+CREATE INDEX idx_work_assignments_payment_status_date ON work_assignments (payment_status, deleted, assignment_date, id);
+
+-- employee_salaries: current salary (end_date IS NULL AND is_active = true) per employee
+CREATE INDEX idx_employee_salaries_employee_current ON employee_salaries (employee_id, end_date, is_active);
+
+-- employee_salaries: salary in effect on a date and salary history, per employee
+CREATE INDEX idx_employee_salaries_employee_start ON employee_salaries (employee_id, start_date);
+
+-- employee_salaries: salary changes in a date range, salaries in effect on a date across employees
+CREATE INDEX idx_employee_salaries_start_date ON employee_salaries (start_date);
+
+-- payments: monthly PF/payment reports and the paid-payment check per period
+CREATE INDEX idx_payments_status_year_month ON payments (status, payment_year, payment_month);
+
+-- payments: listing by status, newest first
+CREATE INDEX idx_payments_status_created ON payments (status, created_at);
+
+-- payments: lookup by reference number
+CREATE INDEX idx_payments_reference_number ON payments (reference_number);
+
+-- payment_line_items: the workflow UPDATEs select assignment ids by payment
+-- (WHERE wa.id IN (SELECT assignment_id ... WHERE payment_id = ?)), answered from this index alone
+CREATE INDEX idx_payment_line_items_payment_assignment ON payment_line_items (payment_id, assignment_id);
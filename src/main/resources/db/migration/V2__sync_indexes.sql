@@ -0,0 +1,12 @@
+-- Indexes for the delta sync API, which reads rows updated after a client watermark
+
+-- work_assignments: changed rows (the assignment date window is applied to the few rows found)
+CREATE INDEX idx_work_assignments_updated_at ON work_assignments (updated_at);
+
+-- employees and work_activities: changed rows
+CREATE INDEX idx_employees_updated_at ON employees (updated_at);
+CREATE INDEX idx_work_activities_updated_at ON work_activities (updated_at);
+
+-- sync_tombstones: hard deletes after the watermark, and the retention purge
+CREATE INDEX idx_sync_tombstones_type_deleted_at ON sync_tombstones (entity_type, deleted_at);
+CREATE INDEX idx_sync_tombstones_deleted_at ON sync_tombstones (deleted_at);
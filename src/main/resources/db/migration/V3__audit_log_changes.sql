@@ -0,0 +1,7 @@
+-- Structured audit history: field changes are fetched per entry, entries per entity
+
+-- audit_log_changes: the field changes of a page of audit entries
+CREATE INDEX idx_audit_log_changes_audit_log ON audit_log_changes (audit_log_id);
+
+-- audit_logs: history of one entity, newest first (assignment history)
+CREATE INDEX idx_audit_logs_entity ON audit_logs (entity_id, entity_type, timestamp);
@@ -0,0 +1,112 @@
+package com.sarlatea.crm.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.model.Permission;
+import com.sarlatea.crm.repository.IdempotencyRecordRepository;
+import com.sarlatea.crm.repository.PaymentRepository;
+import com.sarlatea.crm.service.IdempotencyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends payment draft requests with an Idempotency-Key through the full web stack (security,
+ * PaymentController, exception handling) and checks that a repeated key returns the first draft
+ * instead of creating another, and that reusing a key for a different draft is a conflict.
+ */
+public class PaymentControllerIdempotencyTest extends BaseIntegrationTest {
+
+    private static final String USERNAME = "idempotency-controller-test";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+    private final Set<String> paymentIds = new HashSet<>();
+    private String idempotencyKey;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+        idempotencyKey = "draft-" + System.nanoTime();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        paymentRepository.deleteAllById(paymentIds);
+        idempotencyRecordRepository.findByUsernameAndIdempotencyKey(USERNAME, idempotencyKey)
+                .ifPresent(idempotencyRecordRepository::delete);
+    }
+
+    @Test
+    public void whenDraftIsPostedAgainWithSameKey_thenFirstDraftIsReplayed() throws Exception {
+        MvcResult first = postDraft(1)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER))
+                .andReturn();
+        String paymentId = paymentId(first);
+        long payments = paymentRepository.count();
+
+        MvcResult repeat = postDraft(1)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andReturn();
+
+        assertThat(paymentId(repeat)).isEqualTo(paymentId);
+        assertThat(paymentRepository.count()).isEqualTo(payments);
+    }
+
+    @Test
+    public void whenKeyIsReusedForDifferentDraft_thenConflict() throws Exception {
+        paymentId(postDraft(1).andExpect(status().isCreated()).andReturn());
+        long payments = paymentRepository.count();
+
+        postDraft(2).andExpect(status().isConflict());
+
+        assertThat(paymentRepository.count()).isEqualTo(payments);
+    }
+
+    private ResultActions postDraft(int month) throws Exception {
+        return mockMvc.perform(post("/api/payments/draft")
+                .with(user(USERNAME).authorities(new SimpleGrantedAuthority(Permission.CREATE_PAYMENT.name())))
+                .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"paymentMonth\": " + month + ", \"paymentYear\": 2195, \"assignmentIds\": []}"));
+    }
+
+    private String paymentId(MvcResult result) throws Exception {
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        String paymentId = body.get("id").asText();
+        paymentIds.add(paymentId);
+        return paymentId;
+    }
+}
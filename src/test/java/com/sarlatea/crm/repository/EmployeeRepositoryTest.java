@@ -1,10 +1,12 @@
 package com.sarlatea.crm.repository;
 
+import com.sarlatea.crm.config.FlywayConfig;
 import com.sarlatea.crm.model.Employee;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
@@ -14,6 +16,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
 @ActiveProfiles("test")
+// The slice does not scan configuration; without it Flyway would migrate before ddl-auto creates the tables
+@Import(FlywayConfig.class)
 public class EmployeeRepositoryTest {
 
     @Autowired
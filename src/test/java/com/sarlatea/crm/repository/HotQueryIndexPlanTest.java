@@ -0,0 +1,153 @@
+package com.sarlatea.crm.repository;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.SqlCaptureInspector;
+import com.sarlatea.crm.dto.WorkAssignmentFilter;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.model.SyncTombstone;
+import com.sarlatea.crm.model.WorkAssignment;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+/**
+ * Runs the hot repository methods, captures the SQL Hibernate generates for them and EXPLAINs it,
+ * failing if a statement would scan its whole table instead of using an index from db/migration.
+ *
+ * Runs against H2 in the test profile. H2 plans a prepared statement without looking at its bind
+ * values, so the captured SQL is explained with its placeholders as they are; MySQL would need the
+ * values bound, so the check is skipped there.
+ */
+public class HotQueryIndexPlanTest extends BaseIntegrationTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final LocalDate END = LocalDate.of(2025, 1, 31);
+    private static final LocalDateTime SINCE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    private WorkAssignmentRepository workAssignmentRepository;
+
+    @Autowired
+    private EmployeeSalaryRepository employeeSalaryRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private WorkActivityRepository workActivityRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Map<String, Runnable> hotQueries() {
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+
+        queries.put("WorkAssignmentRepository.findByAssignmentDateBetweenAndDeletedFalse",
+                () -> workAssignmentRepository.findByAssignmentDateBetweenAndDeletedFalse(START, END));
+        queries.put("WorkAssignmentRepository.findEmployeeAssignmentsInDateRange",
+                () -> workAssignmentRepository.findEmployeeAssignmentsInDateRange("e", START, END));
+        queries.put("WorkAssignmentRepository.findByStatusAndDate",
+                () -> workAssignmentRepository.findByStatusAndDate(WorkAssignment.AssignmentStatus.COMPLETED, START));
+        queries.put("WorkAssignmentRepository.findDtoPage (activity filter)",
+                () -> workAssignmentRepository.findDtoPage(
+                        new WorkAssignmentFilter(null, "a", null, null, null, null), END, "id", 101));
+        queries.put("WorkAssignmentRepository.findDtoPage (payment status filter)",
+                () -> workAssignmentRepository.findDtoPage(
+                        new WorkAssignmentFilter(null, null, null, WorkAssignment.PaymentStatus.DRAFT, null, null),
+                        END, "id", 101));
+
+        queries.put("EmployeeSalaryRepository.findCurrentSalaryByEmployeeId",
+                () -> employeeSalaryRepository.findCurrentSalaryByEmployeeId("e"));
+        queries.put("EmployeeSalaryRepository.findSalaryForEmployeeOnDate",
+                () -> employeeSalaryRepository.findSalaryForEmployeeOnDate("e", START));
+        queries.put("EmployeeSalaryRepository.findSalaryChangesInDateRange",
+                () -> employeeSalaryRepository.findSalaryChangesInDateRange(START, END));
+
+        queries.put("PaymentRepository.countByStatusAndPaymentYearAndPaymentMonth",
+                () -> paymentRepository.countByStatusAndPaymentYearAndPaymentMonth(Payment.PaymentStatus.PAID, 2025, 1));
+        queries.put("PaymentRepository.findSummariesByStatus",
+                () -> paymentRepository.findSummariesByStatus(Payment.PaymentStatus.DRAFT, PageRequest.of(0, 20)));
+        queries.put("PaymentRepository.findByReferenceNumber",
+                () -> paymentRepository.findByReferenceNumber("PAY-1"));
+
+        // Delta sync (SyncService)
+        queries.put("WorkAssignmentRepository.findSyncRowsFrom",
+                () -> workAssignmentRepository.findSyncRowsFrom(START));
+        queries.put("WorkAssignmentRepository.findSyncRowsChangedSince",
+                () -> workAssignmentRepository.findSyncRowsChangedSince(SINCE, START));
+        queries.put("WorkAssignmentRepository.findIdsDeletedSince",
+                () -> workAssignmentRepository.findIdsDeletedSince(SINCE, START));
+        queries.put("EmployeeRepository.findSyncRowsChangedSince",
+                () -> employeeRepository.findSyncRowsChangedSince(SINCE));
+        queries.put("WorkActivityRepository.findSyncRowsChangedSince",
+                () -> workActivityRepository.findSyncRowsChangedSince(SINCE));
+        queries.put("WorkActivityRepository.findIdsDeletedSince",
+                () -> workActivityRepository.findIdsDeletedSince(SINCE));
+        queries.put("SyncTombstoneRepository.findEntityIdsDeletedSince",
+                () -> syncTombstoneRepository.findEntityIdsDeletedSince(SyncTombstone.EntityType.EMPLOYEE, SINCE));
+
+        // Assignment history (WorkAssignmentService.getAssignmentHistory)
+        queries.put("AuditLogRepository.findByEntityIdAndEntityTypeOrderByTimestampDesc",
+                () -> auditLogRepository.findByEntityIdAndEntityTypeOrderByTimestampDesc("a", "WorkAssignment"));
+
+        // Payment workflow UPDATEs on work_assignments select their rows through the line items
+        queries.put("WorkAssignmentRepository.lockForPaymentByPaymentId",
+                () -> transactionTemplate.executeWithoutResult(status -> {
+                    workAssignmentRepository.lockForPaymentByPaymentId("p", LocalDateTime.now());
+                    status.setRollbackOnly();
+                }));
+        return queries;
+    }
+
+    @Test
+    public void whenHotQueriesAreExplained_thenNoneScansItsWholeTable() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        assumeThat(database).isEqualToIgnoringCase("H2");
+
+        SoftAssertions softly = new SoftAssertions();
+        hotQueries().forEach((name, query) -> {
+            List<String> statements = SqlCaptureInspector.capture(query);
+            softly.assertThat(statements).as("%s generated no SQL", name).isNotEmpty();
+
+            for (String sql : statements) {
+                // H2 marks the access path of each table in a comment, e.g. /* PUBLIC.IDX_...: ... */
+                String planText = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+                    try (var statement = connection.prepareStatement("EXPLAIN " + sql);
+                         var resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        return resultSet.getString(1);
+                    }
+                });
+                softly.assertThat(planText)
+                        .as("%s: %s", name, planText)
+                        .doesNotContainIgnoringCase("tableScan");
+            }
+        });
+        softly.assertAll();
+    }
+}
@@ -0,0 +1,218 @@
+package com.sarlatea.crm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.dto.AssignmentHistoryDTO;
+import com.sarlatea.crm.dto.WorkAssignmentDTO;
+import com.sarlatea.crm.model.AuditLog;
+import com.sarlatea.crm.model.AuditLogChange;
+import com.sarlatea.crm.model.WorkActivity;
+import com.sarlatea.crm.model.WorkAssignment;
+import com.sarlatea.crm.repository.AuditLogChangeRepository;
+import com.sarlatea.crm.repository.AuditLogRepository;
+import com.sarlatea.crm.repository.WorkActivityRepository;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Checks the field changes and descriptions rendered for audit entries, both when they are written
+ * and when entries written before that are backfilled, and that the assignment history shows them.
+ */
+public class AuditLogServiceTest extends BaseIntegrationTest {
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private AuditLogBackfillService auditLogBackfillService;
+
+    @Autowired
+    private WorkAssignmentService workAssignmentService;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditLogChangeRepository auditLogChangeRepository;
+
+    @Autowired
+    private WorkAssignmentRepository workAssignmentRepository;
+
+    @Autowired
+    private WorkActivityRepository workActivityRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<String> auditLogIds = new ArrayList<>();
+    private String assignmentId;
+    private String activityId;
+
+    @AfterEach
+    public void tearDown() {
+        auditLogChangeRepository.deleteAll(auditLogChangeRepository.findByAuditLogIdIn(auditLogIds));
+        auditLogRepository.deleteAllById(auditLogIds);
+        if (assignmentId != null) {
+            workAssignmentRepository.deleteById(assignmentId);
+        }
+        if (activityId != null) {
+            workActivityRepository.deleteById(activityId);
+        }
+    }
+
+    @Test
+    public void whenAssignmentDtoIsEdited_thenChangedFieldsAreRecordedAndDescribed() throws Exception {
+        WorkAssignmentDTO before = assignmentDto("Plucking", "Asha", WorkAssignment.PaymentStatus.UNPAID);
+
+        AuditLog edit = editEntry("Pruning - Ravi", before, assignmentDto("Pruning", "Ravi", WorkAssignment.PaymentStatus.DRAFT));
+        List<AuditLogChange> changes = auditLogService.describe(edit,
+                objectMapper.readTree(edit.getOldValue()), objectMapper.readTree(edit.getNewValue()));
+        assertThat(changes)
+                .extracting(AuditLogChange::getFieldName, AuditLogChange::getOldValue, AuditLogChange::getNewValue)
+                .containsExactly(
+                        tuple("assignedEmployeeName", "Asha", "Ravi"),
+                        tuple("activityName", "Plucking", "Pruning"),
+                        tuple("paymentStatus", "UNPAID", "DRAFT"));
+        // An activity change is the most telling of the three
+        assertThat(edit.getDescription()).isEqualTo("auditor changed activity from Plucking to Pruning");
+
+        AuditLog reassignment = editEntry("Plucking - Ravi", before, assignmentDto("Plucking", "Ravi", WorkAssignment.PaymentStatus.UNPAID));
+        auditLogService.describe(reassignment,
+                objectMapper.readTree(reassignment.getOldValue()), objectMapper.readTree(reassignment.getNewValue()));
+        assertThat(reassignment.getDescription()).isEqualTo("auditor reassigned from Asha to Ravi");
+
+        AuditLog payment = editEntry("Plucking - Asha", before, assignmentDto("Plucking", "Asha", WorkAssignment.PaymentStatus.DRAFT));
+        auditLogService.describe(payment,
+                objectMapper.readTree(payment.getOldValue()), objectMapper.readTree(payment.getNewValue()));
+        assertThat(payment.getDescription()).isEqualTo("auditor updated payment status to DRAFT");
+    }
+
+    @Test
+    public void whenNestedValuesChange_thenTheyAreComparedByDottedPath() throws Exception {
+        Map<String, Object> before = new LinkedHashMap<>();
+        before.put("name", "Asha");
+        before.put("employeeType", Map.of("name", "Permanent"));
+        before.put("skills", List.of("plucking"));
+        Map<String, Object> after = new LinkedHashMap<>(before);
+        after.put("employeeType", Map.of("name", "Seasonal"));
+        after.put("skills", List.of("plucking", "pruning"));
+
+        AuditLog edit = editEntry("Asha", before, after);
+        edit.setEntityType("Employee");
+        List<AuditLogChange> changes = auditLogService.describe(edit,
+                objectMapper.readTree(edit.getOldValue()), objectMapper.readTree(edit.getNewValue()));
+
+        // Arrays are compared whole, as JSON
+        assertThat(changes)
+                .extracting(AuditLogChange::getFieldName, AuditLogChange::getOldValue, AuditLogChange::getNewValue)
+                .containsExactly(
+                        tuple("employeeType.name", "Permanent", "Seasonal"),
+                        tuple("skills", "[\"plucking\"]", "[\"plucking\",\"pruning\"]"));
+        assertThat(edit.getDescription()).isEqualTo("auditor changed employee type from Permanent to Seasonal for Asha");
+    }
+
+    @Test
+    public void whenEvaluationRepeatsActualValue_thenDescriptionStillShowsIt() throws Exception {
+        AuditLog evaluation = editEntry("Plucking - 80% complete (Evaluation #2)",
+                evaluationState(1, 60, 12.5), evaluationState(2, 80, 12.5));
+        List<AuditLogChange> changes = auditLogService.describe(evaluation,
+                objectMapper.readTree(evaluation.getOldValue()), objectMapper.readTree(evaluation.getNewValue()));
+
+        assertThat(changes).extracting(AuditLogChange::getFieldName)
+                .containsExactly("completionPercentage", "evaluationCount");
+        assertThat(evaluation.getDescription()).isEqualTo("auditor evaluated the assignment: 80% complete with 12.5 KGs");
+    }
+
+    @Test
+    public void whenEntryPredatesChangeCapture_thenBackfillRecordsChangesAndDescription() throws Exception {
+        // Written the way entries were before field changes were captured: values only, no description
+        AuditLog legacy = editEntry("Plucking - Ravi",
+                assignmentDto("Plucking", "Asha", null), assignmentDto("Plucking", "Ravi", null));
+        legacy = auditLogRepository.save(legacy);
+        auditLogIds.add(legacy.getId());
+        assertThat(auditLogService.descriptionOf(legacy)).isEqualTo("auditor updated work assignment: Plucking - Ravi");
+
+        assertThat(auditLogBackfillService.backfill()).isGreaterThanOrEqualTo(1);
+
+        AuditLog backfilled = auditLogRepository.findById(legacy.getId()).orElseThrow();
+        assertThat(backfilled.getDescription()).isEqualTo("auditor reassigned from Asha to Ravi");
+        assertThat(auditLogChangeRepository.findByAuditLogIdIn(List.of(legacy.getId())))
+                .extracting(AuditLogChange::getFieldName, AuditLogChange::getOldValue, AuditLogChange::getNewValue)
+                .containsExactly(tuple("assignedEmployeeName", "Asha", "Ravi"));
+    }
+
+    @Test
+    public void whenHistoryIsRead_thenEntriesShowTheirStoredDescription() throws Exception {
+        WorkActivity activity = new WorkActivity();
+        activity.setName("Audit History Activity");
+        activityId = workActivityRepository.save(activity).getId();
+        WorkAssignment assignment = new WorkAssignment();
+        assignment.setWorkActivity(activity);
+        assignment.setActivityName(activity.getName());
+        assignment.setAssignmentDate(LocalDate.of(2196, 4, 1));
+        assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.ASSIGNED);
+        assignmentId = workAssignmentRepository.save(assignment).getId();
+
+        AuditLog evaluation = editEntry("Plucking - 80% complete (Evaluation #2)",
+                evaluationState(1, 60, 12.5), evaluationState(2, 80, 12.5));
+        evaluation.setEntityId(assignmentId);
+        evaluation.setTimestamp(LocalDateTime.now().minusMinutes(1));
+        auditLogService.describe(evaluation,
+                objectMapper.readTree(evaluation.getOldValue()), objectMapper.readTree(evaluation.getNewValue()));
+        auditLogIds.add(auditLogRepository.save(evaluation).getId());
+
+        AuditLog legacy = editEntry("Plucking - Ravi", assignmentDto("Plucking", "Asha", null), null);
+        legacy.setEntityId(assignmentId);
+        auditLogIds.add(auditLogRepository.save(legacy).getId());
+
+        AssignmentHistoryDTO history = workAssignmentService.getAssignmentHistory(assignmentId);
+        assertThat(history.getAuditLogs()).extracting(AssignmentHistoryDTO.AuditLogEntry::getDescription)
+                .containsExactly(
+                        "auditor updated work assignment: Plucking - Ravi",
+                        "auditor evaluated the assignment: 80% complete with 12.5 KGs");
+    }
+
+    private AuditLog editEntry(String entityName, Object oldValue, Object newValue) throws Exception {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setUsername("auditor");
+        auditLog.setOperation(AuditLog.OperationType.EDIT);
+        auditLog.setEntityType("WorkAssignment");
+        auditLog.setEntityName(entityName);
+        auditLog.setStatus(AuditLog.OperationStatus.SUCCESS);
+        auditLog.setOldValue(oldValue != null ? objectMapper.writeValueAsString(oldValue) : null);
+        auditLog.setNewValue(newValue != null ? objectMapper.writeValueAsString(newValue) : null);
+        return auditLog;
+    }
+
+    private static WorkAssignmentDTO assignmentDto(String activityName, String employeeName,
+                                                   WorkAssignment.PaymentStatus paymentStatus) {
+        WorkAssignmentDTO dto = new WorkAssignmentDTO();
+        dto.setId("assignment-1");
+        dto.setAssignedEmployeeName(employeeName);
+        dto.setActivityName(activityName);
+        dto.setAssignmentDate(LocalDate.of(2196, 4, 1));
+        dto.setPaymentStatus(paymentStatus);
+        return dto;
+    }
+
+    // The state WorkAssignmentService records around an evaluation
+    private static Map<String, Object> evaluationState(int evaluationCount, int completionPercentage, double actualValue) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("actualValue", actualValue);
+        state.put("completionPercentage", completionPercentage);
+        state.put("evaluationCount", evaluationCount);
+        return state;
+    }
+}
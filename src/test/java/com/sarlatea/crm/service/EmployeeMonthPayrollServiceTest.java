@@ -0,0 +1,239 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.dto.ApprovePaymentRequest;
+import com.sarlatea.crm.dto.CancelPaymentRequest;
+import com.sarlatea.crm.dto.CreatePaymentDraftRequest;
+import com.sarlatea.crm.dto.RecordPaymentRequest;
+import com.sarlatea.crm.dto.SubmitPaymentRequest;
+import com.sarlatea.crm.model.Employee;
+import com.sarlatea.crm.model.EmployeeMonthPayroll;
+import com.sarlatea.crm.model.EmployeeSalary;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.model.PaymentLineItem;
+import com.sarlatea.crm.model.WorkActivity;
+import com.sarlatea.crm.model.WorkAssignment;
+import com.sarlatea.crm.repository.EmployeeMonthPayrollRepository;
+import com.sarlatea.crm.repository.EmployeeRepository;
+import com.sarlatea.crm.repository.EmployeeSalaryRepository;
+import com.sarlatea.crm.repository.PaymentRepository;
+import com.sarlatea.crm.repository.WorkActivityRepository;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Walks payments of one month through record-paid, cancel and a full rebuild, and checks after each
+ * step that the employee_month_payroll rows match the sums recomputed from the PAID line items.
+ */
+public class EmployeeMonthPayrollServiceTest extends BaseIntegrationTest {
+
+    private static final int PAYROLL_YEAR = 2198;
+    private static final int PAYROLL_MONTH = 3;
+    private static final int ASSIGNMENTS = 12;
+
+    @Autowired
+    private EmployeeMonthPayrollService employeeMonthPayrollService;
+
+    @Autowired
+    private EmployeeMonthPayrollRepository employeeMonthPayrollRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private WorkAssignmentRepository workAssignmentRepository;
+
+    @Autowired
+    private WorkActivityRepository workActivityRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeSalaryRepository employeeSalaryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<String> paymentIds = new ArrayList<>();
+    private final List<String> assignmentIds = new ArrayList<>();
+    private final List<String> salaryIds = new ArrayList<>();
+    private final List<String> employeeIds = new ArrayList<>();
+    private String activityId;
+
+    @AfterEach
+    public void tearDown() {
+        paymentRepository.deleteAllById(paymentIds);
+        // Drops this test's employee-month rows along with the payments they were built from
+        employeeMonthPayrollService.rebuild();
+        workAssignmentRepository.deleteAllById(assignmentIds);
+        employeeSalaryRepository.deleteAllById(salaryIds);
+        employeeRepository.deleteAllById(employeeIds);
+        if (activityId != null) {
+            workActivityRepository.deleteById(activityId);
+        }
+    }
+
+    @Test
+    public void whenPaymentsArePaidCancelledAndRebuilt_thenAggregateMatchesLineItems() {
+        createCompletedAssignments();
+
+        String paid = payAssignments(assignmentIds.subList(0, 5), "REF-1");
+        assertThat(aggregateRows()).isNotEmpty();
+        assertAggregateMatchesLineItems();
+
+        // An approved payment that is cancelled never reaches the aggregate
+        String cancelled = approveAssignments(assignmentIds.subList(5, 9));
+        paymentService.cancelPayment(cancelled, new CancelPaymentRequest("Wrong month"), "payroll-test");
+        assertAggregateMatchesLineItems();
+
+        // Paid payments cannot be cancelled, and a rejected cancel leaves the totals alone
+        assertThatThrownBy(() -> paymentService.cancelPayment(paid, new CancelPaymentRequest("Too late"), "payroll-test"))
+                .isInstanceOf(IllegalStateException.class);
+        assertAggregateMatchesLineItems();
+
+        // The cancelled assignments are released and paid again, adding to the same employee-month rows
+        payAssignments(assignmentIds.subList(5, ASSIGNMENTS), "REF-2");
+        Map<String, String> incremental = aggregateRows();
+        assertAggregateMatchesLineItems();
+
+        employeeMonthPayrollService.rebuild();
+        assertThat(aggregateRows()).isEqualTo(incremental);
+        assertAggregateMatchesLineItems();
+    }
+
+    private String payAssignments(List<String> ids, String referenceNumber) {
+        String paymentId = approveAssignments(ids);
+        paymentService.recordPayment(paymentId,
+                new RecordPaymentRequest(LocalDate.of(PAYROLL_YEAR, PAYROLL_MONTH, 28), referenceNumber, null),
+                "payroll-test");
+        return paymentId;
+    }
+
+    private String approveAssignments(List<String> ids) {
+        CreatePaymentDraftRequest request = new CreatePaymentDraftRequest();
+        request.setPaymentMonth(PAYROLL_MONTH);
+        request.setPaymentYear(PAYROLL_YEAR);
+        request.setAssignmentIds(new ArrayList<>(ids));
+        String paymentId = paymentService.createDraft(request, "payroll-test").getId();
+        paymentIds.add(paymentId);
+
+        paymentService.submitForApproval(paymentId, new SubmitPaymentRequest(null), "payroll-test");
+        paymentService.approvePayment(paymentId, new ApprovePaymentRequest(null), "payroll-test");
+        return paymentId;
+    }
+
+    private void assertAggregateMatchesLineItems() {
+        assertThat(aggregateRows()).isEqualTo(recomputeFromLineItems());
+    }
+
+    // Aggregate rows of the test month, keyed by employee
+    private Map<String, String> aggregateRows() {
+        return employeeMonthPayrollRepository.findMonthWithEmployees(PAYROLL_YEAR, PAYROLL_MONTH).stream()
+                .collect(Collectors.toMap(EmployeeMonthPayroll::getEmployeeId, row -> format(
+                        row.getPaymentCount(), row.getAssignmentCount(), row.getGrossAmount(), row.getEmployeePf(),
+                        row.getVoluntaryPf(), row.getEmployerPf(), row.getNetAmount())));
+    }
+
+    // The same figures summed straight from the line items of the month's PAID payments
+    private Map<String, String> recomputeFromLineItems() {
+        return transactionTemplate.execute(status -> {
+            Map<String, Set<String>> payments = new HashMap<>();
+            Map<String, List<PaymentLineItem>> items = new HashMap<>();
+            for (Payment payment : paymentRepository.findAllById(paymentIds)) {
+                if (payment.getStatus() != Payment.PaymentStatus.PAID) {
+                    continue;
+                }
+                for (PaymentLineItem item : payment.getLineItems()) {
+                    String employeeId = item.getEmployee().getId();
+                    payments.computeIfAbsent(employeeId, id -> new HashSet<>()).add(payment.getId());
+                    items.computeIfAbsent(employeeId, id -> new ArrayList<>()).add(item);
+                }
+            }
+
+            Map<String, String> rows = new HashMap<>();
+            items.forEach((employeeId, employeeItems) -> rows.put(employeeId, format(
+                    payments.get(employeeId).size(), employeeItems.size(),
+                    sum(employeeItems, PaymentLineItem::getAmount),
+                    sum(employeeItems, PaymentLineItem::getEmployeePf),
+                    sum(employeeItems, PaymentLineItem::getVoluntaryPf),
+                    sum(employeeItems, PaymentLineItem::getEmployerPf),
+                    sum(employeeItems, PaymentLineItem::getNetAmount))));
+            return rows;
+        });
+    }
+
+    private static BigDecimal sum(List<PaymentLineItem> items, java.util.function.Function<PaymentLineItem, BigDecimal> field) {
+        return items.stream()
+                .map(field)
+                .map(value -> value != null ? value : BigDecimal.ZERO)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static String format(int payments, int assignments, BigDecimal... amounts) {
+        StringBuilder row = new StringBuilder().append(payments).append('|').append(assignments);
+        for (BigDecimal amount : amounts) {
+            row.append('|').append(amount.setScale(2, RoundingMode.HALF_UP));
+        }
+        return row.toString();
+    }
+
+    private void createCompletedAssignments() {
+        transactionTemplate.executeWithoutResult(status -> {
+            WorkActivity activity = new WorkActivity();
+            activity.setName("Payroll Aggregate Test Activity");
+            activity = workActivityRepository.save(activity);
+            activityId = activity.getId();
+
+            List<Employee> employees = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Employee employee = new Employee();
+                employee.setName("Payroll Worker " + i);
+                employee = employeeRepository.save(employee);
+
+                EmployeeSalary salary = new EmployeeSalary();
+                salary.setEmployee(employee);
+                salary.setAmount(new BigDecimal("12000.00"));
+                salary.setSalaryType(EmployeeSalary.SalaryType.MONTHLY);
+                salary.setCurrency("INR");
+                salary.setStartDate(LocalDate.of(2024, 1, 1));
+                salary.setVoluntaryPfPercentage(new BigDecimal("1.50"));
+                salary.setIsActive(true);
+                salaryIds.add(employeeSalaryRepository.save(salary).getId());
+                employeeIds.add(employee.getId());
+                employees.add(employee);
+            }
+
+            for (int i = 0; i < ASSIGNMENTS; i++) {
+                WorkAssignment assignment = new WorkAssignment();
+                assignment.setWorkActivity(activity);
+                assignment.setActivityName(activity.getName());
+                assignment.setAssignedEmployee(employees.get(i % employees.size()));
+                assignment.setAssignmentDate(LocalDate.of(PAYROLL_YEAR, PAYROLL_MONTH, 1).plusDays(i));
+                assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.COMPLETED);
+                assignment.setCompletionPercentage(40 + 5 * i);
+                assignmentIds.add(workAssignmentRepository.save(assignment).getId());
+            }
+        });
+    }
+}
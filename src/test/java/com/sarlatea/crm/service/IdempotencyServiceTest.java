@@ -0,0 +1,177 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.exception.DataIntegrityException;
+import com.sarlatea.crm.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sends requests through IdempotencyService the way the payment endpoints do and checks that each key
+ * runs its action at most once: repeats are replayed, and duplicates that arrive while the first
+ * request is still running, or that carry a different payload, are rejected.
+ */
+public class IdempotencyServiceTest extends BaseIntegrationTest {
+
+    private static final String USERNAME = "idempotency-test";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final List<String> keys = new ArrayList<>();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    public void tearDown() {
+        for (String key : keys) {
+            idempotencyRecordRepository.findByUsernameAndIdempotencyKey(USERNAME, key)
+                    .ifPresent(idempotencyRecordRepository::delete);
+        }
+    }
+
+    @Test
+    public void whenKeyIsRepeated_thenStoredResponseIsReplayed() {
+        String key = newKey();
+
+        ResponseEntity<String> first = execute(key, Map.of("amount", 100));
+        ResponseEntity<String> repeat = execute(key, Map.of("amount", 100));
+
+        assertThat(runs).hasValue(1);
+        assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(repeat.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(repeat.getStatusCode()).isEqualTo(first.getStatusCode());
+        assertThat(repeat.getBody()).isEqualTo(first.getBody());
+    }
+
+    @Test
+    public void whenKeyIsReusedWithDifferentPayload_thenItIsRejected() {
+        String key = newKey();
+        execute(key, Map.of("amount", 100));
+
+        assertThatThrownBy(() -> execute(key, Map.of("amount", 200)))
+                .isInstanceOf(DataIntegrityException.class)
+                .hasMessageContaining("different request");
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    public void whenDuplicateArrivesWhileFirstIsRunning_thenItIsRejected() throws Exception {
+        String key = newKey();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // The operation is part of the fingerprint, so the first request runs in this test's request
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<String>> first = executor.submit(() -> {
+                RequestContextHolder.setRequestAttributes(request);
+                return idempotencyService.execute(key, USERNAME, Map.of("amount", 100), String.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return ResponseEntity.ok("run " + runs.incrementAndGet());
+                });
+            });
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> execute(key, Map.of("amount", 100)))
+                    .isInstanceOf(DataIntegrityException.class)
+                    .hasMessageContaining("still being processed");
+
+            release.countDown();
+            assertThat(first.get(10, TimeUnit.SECONDS).getBody()).isEqualTo("run 1");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        // Once the first request has finished, the duplicate gets its response
+        assertThat(execute(key, Map.of("amount", 100)).getBody()).isEqualTo("run 1");
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    public void whenDuplicatesRace_thenActionRunsOnce() throws Exception {
+        String key = newKey();
+        int threads = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger replayed = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    await(go);
+                    try {
+                        ResponseEntity<String> response = idempotencyService.execute(key, USERNAME,
+                                Map.of("amount", 100), String.class, () -> {
+                                    sleep(200);
+                                    return ResponseEntity.ok("run " + runs.incrementAndGet());
+                                });
+                        if (response.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)) {
+                            replayed.incrementAndGet();
+                        }
+                    } catch (DataIntegrityException e) {
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(runs).hasValue(1);
+        assertThat(rejected.get() + replayed.get()).isEqualTo(threads - 1);
+    }
+
+    private ResponseEntity<String> execute(String key, Object payload) {
+        return idempotencyService.execute(key, USERNAME, payload, String.class,
+                () -> ResponseEntity.ok("run " + runs.incrementAndGet()));
+    }
+
+    private String newKey() {
+        String key = "idempotency-test-" + System.nanoTime();
+        keys.add(key);
+        return key;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
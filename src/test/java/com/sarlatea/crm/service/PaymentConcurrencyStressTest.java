@@ -0,0 +1,207 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.dto.CreatePaymentDraftRequest;
+import com.sarlatea.crm.model.Employee;
+import com.sarlatea.crm.model.EmployeeSalary;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.model.PaymentLineItem;
+import com.sarlatea.crm.model.WorkActivity;
+import com.sarlatea.crm.model.WorkAssignment;
+import com.sarlatea.crm.repository.EmployeeRepository;
+import com.sarlatea.crm.repository.EmployeeSalaryRepository;
+import com.sarlatea.crm.repository.PaymentLineItemRepository;
+import com.sarlatea.crm.repository.PaymentRepository;
+import com.sarlatea.crm.repository.WorkActivityRepository;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers a set of drafts from many threads, each trying to add the same assignments, and checks
+ * that optimistic locking plus the conditional claim keep every assignment in at most one payment
+ * and every draft total consistent with its line items.
+ */
+public class PaymentConcurrencyStressTest extends BaseIntegrationTest {
+
+    private static final int ASSIGNMENTS = 60;
+    private static final int DRAFTS = 3;
+    private static final int THREADS_PER_DRAFT = 3;
+    private static final int STRESS_YEAR = 2199;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentLineItemRepository paymentLineItemRepository;
+
+    @Autowired
+    private WorkAssignmentRepository workAssignmentRepository;
+
+    @Autowired
+    private WorkActivityRepository workActivityRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeSalaryRepository employeeSalaryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<String> draftIds = new ArrayList<>();
+    private final List<String> assignmentIds = new ArrayList<>();
+    private final List<String> salaryIds = new ArrayList<>();
+    private final List<String> employeeIds = new ArrayList<>();
+    private String activityId;
+
+    @AfterEach
+    public void tearDown() {
+        for (String draftId : draftIds) {
+            paymentService.deletePayment(draftId, "stress-test");
+        }
+        // Fixtures are committed so the worker threads can see them; remove them once the drafts are gone
+        workAssignmentRepository.deleteAllById(assignmentIds);
+        employeeSalaryRepository.deleteAllById(salaryIds);
+        employeeRepository.deleteAllById(employeeIds);
+        if (activityId != null) {
+            workActivityRepository.deleteById(activityId);
+        }
+    }
+
+    @Test
+    public void whenDraftsCompeteForAssignments_thenEachAssignmentIsInAtMostOnePayment() throws Exception {
+        createCompletedAssignments();
+        for (int i = 0; i < DRAFTS; i++) {
+            CreatePaymentDraftRequest request = new CreatePaymentDraftRequest();
+            request.setPaymentMonth(i + 1);
+            request.setPaymentYear(STRESS_YEAR);
+            draftIds.add(paymentService.createDraft(request, "stress-test").getId());
+        }
+
+        int threads = DRAFTS * THREADS_PER_DRAFT;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String draftId = draftIds.get(t % DRAFTS);
+            long seed = t;
+            // Every thread tries every assignment in its own order; several threads share each draft
+            results.add(executor.submit(() -> {
+                List<String> order = new ArrayList<>(assignmentIds);
+                Collections.shuffle(order, new Random(seed));
+                start.await();
+                int added = 0;
+                for (int i = 0; i < order.size(); i++) {
+                    try {
+                        if (i % 5 == 0 && i + 2 < order.size()) {
+                            paymentService.addLineItemsBatch(draftId, order.subList(i, i + 2), "stress-test");
+                            added += 2;
+                            i++;
+                        } else {
+                            paymentService.addLineItem(draftId, order.get(i), "stress-test");
+                            added++;
+                        }
+                    } catch (RuntimeException expectedConflict) {
+                        // Lost the race for an assignment (or a retried draft update); the invariants below decide
+                    }
+                }
+                return added;
+            }));
+        }
+        start.countDown();
+
+        int successfulAdds = 0;
+        for (Future<Integer> result : results) {
+            successfulAdds += result.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        Map<String, Integer> paymentsPerAssignment = new HashMap<>();
+        int lineItems = 0;
+        for (String draftId : draftIds) {
+            List<PaymentLineItem> items = paymentLineItemRepository.findByPaymentIdWithAssignment(draftId);
+            lineItems += items.size();
+            BigDecimal expectedTotal = BigDecimal.ZERO;
+            for (PaymentLineItem item : items) {
+                paymentsPerAssignment.merge(item.getAssignment().getId(), 1, Integer::sum);
+                assertThat(item.getAssignment().getIncludedInPaymentId()).isEqualTo(draftId);
+                assertThat(item.getAssignment().getPaymentStatus()).isEqualTo(WorkAssignment.PaymentStatus.DRAFT);
+                expectedTotal = expectedTotal.add(item.getAmount());
+            }
+            Payment draft = paymentRepository.findById(draftId).orElseThrow();
+            assertThat(draft.getTotalAmount()).isEqualByComparingTo(expectedTotal);
+        }
+
+        assertThat(paymentsPerAssignment.values()).allMatch(count -> count == 1);
+        assertThat(successfulAdds).isEqualTo(lineItems);
+        assertThat(lineItems).isPositive();
+        for (String assignmentId : assignmentIds) {
+            if (!paymentsPerAssignment.containsKey(assignmentId)) {
+                WorkAssignment assignment = workAssignmentRepository.findById(assignmentId).orElseThrow();
+                assertThat(assignment.getPaymentStatus()).isEqualTo(WorkAssignment.PaymentStatus.UNPAID);
+            }
+        }
+    }
+
+    private void createCompletedAssignments() {
+        transactionTemplate.executeWithoutResult(status -> {
+            WorkActivity activity = new WorkActivity();
+            activity.setName("Stress Test Activity");
+            activity = workActivityRepository.save(activity);
+            activityId = activity.getId();
+
+            List<Employee> employees = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Employee employee = new Employee();
+                employee.setName("Stress Worker " + i);
+                employee = employeeRepository.save(employee);
+
+                EmployeeSalary salary = new EmployeeSalary();
+                salary.setEmployee(employee);
+                salary.setAmount(new BigDecimal("12000.00"));
+                salary.setSalaryType(EmployeeSalary.SalaryType.MONTHLY);
+                salary.setCurrency("INR");
+                salary.setStartDate(LocalDate.of(2024, 1, 1));
+                salary.setVoluntaryPfPercentage(BigDecimal.ZERO);
+                salary.setIsActive(true);
+                salaryIds.add(employeeSalaryRepository.save(salary).getId());
+                employeeIds.add(employee.getId());
+                employees.add(employee);
+            }
+
+            for (int i = 0; i < ASSIGNMENTS; i++) {
+                WorkAssignment assignment = new WorkAssignment();
+                assignment.setWorkActivity(activity);
+                assignment.setActivityName(activity.getName());
+                assignment.setAssignedEmployee(employees.get(i % employees.size()));
+                assignment.setAssignmentDate(LocalDate.of(STRESS_YEAR, 1, 1).plusDays(i));
+                assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.COMPLETED);
+                assignment.setCompletionPercentage(50 + i % 51);
+                assignmentIds.add(workAssignmentRepository.save(assignment).getId());
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.config.DocumentStorageConfiguration;
+import com.sarlatea.crm.dto.PaymentDocumentContent;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Moves a legacy payment_documents.file_data blob into the document store, checking that the blob
+ * is only cleared on persistent storage and once the stored file reads back intact, and that
+ * documents not migrated yet are downloaded from their blob without being migrated.
+ */
+public class PaymentDocumentMigrationServiceTest extends BaseIntegrationTest {
+
+    @Autowired
+    private PaymentDocumentMigrationService migrationService;
+
+    @Autowired
+    private DocumentStorageConfiguration storageConfiguration;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private byte[] bytes;
+    private String contentHash;
+    private String paymentId;
+    private String documentId;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // The entity no longer maps the legacy column, so recreate it as older databases have it
+        jdbcTemplate.execute("ALTER TABLE payment_documents ADD COLUMN IF NOT EXISTS file_data BLOB");
+
+        // Unique per run, so no file for it is left in the store from an earlier run
+        bytes = ("Legacy challan " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        contentHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+
+        paymentId = paymentRepository.save(new Payment()).getId();
+        documentId = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO payment_documents (id, payment_id, file_name, file_type, file_size, file_data) " +
+                "VALUES (?, ?, 'challan.txt', 'text/plain', ?, ?)", documentId, paymentId, bytes.length, bytes);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        storageConfiguration.setPersistent(false);
+        paymentRepository.deleteById(paymentId);
+        jdbcTemplate.execute("ALTER TABLE payment_documents DROP COLUMN file_data");
+        Files.deleteIfExists(storedPath());
+    }
+
+    @Test
+    public void whenStoreIsNotPersistent_thenMigrationRefusesAndKeepsTheBlob() {
+        assertThatThrownBy(() -> migrationService.migrateLegacyBlobs())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("document-storage.persistent");
+
+        assertThat(documentRow().get("FILE_DATA")).isEqualTo(bytes);
+        assertThat(Files.exists(storedPath())).isFalse();
+    }
+
+    @Test
+    public void whenLegacyDocumentIsDownloaded_thenItIsServedFromItsBlobWithoutMigrating() throws Exception {
+        PaymentDocumentContent content = paymentService.downloadDocument(paymentId, documentId);
+
+        assertThat(content.getContent().getInputStream().readAllBytes()).isEqualTo(bytes);
+        assertThat(content.getContentHash()).isEqualTo(contentHash);
+        assertThat(content.getFileSize()).isEqualTo(bytes.length);
+
+        Map<String, Object> row = documentRow();
+        assertThat(row.get("FILE_DATA")).isEqualTo(bytes);
+        assertThat(row.get("CONTENT_HASH")).isNull();
+        assertThat(Files.exists(storedPath())).isFalse();
+    }
+
+    @Test
+    public void whenStoreIsPersistent_thenBlobIsClearedOnceStoredFileReadsBack() throws Exception {
+        storageConfiguration.setPersistent(true);
+
+        assertThat(migrationService.migrateLegacyBlobs()).isGreaterThanOrEqualTo(1);
+
+        Map<String, Object> row = documentRow();
+        assertThat(row.get("FILE_DATA")).isNull();
+        assertThat(row.get("CONTENT_HASH")).isEqualTo(contentHash);
+        assertThat(Files.readAllBytes(storedPath())).isEqualTo(bytes);
+        assertThat(paymentService.downloadDocument(paymentId, documentId).getContent().getInputStream().readAllBytes())
+                .isEqualTo(bytes);
+    }
+
+    @Test
+    public void whenStoredFileDoesNotMatchBlob_thenBlobIsKept() throws Exception {
+        storageConfiguration.setPersistent(true);
+        // A damaged file already under the blob's hash; the store keeps it rather than rewriting it
+        Files.createDirectories(storedPath().getParent());
+        Files.write(storedPath(), "damaged".getBytes(StandardCharsets.UTF_8));
+
+        migrationService.migrateLegacyBlobs();
+
+        Map<String, Object> row = documentRow();
+        assertThat(row.get("FILE_DATA")).isEqualTo(bytes);
+        assertThat(row.get("CONTENT_HASH")).isNull();
+    }
+
+    private Map<String, Object> documentRow() {
+        return jdbcTemplate.queryForMap("SELECT file_data, content_hash FROM payment_documents WHERE id = ?", documentId);
+    }
+
+    private Path storedPath() {
+        return Paths.get(storageConfiguration.getRootPath()).toAbsolutePath().normalize()
+                .resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+}
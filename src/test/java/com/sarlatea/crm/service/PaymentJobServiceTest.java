@@ -0,0 +1,139 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.dto.CancelPaymentRequest;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.model.PaymentJob;
+import com.sarlatea.crm.repository.PaymentJobRepository;
+import com.sarlatea.crm.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that a payment never has more than one queued or running job, even when jobs are
+ * created concurrently, and that startup recovery only fails jobs whose heartbeat has gone stale.
+ */
+public class PaymentJobServiceTest extends BaseIntegrationTest {
+
+    @Autowired
+    private PaymentJobService paymentJobService;
+
+    @Autowired
+    private PaymentJobRepository paymentJobRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    private final List<String> paymentIds = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        for (String paymentId : paymentIds) {
+            paymentJobRepository.deleteAll(paymentJobRepository.findByPaymentIdOrderByCreatedAtDesc(paymentId));
+        }
+        paymentRepository.deleteAllById(paymentIds);
+    }
+
+    @Test
+    public void whenPaymentHasActiveJob_thenNewJobIsRejected() {
+        Payment payment = new Payment();
+        payment.setPaymentTitle("Payment job test");
+        payment.setStatus(Payment.PaymentStatus.DRAFT);
+        payment = paymentRepository.save(payment);
+        paymentIds.add(payment.getId());
+        PaymentJob running = saveJob(payment.getId(), PaymentJob.JobStatus.RUNNING, LocalDateTime.now());
+        String paymentId = payment.getId();
+
+        assertThatThrownBy(() -> paymentJobService.startCancel(paymentId, new CancelPaymentRequest("test"), "test"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already has a job in progress");
+        assertThat(paymentJobRepository.findByPaymentIdOrderByCreatedAtDesc(paymentId)).hasSize(1);
+
+        // Finishing the job frees the payment for the next one
+        paymentJobRepository.finish(running.getId(), PaymentJob.JobStatus.COMPLETED, null, LocalDateTime.now());
+        saveJob(paymentId, PaymentJob.JobStatus.QUEUED, LocalDateTime.now());
+    }
+
+    @Test
+    public void whenJobsAreCreatedConcurrently_thenOnlyOneIsActive() throws Exception {
+        String paymentId = newPaymentId();
+        int threads = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    go.await(10, TimeUnit.SECONDS);
+                    try {
+                        saveJob(paymentId, PaymentJob.JobStatus.QUEUED, LocalDateTime.now());
+                        saved.incrementAndGet();
+                    } catch (DataIntegrityViolationException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(saved).hasValue(1);
+        assertThat(rejected).hasValue(threads - 1);
+    }
+
+    @Test
+    public void whenRecoveryRuns_thenOnlyJobsWithStaleHeartbeatAreFailed() {
+        PaymentJob abandoned = saveJob(newPaymentId(), PaymentJob.JobStatus.RUNNING, LocalDateTime.now().minusHours(1));
+        PaymentJob alive = saveJob(newPaymentId(), PaymentJob.JobStatus.RUNNING, LocalDateTime.now());
+
+        paymentJobService.failAbandonedJobs();
+
+        PaymentJob failed = paymentJobRepository.findById(abandoned.getId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(PaymentJob.JobStatus.FAILED);
+        assertThat(failed.getActivePaymentId()).isNull();
+        PaymentJob kept = paymentJobRepository.findById(alive.getId()).orElseThrow();
+        assertThat(kept.getStatus()).isEqualTo(PaymentJob.JobStatus.RUNNING);
+        assertThat(kept.getActivePaymentId()).isEqualTo(alive.getPaymentId());
+    }
+
+    // Jobs only reference their payment by id, so these payments need no row
+    private String newPaymentId() {
+        String paymentId = UUID.randomUUID().toString();
+        paymentIds.add(paymentId);
+        return paymentId;
+    }
+
+    private PaymentJob saveJob(String paymentId, PaymentJob.JobStatus status, LocalDateTime heartbeatAt) {
+        PaymentJob job = new PaymentJob();
+        job.setPaymentId(paymentId);
+        job.setActivePaymentId(paymentId);
+        job.setJobType(PaymentJob.JobType.CANCEL);
+        job.setStatus(status);
+        job.setRequestedBy("test");
+        job.setHeartbeatAt(heartbeatAt);
+        return paymentJobRepository.save(job);
+    }
+}
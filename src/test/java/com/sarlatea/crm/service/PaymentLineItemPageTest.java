@@ -0,0 +1,120 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.dto.CursorPageDTO;
+import com.sarlatea.crm.dto.PaymentLineItemDTO;
+import com.sarlatea.crm.model.Employee;
+import com.sarlatea.crm.model.Payment;
+import com.sarlatea.crm.model.PaymentLineItem;
+import com.sarlatea.crm.model.WorkActivity;
+import com.sarlatea.crm.model.WorkAssignment;
+import com.sarlatea.crm.repository.EmployeeRepository;
+import com.sarlatea.crm.repository.PaymentRepository;
+import com.sarlatea.crm.repository.WorkActivityRepository;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Walks a payment's line items one per page, including items without an assignment date,
+ * and checks every item comes back exactly once in listing order.
+ */
+public class PaymentLineItemPageTest extends BaseIntegrationTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private WorkAssignmentRepository workAssignmentRepository;
+
+    @Autowired
+    private WorkActivityRepository workActivityRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private final List<String> assignmentIds = new ArrayList<>();
+    private String paymentId;
+    private String employeeId;
+    private String activityId;
+
+    @AfterEach
+    public void tearDown() {
+        if (paymentId != null) {
+            paymentRepository.deleteById(paymentId);
+        }
+        workAssignmentRepository.deleteAllById(assignmentIds);
+        if (employeeId != null) {
+            employeeRepository.deleteById(employeeId);
+        }
+        if (activityId != null) {
+            workActivityRepository.deleteById(activityId);
+        }
+    }
+
+    @Test
+    public void whenPageEndsOnUndatedLineItem_thenNextPageContinuesAfterIt() {
+        WorkActivity activity = new WorkActivity();
+        activity.setName("Line Item Page Activity");
+        activity = workActivityRepository.save(activity);
+        activityId = activity.getId();
+        Employee employee = new Employee();
+        employee.setName("Line Item Page Worker");
+        employee = employeeRepository.save(employee);
+        employeeId = employee.getId();
+
+        Payment payment = new Payment();
+        payment.setPaymentTitle("Line item paging");
+        List<LocalDate> dates = Arrays.asList(LocalDate.of(2196, 8, 2), null, LocalDate.of(2196, 8, 1), null);
+        for (LocalDate date : dates) {
+            WorkAssignment assignment = new WorkAssignment();
+            assignment.setWorkActivity(activity);
+            assignment.setActivityName(activity.getName());
+            assignment.setAssignedEmployee(employee);
+            // Unlike the assignment's, the line item's date column is nullable
+            assignment.setAssignmentDate(LocalDate.of(2196, 8, 1));
+            assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.COMPLETED);
+            assignment = workAssignmentRepository.save(assignment);
+            assignmentIds.add(assignment.getId());
+
+            PaymentLineItem lineItem = new PaymentLineItem();
+            lineItem.setAssignment(assignment);
+            lineItem.setEmployee(employee);
+            lineItem.setWorkActivity(activity);
+            lineItem.setAssignmentDate(date);
+            lineItem.setQuantity(BigDecimal.ONE);
+            lineItem.setRate(BigDecimal.TEN);
+            lineItem.setAmount(BigDecimal.TEN);
+            lineItem.setNetAmount(BigDecimal.TEN);
+            payment.addLineItem(lineItem);
+        }
+        paymentId = paymentRepository.save(payment).getId();
+
+        List<PaymentLineItemDTO> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDTO<PaymentLineItemDTO> page = paymentService.getLineItemsPage(paymentId, null, cursor, 1);
+            walked.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Undated items first, each group in id order
+        assertThat(walked).hasSize(dates.size());
+        assertThat(walked).extracting(PaymentLineItemDTO::getId).doesNotHaveDuplicates();
+        assertThat(walked).extracting(PaymentLineItemDTO::getAssignmentDate)
+                .containsExactly(null, null, LocalDate.of(2196, 8, 1), LocalDate.of(2196, 8, 2));
+        assertThat(walked.get(0).getId()).isLessThan(walked.get(1).getId());
+    }
+}
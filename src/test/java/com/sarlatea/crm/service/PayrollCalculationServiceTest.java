@@ -0,0 +1,208 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.config.SalaryConfiguration;
+import com.sarlatea.crm.model.EmployeeSalary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Golden-value tests for the fixed-point payroll engine.
+ * The legacy* methods below are verbatim copies of the BigDecimal/double arithmetic that
+ * PaymentService and ReportService used before the engine existed; the engine must match them exactly.
+ */
+public class PayrollCalculationServiceTest {
+
+    private static final String[] AMOUNTS = {
+            "1.00", "99.99", "333.33", "725.00", "3500.50", "10000.00", "12345.67", "15000.00", "99999.99", "1234567.89"
+    };
+    private static final String[] VOLUNTARY_PF = {"0.00", "1.50", "2.50", "3.33", "5.00", "12.75"};
+
+    private PayrollCalculationService payrollCalculationService;
+
+    @BeforeEach
+    public void setUp() {
+        payrollCalculationService = new PayrollCalculationService(new SalaryConfiguration());
+    }
+
+    @Test
+    public void whenCalculateLine_thenMatchGoldenValues() {
+        assertLine(salary("15000.00", EmployeeSalary.SalaryType.MONTHLY, "5.00"), 75,
+                "500.0000", "375.00", "45.00", "18.75", "45.00", "63.75", "311.25");
+        assertLine(salary("10000.00", EmployeeSalary.SalaryType.MONTHLY, "2.50"), 33,
+                "333.3333", "110.00", "13.20", "2.75", "13.20", "15.95", "94.05");
+        assertLine(salary("3500.50", EmployeeSalary.SalaryType.WEEKLY, "1.50"), 67,
+                "500.0714", "335.05", "40.21", "5.03", "40.21", "45.24", "289.81");
+        assertLine(salary("725.00", EmployeeSalary.SalaryType.DAILY, "0.00"), 100,
+                "725.00", "725.00", "87.00", "0.00", "87.00", "87.00", "638.00");
+        assertLine(salary("12345.67", EmployeeSalary.SalaryType.MONTHLY, "3.33"), 99,
+                "411.5223", "407.41", "48.89", "13.57", "48.89", "62.46", "344.95");
+    }
+
+    @Test
+    public void whenCalculateBatch_thenMatchGoldenReportValues() {
+        EmployeeSalary salary = salary("3500.50", EmployeeSalary.SalaryType.WEEKLY, "1.50");
+        PayrollCalculationService.PayrollRates rates = payrollCalculationService.ratesFor(salary);
+
+        PayrollCalculationService.PayrollBatch batch =
+                payrollCalculationService.calculateBatch(rates, new int[]{67, 100, 50, 0, 25});
+        PayrollCalculationService.PayAmounts totals = payrollCalculationService.applyPf(rates, batch.getGrossPaise());
+
+        assertThat(totals.getAmount()).isEqualTo(new BigDecimal("1210.17"));
+        assertThat(totals.getEmployeePf()).isEqualTo(new BigDecimal("145.22"));
+        assertThat(totals.getVoluntaryPf()).isEqualTo(new BigDecimal("18.15"));
+        assertThat(totals.getEmployerPf()).isEqualTo(new BigDecimal("145.22"));
+        assertThat(totals.getNetAmount()).isEqualTo(new BigDecimal("1046.80"));
+        assertThat(PayrollCalculationService.toRupees(batch.amountPaise(1))).isEqualTo(new BigDecimal("500.07"));
+        assertThat(PayrollCalculationService.toRupees(batch.amountPaise(2))).isEqualTo(new BigDecimal("250.04"));
+    }
+
+    @Test
+    public void whenCalculateLine_thenMatchLegacyPaymentArithmeticForAllInputs() {
+        for (EmployeeSalary salary : allSalaries()) {
+            PayrollCalculationService.PayrollRates rates = payrollCalculationService.ratesFor(salary);
+            for (int completion = 0; completion <= 100; completion++) {
+                BigDecimal[] expected = legacyPaymentLine(salary, completion);
+                PayrollCalculationService.PayAmounts actual = payrollCalculationService.calculateLine(rates, completion);
+
+                assertThat(rates.getDailyRate()).isEqualTo(expected[0]);
+                assertThat(actual.getAmount()).isEqualTo(expected[1]);
+                assertThat(actual.getEmployeePf()).isEqualTo(expected[2]);
+                assertThat(actual.getVoluntaryPf()).isEqualTo(expected[3]);
+                assertThat(actual.getEmployerPf()).isEqualTo(expected[4]);
+                assertThat(actual.getPfAmount()).isEqualTo(expected[5]);
+                assertThat(actual.getNetAmount()).isEqualTo(expected[6]);
+            }
+        }
+    }
+
+    @Test
+    public void whenCalculateBatch_thenMatchLegacyReportArithmeticForRandomPeriods() {
+        Random random = new Random(20240101L);
+        SalaryConfiguration config = new SalaryConfiguration();
+        for (EmployeeSalary salary : allSalaries()) {
+            PayrollCalculationService.PayrollRates rates = payrollCalculationService.ratesFor(salary);
+            for (int period = 0; period < 20; period++) {
+                int[] completions = new int[1 + random.nextInt(31)];
+                for (int i = 0; i < completions.length; i++) {
+                    completions[i] = random.nextInt(101);
+                }
+
+                PayrollCalculationService.PayrollBatch batch = payrollCalculationService.calculateBatch(rates, completions);
+                PayrollCalculationService.PayAmounts totals = payrollCalculationService.applyPf(rates, batch.getGrossPaise());
+
+                BigDecimal calculatedPayment = legacyCalculatePaymentAmount(salary, completions);
+                BigDecimal voluntaryPfPercentage = salary.getVoluntaryPfPercentage();
+                BigDecimal employeePf = calculatedPayment.multiply(config.getEmployeePfPercentage())
+                        .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+                BigDecimal voluntaryPf = calculatedPayment.multiply(voluntaryPfPercentage)
+                        .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+                BigDecimal employerPf = calculatedPayment.multiply(config.getEmployerPfPercentage())
+                        .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+
+                assertThat(totals.getAmount()).isEqualTo(calculatedPayment);
+                assertThat(totals.getEmployeePf()).isEqualTo(employeePf);
+                assertThat(totals.getVoluntaryPf()).isEqualTo(voluntaryPf);
+                assertThat(totals.getEmployerPf()).isEqualTo(employerPf);
+                assertThat(totals.getNetAmount()).isEqualTo(calculatedPayment.subtract(employeePf).subtract(voluntaryPf));
+                for (int i = 0; i < completions.length; i++) {
+                    assertThat(PayrollCalculationService.toRupees(batch.amountPaise(i)))
+                            .isEqualTo(legacyAssignmentContribution(salary, completions[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void whenDivideHalfUp_thenRoundHalfAwayFromZero() {
+        assertThat(PayrollCalculationService.divideHalfUp(15, 10)).isEqualTo(2);
+        assertThat(PayrollCalculationService.divideHalfUp(14, 10)).isEqualTo(1);
+        assertThat(PayrollCalculationService.divideHalfUp(-15, 10)).isEqualTo(-2);
+        assertThat(PayrollCalculationService.divideHalfUp(-14, 10)).isEqualTo(-1);
+    }
+
+    private void assertLine(EmployeeSalary salary, int completion, String dailyRate, String amount, String employeePf,
+                            String voluntaryPf, String employerPf, String pfAmount, String netAmount) {
+        PayrollCalculationService.PayrollRates rates = payrollCalculationService.ratesFor(salary);
+        PayrollCalculationService.PayAmounts line = payrollCalculationService.calculateLine(rates, completion);
+        assertThat(rates.getDailyRate()).isEqualTo(new BigDecimal(dailyRate));
+        assertThat(line.getAmount()).isEqualTo(new BigDecimal(amount));
+        assertThat(line.getEmployeePf()).isEqualTo(new BigDecimal(employeePf));
+        assertThat(line.getVoluntaryPf()).isEqualTo(new BigDecimal(voluntaryPf));
+        assertThat(line.getEmployerPf()).isEqualTo(new BigDecimal(employerPf));
+        assertThat(line.getPfAmount()).isEqualTo(new BigDecimal(pfAmount));
+        assertThat(line.getNetAmount()).isEqualTo(new BigDecimal(netAmount));
+    }
+
+    private static EmployeeSalary[] allSalaries() {
+        EmployeeSalary.SalaryType[] types = EmployeeSalary.SalaryType.values();
+        EmployeeSalary[] salaries = new EmployeeSalary[AMOUNTS.length * types.length * VOLUNTARY_PF.length];
+        int i = 0;
+        for (String amount : AMOUNTS) {
+            for (EmployeeSalary.SalaryType type : types) {
+                for (String voluntaryPf : VOLUNTARY_PF) {
+                    salaries[i++] = salary(amount, type, voluntaryPf);
+                }
+            }
+        }
+        return salaries;
+    }
+
+    private static EmployeeSalary salary(String amount, EmployeeSalary.SalaryType type, String voluntaryPf) {
+        EmployeeSalary salary = new EmployeeSalary();
+        salary.setAmount(new BigDecimal(amount));
+        salary.setSalaryType(type);
+        salary.setVoluntaryPfPercentage(new BigDecimal(voluntaryPf));
+        return salary;
+    }
+
+    // ==================== Legacy arithmetic (reference) ====================
+
+    /**
+     * PaymentService.addLineItemToPayment before the payroll engine:
+     * {rate, amount, employeePf, voluntaryPf, employerPf, pfAmount, netAmount}
+     */
+    private static BigDecimal[] legacyPaymentLine(EmployeeSalary activeSalary, Integer completionPercentage) {
+        BigDecimal dailyRate = activeSalary.calculateDailyRate();
+        BigDecimal completionRate = BigDecimal.valueOf(completionPercentage).divide(new BigDecimal("100"), 4, RoundingMode.HALF_UP);
+        BigDecimal amount = dailyRate.multiply(completionRate).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal employeePfPercentage = new BigDecimal("12.00");
+        BigDecimal voluntaryPfPercentage = activeSalary.getVoluntaryPfPercentage() != null ?
+                activeSalary.getVoluntaryPfPercentage() : BigDecimal.ZERO;
+        BigDecimal employerPfPercentage = new BigDecimal("12.00");
+        BigDecimal employeePf = amount.multiply(employeePfPercentage).divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+        BigDecimal voluntaryPf = amount.multiply(voluntaryPfPercentage).divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+        BigDecimal pfAmount = employeePf.add(voluntaryPf);
+        BigDecimal netAmount = amount.subtract(pfAmount).subtract(BigDecimal.ZERO);
+        BigDecimal employerPf = amount.multiply(employerPfPercentage).divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+        return new BigDecimal[]{dailyRate, amount, employeePf, voluntaryPf, employerPf, pfAmount, netAmount};
+    }
+
+    /**
+     * ReportService.calculatePaymentAmount before the payroll engine
+     */
+    private static BigDecimal legacyCalculatePaymentAmount(EmployeeSalary salary, int[] completionPercentages) {
+        BigDecimal dailyRate = salary.calculateDailyRate();
+        BigDecimal totalPayment = BigDecimal.ZERO;
+        for (int completionPercentage : completionPercentages) {
+            double completionRate = completionPercentage / 100.0;
+            BigDecimal assignmentPayment = dailyRate.multiply(BigDecimal.valueOf(completionRate));
+            totalPayment = totalPayment.add(assignmentPayment);
+        }
+        return totalPayment.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * ReportService.createAssignmentDetail contribution before the payroll engine
+     */
+    private static BigDecimal legacyAssignmentContribution(EmployeeSalary salary, int completionPercentage) {
+        double completionRate = completionPercentage / 100.0;
+        BigDecimal dailyRate = salary.calculateDailyRate();
+        return dailyRate.multiply(BigDecimal.valueOf(completionRate)).setScale(2, RoundingMode.HALF_UP);
+    }
+}
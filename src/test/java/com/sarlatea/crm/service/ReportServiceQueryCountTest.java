@@ -0,0 +1,142 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.dto.PaymentReportDTO;
+import com.sarlatea.crm.model.Employee;
+import com.sarlatea.crm.model.EmployeeSalary;
+import com.sarlatea.crm.model.WorkActivity;
+import com.sarlatea.crm.model.WorkAssignment;
+import com.sarlatea.crm.repository.EmployeeRepository;
+import com.sarlatea.crm.repository.EmployeeSalaryRepository;
+import com.sarlatea.crm.repository.WorkActivityRepository;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the payment report at a constant number of SQL statements, however many employees it covers:
+ * one fetch-join of assignments and employees; salaries come from the salary timeline index.
+ */
+public class ReportServiceQueryCountTest extends BaseIntegrationTest {
+
+    private static final int REPORT_YEAR = 2198;
+    private static final int ASSIGNMENTS_PER_EMPLOYEE = 3;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeSalaryRepository employeeSalaryRepository;
+
+    @Autowired
+    private WorkActivityRepository workActivityRepository;
+
+    @Autowired
+    private WorkAssignmentRepository workAssignmentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<String> assignmentIds = new ArrayList<>();
+    private final List<String> salaryIds = new ArrayList<>();
+    private final List<String> employeeIds = new ArrayList<>();
+    private final List<String> activityIds = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        workAssignmentRepository.deleteAllById(assignmentIds);
+        employeeSalaryRepository.deleteAllById(salaryIds);
+        employeeRepository.deleteAllById(employeeIds);
+        workActivityRepository.deleteAllById(activityIds);
+    }
+
+    @Test
+    public void whenReportCoversMoreEmployees_thenStatementCountStaysConstant() {
+        LocalDate smallStart = LocalDate.of(REPORT_YEAR, 1, 1);
+        LocalDate largeStart = LocalDate.of(REPORT_YEAR, 2, 1);
+        createPeriod(smallStart, 2);
+        createPeriod(largeStart, 40);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            PaymentReportDTO small = reportService.generatePaymentReport(smallStart, smallStart.plusDays(27));
+            long smallStatements = statistics.getPrepareStatementCount();
+
+            statistics.clear();
+            PaymentReportDTO large = reportService.generatePaymentReport(largeStart, largeStart.plusDays(27));
+            long largeStatements = statistics.getPrepareStatementCount();
+
+            // Each period also has one employee without a salary
+            assertThat(small.getTotalEmployees()).isEqualTo(3);
+            assertThat(large.getTotalEmployees()).isEqualTo(41);
+            assertThat(large.getEmployeePayments())
+                    .filteredOn(summary -> summary.getAssignments().size() == ASSIGNMENTS_PER_EMPLOYEE)
+                    .hasSize(40);
+            assertThat(large.getTotalPaymentAmount()).isPositive();
+
+            assertThat(smallStatements).isEqualTo(1);
+            assertThat(largeStatements).isEqualTo(smallStatements);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private void createPeriod(LocalDate periodStart, int employeesWithSalary) {
+        transactionTemplate.executeWithoutResult(status -> {
+            WorkActivity activity = new WorkActivity();
+            activity.setName("Report Query Count " + periodStart);
+            activity = workActivityRepository.save(activity);
+            activityIds.add(activity.getId());
+
+            for (int i = 0; i <= employeesWithSalary; i++) {
+                Employee employee = new Employee();
+                employee.setName("Report Worker " + periodStart + " " + i);
+                employee = employeeRepository.save(employee);
+                employeeIds.add(employee.getId());
+
+                if (i < employeesWithSalary) {
+                    EmployeeSalary salary = new EmployeeSalary();
+                    salary.setEmployee(employee);
+                    salary.setAmount(new BigDecimal("9000.00").add(BigDecimal.valueOf(i)));
+                    salary.setSalaryType(EmployeeSalary.SalaryType.MONTHLY);
+                    salary.setCurrency("INR");
+                    salary.setStartDate(periodStart.minusYears(1));
+                    salary.setVoluntaryPfPercentage(BigDecimal.ZERO);
+                    salary.setIsActive(true);
+                    salaryIds.add(employeeSalaryRepository.save(salary).getId());
+                }
+
+                for (int day = 0; day < ASSIGNMENTS_PER_EMPLOYEE; day++) {
+                    WorkAssignment assignment = new WorkAssignment();
+                    assignment.setWorkActivity(activity);
+                    assignment.setActivityName(activity.getName());
+                    assignment.setAssignedEmployee(employee);
+                    assignment.setAssignmentDate(periodStart.plusDays(day));
+                    assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.COMPLETED);
+                    assignment.setCompletionPercentage(100);
+                    assignmentIds.add(workAssignmentRepository.save(assignment).getId());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package com.sarlatea.crm.service;
+
+import com.sarlatea.crm.BaseIntegrationTest;
+import com.sarlatea.crm.config.SyncConfiguration;
+import com.sarlatea.crm.dto.BulkEvaluationRequest;
+import com.sarlatea.crm.dto.BulkEvaluationResultDTO;
+import com.sarlatea.crm.dto.SyncAssignmentDTO;
+import com.sarlatea.crm.dto.SyncDeltaDTO;
+import com.sarlatea.crm.dto.SyncEmployeeDTO;
+import com.sarlatea.crm.model.Employee;
+import com.sarlatea.crm.model.WorkActivity;
+import com.sarlatea.crm.model.WorkActivityCompletionCriteria;
+import com.sarlatea.crm.model.WorkAssignment;
+import com.sarlatea.crm.repository.EmployeeRepository;
+import com.sarlatea.crm.repository.WorkActivityCompletionCriteriaRepository;
+import com.sarlatea.crm.repository.WorkActivityRepository;
+import com.sarlatea.crm.repository.WorkAssignmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Syncs, changes a few rows through the services and syncs again with the returned watermark,
+ * checking that the delta holds exactly those changes. The overlap is shortened while the test runs,
+ * so the rows written while setting up can age out of it instead of being resent.
+ */
+public class SyncServiceTest extends BaseIntegrationTest {
+
+    // Far from the sample data, so only this test's assignments fall inside the sync window
+    private static final LocalDate ASSIGNMENTS_FROM = LocalDate.of(2197, 6, 1);
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private SyncConfiguration syncConfiguration;
+
+    @Autowired
+    private WorkAssignmentService workAssignmentService;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private WorkAssignmentRepository workAssignmentRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private WorkActivityRepository workActivityRepository;
+
+    @Autowired
+    private WorkActivityCompletionCriteriaRepository criteriaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<String> assignmentIds = new ArrayList<>();
+    private final List<String> employeeIds = new ArrayList<>();
+    private String activityId;
+    private String criteriaId;
+    private Duration watermarkOverlap;
+    private Duration maxWriteTransaction;
+
+    @BeforeEach
+    public void setUp() {
+        watermarkOverlap = syncConfiguration.getWatermarkOverlap();
+        maxWriteTransaction = syncConfiguration.getMaxWriteTransaction();
+        syncConfiguration.setWatermarkOverlap(Duration.ofSeconds(1));
+        syncConfiguration.setMaxWriteTransaction(Duration.ofMillis(500));
+
+        WorkActivity activity = new WorkActivity();
+        activity.setName("Sync Test Activity");
+        activityId = workActivityRepository.save(activity).getId();
+
+        for (int i = 0; i < 3; i++) {
+            Employee employee = new Employee();
+            employee.setName("Sync Worker " + i);
+            employeeIds.add(employeeRepository.save(employee).getId());
+        }
+
+        for (int i = 0; i < 3; i++) {
+            WorkAssignment assignment = new WorkAssignment();
+            assignment.setWorkActivity(activity);
+            assignment.setActivityName(activity.getName());
+            assignment.setAssignedEmployee(employeeRepository.getReferenceById(employeeIds.get(0)));
+            assignment.setAssignmentDate(ASSIGNMENTS_FROM.plusDays(i));
+            assignment.setAssignmentStatus(WorkAssignment.AssignmentStatus.ASSIGNED);
+            assignmentIds.add(workAssignmentRepository.save(assignment).getId());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        workAssignmentRepository.deleteAllById(assignmentIds);
+        if (criteriaId != null) {
+            criteriaRepository.deleteById(criteriaId);
+        }
+        employeeRepository.deleteAllById(employeeRepository.findAllById(employeeIds).stream()
+                .map(Employee::getId)
+                .toList());
+        workActivityRepository.deleteById(activityId);
+        syncConfiguration.setWatermarkOverlap(watermarkOverlap);
+        syncConfiguration.setMaxWriteTransaction(maxWriteTransaction);
+    }
+
+    @Test
+    public void whenRowsChangeAfterSync_thenNextSyncReturnsExactlyThoseChanges() throws InterruptedException {
+        // Let the rows written by setUp fall behind the overlap before taking the first watermark
+        Thread.sleep(1100);
+
+        SyncDeltaDTO full = syncService.getChangesSince(null, ASSIGNMENTS_FROM);
+        assertThat(full.getFullResync()).isTrue();
+        assertThat(full.getAssignments()).extracting(SyncAssignmentDTO::getId)
+                .containsExactlyInAnyOrderElementsOf(assignmentIds);
+        assertThat(full.getEmployees()).extracting(SyncEmployeeDTO::getId).containsAll(employeeIds);
+
+        String reassigned = assignmentIds.get(0);
+        String removed = assignmentIds.get(1);
+        String deletedEmployee = employeeIds.get(2);
+        workAssignmentService.assignToEmployee(reassigned, employeeIds.get(1));
+        workAssignmentService.deleteAssignment(removed);
+        employeeService.deleteEmployee(deletedEmployee);
+
+        SyncDeltaDTO delta = syncService.getChangesSince(full.getWatermark(), full.getAssignmentsFrom());
+        assertThat(delta.getFullResync()).isFalse();
+        assertThat(delta.getWatermark()).isAfter(full.getWatermark());
+        assertThat(delta.getAssignments()).singleElement().satisfies(row -> {
+            assertThat(row.getId()).isEqualTo(reassigned);
+            assertThat(row.getAssignedEmployeeId()).isEqualTo(employeeIds.get(1));
+        });
+        assertThat(delta.getDeletedAssignmentIds()).containsExactly(removed);
+        assertThat(delta.getDeletedEmployeeIds()).containsExactly(deletedEmployee);
+        assertThat(delta.getEmployees()).isEmpty();
+        assertThat(delta.getActivities()).isEmpty();
+        assertThat(delta.getDeletedActivityIds()).isEmpty();
+    }
+
+    @Test
+    public void whenAssignmentsAreEvaluatedInBulk_thenNextSyncReturnsThem() throws InterruptedException {
+        addCompletionCriteria();
+        Thread.sleep(1100);
+
+        SyncDeltaDTO full = syncService.getChangesSince(null, ASSIGNMENTS_FROM);
+        String evaluated = assignmentIds.get(2);
+        BulkEvaluationResultDTO result = workAssignmentService.updateCompletionPercentages(evaluationOf(evaluated, 5.0));
+        assertThat(result.getEvaluatedCount()).isEqualTo(1);
+
+        SyncDeltaDTO delta = syncService.getChangesSince(full.getWatermark(), full.getAssignmentsFrom());
+        assertThat(delta.getAssignments()).singleElement().satisfies(row -> {
+            assertThat(row.getId()).isEqualTo(evaluated);
+            assertThat(row.getCompletionPercentage()).isEqualTo(50);
+        });
+    }
+
+    @Test
+    public void whenBulkEvaluationOutlastsBound_thenItIsRolledBack() {
+        addCompletionCriteria();
+        String assignmentId = assignmentIds.get(0);
+
+        // The evaluation UPDATE goes around the entity listener, so only an explicit stamp arms the bound
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            workAssignmentService.updateCompletionPercentages(evaluationOf(assignmentId, 5.0));
+            try {
+                Thread.sleep(700);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("sync.max-write-transaction");
+
+        assertThat(workAssignmentRepository.findById(assignmentId).orElseThrow().getEvaluationCount()).isZero();
+    }
+
+    @Test
+    public void whenWriteTransactionOutlastsBound_thenItIsRolledBack() {
+        String employeeId = employeeIds.get(0);
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            Employee employee = employeeRepository.findById(employeeId).orElseThrow();
+            employee.setName("Renamed Too Late");
+            employeeRepository.saveAndFlush(employee);
+            try {
+                Thread.sleep(700);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("sync.max-write-transaction");
+
+        assertThat(employeeRepository.findById(employeeId).orElseThrow().getName()).isEqualTo("Sync Worker 0");
+    }
+
+    private void addCompletionCriteria() {
+        WorkActivityCompletionCriteria criteria = new WorkActivityCompletionCriteria();
+        criteria.setWorkActivity(workActivityRepository.getReferenceById(activityId));
+        criteria.setUnit("KG");
+        criteria.setValue(BigDecimal.TEN);
+        criteria.setStartDate(ASSIGNMENTS_FROM);
+        criteriaId = criteriaRepository.save(criteria).getId();
+    }
+
+    private static BulkEvaluationRequest evaluationOf(String assignmentId, double actualValue) {
+        return new BulkEvaluationRequest(List.of(new BulkEvaluationRequest.Evaluation(assignmentId, actualValue)));
+    }
+}